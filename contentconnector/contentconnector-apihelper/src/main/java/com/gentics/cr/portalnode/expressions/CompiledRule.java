@@ -0,0 +1,199 @@
+package com.gentics.cr.portalnode.expressions;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+
+import com.gentics.api.lib.exception.ParserException;
+import com.gentics.api.lib.expressionparser.Expression;
+import com.gentics.api.lib.expressionparser.ExpressionParserException;
+import com.gentics.api.lib.resolving.Resolvable;
+
+/**
+ * Rule that is matched against many objects (e.g. the rule of a transformer or highlighter). Simple rules are
+ * compiled into a direct check that does not need the {@link com.gentics.api.lib.expressionparser.ExpressionEvaluator}:
+ * <ul>
+ * <li>constant rules like <code>1==1</code>, <code>true</code> or <code>false</code></li>
+ * <li>comparisons of an attribute with a literal like <code>object.obj_type == 10007</code> or
+ * <code>object.name != "index"</code></li>
+ * </ul>
+ * All other rules and all values that cannot be compared directly (e.g. <code>null</code> or collections) are
+ * evaluated by the expression engine.
+ */
+public final class CompiledRule {
+
+	/**
+	 * Log4j logger for error and debug messages.
+	 */
+	private static Logger logger = Logger.getLogger(CompiledRule.class);
+
+	/**
+	 * Pattern for constant rules.
+	 */
+	private static final Pattern CONSTANT_PATTERN = Pattern.compile("\\s*(?:(true|false)|(\\d+)\\s*==\\s*(\\d+))\\s*");
+
+	/**
+	 * Pattern for the comparison of an attribute with a literal.
+	 */
+	private static final Pattern COMPARISON_PATTERN = Pattern.compile("\\s*object\\.([A-Za-z_][A-Za-z0-9_]*)\\s*"
+			+ "(==|!=)\\s*(?:(-?\\d+(?:\\.\\d+)?)|\"([^\"\\\\]*)\"|'([^'\\\\]*)')\\s*");
+
+	/**
+	 * Pattern for string values that are compared as numbers.
+	 */
+	private static final Pattern NUMBER_PATTERN = Pattern.compile("-?\\d+(?:\\.\\d+)?");
+
+	/**
+	 * The rule as configured.
+	 */
+	private final String rule;
+
+	/**
+	 * Parsed rule for the expression engine.
+	 */
+	private final Expression expression;
+
+	/**
+	 * Result of a constant rule, null if the rule is not constant.
+	 */
+	private Boolean constant = null;
+
+	/**
+	 * Compared attribute, null if the rule is not a simple comparison.
+	 */
+	private String attribute = null;
+
+	/**
+	 * true if the comparison is <code>!=</code>.
+	 */
+	private boolean negate = false;
+
+	/**
+	 * Numeric literal of the comparison.
+	 */
+	private Double numberLiteral = null;
+
+	/**
+	 * String literal of the comparison.
+	 */
+	private String stringLiteral = null;
+
+	/**
+	 * Set once the first evaluation error was logged, further errors are only logged in debug mode.
+	 */
+	private volatile boolean errorLogged = false;
+
+	/**
+	 * Create a new rule.
+	 * @param rule rule
+	 * @param expression parsed rule
+	 */
+	private CompiledRule(final String rule, final Expression expression) {
+		this.rule = rule;
+		this.expression = expression;
+	}
+
+	/**
+	 * Parse and compile the given rule.
+	 * @param rule rule, e.g. <code>object.obj_type == 10007</code>
+	 * @return compiled rule
+	 * @throws ParserException when the rule cannot be parsed into an {@link Expression}
+	 */
+	public static CompiledRule compile(final String rule) throws ParserException {
+		CompiledRule compiledRule = new CompiledRule(rule, ExpressionParserHelper.parse(rule));
+		if (rule == null) {
+			return compiledRule;
+		}
+		Matcher constantMatcher = CONSTANT_PATTERN.matcher(rule);
+		if (constantMatcher.matches()) {
+			if (constantMatcher.group(1) != null) {
+				compiledRule.constant = Boolean.valueOf(constantMatcher.group(1));
+			} else {
+				compiledRule.constant = Boolean.valueOf(Long.parseLong(constantMatcher.group(2)) == Long
+						.parseLong(constantMatcher.group(3)));
+			}
+			return compiledRule;
+		}
+		Matcher comparisonMatcher = COMPARISON_PATTERN.matcher(rule);
+		if (comparisonMatcher.matches()) {
+			compiledRule.attribute = comparisonMatcher.group(1);
+			compiledRule.negate = "!=".equals(comparisonMatcher.group(2));
+			if (comparisonMatcher.group(3) != null) {
+				compiledRule.numberLiteral = Double.valueOf(comparisonMatcher.group(3));
+			} else if (comparisonMatcher.group(4) != null) {
+				compiledRule.stringLiteral = comparisonMatcher.group(4);
+			} else {
+				compiledRule.stringLiteral = comparisonMatcher.group(5);
+			}
+		}
+		return compiledRule;
+	}
+
+	/**
+	 * @return the rule as configured
+	 */
+	public String getRule() {
+		return rule;
+	}
+
+	/**
+	 * @return true if the rule is checked without the expression engine (at least for values that can be compared
+	 * directly)
+	 */
+	public boolean isCompiled() {
+		return constant != null || attribute != null;
+	}
+
+	/**
+	 * Tests if the given {@link Resolvable} matches the rule. Errors of the expression engine are logged and the
+	 * object does not match.
+	 * @param object {@link Resolvable} to test
+	 * @return true if the rule matches
+	 */
+	public boolean match(final Resolvable object) {
+		if (object == null) {
+			return false;
+		}
+		if (constant != null) {
+			return constant.booleanValue();
+		}
+		if (attribute != null) {
+			Boolean equal = compare(object.get(attribute));
+			if (equal != null) {
+				return equal.booleanValue() != negate;
+			}
+		}
+		try {
+			return ExpressionParserHelper.match(expression, object);
+		} catch (ExpressionParserException e) {
+			if (!errorLogged) {
+				errorLogged = true;
+				logger.error("Could not evaluate rule " + rule + ", objects that cannot be evaluated do not match.", e);
+			} else if (logger.isDebugEnabled()) {
+				logger.debug("Could not evaluate rule " + rule + " for " + object, e);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compare the value of the attribute with the literal of the rule.
+	 * @param value value of the attribute
+	 * @return true if the value equals the literal, null if the value has to be compared by the expression engine
+	 */
+	private Boolean compare(final Object value) {
+		if (value instanceof String) {
+			String stringValue = (String) value;
+			if (stringLiteral != null) {
+				return Boolean.valueOf(stringLiteral.equals(stringValue));
+			}
+			if (NUMBER_PATTERN.matcher(stringValue).matches()) {
+				return Boolean.valueOf(Double.parseDouble(stringValue) == numberLiteral.doubleValue());
+			}
+		} else if (value instanceof Number && numberLiteral != null) {
+			return Boolean.valueOf(((Number) value).doubleValue() == numberLiteral.doubleValue());
+		}
+		return null;
+	}
+}
@@ -0,0 +1,91 @@
+package com.gentics.cr.portalnode.expressions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.gentics.api.lib.exception.ParserException;
+import com.gentics.api.lib.expressionparser.Expression;
+import com.gentics.api.lib.expressionparser.ExpressionParserException;
+import com.gentics.api.lib.resolving.Resolvable;
+
+public class CompiledRuleTest {
+
+	private static final String[] RULES = new String[] { "1==1", "true", "false", "object.obj_type == 10007",
+			"object.obj_type != 10007", "object.obj_type==10008", "object.name == \"index\"",
+			"object.name != 'index'", "object.obj_type == 10007 && object.name == \"index\"" };
+
+	@BeforeClass
+	public static void init() throws URISyntaxException {
+		File cacheConfigFile = new File(CompiledRuleTest.class.getResource("/gentics").toURI());
+		System.setProperty("com.gentics.portalnode.confpath", cacheConfigFile.toString());
+	}
+
+	private static Resolvable createResolvable(final Object objType, final Object name) {
+		Map<String, Object> attributes = new HashMap<String, Object>();
+		attributes.put("obj_type", objType);
+		attributes.put("name", name);
+		return new SimpleResolvable(attributes);
+	}
+
+	private static List<Resolvable> createResolvables() {
+		List<Resolvable> resolvables = new ArrayList<Resolvable>();
+		resolvables.add(createResolvable("10007", "index"));
+		resolvables.add(createResolvable(10007, "index"));
+		resolvables.add(createResolvable(10008L, "contact"));
+		resolvables.add(createResolvable("10008", null));
+		resolvables.add(createResolvable(null, "index"));
+		return resolvables;
+	}
+
+	@Test
+	public void testCompiled() throws ParserException {
+		assertTrue(CompiledRule.compile("1==1").isCompiled());
+		assertTrue(CompiledRule.compile(" object.obj_type == 10007 ").isCompiled());
+		assertTrue(CompiledRule.compile("object.name != 'index'").isCompiled());
+		assertFalse(CompiledRule.compile("object.parent.contentid == \"10001.1\"").isCompiled());
+		assertFalse(CompiledRule.compile("object.obj_type == 10007 || object.obj_type == 10008").isCompiled());
+	}
+
+	@Test
+	public void testSameResultAsExpressionEngine() throws ParserException, ExpressionParserException {
+		for (String rule : RULES) {
+			CompiledRule compiledRule = CompiledRule.compile(rule);
+			Expression expression = ExpressionParserHelper.parse(rule);
+			for (Resolvable resolvable : createResolvables()) {
+				assertEquals(rule + " for " + resolvable.get("obj_type") + "/" + resolvable.get("name"),
+					ExpressionParserHelper.match(expression, resolvable), compiledRule.match(resolvable));
+			}
+		}
+	}
+
+	@Test
+	public void testNullObject() throws ParserException {
+		assertFalse(CompiledRule.compile("1==1").match(null));
+	}
+
+	@Test
+	public void testNotCompiledRuleIsEvaluated() throws ParserException, ExpressionParserException {
+		String rule = "object.obj_type == 10007 || object.obj_type == 10008";
+		CompiledRule compiledRule = CompiledRule.compile(rule);
+		assertFalse(compiledRule.isCompiled());
+		assertEquals(rule, compiledRule.getRule());
+		Expression expression = ExpressionParserHelper.parse(rule);
+		for (Resolvable resolvable : createResolvables()) {
+			assertEquals(rule + " for " + resolvable.get("obj_type"), ExpressionParserHelper.match(expression,
+				resolvable), compiledRule.match(resolvable));
+		}
+		assertTrue(compiledRule.match(createResolvable(10008L, "contact")));
+		assertFalse(compiledRule.match(createResolvable("10009", "contact")));
+	}
+}
@@ -1,18 +1,30 @@
 package com.gentics.cr;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 import org.apache.log4j.Logger;
 
 import com.gentics.api.lib.datasource.Datasource;
+import com.gentics.api.lib.datasource.Datasource.Sorting;
 import com.gentics.api.lib.datasource.DatasourceException;
+import com.gentics.api.lib.etc.ObjectTransformer;
 import com.gentics.api.lib.exception.ParserException;
 import com.gentics.api.lib.expressionparser.ExpressionParserException;
 import com.gentics.api.lib.expressionparser.filtergenerator.DatasourceFilter;
 import com.gentics.api.lib.resolving.Resolvable;
 import com.gentics.cr.exceptions.CRException;
+import com.gentics.cr.monitoring.MonitorFactory;
 import com.gentics.cr.util.ArrayHelper;
 import com.gentics.cr.util.RequestWrapper;
 
@@ -22,6 +34,13 @@ import com.gentics.cr.util.RequestWrapper;
  * Either a root element is given, or it will go up until there is no further
  * parent.
  * It does not support doNavigation.
+ * If parentcache=true is configured the folders are loaded in bulk and
+ * cached per configuration, application rule and requested attributes. The
+ * cache is reloaded when the youngest updatetimestamp or the number of the
+ * folders changes. So the active path is resolved in memory with two queries
+ * for the timestamp and the count. The application rule is applied when the
+ * folders are loaded, so the cache must not be enabled if the rule depends on
+ * the request.
  * Last changed: $Date: 2010-04-01 15:24:02 +0200 (Do, 01 Apr 2010) $
  * @version $Revision: 541 $
  * @author $Author: supnig@constantinopel.at $
@@ -38,6 +57,88 @@ public class CRActivePathRequestProcessor extends RequestProcessor {
 	private static final Logger LOG = Logger
 			.getLogger(CRActivePathRequestProcessor.class);
 
+	/**
+	 * Key to enable the cache of the folders (default: false).
+	 */
+	private static final String PARENT_CACHE_KEY = "parentcache";
+
+	/**
+	 * Maximum number of cached folder maps.
+	 */
+	private static final int PARENT_CACHE_SIZE = 16;
+
+	/**
+	 * Attribute that changes whenever an object is changed.
+	 */
+	private static final String UPDATEATTRIBUTE = "updatetimestamp";
+
+	/**
+	 * Cached folders by configuration, application rule and requested
+	 * attributes, the least recently used maps are removed first.
+	 */
+	private static final Map<String, ParentMap> PARENT_MAPS =
+			new LinkedHashMap<String, ParentMap>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(
+				final Map.Entry<String, ParentMap> eldest) {
+			return size() > PARENT_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * True if the folders are cached.
+	 */
+	private final boolean useParentCache;
+
+	/**
+	 * Folders of a content repository by their contentid.
+	 */
+	private static final class ParentMap {
+		/**
+		 * Youngest updatetimestamp of the folders when they were loaded.
+		 */
+		private final int updatetimestamp;
+
+		/**
+		 * Number of folders when they were loaded, it changes when a folder
+		 * is deleted.
+		 */
+		private final int folderCount;
+
+		/**
+		 * Folders by their contentid, prefilled with the requested
+		 * attributes.
+		 */
+		private final Map<String, Resolvable> folders;
+
+		/**
+		 * Create a new map.
+		 * @param updatetimestamp youngest updatetimestamp of the folders
+		 * @param folderCount number of folders
+		 * @param folders folders by their contentid
+		 */
+		private ParentMap(final int updatetimestamp, final int folderCount,
+				final Map<String, Resolvable> folders) {
+			this.updatetimestamp = updatetimestamp;
+			this.folderCount = folderCount;
+			this.folders = folders;
+		}
+
+		/**
+		 * @param currentTimestamp current youngest updatetimestamp of the
+		 * folders
+		 * @param currentCount current number of folders
+		 * @return true if the folders have not changed since they were loaded
+		 */
+		private boolean isCurrent(final int currentTimestamp,
+				final int currentCount) {
+			return updatetimestamp == currentTimestamp
+					&& folderCount == currentCount;
+		}
+	}
+
 
 	/**
 	 * Create a new instance of CRRequestProcessor.
@@ -47,6 +148,8 @@ public class CRActivePathRequestProcessor extends RequestProcessor {
 	public CRActivePathRequestProcessor(final CRConfig config)
 			throws CRException {
 		super(config);
+		useParentCache = ObjectTransformer.getBoolean(
+				config.getString(PARENT_CACHE_KEY), false);
 	}
 
 	/**
@@ -162,13 +265,70 @@ public class CRActivePathRequestProcessor extends RequestProcessor {
 	 * @param current current child element
 	 * @param rootContentId id of the desired root
 	 * @param request request object
+	 * @return collection of parents, starting with the root. null if the
+	 * element has no parents.
+	 * @throws CRException 
+	 * @throws ExpressionParserException 
+	 * @throws ParserException 
+	 * @throws DatasourceException 
+	 */
+	Collection<CRResolvableBean> getParents(final Datasource ds,
+			final CRResolvableBean current, final String rootContentId,
+			final CRRequest request) throws CRException,
+			DatasourceException, ParserException, ExpressionParserException {
+		if (!useParentCache) {
+			return loadParents(ds, current, rootContentId, request);
+		}
+		Map<String, Resolvable> folders = getParentMap(ds, request).folders;
+		String[] attributes = getPrefillAttributes(request);
+		List<CRResolvableBean> parents = new ArrayList<CRResolvableBean>();
+		Set<String> visited = new HashSet<String>();
+		CRResolvableBean child = current;
+		String mother = child.getMother_id();
+		while (mother != null && !"0".equals(mother)) {
+			String motherContentId = child.getMother_type() + "." + mother;
+			if (motherContentId.equals(rootContentId)
+					|| !visited.add(motherContentId)) {
+				break;
+			}
+			Resolvable folder = folders.get(motherContentId);
+			CRResolvableBean parent;
+			if (folder != null) {
+				parent = new CRResolvableBean(folder, attributes);
+			} else {
+				// the parent is no cached folder
+				CRRequest nRequest = request.Clone();
+				nRequest.setRequestFilter(null);
+				nRequest.setContentid(motherContentId);
+				parent = loadSingle(ds, nRequest);
+				if (parent == null) {
+					break;
+				}
+			}
+			parents.add(parent);
+			child = parent;
+			mother = child.getMother_id();
+		}
+		if (parents.isEmpty()) {
+			return null;
+		}
+		Collections.reverse(parents);
+		return new Vector<CRResolvableBean>(parents);
+	}
+
+	/**
+	 * Fetches the parents with a query for every level.
+	 * @param ds datasource
+	 * @param current current child element
+	 * @param rootContentId id of the desired root
+	 * @param request request object
 	 * @return collection of parrents.
 	 * @throws CRException 
 	 * @throws ExpressionParserException 
 	 * @throws ParserException 
 	 * @throws DatasourceException 
 	 */
-	private Collection<CRResolvableBean> getParents(final Datasource ds,
+	private Collection<CRResolvableBean> loadParents(final Datasource ds,
 			final CRResolvableBean current, final String rootContentId,
 			final CRRequest request) throws CRException,
 			DatasourceException, ParserException, ExpressionParserException {
@@ -181,7 +341,7 @@ public class CRActivePathRequestProcessor extends RequestProcessor {
 			nRequest.setRequestFilter(null);
 			nRequest.setContentid(current.getMother_type() + "." + mother);
 			CRResolvableBean parent = loadSingle(ds, nRequest);
-			ret = getParents(ds, parent, rootContentId, nRequest);
+			ret = loadParents(ds, parent, rootContentId, nRequest);
 			if (ret == null) {
 				ret = new Vector<CRResolvableBean>();
 			}
@@ -190,6 +350,73 @@ public class CRActivePathRequestProcessor extends RequestProcessor {
 		return ret;
 	}
 
+	/**
+	 * Get the cached folders for the requested attributes. They are loaded
+	 * again if the youngest updatetimestamp or the number of the folders has
+	 * changed.
+	 * @param ds datasource
+	 * @param request request object
+	 * @return the folders
+	 * @throws DatasourceException in case of error
+	 * @throws ParserException in case of error
+	 * @throws ExpressionParserException in case of error
+	 */
+	private ParentMap getParentMap(final Datasource ds,
+			final CRRequest request) throws DatasourceException,
+			ParserException, ExpressionParserException {
+		String[] attributes = getPrefillAttributes(request);
+		String[] sortedAttributes = attributes.clone();
+		Arrays.sort(sortedAttributes);
+		String cacheKey = config.getName() + "|" + config.getApplicationRule()
+				+ "|" + Arrays.toString(sortedAttributes);
+		String folderFilter = "object.obj_type == " + config.getFolderType();
+
+		CRRequest timestampRequest = new CRRequest(folderFilter);
+		DatasourceFilter timestampFilter =
+				timestampRequest.getPreparedFilter(config, ds);
+		Collection<Resolvable> youngest = this.toResolvableCollection(
+			ds.getResult(timestampFilter,
+				new String[] {UPDATEATTRIBUTE}, 0, 1,
+				new Sorting[] {new Sorting(UPDATEATTRIBUTE,
+					Datasource.SORTORDER_DESC)}));
+		int updatetimestamp = 0;
+		if (youngest != null && !youngest.isEmpty()) {
+			updatetimestamp = ObjectTransformer.getInt(
+				youngest.iterator().next().get(UPDATEATTRIBUTE), 0);
+		}
+		// deleted folders do not change the youngest timestamp
+		int folderCount = ds.getCount(timestampFilter);
+
+		ParentMap parentMap;
+		synchronized (PARENT_MAPS) {
+			parentMap = PARENT_MAPS.get(cacheKey);
+		}
+		if (parentMap != null
+				&& parentMap.isCurrent(updatetimestamp, folderCount)) {
+			MonitorFactory.count("CRActivePathRequestProcessor#parentcache#hit");
+			return parentMap;
+		}
+		MonitorFactory.count("CRActivePathRequestProcessor#parentcache#miss");
+
+		CRRequest folderRequest = new CRRequest(folderFilter);
+		Collection<Resolvable> col = this.toResolvableCollection(
+			ds.getResult(folderRequest.getPreparedFilter(config, ds),
+				attributes, 0, -1, null));
+		Map<String, Resolvable> folders = new HashMap<String, Resolvable>();
+		if (col != null) {
+			for (Resolvable folder : col) {
+				folders.put((String) folder.get("contentid"), folder);
+			}
+		}
+		LOG.debug("Loaded " + folders.size() + " folders for the active path of "
+				+ config.getName() + ".");
+		parentMap = new ParentMap(updatetimestamp, folderCount, folders);
+		synchronized (PARENT_MAPS) {
+			PARENT_MAPS.put(cacheKey, parentMap);
+		}
+		return parentMap;
+	}
+
 	@Override
 	public void finalize() {
 	}
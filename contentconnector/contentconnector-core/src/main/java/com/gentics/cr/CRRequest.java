@@ -50,6 +50,15 @@ public class CRRequest implements Cloneable, Serializable {
 	 */
 	public static final String PERMISSIONS_KEY = "permissions";
 
+	/**
+	 * key for storing the cursor of the last page into. A search returns the
+	 * cursor for the next page in its metaresolvable, if it is passed instead
+	 * of a start position only the hits of one page have to be collected. A
+	 * cursor of an older version of the index is ignored and the start
+	 * position is used instead.
+	 */
+	public static final String SEARCH_AFTER_KEY = "after";
+
 	/**
 	 * key for storing the attribute array.
 	 */
@@ -321,6 +330,15 @@ public class CRRequest implements Cloneable, Serializable {
 		return getAttributeArray("contentid");
 	}
 
+	/**
+	 * @return <code>true</code> if an attribute array was set for the request,
+	 *         <code>false</code> if {@link #getAttributeArray()} returns the
+	 *         default.
+	 */
+	public boolean hasAttributeArray() {
+		return this.get(ATTRIBUTE_ARRAY_KEY) != null;
+	}
+
 	public String[] getAttributeArray(String idAttribute) {
 		String[] attributeArray = (String[]) this.get(ATTRIBUTE_ARRAY_KEY);
 		if (attributeArray == null) {
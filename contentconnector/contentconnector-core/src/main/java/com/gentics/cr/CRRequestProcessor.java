@@ -117,6 +117,7 @@ public class CRRequestProcessor extends RequestProcessor {
 
 	@Override
 	public void finalize() {
+		shutdownMergeExecutor();
 	}
 
 }
@@ -277,7 +277,7 @@ public class CachedCRRequestProcessor extends RequestProcessor {
 
 	@Override
 	public void finalize() {
-		// TODO Auto-generated method stub
+		shutdownMergeExecutor();
 	}
 
 }
@@ -59,6 +59,7 @@ public class PooledSQLRequestProcessor extends RequestProcessor {
 
 	@Override
 	public final void finalize() {
+		shutdownMergeExecutor();
 		try {
 			((CRConfigUtil) this.config).releaseJDBCPool();
 		} catch (Exception s) {
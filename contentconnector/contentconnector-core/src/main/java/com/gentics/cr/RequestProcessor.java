@@ -6,6 +6,12 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -45,6 +51,13 @@ public abstract class RequestProcessor {
 
 	private JCS cache;
 
+	/**
+	 * Executor fetching the chunks of merged objects in parallel, created on
+	 * first use.
+	 * @see RequestProcessorMerger#MERGE_THREADS_KEY
+	 */
+	private ThreadPoolExecutor mergeExecutor = null;
+
 	/**
 	 * KEY to store switch for metaresolvable in request.
 	 * if request.get(LuceneRequestProcessor.META_RESOLVABLE_KEY) returns "true", a metaresolvable will be generated
@@ -446,6 +459,42 @@ public abstract class RequestProcessor {
 		fillAttributes(col, request, "contentid");
 	}
 
+	/**
+	 * Get the executor fetching the chunks of merged objects in parallel. The
+	 * queue of the executor is bounded, if it is full a chunk is fetched by the
+	 * calling thread. Idle threads are stopped after a minute.
+	 * @param threads number of threads, only used if the executor does not
+	 * exist yet
+	 * @return the executor of this RequestProcessor
+	 */
+	synchronized ExecutorService getMergeExecutor(final int threads) {
+		if (mergeExecutor == null) {
+			final String prefix = "RequestProcessor(" + config.getName() + ")-merge-";
+			final AtomicInteger threadNumber = new AtomicInteger(1);
+			mergeExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(threads * 4), new ThreadFactory() {
+						public Thread newThread(final Runnable r) {
+							Thread thread = new Thread(r, prefix + threadNumber.getAndIncrement());
+							thread.setDaemon(true);
+							return thread;
+						}
+					}, new ThreadPoolExecutor.CallerRunsPolicy());
+			mergeExecutor.allowCoreThreadTimeOut(true);
+		}
+		return mergeExecutor;
+	}
+
+	/**
+	 * Shut down the executor fetching merged objects in parallel. This should
+	 * be called by the implementations of {@link #finalize()}.
+	 */
+	protected final synchronized void shutdownMergeExecutor() {
+		if (mergeExecutor != null) {
+			mergeExecutor.shutdownNow();
+			mergeExecutor = null;
+		}
+	}
+
 	public abstract void finalize();
 
 }
@@ -2,9 +2,13 @@ package com.gentics.cr;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.gentics.cr.exceptions.CRException;
 
@@ -22,8 +26,27 @@ public class RequestProcessorMerger {
 	 */
 	public static final String USE_SECONDARY_KEY = "secondary";
 
+	/**
+	 * Configuration key of the RequestProcessor the objects are fetched from for the maximum number of ids
+	 * in one <code>CONTAINSONEOF</code> request. 0 or less fetches all objects with one request.
+	 */
+	public static final String MERGE_CHUNK_SIZE_KEY = "mergechunksize";
+
+	/**
+	 * Default number of ids in one request.
+	 */
+	private static final int DEFAULT_MERGE_CHUNK_SIZE = 500;
+
+	/**
+	 * Configuration key of the RequestProcessor the objects are fetched from for the number of chunks that are
+	 * fetched in parallel. (default is 1)
+	 */
+	public static final String MERGE_THREADS_KEY = "mergethreads";
+
 	/**
 	 * Fills the attributes defined in the requests attribute array to each element of the collection col.
+	 * The objects are fetched in chunks of {@link #MERGE_CHUNK_SIZE_KEY} ids, see
+	 * {@link #getObjectsInChunks(RequestProcessor, String, Collection, CRRequest)}.
 	 * @param rp
 	 * @param col
 	 * @param request
@@ -34,58 +57,141 @@ public class RequestProcessorMerger {
 			throws CRException {
 		LinkedHashMap<Object, CRResolvableBean> resultMap = new LinkedHashMap<Object, CRResolvableBean>();
 
-		StringBuilder mergefilter = new StringBuilder();
+		for (CRResolvableBean crBean : col) {
+			resultMap.put(toKey(crBean.get(idAttribute)), crBean);
+		}
 
-		boolean first = true;
+		String[] attributes = request.getAttributeArray();
+		//MERGE
+		for (Collection<CRResolvableBean> res : getObjectsInChunks(rp, idAttribute, resultMap.keySet(), request)) {
+			for (CRResolvableBean resBean : res) {
+				CRResolvableBean finishedBean = resultMap.get(toKey(resBean.get(idAttribute)));
+				if (finishedBean != null) {
+					for (String att : attributes) {
+						Object val = resBean.get(att);
+						if (val != null) {
+							finishedBean.set(att, val);
+						}
+					}
+				}
+			}
+		}
 
-		for (CRResolvableBean crBean : col) {
-			Object id = crBean.get(idAttribute);
-			String key = "";
-			if (id instanceof String) {
-				key = (String) id;
+	}
+
+	/**
+	 * Convert an id to the key used to match the objects.
+	 * @param id id of an object
+	 * @return id as string
+	 */
+	private static String toKey(final Object id) {
+		if (id instanceof String) {
+			return (String) id;
+		}
+		return id.toString();
+	}
+
+	/**
+	 * Fetch the objects with the given ids from the RequestProcessor. The ids are split into chunks of
+	 * {@link #MERGE_CHUNK_SIZE_KEY} ids and each chunk is fetched with its own
+	 * <code>object.idAttribute CONTAINSONEOF [...]</code> request. If {@link #MERGE_THREADS_KEY} is greater
+	 * than 1 in the configuration of the RequestProcessor the chunks are fetched in parallel by the merge
+	 * executor of the RequestProcessor, the RequestProcessor has to be thread safe in this case.
+	 * @param rp RequestProcessor to fetch the objects from
+	 * @param idAttribute attribute holding the ids
+	 * @param ids ids of the objects to fetch
+	 * @param template request the chunk requests are cloned from (attributes, plink replacement, ...)
+	 * @return results of the chunks in the order of the ids
+	 * @throws CRException in case the objects of a chunk could not be fetched
+	 */
+	static List<Collection<CRResolvableBean>> getObjectsInChunks(final RequestProcessor rp, final String idAttribute,
+			final Collection<?> ids, final CRRequest template) throws CRException {
+		int chunkSize = DEFAULT_MERGE_CHUNK_SIZE;
+		int threads = 1;
+		if (rp.config != null) {
+			chunkSize = rp.config.getInteger(MERGE_CHUNK_SIZE_KEY, DEFAULT_MERGE_CHUNK_SIZE);
+			threads = rp.config.getInteger(MERGE_THREADS_KEY, 1);
+		}
+		if (chunkSize <= 0) {
+			chunkSize = Integer.MAX_VALUE;
+		}
+
+		List<CRRequest> requests = new ArrayList<CRRequest>();
+		StringBuilder filter = null;
+		int count = 0;
+		for (Object id : ids) {
+			if (filter == null) {
+				filter = new StringBuilder("object.").append(idAttribute).append(" CONTAINSONEOF [");
 			} else {
-				key = id.toString();
+				filter.append(',');
 			}
-			if (first) {
-				first = false;
-				mergefilter.append("\"");
-				mergefilter.append(key);
-				mergefilter.append("\"");
-			} else {
-				mergefilter.append(",");
-				mergefilter.append("\"");
-				mergefilter.append(key);
-				mergefilter.append("\"");
+			filter.append('"').append(id).append('"');
+			if (++count == chunkSize) {
+				requests.add(createChunkRequest(template, filter));
+				filter = null;
+				count = 0;
 			}
-			resultMap.put(key, crBean);
+		}
+		if (filter != null) {
+			requests.add(createChunkRequest(template, filter));
 		}
 
-		request.setRequestFilter("object." + idAttribute + " CONTAINSONEOF [" + mergefilter.toString() + "]");
-
-		Collection<CRResolvableBean> res = rp.getObjects(request);
-		String[] attributes = request.getAttributeArray();
-		//MERGE
-		for (Iterator<CRResolvableBean> resBeanIterator = res.iterator(); resBeanIterator.hasNext();) {
-			CRResolvableBean resBean = resBeanIterator.next();
-			Object keyObject = resBean.get(idAttribute);
-			String key = "";
-			if (keyObject instanceof String) {
-				key = (String) keyObject;
-			} else {
-				key = keyObject.toString();
+		List<Collection<CRResolvableBean>> results = new ArrayList<Collection<CRResolvableBean>>(requests.size());
+		if (threads <= 1 || requests.size() <= 1) {
+			for (CRRequest chunkRequest : requests) {
+				results.add(rp.getObjects(chunkRequest));
 			}
-			CRResolvableBean finishedBean = resultMap.get(key);
-			if (finishedBean != null) {
-				for (String att : attributes) {
-					Object val = resBean.get(att);
-					if (val != null) {
-						finishedBean.set(att, val);
+			return results;
+		}
+
+		ExecutorService executor = rp.getMergeExecutor(threads);
+		List<Future<Collection<CRResolvableBean>>> futures = new ArrayList<Future<Collection<CRResolvableBean>>>(
+				requests.size());
+		try {
+			for (final CRRequest chunkRequest : requests) {
+				futures.add(executor.submit(new Callable<Collection<CRResolvableBean>>() {
+					public Collection<CRResolvableBean> call() throws CRException {
+						return rp.getObjects(chunkRequest);
 					}
-				}
-				resBeanIterator.remove();
+				}));
+			}
+			for (Future<Collection<CRResolvableBean>> future : futures) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			cancel(futures);
+			Thread.currentThread().interrupt();
+			throw new CRException("Interrupted while fetching the objects to merge.", e);
+		} catch (ExecutionException e) {
+			cancel(futures);
+			if (e.getCause() instanceof CRException) {
+				throw (CRException) e.getCause();
 			}
+			throw new CRException("Error while fetching the objects to merge.", e);
 		}
+		return results;
+	}
 
+	/**
+	 * Cancel the chunks that are not fetched yet.
+	 * @param futures futures of the chunks
+	 */
+	private static void cancel(final List<Future<Collection<CRResolvableBean>>> futures) {
+		for (Future<Collection<CRResolvableBean>> future : futures) {
+			future.cancel(true);
+		}
+	}
+
+	/**
+	 * Create the request for a chunk of ids.
+	 * @param template request to clone
+	 * @param filter filter of the chunk without the closing bracket
+	 * @return request for the chunk
+	 */
+	private static CRRequest createChunkRequest(final CRRequest template, final StringBuilder filter) {
+		CRRequest chunkRequest = template.Clone();
+		chunkRequest.setRequestFilter(filter.append(']').toString());
+		return chunkRequest;
 	}
 
 	/**
@@ -107,32 +213,22 @@ public class RequestProcessorMerger {
 		LinkedHashMap<Object, CRResolvableBean> resultMap = new LinkedHashMap<Object, CRResolvableBean>();
 		LinkedHashMap<Object, CRResolvableBean> resultMap2 = new LinkedHashMap<Object, CRResolvableBean>();
 
-		String mergefilter = "";
-
-		boolean first = true;
-
 		for (CRResolvableBean crBean : rp1res) {
-			Object id = crBean.get(uniquemergeattribute);
-			if (first) {
-				first = false;
-				mergefilter += "\"" + id + "\"";
-			} else {
-				mergefilter += "," + "\"" + id + "\"";
-			}
-			resultMap.put(id, crBean);
+			resultMap.put(crBean.get(uniquemergeattribute), crBean);
 		}
 		rp1res = null;
 		CRRequest request2 = new CRRequest();
 		request2.setAttributeArray(request.getAttributeArray());
 		request2.setDoReplacePlinks(request.getDoReplacePlinks());
 		request2.setDoVelocity(request.getDoVelocity());
-		request2.setRequestFilter("object." + uniquemergeattribute + " CONTAINSONEOF [" + mergefilter + "]");
-		Collection<CRResolvableBean> rp2res = secondaryRP.getObjects(request2);
+		List<Collection<CRResolvableBean>> rp2res = getObjectsInChunks(secondaryRP, uniquemergeattribute,
+			resultMap.keySet(), request2);
 		String[] attributes = request.getAttributeArray();
 
-		for (CRResolvableBean crBean : rp2res) {
-			Object id = crBean.get(uniquemergeattribute);
-			resultMap2.put(id, crBean);
+		for (Collection<CRResolvableBean> chunk : rp2res) {
+			for (CRResolvableBean crBean : chunk) {
+				resultMap2.put(crBean.get(uniquemergeattribute), crBean);
+			}
 		}
 
 		String secMerge = (String) request.get("secondary");
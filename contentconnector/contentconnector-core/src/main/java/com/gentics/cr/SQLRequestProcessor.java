@@ -1,16 +1,18 @@
 package com.gentics.cr;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -20,21 +22,19 @@ import com.gentics.cr.exceptions.CRException;
 import com.gentics.cr.util.generics.Lists;
 
 /**
- * {@link SQLRequestProcessor} fetches data from a mysql table
+ * {@link SQLRequestProcessor} fetches data from a mysql table.
+ * Connections are taken from the pool of the configuration (see
+ * {@link CRConfigUtil#getPooledJDBCConnection()}), the literals of the request
+ * filter are bound as parameters of a {@link PreparedStatement}.
+ * The size of the pool is configured with the datasource handle properties
+ * pooling.maxActive, pooling.maxIdle and pooling.maxWait (see
+ * {@link com.gentics.cr.sql.ConnectionProvider}).
  * @author bigbear3001
  *
  */
 public class SQLRequestProcessor extends RequestProcessor {
 	private static Logger logger = Logger.getLogger(SQLRequestProcessor.class);
 
-	/**
-	 * configuration key for the datasource driver class.
-	 */
-	private static final String DSHDRIVERCLASS_KEY = "driverClass";
-	/**
-	 * configuration key for the datasource url.
-	 */
-	private static final String DSHURL_KEY = "url";
 	/**
 	 * configuration key for the table name.
 	 */
@@ -53,9 +53,18 @@ public class SQLRequestProcessor extends RequestProcessor {
 	 * @see #mergeOnIdColumn
 	 */
 	private static final String MERGE_ON_IDCOLUMN_KEY = "merge_on_idcolumn";
+	/**
+	 * Configuration key for the sorted merge. If <code>true</code> the rows
+	 * are ordered by the id column and each merged object is completed as soon
+	 * as the id changes, so only one object is kept in memory while merging.
+	 * @see #mergeSorted
+	 */
+	private static final String MERGE_SORTED_KEY = "merge_sorted";
+	/**
+	 * Maximum number of translated statements kept in the statement cache.
+	 */
+	private static final int STATEMENT_CACHE_SIZE = 1000;
 
-	private String dshDriverClass = "";
-	private String dshUrl = "";
 	private String table = "";
 	private String[] columns = new String[] {};
 	private String idcolumn = "";
@@ -67,6 +76,18 @@ public class SQLRequestProcessor extends RequestProcessor {
 	 */
 	private boolean mergeOnIdColumn = false;
 
+	/**
+	 * defines if the rows are ordered by the id column to merge them while
+	 * reading the result.
+	 */
+	private boolean mergeSorted = false;
+
+	/**
+	 * Translated SQL statements by the shape of the request filter (the filter
+	 * with all literals replaced by parameters) and the requested attributes.
+	 */
+	private final ConcurrentHashMap<String, String> statementCache = new ConcurrentHashMap<String, String>();
+
 	/**
 	* Create a new instance of SQLRequestProcessor
 	* @param config
@@ -75,10 +96,6 @@ public class SQLRequestProcessor extends RequestProcessor {
 	public SQLRequestProcessor(CRConfig config) throws CRException {
 		super(config);
 
-		Properties dshprop = ((CRConfigUtil) config).getDatasourceHandleProperties();
-		dshDriverClass = dshprop.getProperty(DSHDRIVERCLASS_KEY);
-		dshUrl = dshprop.getProperty(DSHURL_KEY);
-
 		Properties dsprops = ((CRConfigUtil) config).getDatasourceProperties();
 		table = dsprops.getProperty(TABLEATTRIBUTE_KEY);
 
@@ -90,10 +107,31 @@ public class SQLRequestProcessor extends RequestProcessor {
 		idcolumn = dsprops.getProperty(IDCOLUMN_KEY);
 
 		mergeOnIdColumn = config.getBoolean(MERGE_ON_IDCOLUMN_KEY, mergeOnIdColumn);
+		mergeSorted = mergeOnIdColumn && config.getBoolean(MERGE_SORTED_KEY, mergeSorted);
+	}
+
+	/**
+	 * Handler for the objects read from the result of a request.
+	 */
+	public interface ObjectHandler {
+
+		/**
+		 * Handle an object. Merged objects are complete when they are handled.
+		 * @param object object read from the result
+		 * @throws CRException in case the object cannot be handled, stops
+		 * reading the result.
+		 */
+		void handle(CRResolvableBean object) throws CRException;
 	}
 
 	private static final Pattern CONTAINSONEOFPATTERN = Pattern.compile("object\\.([a-zA-Z0-9_]*)[ ]*CONTAINSONEOF[ ]*\\[(.*)\\]");
 
+	/**
+	 * CONTAINSONEOF expressions with a list of parameters in the shape of a
+	 * request filter.
+	 */
+	private static final Pattern CONTAINSONEOFLISTPATTERN = Pattern.compile("CONTAINSONEOF[ ]*\\[([ ?,]*)\\]");
+
 	private String translate(String requestFilter) {
 		//TANSLATE CONTAINSONEOF
 		Matcher matcher = CONTAINSONEOFPATTERN.matcher(requestFilter);
@@ -110,6 +148,154 @@ public class SQLRequestProcessor extends RequestProcessor {
 		return requestFilter.replaceAll("==", "=").replaceAll("\"", "'");
 	}
 
+	/**
+	 * Replace the string and number literals of the request filter by
+	 * parameters.
+	 * @param requestFilter request filter
+	 * @param parameters list the values of the literals are added to
+	 * @return request filter containing a <code>?</code> for each literal
+	 */
+	static String extractParameters(final String requestFilter, final List<Object> parameters) {
+		StringBuilder shape = new StringBuilder(requestFilter.length());
+		int length = requestFilter.length();
+		int i = 0;
+		while (i < length) {
+			char c = requestFilter.charAt(i);
+			if (c == '"' || c == '\'') {
+				int end = requestFilter.indexOf(c, i + 1);
+				if (end == -1) {
+					// unterminated literal, keep the rest of the filter as it is
+					shape.append(requestFilter.substring(i));
+					break;
+				}
+				parameters.add(requestFilter.substring(i + 1, end));
+				shape.append('?');
+				i = end + 1;
+			} else if (Character.isDigit(c) && (i == 0 || !isIdentifierPart(requestFilter.charAt(i - 1)))) {
+				int end = i;
+				while (end < length && (Character.isDigit(requestFilter.charAt(end)) || requestFilter.charAt(end) == '.')) {
+					end++;
+				}
+				if (end < length && isIdentifierPart(requestFilter.charAt(end))) {
+					// not a number but an identifier starting with digits
+					shape.append(requestFilter, i, end);
+				} else {
+					parameters.add(parseNumber(requestFilter.substring(i, end)));
+					shape.append('?');
+				}
+				i = end;
+			} else {
+				shape.append(c);
+				i++;
+			}
+		}
+		return shape.toString();
+	}
+
+	/**
+	 * Pad the parameter lists of CONTAINSONEOF expressions to the next power of
+	 * two by repeating their last parameter, so lists of similar size share one
+	 * cached statement instead of creating a statement per list size.
+	 * @param filterShape request filter with literals replaced by parameters
+	 * @param parameters values of the parameters, the padded values are
+	 * inserted into this list
+	 * @return request filter with the padded lists
+	 */
+	static String padListParameters(final String filterShape, final List<Object> parameters) {
+		Matcher matcher = CONTAINSONEOFLISTPATTERN.matcher(filterShape);
+		StringBuffer shape = new StringBuffer(filterShape.length());
+		int parameterIndex = 0;
+		int shapeIndex = 0;
+		while (matcher.find()) {
+			parameterIndex += countParameters(filterShape, shapeIndex, matcher.start(1));
+			int size = countParameters(filterShape, matcher.start(1), matcher.end(1));
+			shapeIndex = matcher.end(1);
+			if (size == 0) {
+				continue;
+			}
+			int paddedSize = Integer.highestOneBit(size);
+			if (paddedSize < size) {
+				paddedSize <<= 1;
+			}
+			Object last = parameters.get(parameterIndex + size - 1);
+			for (int i = size; i < paddedSize; i++) {
+				parameters.add(parameterIndex + size, last);
+			}
+			StringBuilder list = new StringBuilder(paddedSize * 2);
+			for (int i = 0; i < paddedSize; i++) {
+				if (i > 0) {
+					list.append(',');
+				}
+				list.append('?');
+			}
+			matcher.appendReplacement(shape, "CONTAINSONEOF [" + list + "]");
+			parameterIndex += paddedSize;
+		}
+		matcher.appendTail(shape);
+		return shape.toString();
+	}
+
+	/**
+	 * @param shape request filter with literals replaced by parameters
+	 * @param start index of the first character to check
+	 * @param end index after the last character to check
+	 * @return number of parameters in the given part of the filter
+	 */
+	private static int countParameters(final String shape, final int start, final int end) {
+		int count = 0;
+		for (int i = start; i < end; i++) {
+			if (shape.charAt(i) == '?') {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param c character
+	 * @return true if the character can be part of an identifier.
+	 */
+	private static boolean isIdentifierPart(final char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+	}
+
+	/**
+	 * Parse a number literal of the request filter.
+	 * @param number number literal
+	 * @return {@link Long} or {@link Double}, the literal as string if it
+	 * cannot be parsed.
+	 */
+	private static Object parseNumber(final String number) {
+		try {
+			if (number.indexOf('.') != -1) {
+				return Double.valueOf(number);
+			}
+			return Long.valueOf(number);
+		} catch (NumberFormatException e) {
+			return number;
+		}
+	}
+
+	/**
+	 * Get the translated statement for the shape of a request filter from the
+	 * statement cache.
+	 * @param filterShape request filter with literals replaced by parameters
+	 * @param attributes requested attributes
+	 * @return SQL statement
+	 */
+	private String getCachedStatement(final String filterShape, final String[] attributes) {
+		String key = filterShape + "|" + Arrays.toString(attributes);
+		String statement = statementCache.get(key);
+		if (statement == null) {
+			statement = getStatement(filterShape, attributes);
+			if (statementCache.size() >= STATEMENT_CACHE_SIZE) {
+				statementCache.clear();
+			}
+			statementCache.put(key, statement);
+		}
+		return statement;
+	}
+
 	private String getStatement(String requestFilter, String[] attributes) {
 		StringBuilder statement = new StringBuilder();
 		if (attributes == null || attributes.length == 0 || columns.length == 0) {
@@ -128,7 +314,11 @@ public class SQLRequestProcessor extends RequestProcessor {
 			}
 
 		}
-		return ("SELECT " + statement.toString() + " FROM " + this.table + " WHERE " + translate(requestFilter));
+		String sql = "SELECT " + statement.toString() + " FROM " + this.table + " WHERE " + translate(requestFilter);
+		if (mergeSorted) {
+			sql += " ORDER BY " + idcolumn;
+		}
+		return sql;
 	}
 
 	/**
@@ -141,30 +331,87 @@ public class SQLRequestProcessor extends RequestProcessor {
 	*/
 	@Override
 	public Collection<CRResolvableBean> getObjects(CRRequest request, boolean doNavigation) throws CRException {
-		ArrayList<CRResolvableBean> result = new ArrayList<CRResolvableBean>();
+		final ArrayList<CRResolvableBean> result = new ArrayList<CRResolvableBean>();
+		boolean success = getObjects(request, new ObjectHandler() {
+			public void handle(final CRResolvableBean object) {
+				result.add(object);
+			}
+		}, false);
+		return success ? result : null;
+	}
+
+	/**
+	 * Pass the objects of the request to the given handler while the result is
+	 * read instead of collecting them. Together with {@link #MERGE_SORTED_KEY}
+	 * this allows to merge results of any size.
+	 * @param request request
+	 * @param handler handler for the objects
+	 * @throws CRException in case the result cannot be read or the handler
+	 * fails.
+	 */
+	public void getObjects(final CRRequest request, final ObjectHandler handler) throws CRException {
+		getObjects(request, handler, true);
+	}
 
-		Statement stmt = null;
+	/**
+	 * Execute the request and pass the resulting objects to the handler.
+	 * @param request request
+	 * @param handler handler for the objects
+	 * @param failOnReadError throw an exception if the query fails or the
+	 * result cannot be read, otherwise the error is logged.
+	 * @return false if the result could not be read
+	 * @throws CRException in case no connection can be obtained or the handler
+	 * fails.
+	 */
+	private boolean getObjects(final CRRequest request, final ObjectHandler handler, final boolean failOnReadError)
+			throws CRException {
+		boolean success = true;
+		PreparedStatement stmt = null;
 		ResultSet rset = null;
 		Connection conn = null;
-		String statementString = getStatement(request.getRequestFilter(), request.getAttributeArray(idcolumn));
+		List<Object> parameters = new ArrayList<Object>();
+		String filterShape = padListParameters(extractParameters(request.getRequestFilter(), parameters), parameters);
+		String statementString = getCachedStatement(filterShape, request.getAttributeArray(idcolumn));
 		try {
-			Class.forName(this.dshDriverClass);
-			conn = DriverManager.getConnection(this.dshUrl);
+			try {
+				conn = ((CRConfigUtil) config).getPooledJDBCConnection();
+			} catch (Exception e) {
+				logger.error("Could not get a connection from the pool.", e);
+				throw new CRException(e);
+			}
 
-			stmt = conn.createStatement();
-			logger.debug("Using statement: " + statementString);
-			rset = stmt.executeQuery(statementString);
+			stmt = conn.prepareStatement(statementString);
+			for (int i = 0; i < parameters.size(); i++) {
+				stmt.setObject(i + 1, parameters.get(i));
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Using statement: " + statementString + " with parameters " + parameters);
+			}
+			rset = stmt.executeQuery();
 
-			if (mergeOnIdColumn) {
-				result = getMergedObjectsFromResultSet(rset);
-			} else {
-				result = getObjectsFromResultSet(rset);
+			try {
+				if (mergeSorted) {
+					readSortedMergedObjects(rset, handler);
+				} else if (mergeOnIdColumn) {
+					readMergedObjects(rset, handler);
+				} else {
+					readObjects(rset, handler);
+				}
+			} catch (SQLException e) {
+				if (failOnReadError) {
+					throw new CRException("Error getting result items.", e);
+				}
+				logger.error("Error getting result items.", e);
+				success = false;
 			}
 
 		} catch (SQLException e) {
+			if (failOnReadError) {
+				throw new CRException("Error executing query: " + statementString, e);
+			}
+			logger.error("Error executing query: " + statementString, e);
+		} catch (RuntimeException e) {
 			logger.error("Error executing query: " + statementString, e);
-		} catch (ClassNotFoundException e) {
-			logger.error("Datasource driver not found.", e);
 			throw new CRException(e);
 		} finally {
 			try {
@@ -186,7 +433,7 @@ public class SQLRequestProcessor extends RequestProcessor {
 			} catch (SQLException e) {
 			}
 		}
-		return result;
+		return success;
 	}
 
 	/**
@@ -212,91 +459,145 @@ public class SQLRequestProcessor extends RequestProcessor {
 	}
 
 	/**
-	 * Get merged objects as {@link CRResolvableBean}s from ResultSet. If we got more
-	 * than one row from.
+	 * Get the index of the id column in the result.
+	 * @param colnames names of the columns in the result
+	 * @return index of the id column starting with 1, -1 if the result does
+	 * not contain the id column.
+	 */
+	private int getIdColumnIndex(final String[] colnames) {
+		for (int i = 1; i <= colnames.length; i++) {
+			String colname = colnames[i - 1];
+			if (colname != null && colname.equalsIgnoreCase(idcolumn)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Read merged objects from the ResultSet. Rows with the same id are merged
+	 * into one object, which is looked up by id in a hash map.
 	 * @param rset {@link ResultSet} to get the objects from.
-	 * @return list of {@link CRResolvableBean}s, <code>null</code> in case of
-	 * an error.
+	 * @param handler handler the objects are passed to after the whole result
+	 * has been read
+	 * @throws SQLException in case the result cannot be read
+	 * @throws CRException in case the handler fails
 	 */
-	private ArrayList<CRResolvableBean> getMergedObjectsFromResultSet(final ResultSet rset) {
-		ArrayList<CRResolvableBean> objects = new ArrayList<CRResolvableBean>();
+	private void readMergedObjects(final ResultSet rset, final ObjectHandler handler) throws SQLException, CRException {
+		Map<String, CRResolvableBean> objects = new LinkedHashMap<String, CRResolvableBean>();
 		String[] colnames = getColumnNamesFromResultSet(rset);
-		try {
-			while (rset.next()) {
-				CRResolvableBean bean = new ComparableBean();
-				int idcolumnId = Arrays.asList(colnames).indexOf(idcolumn);
-				if (idcolumnId != -1) {
-					String id = rset.getObject(idcolumnId + 1).toString();
-					bean.setContentid(id);
-					int indexOfBeanInObjects = objects.indexOf(bean);
-					if (indexOfBeanInObjects != -1) {
-						bean = objects.get(indexOfBeanInObjects);
-					} else {
-						objects.add(bean);
-					}
+		int idColumnIndex = getIdColumnIndex(colnames);
+		if (idColumnIndex == -1) {
+			// rows without an id cannot be merged
+			return;
+		}
+		while (rset.next()) {
+			String id = rset.getObject(idColumnIndex).toString();
+			CRResolvableBean bean = objects.get(id);
+			if (bean == null) {
+				bean = new ComparableBean();
+				bean.setContentid(id);
+				objects.put(id, bean);
+			}
+			mergeRow(rset, colnames, bean);
+		}
+		for (CRResolvableBean bean : objects.values()) {
+			handler.handle(bean);
+		}
+	}
+
+	/**
+	 * Read merged objects from a ResultSet ordered by the id column. Each
+	 * object is passed to the handler as soon as the id changes.
+	 * @param rset {@link ResultSet} to get the objects from.
+	 * @param handler handler the objects are passed to
+	 * @throws SQLException in case the result cannot be read
+	 * @throws CRException in case the handler fails
+	 */
+	private void readSortedMergedObjects(final ResultSet rset, final ObjectHandler handler) throws SQLException,
+			CRException {
+		String[] colnames = getColumnNamesFromResultSet(rset);
+		int idColumnIndex = getIdColumnIndex(colnames);
+		if (idColumnIndex == -1) {
+			// rows without an id cannot be merged
+			return;
+		}
+		CRResolvableBean bean = null;
+		while (rset.next()) {
+			String id = rset.getObject(idColumnIndex).toString();
+			if (bean == null || !id.equals(bean.getContentid())) {
+				if (bean != null) {
+					handler.handle(bean);
 				}
-				for (int i = 1; i <= colnames.length; i++) {
-					String attributeName = colnames[i - 1];
-					if (rset.getObject(i) != null) {
-						Object attributeValue = rset.getObject(i);
-						Object oldattributeValue = bean.get(attributeName);
-						if (oldattributeValue != null && !oldattributeValue.equals(attributeValue)) {
-							List<Object> values;
-							if (oldattributeValue instanceof List) {
-								values = Lists.toSpecialList(oldattributeValue, Object.class);
-
-							} else {
-								values = new Vector<Object>();
-								values.add(oldattributeValue);
-							}
-							values.add(attributeValue);
-							attributeValue = values;
-						}
-						bean.set(attributeName, attributeValue);
+				bean = new ComparableBean();
+				bean.setContentid(id);
+			}
+			mergeRow(rset, colnames, bean);
+		}
+		if (bean != null) {
+			handler.handle(bean);
+		}
+	}
+
+	/**
+	 * Merge the values of the current row into the bean. If an attribute
+	 * already has another value, the values are collected in a list.
+	 * @param rset {@link ResultSet} positioned on the row
+	 * @param colnames names of the columns in the result
+	 * @param bean bean to merge the row into
+	 * @throws SQLException in case the row cannot be read
+	 */
+	private void mergeRow(final ResultSet rset, final String[] colnames, final CRResolvableBean bean) throws SQLException {
+		for (int i = 1; i <= colnames.length; i++) {
+			String attributeName = colnames[i - 1];
+			Object attributeValue = rset.getObject(i);
+			if (attributeValue != null) {
+				Object oldattributeValue = bean.get(attributeName);
+				if (oldattributeValue != null && !oldattributeValue.equals(attributeValue)) {
+					List<Object> values;
+					if (oldattributeValue instanceof List) {
+						values = Lists.toSpecialList(oldattributeValue, Object.class);
+
+					} else {
+						values = new Vector<Object>();
+						values.add(oldattributeValue);
 					}
+					values.add(attributeValue);
+					attributeValue = values;
 				}
+				bean.set(attributeName, attributeValue);
 			}
-		} catch (SQLException e) {
-			logger.error("Error getting result items.", e);
-			return null;
 		}
-		return objects;
 	}
 
 	/**
-	 * Get Objects as resolvables from ResultSet.
+	 * Read objects from the ResultSet, one object per row.
 	 * @param rset {@link ResultSet} to get the objects from.
-	 * @return list of {@link CRResolvableBean}s, <code>null</code> in case of
-	 * an error.
+	 * @param handler handler the objects are passed to
+	 * @throws SQLException in case the result cannot be read
+	 * @throws CRException in case the handler fails
 	 */
-	private ArrayList<CRResolvableBean> getObjectsFromResultSet(final ResultSet rset) {
-		ArrayList<CRResolvableBean> objects = new ArrayList<CRResolvableBean>();
+	private void readObjects(final ResultSet rset, final ObjectHandler handler) throws SQLException, CRException {
 		String[] colnames = getColumnNamesFromResultSet(rset);
+		int idColumnIndex = getIdColumnIndex(colnames);
 
-		try {
-			while (rset.next()) {
-				CRResolvableBean bean = new CRResolvableBean();
-				for (int i = 1; i <= colnames.length; i++) {
-					String colname = colnames[i - 1];
-					if (colname != null && colname.equalsIgnoreCase(idcolumn)) {
-						Object o = rset.getObject(i);
-						bean.setContentid(o.toString());
-					}
-					if (rset.getObject(i) != null) {
-						bean.set(colname, rset.getObject(i));
-					}
+		while (rset.next()) {
+			CRResolvableBean bean = new CRResolvableBean();
+			for (int i = 1; i <= colnames.length; i++) {
+				Object value = rset.getObject(i);
+				if (i == idColumnIndex) {
+					bean.setContentid(value.toString());
+				}
+				if (value != null) {
+					bean.set(colnames[i - 1], value);
 				}
-				objects.add(bean);
 			}
-		} catch (SQLException e) {
-			logger.error("Error getting result items.", e);
-			return null;
+			handler.handle(bean);
 		}
-		return objects;
 	}
 
 	@Override
 	public void finalize() {
-		// TODO Auto-generated method stub
+		shutdownMergeExecutor();
 	}
 }
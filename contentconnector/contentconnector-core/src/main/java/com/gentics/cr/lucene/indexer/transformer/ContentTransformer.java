@@ -1,23 +1,27 @@
 package com.gentics.cr.lucene.indexer.transformer;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.log4j.Logger;
 //import org.apache.lucene.index.IndexWriter;
 
 import com.gentics.api.lib.exception.ParserException;
-import com.gentics.api.lib.expressionparser.Expression;
-import com.gentics.api.lib.expressionparser.ExpressionEvaluator;
-import com.gentics.api.lib.expressionparser.ExpressionParser;
-import com.gentics.api.lib.expressionparser.ExpressionParserException;
 import com.gentics.cr.CRResolvableBean;
 import com.gentics.cr.configuration.GenericConfiguration;
 import com.gentics.cr.exceptions.CRException;
 import com.gentics.cr.monitoring.MonitorFactory;
 import com.gentics.cr.monitoring.UseCase;
+import com.gentics.cr.portalnode.expressions.CompiledRule;
 
 /**
  * 
@@ -28,13 +32,105 @@ import com.gentics.cr.monitoring.UseCase;
  */
 public abstract class ContentTransformer {
 	protected static final Logger LOGGER = Logger.getLogger(ContentTransformer.class);
-	private static ExpressionEvaluator evaluator = new ExpressionEvaluator();
-	private Expression expr;
+	private CompiledRule compiledRule;
 	private String rule;
 
 	private static final String TRANSFORMER_RULE_KEY = "rule";
 	private static final String DEFAULT_TRANSFORMER_RULE = "1==1";
 
+	/**
+	 * Directory of the {@link ExtractionCache} for transformers that extract text from binary content. The cache
+	 * is disabled if no directory is configured.
+	 */
+	public static final String EXTRACTION_CACHE_KEY = "extractioncache";
+
+	/**
+	 * Maximum size of the {@link ExtractionCache} in megabytes (default: 1024).
+	 */
+	public static final String EXTRACTION_CACHE_SIZE_KEY = "extractioncachesize";
+
+	/**
+	 * Key of the extracted text in the values of the {@link ExtractionCache}.
+	 */
+	protected static final String EXTRACTED_TEXT_KEY = "text";
+
+	/**
+	 * Cache for the extracted text of binary content, null if it is not configured.
+	 */
+	private ExtractionCache extractionCache;
+
+	/**
+	 * Maximum time in seconds a parser may take for a single document, see {@link ParserExecutor}. The parsers run
+	 * in the thread of the caller without a timeout if it is not configured (default: 0).
+	 */
+	public static final String PARSER_TIMEOUT_KEY = "parsertimeout";
+
+	/**
+	 * Number of threads of the shared {@link ParserExecutor} (default: 4).
+	 */
+	public static final String PARSER_THREADS_KEY = "parserthreads";
+
+	/**
+	 * Maximum number of threads the {@link ParserExecutor} starts to replace threads of parsers that did not stop
+	 * after the timeout (default: 16).
+	 */
+	public static final String PARSER_MAX_STUCK_THREADS_KEY = "parsermaxstuckthreads";
+
+	/**
+	 * Maximum size of the binary content in megabytes, larger documents are not parsed (default: 0, no limit).
+	 */
+	public static final String PARSER_MAX_SIZE_KEY = "parsermaxsize";
+
+	/**
+	 * File the {@link PoisonDocuments} are stored in. They are only kept in memory if it is not configured.
+	 */
+	public static final String POISON_DOCUMENTS_KEY = "poisondocuments";
+
+	/**
+	 * Attribute with the update timestamp of the documents (default: updatetimestamp).
+	 */
+	public static final String TIMESTAMP_ATTRIBUTE_KEY = "timestampattribute";
+
+	/**
+	 * Marks the transformer as safe to be used by more than one index worker at the same time (default: false).
+	 */
+	public static final String THREAD_SAFE_KEY = "threadsafe";
+
+	/**
+	 * True if the transformer may be used by more than one thread at the same time.
+	 */
+	private boolean threadSafe;
+
+	/**
+	 * Maximum time a parser may take in milliseconds, 0 to run the parsers without a timeout.
+	 */
+	private long parserTimeout;
+
+	/**
+	 * Number of threads of the {@link ParserExecutor}.
+	 */
+	private int parserThreads;
+
+	/**
+	 * Maximum number of replacement threads of the {@link ParserExecutor}.
+	 */
+	private int parserMaxStuckThreads;
+
+	/**
+	 * Maximum size of the binary content in bytes, 0 for no limit.
+	 */
+	private long parserMaxSize;
+
+	/**
+	 * Documents that are not parsed again until they change, null if no parser timeout is configured.
+	 */
+	private PoisonDocuments poisonDocuments;
+
+	/**
+	 * Attribute with the update timestamp of the documents.
+	 */
+	private String timestampAttribute;
+
 	private String transformerkey = "";
 
 	/**
@@ -59,10 +155,171 @@ public abstract class ContentTransformer {
 			rule = DEFAULT_TRANSFORMER_RULE;
 		}
 		try {
-			expr = ExpressionParser.getInstance().parse(rule);
+			compiledRule = CompiledRule.compile(rule);
 		} catch (ParserException e) {
 			LOGGER.error("Could not generate valid Expression from configured Rule: " + rule, e);
 		}
+		String extractionCacheDirectory = config.getString(EXTRACTION_CACHE_KEY);
+		if (extractionCacheDirectory != null && !"".equals(extractionCacheDirectory)) {
+			long maxSize = config.getInteger(EXTRACTION_CACHE_SIZE_KEY, 1024) * 1024L * 1024L;
+			try {
+				extractionCache = ExtractionCache.getInstance(new File(extractionCacheDirectory), maxSize);
+			} catch (IOException e) {
+				LOGGER.error("Could not open the extraction cache " + extractionCacheDirectory
+						+ ", the content will be extracted every time.", e);
+			}
+		}
+		parserTimeout = config.getInteger(PARSER_TIMEOUT_KEY, 0) * 1000L;
+		parserThreads = config.getInteger(PARSER_THREADS_KEY, 4);
+		parserMaxStuckThreads = config.getInteger(PARSER_MAX_STUCK_THREADS_KEY, 16);
+		parserMaxSize = config.getInteger(PARSER_MAX_SIZE_KEY, 0) * 1024L * 1024L;
+		timestampAttribute = config.getString(TIMESTAMP_ATTRIBUTE_KEY, "updatetimestamp");
+		threadSafe = config.getBoolean(THREAD_SAFE_KEY);
+		if (parserTimeout > 0) {
+			String poisonDocumentsFile = config.getString(POISON_DOCUMENTS_KEY);
+			try {
+				if (poisonDocumentsFile != null && !"".equals(poisonDocumentsFile)) {
+					poisonDocuments = PoisonDocuments.getInstance(new File(poisonDocumentsFile));
+				} else {
+					poisonDocuments = PoisonDocuments.getInstance();
+				}
+			} catch (IOException e) {
+				LOGGER.error("Could not open the poison documents " + poisonDocumentsFile
+						+ ", they are only kept in memory.", e);
+				poisonDocuments = PoisonDocuments.getInstance();
+			}
+		}
+	}
+
+	/**
+	 * Run a parser for the binary content of a bean. Content that exceeds the configured maximum size is not parsed.
+	 * If a parser timeout is configured, the parser runs on the {@link ParserExecutor}. A document that times out is
+	 * added to the {@link PoisonDocuments} and not parsed again until its update timestamp changes. Documents without
+	 * an update timestamp are not added.
+	 * @param bean bean the content belongs to
+	 * @param content content that is parsed
+	 * @param parser parser for the content
+	 * @param <T> result type of the parser
+	 * @return the result of the parser, null if the document was skipped
+	 * @throws CRException if the parser failed or timed out
+	 */
+	protected final <T> T executeParser(final CRResolvableBean bean, final Object content, final Callable<T> parser)
+			throws CRException {
+		if (parserMaxSize > 0 && content instanceof byte[] && ((byte[]) content).length > parserMaxSize) {
+			MonitorFactory.count("ContentTransformer#skipLarge");
+			LOGGER.warn("Document " + bean.getContentid() + " is not parsed by " + getTransformerKey() + ", it has "
+					+ ((byte[]) content).length + " bytes.");
+			return null;
+		}
+		if (parserTimeout <= 0) {
+			try {
+				return parser.call();
+			} catch (CRException e) {
+				throw e;
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new CRException(e);
+			}
+		}
+		String contentid = bean.getContentid();
+		Object timestampValue = bean.get(timestampAttribute);
+		String timestamp = timestampValue == null ? null : timestampValue.toString();
+		if (contentid != null && timestamp != null && poisonDocuments.contains(contentid, timestamp)) {
+			MonitorFactory.count("ContentTransformer#skipPoison");
+			LOGGER.info("Document " + contentid + " is not parsed by " + getTransformerKey()
+					+ ", it timed out before and did not change since.");
+			return null;
+		}
+		try {
+			return ParserExecutor.execute(parser, parserTimeout, parserThreads, parserMaxStuckThreads);
+		} catch (TimeoutException e) {
+			if (contentid == null || timestamp == null) {
+				throw new CRException("Parsing document " + contentid + " took longer than " + parserTimeout
+						+ "ms, it has no " + timestampAttribute + " and is not skipped.", e);
+			}
+			poisonDocuments.add(contentid, timestamp);
+			throw new CRException("Parsing document " + contentid + " took longer than " + parserTimeout
+					+ "ms, it is skipped until it changes.", e);
+		} catch (RejectedExecutionException e) {
+			throw new CRException("Could not parse document " + contentid + ".", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof CRException) {
+				throw (CRException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new CRException((Exception) e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CRException(e);
+		}
+	}
+
+	/**
+	 * Get the key of binary content in the extraction cache of this transformer.
+	 * @param content content of the bean
+	 * @return the key, null if the extraction cache is not configured or the content is not binary
+	 */
+	protected final String getExtractionCacheKey(final Object content) {
+		if (extractionCache == null || !(content instanceof byte[])) {
+			return null;
+		}
+		return extractionCache.createKey(getClass().getName(), (byte[]) content);
+	}
+
+	/**
+	 * @param key key of the content, see {@link #getExtractionCacheKey(Object)}
+	 * @return the values extracted from the content, null if they are not cached
+	 */
+	protected final Map<String, String> getCachedExtraction(final String key) {
+		if (key == null) {
+			return null;
+		}
+		return extractionCache.get(key);
+	}
+
+	/**
+	 * Store the values extracted from the content in the extraction cache.
+	 * @param key key of the content, see {@link #getExtractionCacheKey(Object)}
+	 * @param values extracted values
+	 */
+	protected final void cacheExtraction(final String key, final Map<String, String> values) {
+		if (key != null) {
+			extractionCache.put(key, values);
+		}
+	}
+
+	/**
+	 * @param key key of the content, see {@link #getExtractionCacheKey(Object)}
+	 * @return the text extracted from the content, null if it is not cached
+	 */
+	protected final String getCachedText(final String key) {
+		Map<String, String> values = getCachedExtraction(key);
+		if (values == null) {
+			return null;
+		}
+		return values.get(EXTRACTED_TEXT_KEY);
+	}
+
+	/**
+	 * Store the text extracted from the content in the extraction cache.
+	 * @param key key of the content, see {@link #getExtractionCacheKey(Object)}
+	 * @param text extracted text, nothing is cached if it is null
+	 */
+	protected final void cacheText(final String key, final String text) {
+		if (text != null) {
+			cacheExtraction(key, Collections.singletonMap(EXTRACTED_TEXT_KEY, text));
+		}
+	}
+
+	/**
+	 * @return true if the transformer was configured to be used by more than one thread at the same time
+	 * @see #THREAD_SAFE_KEY
+	 */
+	public boolean isThreadSafe() {
+		return threadSafe;
 	}
 
 	public static Logger getLogger() {
@@ -101,14 +358,7 @@ public abstract class ContentTransformer {
 	 * @return true if rule matches
 	 */
 	public boolean match(CRResolvableBean object) {
-		if (object != null) {
-			try {
-				return (evaluator.match(expr, object));
-			} catch (ExpressionParserException e) {
-				LOGGER.error("Could not evaluate Expression with gived object and rule: " + rule, e);
-			}
-		}
-		return (false);
+		return compiledRule != null && compiledRule.match(object);
 	}
 
 	private static final String TRANSFORMER_CLASS_KEY = "transformerclass";
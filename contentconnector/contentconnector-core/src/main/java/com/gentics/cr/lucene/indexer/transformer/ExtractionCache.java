@@ -0,0 +1,419 @@
+package com.gentics.cr.lucene.indexer.transformer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+
+import com.gentics.cr.monitoring.MonitorFactory;
+
+/**
+ * Persistent cache for the text and metadata that transformers extract from binary content. The entries are
+ * keyed by the SHA-1 of the content, so unchanged files are not parsed again on a reindex. Every entry is stored
+ * in its own compressed file below the cache directory. The total size of the files is bounded, the least
+ * recently used entries are removed first. The last use of an entry is stored as the modification time of its
+ * file, so the order survives a restart.
+ */
+public final class ExtractionCache {
+
+	/**
+	 * Log4j logger.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(ExtractionCache.class);
+
+	/**
+	 * The hit rate is logged after this number of lookups.
+	 */
+	private static final int LOG_INTERVAL = 1000;
+
+	/**
+	 * Suffix of the entry files.
+	 */
+	private static final String SUFFIX = ".gz";
+
+	/**
+	 * Suffix of the files an entry is written to before it is renamed to its entry file.
+	 */
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	/**
+	 * Caches by their canonical directory.
+	 */
+	private static final Map<String, ExtractionCache> CACHES = new HashMap<String, ExtractionCache>();
+
+	/**
+	 * Directory of the cache.
+	 */
+	private final File directory;
+
+	/**
+	 * Maximum total size of the entry files in bytes.
+	 */
+	private final long maxSize;
+
+	/**
+	 * Size of the entry files by key in access order.
+	 */
+	private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(1024, 0.75f, true);
+
+	/**
+	 * Total size of the entry files in bytes.
+	 */
+	private long size = 0;
+
+	/**
+	 * Number of lookups that found an entry.
+	 */
+	private final AtomicLong hits = new AtomicLong();
+
+	/**
+	 * Number of lookups that did not find an entry.
+	 */
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Create a cache and read the existing entries from the directory.
+	 * @param directory directory of the cache
+	 * @param maxSize maximum total size of the entry files in bytes
+	 */
+	private ExtractionCache(final File directory, final long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		loadEntries();
+	}
+
+	/**
+	 * Get the cache stored in the given directory. All transformers configured with the same directory share one
+	 * cache, the maximum size of the first one is used.
+	 * @param directory directory of the cache, it is created if it does not exist
+	 * @param maxSize maximum total size of the entry files in bytes
+	 * @return the cache
+	 * @throws IOException if the directory cannot be created
+	 */
+	public static ExtractionCache getInstance(final File directory, final long maxSize) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create the extraction cache directory " + directory);
+		}
+		String path = directory.getCanonicalPath();
+		synchronized (CACHES) {
+			ExtractionCache cache = CACHES.get(path);
+			if (cache == null) {
+				cache = new ExtractionCache(new File(path), maxSize);
+				CACHES.put(path, cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Read the entry files of the directory in the order of their last use. Temporary files of entries that were
+	 * not completely written are deleted.
+	 */
+	private void loadEntries() {
+		List<File> files = new ArrayList<File>();
+		File[] subdirectories = directory.listFiles();
+		if (subdirectories != null) {
+			for (File subdirectory : subdirectories) {
+				File[] entryFiles = subdirectory.listFiles();
+				if (entryFiles != null) {
+					for (File file : entryFiles) {
+						if (file.getName().endsWith(SUFFIX)) {
+							files.add(file);
+						} else if (file.getName().endsWith(TEMP_SUFFIX) && !file.delete()) {
+							LOGGER.warn("Could not delete the temporary file " + file + ".");
+						}
+					}
+				}
+			}
+		}
+		File[] sorted = files.toArray(new File[files.size()]);
+		Arrays.sort(sorted, new Comparator<File>() {
+			public int compare(final File a, final File b) {
+				long aModified = a.lastModified();
+				long bModified = b.lastModified();
+				return aModified < bModified ? -1 : (aModified == bModified ? 0 : 1);
+			}
+		});
+		synchronized (entries) {
+			for (File file : sorted) {
+				String name = file.getName();
+				long length = file.length();
+				entries.put(name.substring(0, name.length() - SUFFIX.length()), length);
+				size += length;
+			}
+			evict();
+		}
+		LOGGER.info("Extraction cache " + directory + " contains " + sorted.length + " entries with " + size
+				+ " bytes.");
+	}
+
+	/**
+	 * Create the key of an entry.
+	 * @param namespace namespace of the entry, e.g. the class of the transformer that extracts the content
+	 * @param content binary content
+	 * @return the key
+	 */
+	public String createKey(final String namespace, final byte[] content) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 is not supported.", e);
+		}
+		try {
+			digest.update(namespace.getBytes("UTF-8"));
+		} catch (IOException e) {
+			throw new IllegalStateException("UTF-8 is not supported.", e);
+		}
+		digest.update((byte) 0);
+		digest.update(content);
+		byte[] hash = digest.digest();
+		StringBuilder key = new StringBuilder(hash.length * 2);
+		for (byte b : hash) {
+			key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Get the values extracted from the content with the given key.
+	 * @param key key of the content, see {@link #createKey(String, byte[])}
+	 * @return the extracted values, null if the content is not cached
+	 */
+	public Map<String, String> get(final String key) {
+		boolean cached;
+		synchronized (entries) {
+			cached = entries.get(key) != null;
+		}
+		Map<String, String> values = null;
+		if (cached) {
+			File file = getFile(key);
+			try {
+				values = read(file);
+				file.setLastModified(System.currentTimeMillis());
+			} catch (IOException e) {
+				LOGGER.warn("Could not read the extraction cache entry " + file + ", it is removed.", e);
+				remove(key);
+			}
+		}
+		count(values != null);
+		return values;
+	}
+
+	/**
+	 * Store the values extracted from the content with the given key.
+	 * @param key key of the content, see {@link #createKey(String, byte[])}
+	 * @param values extracted values, null values are not stored
+	 */
+	public void put(final String key, final Map<String, String> values) {
+		File file = getFile(key);
+		File parent = file.getParentFile();
+		File temp = null;
+		try {
+			if (!parent.isDirectory() && !parent.mkdirs()) {
+				throw new IOException("Could not create the directory " + parent);
+			}
+			// every writer gets its own file, so concurrent puts of the same content do not write into one file
+			temp = File.createTempFile(key, TEMP_SUFFIX, parent);
+			write(temp, values);
+			synchronized (entries) {
+				Long previous = entries.remove(key);
+				if (previous != null) {
+					size -= previous;
+				}
+				if (!rename(temp, file)) {
+					throw new IOException("Could not rename " + temp + " to " + file);
+				}
+				long length = file.length();
+				entries.put(key, length);
+				size += length;
+				evict();
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Could not write the extraction cache entry " + file + ".", e);
+			if (temp != null) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Rename a file and replace an existing file. The rename replaces the file in one step where the platform
+	 * supports it, otherwise the existing file is deleted first.
+	 * @param source file to rename
+	 * @param target new name of the file
+	 * @return true if the file was renamed
+	 */
+	private static boolean rename(final File source, final File target) {
+		return source.renameTo(target) || (target.exists() && target.delete() && source.renameTo(target));
+	}
+
+	/**
+	 * Remove the least recently used entries until the cache is not larger than its maximum size. This method
+	 * assumes it is invoked in a synchronized context.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+		while (size > maxSize && iterator.hasNext()) {
+			Map.Entry<String, Long> eldest = iterator.next();
+			iterator.remove();
+			size -= eldest.getValue();
+			getFile(eldest.getKey()).delete();
+		}
+	}
+
+	/**
+	 * Remove an entry.
+	 * @param key key of the entry
+	 */
+	private void remove(final String key) {
+		synchronized (entries) {
+			Long length = entries.remove(key);
+			if (length != null) {
+				size -= length;
+			}
+			getFile(key).delete();
+		}
+	}
+
+	/**
+	 * Count a lookup and log the hit rate after every {@link #LOG_INTERVAL} lookups.
+	 * @param hit true if the lookup found an entry
+	 */
+	private void count(final boolean hit) {
+		if (hit) {
+			hits.incrementAndGet();
+			MonitorFactory.count("ExtractionCache#hit");
+		} else {
+			misses.incrementAndGet();
+			MonitorFactory.count("ExtractionCache#miss");
+		}
+		long lookups = hits.get() + misses.get();
+		if (lookups % LOG_INTERVAL == 0 && LOGGER.isInfoEnabled()) {
+			LOGGER.info("Extraction cache " + directory + ": " + hits.get() + " hits, " + misses.get()
+					+ " misses, hit rate " + Math.round(getHitRate() * 100) + "%, " + getSize() + " bytes.");
+		}
+	}
+
+	/**
+	 * @param key key of an entry
+	 * @return file of the entry
+	 */
+	private File getFile(final String key) {
+		return new File(new File(directory, key.substring(0, 2)), key + SUFFIX);
+	}
+
+	/**
+	 * Write the values to a file.
+	 * @param file file
+	 * @param values values
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void write(final File file, final Map<String, String> values) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+				new FileOutputStream(file))));
+		try {
+			int count = 0;
+			for (String value : values.values()) {
+				if (value != null) {
+					count++;
+				}
+			}
+			out.writeInt(count);
+			for (Map.Entry<String, String> entry : values.entrySet()) {
+				if (entry.getValue() != null) {
+					out.writeUTF(entry.getKey());
+					byte[] value = entry.getValue().getBytes("UTF-8");
+					out.writeInt(value.length);
+					out.write(value);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Read the values from a file.
+	 * @param file file
+	 * @return values
+	 * @throws IOException if the file cannot be read
+	 */
+	private static Map<String, String> read(final File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(
+				file))));
+		try {
+			int count = in.readInt();
+			Map<String, String> values = new HashMap<String, String>(count * 2);
+			for (int i = 0; i < count; i++) {
+				String name = in.readUTF();
+				byte[] value = new byte[in.readInt()];
+				in.readFully(value);
+				values.put(name, new String(value, "UTF-8"));
+			}
+			return values;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @return number of lookups that found an entry
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return number of lookups that did not find an entry
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return share of the lookups that found an entry, 0 if there were no lookups
+	 */
+	public double getHitRate() {
+		long hitCount = hits.get();
+		long lookups = hitCount + misses.get();
+		return lookups == 0 ? 0 : (double) hitCount / lookups;
+	}
+
+	/**
+	 * @return total size of the entry files in bytes
+	 */
+	public long getSize() {
+		synchronized (entries) {
+			return size;
+		}
+	}
+
+	/**
+	 * @return number of entries
+	 */
+	public int getEntryCount() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package com.gentics.cr.lucene.indexer.transformer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.gentics.cr.monitoring.MonitorFactory;
+
+/**
+ * Runs the parsers of binary transformers on a bounded pool of daemon threads, so a document that takes too long
+ * to parse does not block the index job. The pool is shared by all transformers, its size is taken from the first
+ * transformer that uses it.
+ * <p>
+ * A parser that ignores the interrupt after its timeout keeps its thread. Such a thread is given up and no longer
+ * counted against the pool, a replacement thread is started instead. The number of replacement threads is limited,
+ * when all threads of the pool are stuck further parsers are rejected.
+ * </p>
+ */
+public final class ParserExecutor {
+
+	/**
+	 * Log4j logger.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(ParserExecutor.class);
+
+	/**
+	 * Idle threads of the pool are stopped after this number of seconds.
+	 */
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	/**
+	 * The task waits for a thread of the pool.
+	 */
+	private static final int WAITING = 0;
+
+	/**
+	 * The parser of the task is running.
+	 */
+	private static final int RUNNING = 1;
+
+	/**
+	 * The parser of the task finished in time.
+	 */
+	private static final int DONE = 2;
+
+	/**
+	 * The caller gave up before the parser was started, it is not run.
+	 */
+	private static final int CANCELLED = 3;
+
+	/**
+	 * The parser did not finish in time, its thread was given up.
+	 */
+	private static final int ABANDONED = 4;
+
+	/**
+	 * Shared thread pool, created on first use.
+	 */
+	private static ThreadPoolExecutor executor;
+
+	/**
+	 * Number of threads of the pool that are not stuck.
+	 */
+	private static int poolThreads;
+
+	/**
+	 * Maximum number of replacement threads for stuck threads.
+	 */
+	private static int maxStuckThreads;
+
+	/**
+	 * Number of threads that run a parser which did not stop after its timeout.
+	 */
+	private static int stuckThreads;
+
+	/**
+	 * Utility class.
+	 */
+	private ParserExecutor() {
+	}
+
+	/**
+	 * Get the shared thread pool.
+	 * @param threads number of threads, only used if the pool does not exist yet
+	 * @param maxStuck maximum number of replacement threads, only used if the pool does not exist yet
+	 * @return the pool
+	 */
+	private static synchronized ThreadPoolExecutor getExecutor(final int threads, final int maxStuck) {
+		if (executor == null) {
+			final AtomicInteger threadNumber = new AtomicInteger();
+			poolThreads = threads;
+			maxStuckThreads = maxStuck;
+			executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						public Thread newThread(final Runnable runnable) {
+							Thread thread = new Thread(runnable, "ParserExecutor-" + threadNumber.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+		}
+		if (stuckThreads - maxStuckThreads >= poolThreads) {
+			MonitorFactory.count("ParserExecutor#stuck");
+			throw new RejectedExecutionException("All " + poolThreads + " parser threads and " + maxStuckThreads
+					+ " replacement threads are stuck in parsers that did not stop after their timeout.");
+		}
+		return executor;
+	}
+
+	/**
+	 * Give up the thread of a parser that did not stop after its timeout and start a replacement thread, unless the
+	 * maximum number of replacement threads is reached.
+	 */
+	private static synchronized void abandon() {
+		stuckThreads++;
+		if (stuckThreads <= maxStuckThreads) {
+			resize(poolThreads + stuckThreads);
+		} else {
+			LOGGER.error(stuckThreads + " parser threads are stuck, the maximum of " + maxStuckThreads
+					+ " replacement threads is reached. The pool has " + Math.max(poolThreads + maxStuckThreads
+					- stuckThreads, 0) + " threads left.");
+		}
+	}
+
+	/**
+	 * Called by a given up thread when its parser finally finished, the pool shrinks again.
+	 */
+	private static synchronized void release() {
+		stuckThreads--;
+		if (stuckThreads < maxStuckThreads) {
+			resize(poolThreads + stuckThreads);
+		}
+		LOGGER.debug("A stuck parser finished, " + stuckThreads + " parser threads are still stuck.");
+	}
+
+	/**
+	 * Change the number of threads of the pool. This method assumes it is invoked in a synchronized context.
+	 * @param size new number of threads
+	 */
+	private static void resize(final int size) {
+		if (size > executor.getMaximumPoolSize()) {
+			executor.setMaximumPoolSize(size);
+			executor.setCorePoolSize(size);
+		} else {
+			executor.setCorePoolSize(size);
+			executor.setMaximumPoolSize(size);
+		}
+	}
+
+	/**
+	 * @return number of threads that run a parser which did not stop after its timeout
+	 */
+	static synchronized int getStuckThreads() {
+		return stuckThreads;
+	}
+
+	/**
+	 * Run a parser and wait for its result. The timeout starts when a thread of the pool begins to run the parser.
+	 * If it expires the parser thread is interrupted. If the parser ignores the interrupt, its thread is given up
+	 * and replaced by a new one.
+	 * @param parser parser to run
+	 * @param timeout maximum time the parser may run in milliseconds
+	 * @param threads number of threads of the pool, only used if the pool does not exist yet
+	 * @param maxStuck maximum number of threads that are replaced when they are stuck, only used if the pool does not
+	 * exist yet
+	 * @param <T> result type of the parser
+	 * @return the result of the parser
+	 * @throws TimeoutException if the parser did not finish in time
+	 * @throws RejectedExecutionException if no thread of the pool started the parser in time or all threads are
+	 * stuck
+	 * @throws ExecutionException if the parser threw an exception, it is the cause
+	 * @throws InterruptedException if the current thread was interrupted while waiting
+	 */
+	public static <T> T execute(final Callable<T> parser, final long timeout, final int threads, final int maxStuck)
+			throws TimeoutException, ExecutionException, InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final AtomicInteger state = new AtomicInteger(WAITING);
+		Future<T> future = getExecutor(threads, maxStuck).submit(new Callable<T>() {
+			public T call() throws Exception {
+				if (!state.compareAndSet(WAITING, RUNNING)) {
+					return null;
+				}
+				started.countDown();
+				try {
+					return parser.call();
+				} finally {
+					if (!state.compareAndSet(RUNNING, DONE)) {
+						release();
+					}
+				}
+			}
+		});
+		try {
+			if (!started.await(timeout, TimeUnit.MILLISECONDS) && state.compareAndSet(WAITING, CANCELLED)) {
+				future.cancel(false);
+				MonitorFactory.count("ParserExecutor#busy");
+				throw new RejectedExecutionException("No parser thread became available within " + timeout
+						+ "ms, all " + threads + " threads are busy.");
+			}
+			return future.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			giveUp(future, state);
+			MonitorFactory.count("ParserExecutor#timeout");
+			LOGGER.warn("Parser did not finish within " + timeout + "ms and was interrupted.");
+			throw e;
+		} catch (InterruptedException e) {
+			giveUp(future, state);
+			throw e;
+		}
+	}
+
+	/**
+	 * Interrupt a parser and give up its thread if the parser is still running.
+	 * @param future future of the parser
+	 * @param state state of the task
+	 */
+	private static void giveUp(final Future<?> future, final AtomicInteger state) {
+		if (state.compareAndSet(WAITING, CANCELLED)) {
+			future.cancel(false);
+		} else if (state.compareAndSet(RUNNING, ABANDONED)) {
+			abandon();
+			future.cancel(true);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.gentics.cr.lucene.indexer.transformer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+/**
+ * List of documents that could not be parsed within the timeout. A document is identified by its contentid and
+ * remembered with its update timestamp, it is skipped until the timestamp changes. The list is kept in memory and
+ * optionally stored in a properties file, so it survives a restart.
+ */
+public final class PoisonDocuments {
+
+	/**
+	 * Log4j logger.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(PoisonDocuments.class);
+
+	/**
+	 * Lists by their canonical file, the list without a file is stored with the key null.
+	 */
+	private static final Map<String, PoisonDocuments> LISTS = new HashMap<String, PoisonDocuments>();
+
+	/**
+	 * File the list is stored in, null if it is only kept in memory.
+	 */
+	private final File file;
+
+	/**
+	 * Update timestamps of the documents by their contentid.
+	 */
+	private final Properties documents = new Properties();
+
+	/**
+	 * Create a list and read the documents from the file.
+	 * @param file file the list is stored in, null to keep it in memory
+	 */
+	private PoisonDocuments(final File file) {
+		this.file = file;
+		if (file != null && file.isFile()) {
+			try {
+				InputStream in = new FileInputStream(file);
+				try {
+					documents.load(in);
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				LOGGER.error("Could not read the poison documents from " + file + ".", e);
+			}
+		}
+	}
+
+	/**
+	 * Get the list stored in the given file. All transformers configured with the same file share one list.
+	 * @param file file the list is stored in
+	 * @return the list
+	 * @throws IOException if the path of the file cannot be resolved
+	 */
+	public static PoisonDocuments getInstance(final File file) throws IOException {
+		return getInstance(file.getCanonicalPath());
+	}
+
+	/**
+	 * @return the list that is only kept in memory
+	 */
+	public static PoisonDocuments getInstance() {
+		return getInstance((String) null);
+	}
+
+	/**
+	 * Get the list stored in the file with the given path.
+	 * @param path canonical path of the file, null for the list that is only kept in memory
+	 * @return the list
+	 */
+	private static PoisonDocuments getInstance(final String path) {
+		synchronized (LISTS) {
+			PoisonDocuments list = LISTS.get(path);
+			if (list == null) {
+				if (path == null) {
+					list = new PoisonDocuments(null);
+				} else {
+					list = new PoisonDocuments(new File(path));
+				}
+				LISTS.put(path, list);
+			}
+			return list;
+		}
+	}
+
+	/**
+	 * Check if a document has to be skipped. A document that was recorded with another timestamp has changed since,
+	 * it is removed from the list.
+	 * @param contentid contentid of the document
+	 * @param timestamp current update timestamp of the document
+	 * @return true if the document was recorded with the same timestamp
+	 */
+	public synchronized boolean contains(final String contentid, final String timestamp) {
+		String recorded = documents.getProperty(contentid);
+		if (recorded == null) {
+			return false;
+		}
+		if (recorded.equals(timestamp)) {
+			return true;
+		}
+		documents.remove(contentid);
+		store();
+		return false;
+	}
+
+	/**
+	 * Record a document that could not be parsed.
+	 * @param contentid contentid of the document
+	 * @param timestamp update timestamp of the document
+	 */
+	public synchronized void add(final String contentid, final String timestamp) {
+		documents.setProperty(contentid, timestamp);
+		store();
+	}
+
+	/**
+	 * @return number of recorded documents
+	 */
+	public synchronized int size() {
+		return documents.size();
+	}
+
+	/**
+	 * Write the list to its file. This method assumes it is invoked in a synchronized context.
+	 */
+	private void store() {
+		if (file == null) {
+			return;
+		}
+		try {
+			File parent = file.getParentFile();
+			if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+				throw new IOException("Could not create the directory " + parent);
+			}
+			OutputStream out = new FileOutputStream(file);
+			try {
+				documents.store(out, "contentid=updatetimestamp of documents that could not be parsed in time");
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			LOGGER.error("Could not write the poison documents to " + file + ".", e);
+		}
+	}
+}
@@ -1,12 +1,7 @@
 package com.gentics.cr.lucene.indexer.transformer.html;
 
-import java.util.List;
-
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.nodes.Node;
-import org.jsoup.nodes.TextNode;
 
 import com.gentics.api.portalnode.connector.PortalConnectorHelper;
 import com.gentics.cr.CRResolvableBean;
@@ -62,7 +57,7 @@ public class HTMLContentTransformer extends ContentTransformer {
 		try {
 			if (htmlString != null) {
 				Document documentFragment = Jsoup.parseBodyFragment(htmlString);
-				result = retrieveContent(documentFragment);
+				result = HTMLTextExtractor.extract(documentFragment.body());
 
 				if (result.equals("")) {
 					String fragmentText = documentFragment.text();
@@ -77,52 +72,6 @@ public class HTMLContentTransformer extends ContentTransformer {
 		return result;
 	}
 
-	private String retrieveContent(final Document documentFragment) {
-		StringBuilder strippedString = new StringBuilder();
-		List<Node> children = documentFragment.body().childNodes();
-		for (int pos = 0; pos < children.size(); pos++) {
-			Node node = children.get(pos);
-			String text = getTextFromNode(node);
-			if (!text.equals("")) {
-				String tempString = strippedString.toString();
-				if (tempString.equals("") || tempString.endsWith(" ") || tempString.endsWith("/") || tempString.endsWith(".")
-						|| tempString.endsWith(":")) {
-					// directly add the text if the string is empty or ends with a space, slash, dot, doublepoint
-					strippedString.append(text);
-					
-				} else {
-					// check next element if a space shall be added
-					if (checkNextElement(children, pos)) {
-						strippedString.append(" ");
-					}
-					strippedString.append(text);
-				}
-				if(!text.endsWith(" ") && node instanceof Element && ((Element) node).tag().isBlock()) {
-					// make sure there is always a space at the end of block elements!
-					strippedString.append(" ");
-				} 
-			}
-		}
-		return strippedString.toString().trim();
-	}
-
-	private boolean checkNextElement(List<Node> children, int pos) {
-		if (pos + 1 < children.size()) {
-			return true;
-		}
-		return false;
-	}
-
-	private String getTextFromNode(Node node) {
-		String text = "";
-		if (node instanceof Element) {
-			text = ((Element) node).text();
-		} else if (node instanceof TextNode) {
-			text = ((TextNode) node).text();
-		}
-		return text;
-	}
-
 	/**
 	 * Converts a object containing html to a String that does not contain html
 	 * tags can be indexed by lucene.
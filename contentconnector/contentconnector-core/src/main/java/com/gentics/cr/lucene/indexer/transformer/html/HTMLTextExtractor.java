@@ -0,0 +1,172 @@
+package com.gentics.cr.lucene.indexer.transformer.html;
+
+import java.util.List;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+/**
+ * Extracts the plain text of a parsed html fragment in a single pass. All text is appended to one buffer, the
+ * text of every top level node is the same as the one of {@link Element#text()} and the top level nodes are
+ * separated like {@link HTMLContentTransformer} always did:
+ * <ul>
+ * <li>a space is added before the text of a node if the text so far does not end with a space, slash, dot or
+ * colon and the node is not the last one</li>
+ * <li>a space is always added after the text of a block element</li>
+ * </ul>
+ */
+final class HTMLTextExtractor implements NodeVisitor {
+
+	/**
+	 * Extracted text.
+	 */
+	private final StringBuilder text;
+
+	/**
+	 * Start of the text of the current top level node.
+	 */
+	private int start;
+
+	/**
+	 * Number of open elements that preserve the whitespace of their text (e.g. pre).
+	 */
+	private int preserveWhitespace;
+
+	/**
+	 * Create a new extractor.
+	 * @param text buffer the text is appended to
+	 */
+	private HTMLTextExtractor(final StringBuilder text) {
+		this.text = text;
+	}
+
+	/**
+	 * Extract the text of all child nodes of the element.
+	 * @param body body of the parsed fragment
+	 * @return the plain text
+	 */
+	public static String extract(final Element body) {
+		StringBuilder text = new StringBuilder();
+		HTMLTextExtractor extractor = new HTMLTextExtractor(text);
+		NodeTraversor traversor = new NodeTraversor(extractor);
+		List<Node> children = body.childNodes();
+		for (int pos = 0; pos < children.size(); pos++) {
+			Node node = children.get(pos);
+			int start = text.length();
+			boolean separate = start > 0 && !endsWithSeparator(text) && pos + 1 < children.size();
+			if (node instanceof TextNode) {
+				extractor.start = start;
+				extractor.appendNormalised(((TextNode) node).getWholeText(), false);
+			} else if (node instanceof Element) {
+				extractor.start = start;
+				traversor.traverse(node);
+				trim(text, start);
+			}
+			if (text.length() == start) {
+				continue;
+			}
+			if (separate) {
+				text.insert(start, ' ');
+			}
+			if (node instanceof Element && ((Element) node).isBlock() && text.charAt(text.length() - 1) != ' ') {
+				// make sure there is always a space at the end of block elements!
+				text.append(' ');
+			}
+		}
+		return text.toString().trim();
+	}
+
+	/**
+	 * @param text text
+	 * @return true if the text ends with a character that separates it from the following text
+	 */
+	private static boolean endsWithSeparator(final StringBuilder text) {
+		char last = text.charAt(text.length() - 1);
+		return last == ' ' || last == '/' || last == '.' || last == ':';
+	}
+
+	/**
+	 * Remove the leading and trailing whitespace of the text after the start index, like {@link String#trim()}.
+	 * @param text text
+	 * @param start start index
+	 */
+	private static void trim(final StringBuilder text, final int start) {
+		int end = text.length();
+		while (end > start && text.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		text.setLength(end);
+		int first = start;
+		while (first < end && text.charAt(first) <= ' ') {
+			first++;
+		}
+		if (first > start) {
+			text.delete(start, first);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void head(final Node node, final int depth) {
+		if (node instanceof TextNode) {
+			appendNormalised(((TextNode) node).getWholeText(), true);
+		} else if (node instanceof Element) {
+			Element element = (Element) node;
+			if (depth > 0 && text.length() > start && element.isBlock() && !lastCharIsWhitespace()) {
+				text.append(' ');
+			}
+			if ("br".equals(element.tagName()) && !lastCharIsWhitespace()) {
+				text.append(' ');
+			}
+			if (element.tag().preserveWhitespace()) {
+				preserveWhitespace++;
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void tail(final Node node, final int depth) {
+		if (node instanceof Element && ((Element) node).tag().preserveWhitespace()) {
+			preserveWhitespace--;
+		}
+	}
+
+	/**
+	 * @return true if the text of the current top level node ends with a space
+	 */
+	private boolean lastCharIsWhitespace() {
+		return text.length() > start && text.charAt(text.length() - 1) == ' ';
+	}
+
+	/**
+	 * Append the text of a text node. Unless the whitespace is preserved, every run of whitespace is replaced by a
+	 * single space.
+	 * @param value text of the node
+	 * @param stripLeading true to skip leading whitespace if the text already ends with a space
+	 */
+	private void appendNormalised(final String value, final boolean stripLeading) {
+		if (preserveWhitespace > 0) {
+			text.append(value);
+			return;
+		}
+		boolean lastWasWhite = stripLeading && lastCharIsWhitespace();
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r') {
+				if (!lastWasWhite) {
+					text.append(' ');
+					lastWasWhite = true;
+				}
+			} else {
+				text.append(c);
+				lastWasWhite = false;
+			}
+		}
+	}
+}
@@ -24,6 +24,16 @@ public class MonitorFactory {
 
 	}
 
+	/**
+	 * Count an event (e.g. a cache hit). The number of events is shown as hits of the identifyer in the report.
+	 * @param identifyer name of the event
+	 */
+	public static void count(String identifyer) {
+		if (monitoringEnabled) {
+			com.jamonapi.MonitorFactory.add(identifyer, "count", 1);
+		}
+	}
+
 	public static String getSimpleReport() {
 		StringBuilder ret = new StringBuilder();
 		ret.append("<table class=\"report_table\">");
@@ -6,8 +6,10 @@ import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.regex.Pattern;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -42,6 +44,12 @@ public class XmlContentRepository extends ContentRepository {
 	 */
 	private static final long serialVersionUID = -6929053170765114770L;
 
+	/**
+	 * Keys of map attributes that can be used as element names, other keys are written as entry elements with a
+	 * key attribute.
+	 */
+	private static final Pattern XML_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_.-]*");
+
 	/**
 	 * the root element in the xml code.
 	 */
@@ -316,27 +324,10 @@ public class XmlContentRepository extends ContentRepository {
 			if (bValue instanceof String) {
 				value = (String) bValue;
 			} else if (bValue instanceof Map<?, ?>) {
-				Map<?, ?> map = (Map<?, ?>) bValue;
-				for (Entry<?, ?> e : map.entrySet()) {
-					String key = e.getKey().toString();
-					Object mValue = e.getValue();
-					if (mValue instanceof String[]) {
-						String[] arr = (String[]) mValue;
-						for (String s : arr) {
-							Element elem = doc.createElement(key);
-							Text text = doc.createCDATASection(s);
-							elem.appendChild(text);
-							attrElement.appendChild(elem);
-						}
-						return;
-					} else {
-						Element elem = doc.createElement(key);
-						Text text = doc.createCDATASection(mValue.toString());
-						elem.appendChild(text);
-						attrElement.appendChild(elem);
-						return;
-					}
+				for (Entry<?, ?> e : ((Map<?, ?>) bValue).entrySet()) {
+					appendMapEntry(attrElement, e.getKey().toString(), e.getValue());
 				}
+				return;
 			} else {
 				value = bValue.toString();
 			}
@@ -344,4 +335,41 @@ public class XmlContentRepository extends ContentRepository {
 		Text text = doc.createCDATASection(value);
 		attrElement.appendChild(text);
 	}
+
+	/**
+	 * Append an entry of a map attribute (e.g. the facets of a search result) to the element. Nested maps become
+	 * nested elements, lists and arrays become repeated elements.
+	 * @param parent element to append the entry to
+	 * @param key key of the entry
+	 * @param value value of the entry
+	 */
+	private void appendMapEntry(final Element parent, final String key, final Object value) {
+		if (value instanceof List<?>) {
+			for (Object item : (List<?>) value) {
+				appendMapEntry(parent, key, item);
+			}
+			return;
+		}
+		if (value instanceof Object[]) {
+			for (Object item : (Object[]) value) {
+				appendMapEntry(parent, key, item);
+			}
+			return;
+		}
+		Element elem;
+		if (XML_NAME.matcher(key).matches()) {
+			elem = doc.createElement(key);
+		} else {
+			elem = doc.createElement("entry");
+			elem.setAttribute("key", key);
+		}
+		if (value instanceof Map<?, ?>) {
+			for (Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+				appendMapEntry(elem, e.getKey().toString(), e.getValue());
+			}
+		} else {
+			elem.appendChild(doc.createCDATASection(value == null ? "" : value.toString()));
+		}
+		parent.appendChild(elem);
+	}
 }
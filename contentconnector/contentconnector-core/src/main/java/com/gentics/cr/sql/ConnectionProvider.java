@@ -10,6 +10,7 @@ import org.apache.commons.dbcp.DriverManagerConnectionFactory;
 import org.apache.commons.dbcp.PoolableConnectionFactory;
 import org.apache.commons.dbcp.PoolingDriver;
 import org.apache.commons.pool.ObjectPool;
+import org.apache.commons.pool.impl.GenericKeyedObjectPoolFactory;
 import org.apache.commons.pool.impl.GenericObjectPool;
 import org.apache.log4j.Logger;
 
@@ -26,6 +27,22 @@ public class ConnectionProvider {
 	private static Logger log = Logger.getLogger(ConnectionProvider.class);
 	private static HashMap<String, Boolean> connectionpools;
 
+	/**
+	 * Datasource handle property with the maximum number of connections of the pool (default: 8).
+	 */
+	public static final String MAX_ACTIVE_KEY = "pooling.maxactive";
+
+	/**
+	 * Datasource handle property with the maximum number of idle connections of the pool (default: 8).
+	 */
+	public static final String MAX_IDLE_KEY = "pooling.maxidle";
+
+	/**
+	 * Datasource handle property with the maximum time in milliseconds to wait for a connection when all
+	 * connections of the pool are in use, -1 to wait forever (default: 30000).
+	 */
+	public static final String MAX_WAIT_KEY = "pooling.maxwait";
+
 	/**
 	  * Get a pooled JDBCConnection and create a new pool if none exists.
 	  * Such a direct connection can be used for custom request processors that require a pooled connection
@@ -34,8 +51,18 @@ public class ConnectionProvider {
 	  * 
 	  * @throws Exception
 	  */
-	public static synchronized Connection getPooledJDBCConnection(CRConfigUtil config) throws Exception {
-		//CREATE CONNECTION POOL
+	public static Connection getPooledJDBCConnection(CRConfigUtil config) throws Exception {
+		createPool(config);
+		// borrow outside of the lock, a request waiting for a connection must not block the pools of other configs
+		return DriverManager.getConnection("jdbc:apache:commons:dbcp:" + config.getName());
+	}
+
+	/**
+	 * Create the connection pool of the config if it does not exist yet.
+	 * @param config config with the datasource handle properties
+	 * @throws Exception if the pool cannot be created
+	 */
+	private static synchronized void createPool(CRConfigUtil config) throws Exception {
 		if (!isPoolCreated(config.getName())) {
 			Properties props = config.getDatasourceHandleProperties();
 
@@ -46,10 +73,9 @@ public class ConnectionProvider {
 			} catch (ClassNotFoundException e) {
 				log.error("Could not load driver class.", e);
 			}
-			setupPoolingDriver(connectionuri, config.getName());
+			setupPoolingDriver(connectionuri, config.getName(), props);
 			setPoolCreated(config.getName());
 		}
-		return DriverManager.getConnection("jdbc:apache:commons:dbcp:" + config.getName());
 	}
 
 	/**
@@ -71,16 +97,22 @@ public class ConnectionProvider {
 		}
 	}
 
-	private static synchronized void setupPoolingDriver(String connectionURI, String name) throws Exception {
+	private static synchronized void setupPoolingDriver(String connectionURI, String name, Properties props)
+			throws Exception {
 
 		//
 		// First, we'll need a ObjectPool that serves as the
 		// actual pool of connections.
 		//
 		// We'll use a GenericObjectPool instance, although
-		// any ObjectPool implementation will suffice.
+		// any ObjectPool implementation will suffice. When all connections
+		// are in use a request waits at most maxWait for a connection.
 		//
-		ObjectPool connectionPool = new GenericObjectPool(null);
+		int maxActive = getIntProperty(props, MAX_ACTIVE_KEY, GenericObjectPool.DEFAULT_MAX_ACTIVE);
+		int maxIdle = getIntProperty(props, MAX_IDLE_KEY, GenericObjectPool.DEFAULT_MAX_IDLE);
+		long maxWait = getIntProperty(props, MAX_WAIT_KEY, 30000);
+		ObjectPool connectionPool = new GenericObjectPool(null, maxActive, GenericObjectPool.WHEN_EXHAUSTED_BLOCK,
+				maxWait, maxIdle);
 
 		//
 		// Next, we'll create a ConnectionFactory that the
@@ -89,17 +121,17 @@ public class ConnectionProvider {
 		// using the connect string passed in the command line
 		// arguments.
 		//
-		//ConnectionFactory connectionFactory = new DriverManagerConnectionFactory(connectionURI, null);
+		ConnectionFactory connectionFactory = new DriverManagerConnectionFactory(connectionURI, null);
 
 		//
 		// Now we'll create the PoolableConnectionFactory, which wraps
 		// the "real" Connections created by the ConnectionFactory with
 		// the classes that implement the pooling functionality.
+		// It registers itself as factory of the connection pool. Prepared
+		// statements are pooled per connection so they can be reused.
 		//
-		/* @SuppressWarnings("unused")
-		PoolableConnectionFactory poolableConnectionFactory = new PoolableConnectionFactory(connectionFactory,
-				connectionPool, null, null, false, true);
-		*/
+		new PoolableConnectionFactory(connectionFactory, connectionPool, new GenericKeyedObjectPoolFactory(null), null, false,
+				true);
 		//
 		// Finally, we create the PoolingDriver itself...
 		//
@@ -116,6 +148,26 @@ public class ConnectionProvider {
 		//	    
 	}
 
+	/**
+	 * Read a number from the datasource handle properties.
+	 * @param props datasource handle properties
+	 * @param key key of the property
+	 * @param defaultValue value if the property is not set or not a number
+	 * @return the value of the property
+	 */
+	private static int getIntProperty(Properties props, String key, int defaultValue) {
+		String value = props.getProperty(key);
+		if (value == null || "".equals(value)) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			log.error("Invalid value " + value + " for " + key + ", using " + defaultValue + ".");
+			return defaultValue;
+		}
+	}
+
 	private static synchronized boolean isPoolCreated(String name) {
 		if (connectionpools == null)
 			return false;
@@ -35,6 +35,7 @@ public class CRRequestBuilder {
 	protected String count;
 	protected String contentid;
 	protected String wordmatch;
+	protected String after;
 	protected String[] node_id;
 	protected String[] sorting;
 	protected String[] plinkattributes;
@@ -128,6 +129,7 @@ public class CRRequestBuilder {
 		this.query_not = requestWrapper.getParameter("q_not");
 		this.query_group = requestWrapper.getParameter("q_group");
 		this.wordmatch = requestWrapper.getParameter("wm");
+		this.after = requestWrapper.getParameter(CRRequest.SEARCH_AFTER_KEY);
 		if (config != null) {
 			String addPermissionsToRuleConfig = config.getString(ADD_PERMISSIONS_TO_RULE_KEY);
 			if (addPermissionsToRuleConfig != null) {
@@ -327,6 +329,9 @@ public class CRRequestBuilder {
 		if (this.highlightquery != null) {
 			req.set(RequestProcessor.HIGHLIGHT_QUERY_KEY, this.highlightquery);
 		}
+		if (this.after != null) {
+			req.set(CRRequest.SEARCH_AFTER_KEY, this.after);
+		}
 		return req;
 	}
 
@@ -6,6 +6,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -290,26 +291,8 @@ public abstract class AbstractUpdateCheckerJob implements Runnable {
 					status.setError(message);
 					return null;
 				}
-				Iterator<CRResolvableBean> resolvableIterator = objectsToIndex.iterator();
 				try {
-					while (resolvableIterator.hasNext()) {
-						CRResolvableBean crElement = resolvableIterator.next();
-						Object crElementIDObject = crElement.get(idAttribute);
-						if (crElementIDObject == null) {
-							log.error("IDAttribute is null!");
-						}
-						String crElementID = crElementIDObject.toString();
-						Object crElementTimestamp = crElement.get(timestampAttribute);
-						//TODO: if any transformers change an attribute that is used for the update check we have to run the transformers
-						//before
-						if (!indexUpdateChecker.isUpToDate(
-							crElementID,
-							crElementTimestamp,
-							timestampAttribute,
-							crElement)) {
-							updateObjects.add(crElement);
-						}
-					}
+					addObjectsToUpdate(objectsToIndex, indexUpdateChecker, updateObjects);
 				} catch (WrongOrderException e) {
 					log.error("Got the objects from the datasource in the wrong" + "order.", e);
 					status.setError("Got the objects from the datasource in the" + "wrong order.");
@@ -328,6 +311,202 @@ public abstract class AbstractUpdateCheckerJob implements Runnable {
 		return updateObjects;
 	}
 
+	/**
+	 * Checks the given objects against the index and adds the ones that are
+	 * not up to date to updateObjects.
+	 * @param objectsToCheck - objects sorted by the idAttribute.
+	 * @param indexUpdateChecker - update checker for the index.
+	 * @param updateObjects - collection the outdated objects are added to.
+	 * @throws WrongOrderException if the objects are not sorted by the
+	 * idAttribute.
+	 */
+	private void addObjectsToUpdate(final Collection<CRResolvableBean> objectsToCheck,
+			final IndexUpdateChecker indexUpdateChecker, final Collection<CRResolvableBean> updateObjects)
+			throws WrongOrderException {
+		Iterator<CRResolvableBean> resolvableIterator = objectsToCheck.iterator();
+		while (resolvableIterator.hasNext()) {
+			CRResolvableBean crElement = resolvableIterator.next();
+			Object crElementIDObject = crElement.get(idAttribute);
+			if (crElementIDObject == null) {
+				log.error("IDAttribute is null!");
+			}
+			String crElementID = crElementIDObject.toString();
+			Object crElementTimestamp = crElement.get(timestampAttribute);
+			//TODO: if any transformers change an attribute that is used for the update check we have to run the transformers
+			//before
+			if (!indexUpdateChecker.isUpToDate(crElementID, crElementTimestamp, timestampAttribute, crElement)) {
+				updateObjects.add(crElement);
+			}
+		}
+	}
+
+	/**
+	 * Get an iterator over the objects that are not up to date. In contrast to
+	 * {@link #getObjectsToUpdate(CRRequest, RequestProcessor, boolean, IndexUpdateChecker)}
+	 * the objects are fetched from the RequestProcessor page by page (sorted by
+	 * the idAttribute) while iterating, so only one page has to be held in
+	 * memory at once.
+	 * Stale objects are not deleted by the iterator, call
+	 * {@link IndexUpdateChecker#deleteStaleObjects()} after the iteration if
+	 * {@link ObjectsToUpdateIterator#isComplete()} returns <code>true</code>.
+	 * @param request - Request describing the objects to index.
+	 * @param rp - RequestProcessor to get the objects from.
+	 * @param indexUpdateChecker - update checker for the index.
+	 * @param pageSize - number of objects to fetch from the RequestProcessor at
+	 * once.
+	 * @return iterator returning the objects to update of each page.
+	 */
+	protected ObjectsToUpdateIterator getObjectsToUpdateIterator(final CRRequest request, final RequestProcessor rp,
+			final IndexUpdateChecker indexUpdateChecker, final int pageSize) {
+		defaultizeRequest(request);
+		return new ObjectsToUpdateIterator(request, rp, indexUpdateChecker, pageSize);
+	}
+
+	/**
+	 * Iterates over the pages of objects that are not up to date in the index.
+	 * Pages only containing objects that are up to date are skipped.
+	 * @see AbstractUpdateCheckerJob#getObjectsToUpdateIterator(CRRequest, RequestProcessor, IndexUpdateChecker, int)
+	 */
+	protected class ObjectsToUpdateIterator implements Iterator<Collection<CRResolvableBean>> {
+
+		/**
+		 * Request describing the objects to index.
+		 */
+		private final CRRequest request;
+
+		/**
+		 * RequestProcessor to get the objects from.
+		 */
+		private final RequestProcessor rp;
+
+		/**
+		 * Update checker for the index.
+		 */
+		private final IndexUpdateChecker indexUpdateChecker;
+
+		/**
+		 * Number of objects fetched from the RequestProcessor at once.
+		 */
+		private final int pageSize;
+
+		/**
+		 * Start of the next page to fetch.
+		 */
+		private int pageStart = 0;
+
+		/**
+		 * Objects to update of the next page, <code>null</code> if the next
+		 * page was not fetched yet.
+		 */
+		private Collection<CRResolvableBean> nextPage = null;
+
+		/**
+		 * marker if all pages were fetched.
+		 */
+		private boolean exhausted = false;
+
+		/**
+		 * marker if fetching or checking a page failed.
+		 */
+		private boolean failed = false;
+
+		/**
+		 * Create a new iterator.
+		 * @param pagedRequest - Request describing the objects to index, sorted
+		 * by the idAttribute.
+		 * @param requestProcessor - RequestProcessor to get the objects from.
+		 * @param updateChecker - update checker for the index.
+		 * @param size - number of objects to fetch at once.
+		 */
+		protected ObjectsToUpdateIterator(final CRRequest pagedRequest, final RequestProcessor requestProcessor,
+				final IndexUpdateChecker updateChecker, final int size) {
+			request = pagedRequest;
+			rp = requestProcessor;
+			indexUpdateChecker = updateChecker;
+			if (size > 0) {
+				pageSize = size;
+			} else {
+				pageSize = 1;
+			}
+		}
+
+		/**
+		 * @return <code>true</code> if there is another page of objects to
+		 * update.
+		 */
+		public boolean hasNext() {
+			while (nextPage == null && !exhausted) {
+				fetchNextPage();
+			}
+			return nextPage != null;
+		}
+
+		/**
+		 * @return objects to update of the next page.
+		 */
+		public Collection<CRResolvableBean> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Collection<CRResolvableBean> page = nextPage;
+			nextPage = null;
+			return page;
+		}
+
+		/**
+		 * Removing pages is not supported.
+		 */
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * @return <code>true</code> if all objects have been fetched and checked
+		 * without an error. Only then it is safe to delete the stale objects.
+		 */
+		public boolean isComplete() {
+			return exhausted && !failed;
+		}
+
+		/**
+		 * Fetch the next page from the RequestProcessor and check its objects.
+		 */
+		private void fetchNextPage() {
+			CRRequest pageRequest = request.Clone();
+			pageRequest.setStartString(Integer.toString(pageStart));
+			pageRequest.setCountString(Integer.toString(pageSize));
+			UseCase pageCase = MonitorFactory.startUseCase("AbstractUpdateCheck.getObjectsToUpdatePage("
+					+ request.get("CRID") + ")");
+			try {
+				Collection<CRResolvableBean> objectsToCheck = rp.getObjects(pageRequest);
+				if (objectsToCheck == null || objectsToCheck.size() < pageSize) {
+					exhausted = true;
+				}
+				if (objectsToCheck != null && !objectsToCheck.isEmpty()) {
+					pageStart += objectsToCheck.size();
+					Collection<CRResolvableBean> updateObjects = new ArrayList<CRResolvableBean>();
+					addObjectsToUpdate(objectsToCheck, indexUpdateChecker, updateObjects);
+					if (!updateObjects.isEmpty()) {
+						nextPage = updateObjects;
+					}
+				}
+			} catch (CRException e) {
+				String message = "Error getting objects to index from " + "RequestProcessor. " + e.getMessage();
+				log.error(message, e);
+				status.setError(message);
+				exhausted = true;
+				failed = true;
+			} catch (WrongOrderException e) {
+				log.error("Got the objects from the datasource in the wrong" + "order.", e);
+				status.setError("Got the objects from the datasource in the" + "wrong order.");
+				exhausted = true;
+				failed = true;
+			} finally {
+				pageCase.stop();
+			}
+		}
+	}
+
 	private void defaultizeRequest(CRRequest request) {
 		String[] prefill = request.getAttributeArray(idAttribute);
 		List<String> prefillList = Arrays.asList(prefill);
@@ -0,0 +1,236 @@
+package com.gentics.cr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.gentics.api.lib.datasource.Datasource;
+import com.gentics.api.lib.resolving.Resolvable;
+import com.gentics.cr.conf.gentics.ConfigDirectory;
+import com.gentics.cr.configuration.SimpleCRConfig;
+import com.gentics.cr.exceptions.CRException;
+
+/**
+ * Tests the walk over the cached folders of the {@link CRActivePathRequestProcessor} with a datasource stub that
+ * serves the folders from memory.
+ */
+public class CRActivePathRequestProcessorTest {
+
+	private static final String FOLDER_TYPE = "10002";
+
+	/**
+	 * Folders of the datasource stub by their contentid.
+	 */
+	private final Map<String, Resolvable> folders = new LinkedHashMap<String, Resolvable>();
+
+	/**
+	 * Number of times the datasource stub loaded all folders.
+	 */
+	private int folderLoads;
+
+	private static int testNumber;
+
+	private Datasource datasource;
+
+	@BeforeClass
+	public static void init() throws URISyntaxException {
+		ConfigDirectory.useThis();
+	}
+
+	@Before
+	public void setUp() {
+		folders.clear();
+		folderLoads = 0;
+		testNumber++;
+		addFolder(1, 0, 1);
+		addFolder(2, 1, 1);
+		addFolder(3, 2, 1);
+		// folders that are their own grandparents
+		addFolder(4, 5, 1);
+		addFolder(5, 4, 1);
+		datasource = createDatasource();
+	}
+
+	private void addFolder(final int id, final int motherId, final int updatetimestamp) {
+		Map<String, Object> attributes = new HashMap<String, Object>();
+		attributes.put("contentid", FOLDER_TYPE + "." + id);
+		attributes.put("obj_type", FOLDER_TYPE);
+		attributes.put("mother_obj_id", motherId);
+		attributes.put("mother_obj_type", FOLDER_TYPE);
+		attributes.put("name", "folder" + id);
+		attributes.put("updatetimestamp", updatetimestamp);
+		folders.put(FOLDER_TYPE + "." + id, new MapResolvable(attributes));
+	}
+
+	/**
+	 * @return a datasource that returns the youngest folder for a query with one result and all folders for a query
+	 * without a limit
+	 */
+	private Datasource createDatasource() {
+		return (Datasource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Datasource.class},
+			new InvocationHandler() {
+				public Object invoke(final Object proxy, final Method method, final Object[] args) {
+					String name = method.getName();
+					if ("getResult".equals(name) && args.length == 5) {
+						int count = (Integer) args[3];
+						if (count == 1) {
+							int youngest = 0;
+							Resolvable youngestFolder = null;
+							for (Resolvable folder : folders.values()) {
+								if ((Integer) folder.get("updatetimestamp") >= youngest) {
+									youngest = (Integer) folder.get("updatetimestamp");
+									youngestFolder = folder;
+								}
+							}
+							return youngestFolder == null ? Collections.emptyList() : Collections
+									.singletonList(youngestFolder);
+						}
+						folderLoads++;
+						return new ArrayList<Resolvable>(folders.values());
+					} else if ("getCount".equals(name)) {
+						return folders.size();
+					} else if ("toString".equals(name)) {
+						return "CRActivePathRequestProcessorTest datasource";
+					} else if ("hashCode".equals(name)) {
+						return System.identityHashCode(proxy);
+					} else if ("equals".equals(name)) {
+						return proxy == args[0];
+					}
+					Class<?> returnType = method.getReturnType();
+					if (returnType == boolean.class) {
+						return false;
+					} else if (returnType == int.class) {
+						return 0;
+					}
+					return null;
+				}
+			});
+	}
+
+	private CRActivePathRequestProcessor createRequestProcessor() throws CRException {
+		SimpleCRConfig config = new SimpleCRConfig() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Datasource getDatasource() {
+				return datasource;
+			}
+
+			@Override
+			public String getName() {
+				return "CRActivePathRequestProcessorTest" + testNumber;
+			}
+
+			@Override
+			public String getFolderType() {
+				return FOLDER_TYPE;
+			}
+		};
+		config.set(RequestProcessor.CONTENTCACHE_KEY, "false");
+		config.set("parentcache", "true");
+		return new CRActivePathRequestProcessor(config);
+	}
+
+	private static CRRequest createRequest() {
+		CRRequest request = new CRRequest();
+		request.setAttributeArray(new String[] {"name"});
+		return request;
+	}
+
+	private static CRResolvableBean createPage(final int motherId) {
+		CRResolvableBean page = new CRResolvableBean("10007.1");
+		page.setMother_id(Integer.toString(motherId));
+		page.setMother_type(FOLDER_TYPE);
+		return page;
+	}
+
+	private static List<String> getContentids(final Collection<CRResolvableBean> beans) {
+		List<String> contentids = new ArrayList<String>();
+		for (CRResolvableBean bean : beans) {
+			contentids.add(bean.getContentid());
+		}
+		return contentids;
+	}
+
+	@Test
+	public void testCachedWalk() throws Exception {
+		CRActivePathRequestProcessor rp = createRequestProcessor();
+		Collection<CRResolvableBean> parents = rp.getParents(datasource, createPage(3), null, createRequest());
+		assertEquals("[10002.1, 10002.2, 10002.3]", getContentids(parents).toString());
+		assertEquals("folder3", parents.toArray(new CRResolvableBean[0])[2].get("name"));
+		rp.getParents(datasource, createPage(2), null, createRequest());
+		assertEquals("The folders are loaded once.", 1, folderLoads);
+	}
+
+	@Test
+	public void testRootStop() throws Exception {
+		CRActivePathRequestProcessor rp = createRequestProcessor();
+		Collection<CRResolvableBean> parents = rp.getParents(datasource, createPage(3), "10002.2", createRequest());
+		assertEquals("[10002.3]", getContentids(parents).toString());
+		assertNull("The root itself has no parents.", rp.getParents(datasource, createPage(1), "10002.1",
+			createRequest()));
+	}
+
+	@Test
+	public void testCycle() throws Exception {
+		CRActivePathRequestProcessor rp = createRequestProcessor();
+		Collection<CRResolvableBean> parents = rp.getParents(datasource, createPage(4), null, createRequest());
+		assertEquals("[10002.5, 10002.4]", getContentids(parents).toString());
+	}
+
+	@Test
+	public void testReloadAfterChange() throws Exception {
+		CRActivePathRequestProcessor rp = createRequestProcessor();
+		rp.getParents(datasource, createPage(3), null, createRequest());
+		assertEquals(1, folderLoads);
+
+		folders.remove("10002.5");
+		rp.getParents(datasource, createPage(3), null, createRequest());
+		assertEquals("The folders are reloaded after a folder was deleted.", 2, folderLoads);
+
+		// folder 3 is moved into folder 1
+		addFolder(3, 1, 2);
+		Collection<CRResolvableBean> parents = rp.getParents(datasource, createPage(3), null, createRequest());
+		assertEquals("The folders are reloaded after a folder was moved.", 3, folderLoads);
+		assertEquals("[10002.1, 10002.3]", getContentids(parents).toString());
+	}
+
+	/**
+	 * Resolvable with the attributes of a map.
+	 */
+	private static final class MapResolvable implements Resolvable {
+
+		private final Map<String, Object> attributes;
+
+		private MapResolvable(final Map<String, Object> attributes) {
+			this.attributes = attributes;
+		}
+
+		public Object getProperty(final String key) {
+			return get(key);
+		}
+
+		public Object get(final String key) {
+			return attributes.get(key);
+		}
+
+		public boolean canResolve() {
+			return true;
+		}
+	}
+}
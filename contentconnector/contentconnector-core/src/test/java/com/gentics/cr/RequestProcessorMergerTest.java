@@ -0,0 +1,139 @@
+package com.gentics.cr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.gentics.cr.exceptions.CRException;
+
+public class RequestProcessorMergerTest {
+
+	private static final Pattern ID_PATTERN = Pattern.compile("\"([^\"]*)\"");
+
+	@Test
+	public void testFillAttributesInChunks() throws CRException {
+		ChunkRequestProcessor rp = new ChunkRequestProcessor(createConfig("3", "1"));
+		Collection<CRResolvableBean> beans = createBeans(10);
+		rp.fillAttributes(beans, createRequest());
+
+		assertEquals("10 ids should be fetched in 4 chunks.", 4, rp.filters.size());
+		assertEquals("object.contentid CONTAINSONEOF [\"10002.0\",\"10002.1\",\"10002.2\"]", rp.filters.get(0));
+		assertFilled(beans);
+	}
+
+	@Test
+	public void testFillAttributesInParallel() throws CRException {
+		ChunkRequestProcessor rp = new ChunkRequestProcessor(createConfig("2", "4"));
+		Collection<CRResolvableBean> beans = createBeans(25);
+		rp.fillAttributes(beans, createRequest());
+
+		assertEquals(13, rp.filters.size());
+		assertFilled(beans);
+
+		ExecutorService executor = rp.getMergeExecutor(4);
+		rp.fillAttributes(createBeans(25), createRequest());
+		assertSame("The merge executor is shared by all requests.", executor, rp.getMergeExecutor(4));
+		rp.finalize();
+		assertTrue("The merge executor was not shut down.", executor.isShutdown());
+	}
+
+	@Test
+	public void testFillAttributesWithoutChunks() throws CRException {
+		ChunkRequestProcessor rp = new ChunkRequestProcessor(createConfig("0", "1"));
+		Collection<CRResolvableBean> beans = createBeans(25);
+		rp.fillAttributes(beans, createRequest());
+
+		assertEquals(1, rp.filters.size());
+		assertFilled(beans);
+	}
+
+	@Test
+	public void testMerge() throws CRException {
+		ChunkRequestProcessor primary = new ChunkRequestProcessor(createConfig("0", "1"));
+		primary.objects = createBeans(7);
+		ChunkRequestProcessor secondary = new ChunkRequestProcessor(createConfig("2", "2"));
+		Collection<CRResolvableBean> result = RequestProcessorMerger.merge("contentid", primary, secondary,
+			createRequest());
+
+		assertEquals(4, secondary.filters.size());
+		assertEquals(7, result.size());
+		assertFilled(result);
+	}
+
+	private static CRConfigUtil createConfig(final String chunkSize, final String threads) {
+		CRConfigUtil config = new CRConfigUtil();
+		config.setName("RequestProcessorMergerTest");
+		config.set(RequestProcessor.CONTENTCACHE_KEY, "false");
+		config.set(RequestProcessorMerger.MERGE_CHUNK_SIZE_KEY, chunkSize);
+		config.set(RequestProcessorMerger.MERGE_THREADS_KEY, threads);
+		return config;
+	}
+
+	private static CRRequest createRequest() {
+		CRRequest request = new CRRequest();
+		request.setAttributeArray(new String[] { "name" });
+		return request;
+	}
+
+	private static Collection<CRResolvableBean> createBeans(final int count) {
+		Collection<CRResolvableBean> beans = new ArrayList<CRResolvableBean>();
+		for (int i = 0; i < count; i++) {
+			beans.add(new CRResolvableBean("10002." + i));
+		}
+		return beans;
+	}
+
+	private static void assertFilled(final Collection<CRResolvableBean> beans) {
+		for (CRResolvableBean bean : beans) {
+			assertEquals("name of " + bean.getContentid(), bean.get("name"));
+		}
+	}
+
+	/**
+	 * Returns a bean with a name for every id in the filter and remembers the filters.
+	 */
+	private static class ChunkRequestProcessor extends RequestProcessor {
+
+		private final List<String> filters = Collections.synchronizedList(new ArrayList<String>());
+
+		private Collection<CRResolvableBean> objects;
+
+		public ChunkRequestProcessor(final CRConfig config) throws CRException {
+			super(config);
+		}
+
+		@Override
+		public Collection<CRResolvableBean> getObjects(final CRRequest request, final boolean doNavigation)
+				throws CRException {
+			if (objects != null) {
+				return new ArrayList<CRResolvableBean>(objects);
+			}
+			String filter = request.getRequestFilter();
+			filters.add(filter);
+			assertTrue("Attributes were not passed to the chunk request.", request.getAttributeArray().length == 1);
+			Collection<CRResolvableBean> result = new ArrayList<CRResolvableBean>();
+			Matcher matcher = ID_PATTERN.matcher(filter);
+			while (matcher.find()) {
+				CRResolvableBean bean = new CRResolvableBean(matcher.group(1));
+				bean.set("name", "name of " + matcher.group(1));
+				result.add(bean);
+			}
+			return result;
+		}
+
+		@Override
+		public void finalize() {
+			shutdownMergeExecutor();
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package com.gentics.cr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.gentics.cr.exceptions.CRException;
+
+public class SQLRequestProcessorTest {
+
+	private static final String URL = "jdbc:hsqldb:mem:sqlrequestprocessortest";
+
+	private static CRConfigUtil config;
+
+	private static Connection connection;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		Class.forName("org.hsqldb.jdbcDriver");
+		connection = DriverManager.getConnection(URL, "SA", "");
+		Statement stmt = connection.createStatement();
+		stmt.execute("CREATE TABLE cds (id INTEGER, title VARCHAR(50))");
+		stmt.execute("INSERT INTO cds VALUES (1, 'first')");
+		stmt.execute("INSERT INTO cds VALUES (2, 'second')");
+		stmt.execute("INSERT INTO cds VALUES (3, 'third')");
+		stmt.execute("CREATE TABLE cd_tags (id INTEGER, tag VARCHAR(50))");
+		stmt.execute("INSERT INTO cd_tags VALUES (2, 'rock')");
+		stmt.execute("INSERT INTO cd_tags VALUES (1, 'jazz')");
+		stmt.execute("INSERT INTO cd_tags VALUES (2, 'pop')");
+		stmt.execute("INSERT INTO cd_tags VALUES (1, 'blues')");
+		stmt.execute("INSERT INTO cd_tags VALUES (3, 'folk')");
+		stmt.close();
+
+		config = createConfig("cds");
+	}
+
+	private static CRConfigUtil createConfig(String table) {
+		CRConfigUtil config = new CRConfigUtil();
+		config.setName("SQLRequestProcessorTest");
+		config.set(RequestProcessor.CONTENTCACHE_KEY, "false");
+		config.set("ds-handle.driverClass", "org.hsqldb.jdbcDriver");
+		config.set("ds-handle.url", URL);
+		config.set("ds.table", table);
+		config.set("ds.idcolumn", "id");
+		return config;
+	}
+
+	@AfterClass
+	public static void tearDown() throws Exception {
+		config.releaseJDBCPool();
+		connection.createStatement().execute("SHUTDOWN");
+		connection.close();
+	}
+
+	@Test
+	public void testExtractParameters() {
+		List<Object> parameters = new ArrayList<Object>();
+		String shape = SQLRequestProcessor.extractParameters(
+			"object.title == \"it's\" AND obj_type1 == 10002 AND object.id CONTAINSONEOF [1,2.5,'3']", parameters);
+		assertEquals("object.title == ? AND obj_type1 == ? AND object.id CONTAINSONEOF [?,?,?]", shape);
+		assertEquals(Arrays.<Object> asList("it's", 10002L, 1L, 2.5d, "3"), parameters);
+	}
+
+	@Test
+	public void testPadListParameters() {
+		List<Object> parameters = new ArrayList<Object>(Arrays.<Object> asList(1L, 2L, 3L, "x", 4L));
+		String shape = SQLRequestProcessor.padListParameters(
+			"id CONTAINSONEOF [?, ?, ?] AND title == ? AND id CONTAINSONEOF [?]", parameters);
+		assertEquals("id CONTAINSONEOF [?,?,?,?] AND title == ? AND id CONTAINSONEOF [?]", shape);
+		assertEquals(Arrays.<Object> asList(1L, 2L, 3L, 3L, "x", 4L), parameters);
+	}
+
+	@Test
+	public void testGetObjects() throws CRException {
+		SQLRequestProcessor processor = new SQLRequestProcessor(config);
+		Collection<CRResolvableBean> objects = processor.getObjects(new CRRequest("title == 'second'"));
+		assertEquals(1, objects.size());
+		assertEquals("2", objects.iterator().next().getContentid());
+
+		// same filter shape with other parameters uses the cached statement
+		objects = processor.getObjects(new CRRequest("object.id CONTAINSONEOF [1, 3]"));
+		assertEquals(2, objects.size());
+		objects = processor.getObjects(new CRRequest("object.id CONTAINSONEOF [2, 3]"));
+		assertEquals(2, objects.size());
+		// padded list of the same size bucket
+		objects = processor.getObjects(new CRRequest("object.id CONTAINSONEOF [1, 2, 3]"));
+		assertEquals(3, objects.size());
+	}
+
+	@Test
+	public void testMergeOnIdColumn() throws CRException {
+		CRConfigUtil mergeConfig = createConfig("cd_tags");
+		mergeConfig.set("merge_on_idcolumn", "true");
+		assertMerged(new SQLRequestProcessor(mergeConfig).getObjects(new CRRequest("id > 0")));
+	}
+
+	@Test
+	public void testSortedMerge() throws CRException {
+		CRConfigUtil mergeConfig = createConfig("cd_tags");
+		mergeConfig.set("merge_on_idcolumn", "true");
+		mergeConfig.set("merge_sorted", "true");
+		final List<CRResolvableBean> objects = new ArrayList<CRResolvableBean>();
+		new SQLRequestProcessor(mergeConfig).getObjects(new CRRequest("id > 0"), new SQLRequestProcessor.ObjectHandler() {
+			public void handle(CRResolvableBean object) {
+				objects.add(object);
+			}
+		});
+		assertMerged(objects);
+	}
+
+	private void assertMerged(Collection<CRResolvableBean> objects) {
+		assertEquals(3, objects.size());
+		for (CRResolvableBean object : objects) {
+			Object tags = object.get("TAG");
+			if ("3".equals(object.getContentid())) {
+				assertEquals("folk", tags);
+			} else {
+				assertTrue("tags of " + object.getContentid() + " should be merged", tags instanceof List);
+				assertEquals(2, ((List<?>) tags).size());
+			}
+		}
+	}
+
+	@Test
+	public void testQueryError() throws CRException {
+		SQLRequestProcessor processor = new SQLRequestProcessor(createConfig("missing"));
+		try {
+			processor.getObjects(new CRRequest("id > 0"), new SQLRequestProcessor.ObjectHandler() {
+				public void handle(CRResolvableBean object) {
+				}
+			});
+			fail("A query of a missing table must not look like an empty result.");
+		} catch (CRException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testPoolLimits() throws Exception {
+		CRConfigUtil poolConfig = createConfig("cds");
+		poolConfig.setName("SQLRequestProcessorTestPool");
+		poolConfig.set("ds-handle.pooling.maxActive", "1");
+		poolConfig.set("ds-handle.pooling.maxWait", "100");
+		Connection first = poolConfig.getPooledJDBCConnection();
+		try {
+			poolConfig.getPooledJDBCConnection().close();
+			fail("The pool has only one connection.");
+		} catch (SQLException e) {
+			// expected after waiting for maxWait
+		} finally {
+			first.close();
+			poolConfig.releaseJDBCPool();
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package com.gentics.cr.lucene.indexer.transformer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExtractionCacheTest {
+
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	private static Map<String, String> createValues(final String text) {
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("text", text);
+		values.put("title", null);
+		return values;
+	}
+
+	private static String createRandomText(final Random random, final int length) {
+		StringBuilder text = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			text.append((char) ('a' + random.nextInt(26)));
+		}
+		return text.toString();
+	}
+
+	@Test
+	public void testPutAndGet() throws IOException {
+		ExtractionCache cache = ExtractionCache.getInstance(testFolder.newFolder("cache"), 1024 * 1024);
+		String key = cache.createKey("pdf", "content".getBytes("UTF-8"));
+		assertNull(cache.get(key));
+		cache.put(key, createValues("extracted text äöü"));
+
+		Map<String, String> values = cache.get(key);
+		assertNotNull(values);
+		assertEquals("extracted text äöü", values.get("text"));
+		assertFalse("Null values are not stored.", values.containsKey("title"));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(0.5, cache.getHitRate(), 0.001);
+		assertEquals(1, cache.getEntryCount());
+		assertTrue(cache.getSize() > 0);
+	}
+
+	@Test
+	public void testKey() throws IOException {
+		ExtractionCache cache = ExtractionCache.getInstance(testFolder.newFolder("keys"), 1024 * 1024);
+		byte[] content = "content".getBytes("UTF-8");
+		assertEquals(40, cache.createKey("pdf", content).length());
+		assertEquals(cache.createKey("pdf", content), cache.createKey("pdf", "content".getBytes("UTF-8")));
+		assertFalse(cache.createKey("pdf", content).equals(cache.createKey("doc", content)));
+		assertFalse(cache.createKey("pdf", content).equals(cache.createKey("pdf", "other".getBytes("UTF-8"))));
+	}
+
+	@Test
+	public void testSharedPerDirectory() throws IOException {
+		File directory = testFolder.newFolder("shared");
+		ExtractionCache cache = ExtractionCache.getInstance(directory, 1024 * 1024);
+		assertSame(cache, ExtractionCache.getInstance(new File(new File(directory, ".."), "shared"), 1024));
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsed() throws IOException {
+		ExtractionCache cache = ExtractionCache.getInstance(testFolder.newFolder("evict"), 800);
+		Random random = new Random(42);
+		String a = cache.createKey("pdf", new byte[] { 1 });
+		String b = cache.createKey("pdf", new byte[] { 2 });
+		String c = cache.createKey("pdf", new byte[] { 3 });
+		cache.put(a, createValues(createRandomText(random, 500)));
+		cache.put(b, createValues(createRandomText(random, 500)));
+		assertNotNull(cache.get(a));
+		cache.put(c, createValues(createRandomText(random, 500)));
+
+		assertTrue(cache.getSize() <= 800);
+		assertNull("The least recently used entry is removed.", cache.get(b));
+		assertNotNull(cache.get(a));
+		assertNotNull(cache.get(c));
+	}
+
+	@Test
+	public void testReplaceEntry() throws IOException {
+		File directory = testFolder.newFolder("replace");
+		ExtractionCache cache = ExtractionCache.getInstance(directory, 1024 * 1024);
+		String key = cache.createKey("pdf", new byte[] { 1 });
+		cache.put(key, createValues("first"));
+		cache.put(key, createValues("second"));
+		assertEquals("second", cache.get(key).get("text"));
+		assertEquals(1, cache.getEntryCount());
+		File[] files = new File(directory, key.substring(0, 2)).listFiles();
+		assertEquals("Temporary files are not left behind.", 1, files.length);
+		assertEquals(key + ".gz", files[0].getName());
+	}
+
+	@Test
+	public void testTemporaryFilesAreDeleted() throws IOException {
+		File directory = testFolder.newFolder("temporary");
+		File subdirectory = new File(directory, "ab");
+		assertTrue(subdirectory.mkdir());
+		File temp = new File(subdirectory, "ab12345.tmp");
+		assertTrue(temp.createNewFile());
+		ExtractionCache cache = ExtractionCache.getInstance(directory, 1024 * 1024);
+		assertEquals(0, cache.getEntryCount());
+		assertFalse("Temporary file of an incomplete entry was not deleted.", temp.exists());
+	}
+}
@@ -0,0 +1,191 @@
+package com.gentics.cr.lucene.indexer.transformer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gentics.cr.CRResolvableBean;
+import com.gentics.cr.configuration.GenericConfiguration;
+import com.gentics.cr.exceptions.CRException;
+
+public class ParserTimeoutTest {
+
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	private GenericConfiguration config;
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private static class ParsingTransformer extends ContentTransformer {
+
+		public ParsingTransformer(final GenericConfiguration config) {
+			super(config);
+		}
+
+		public String parse(final CRResolvableBean bean, final Callable<String> parser) throws CRException {
+			return executeParser(bean, bean.get("binarycontent"), parser);
+		}
+
+		@Override
+		public void processBean(final CRResolvableBean bean) throws CRException {
+		}
+
+		@Override
+		public void destroy() {
+		}
+	}
+
+	@Before
+	public void setUp() {
+		config = new GenericConfiguration();
+		config.set(ContentTransformer.PARSER_TIMEOUT_KEY, "1");
+	}
+
+	private Callable<String> createParser(final long duration) {
+		return new Callable<String>() {
+			public String call() throws Exception {
+				calls.incrementAndGet();
+				Thread.sleep(duration);
+				return "parsed";
+			}
+		};
+	}
+
+	private Callable<String> createStuckParser(final CountDownLatch release) {
+		return new Callable<String>() {
+			public String call() {
+				calls.incrementAndGet();
+				boolean released = false;
+				while (!released) {
+					try {
+						released = release.await(1, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						// ignored like a parser that hangs in native code
+					}
+				}
+				return "released";
+			}
+		};
+	}
+
+	private static CRResolvableBean createBean(final String contentid, final int timestamp) {
+		CRResolvableBean bean = new CRResolvableBean(contentid);
+		bean.set("updatetimestamp", timestamp);
+		bean.set("binarycontent", new byte[] { 1, 2, 3 });
+		return bean;
+	}
+
+	@Test
+	public void testParse() throws CRException {
+		ParsingTransformer transformer = new ParsingTransformer(config);
+		assertEquals("parsed", transformer.parse(createBean("10008.1", 1), createParser(0)));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void testPoisonDocumentIsSkippedUntilItChanges() throws Exception {
+		File file = new File(testFolder.getRoot(), "poison.properties");
+		config.set(ContentTransformer.POISON_DOCUMENTS_KEY, file.getPath());
+		ParsingTransformer transformer = new ParsingTransformer(config);
+		try {
+			transformer.parse(createBean("10008.2", 1), createParser(60000));
+			fail("The parser should time out.");
+		} catch (CRException e) {
+			// expected
+		}
+		assertTrue(file.isFile());
+		assertTrue(PoisonDocuments.getInstance(file).contains("10008.2", "1"));
+
+		assertNull(transformer.parse(createBean("10008.2", 1), createParser(0)));
+		assertEquals("The poison document is not parsed again.", 1, calls.get());
+
+		assertEquals("parsed", transformer.parse(createBean("10008.2", 2), createParser(0)));
+		assertEquals(2, calls.get());
+		assertFalse(PoisonDocuments.getInstance(file).contains("10008.2", "1"));
+	}
+
+	@Test
+	public void testMaxSize() throws CRException {
+		config.set(ContentTransformer.PARSER_MAX_SIZE_KEY, "1");
+		ParsingTransformer transformer = new ParsingTransformer(config);
+		CRResolvableBean bean = createBean("10008.3", 1);
+		bean.set("binarycontent", new byte[1024 * 1024 + 1]);
+		assertNull(transformer.parse(bean, createParser(0)));
+		assertEquals(0, calls.get());
+	}
+
+	@Test
+	public void testDocumentWithoutTimestampIsNotPoison() throws CRException {
+		ParsingTransformer transformer = new ParsingTransformer(config);
+		CRResolvableBean bean = createBean("10008.4", 1);
+		bean.remove("updatetimestamp");
+		try {
+			transformer.parse(bean, createParser(60000));
+			fail("The parser should time out.");
+		} catch (CRException e) {
+			// expected
+		}
+		assertEquals("parsed", transformer.parse(bean, createParser(0)));
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	public void testStuckThreadsAreReplaced() throws Exception {
+		final ParsingTransformer transformer = new ParsingTransformer(config);
+		final CountDownLatch release = new CountDownLatch(1);
+		ExecutorService workers = Executors.newFixedThreadPool(4);
+		try {
+			// occupy every thread of the pool with a parser that does not stop after the timeout
+			List<Future<Boolean>> stuck = new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < 4; i++) {
+				final CRResolvableBean bean = createBean("10008.1" + i, 1);
+				stuck.add(workers.submit(new Callable<Boolean>() {
+					public Boolean call() {
+						try {
+							transformer.parse(bean, createStuckParser(release));
+							return false;
+						} catch (CRException e) {
+							return true;
+						}
+					}
+				}));
+			}
+			for (Future<Boolean> timedOut : stuck) {
+				assertTrue(timedOut.get());
+			}
+			assertTrue(ParserExecutor.getStuckThreads() >= 4);
+			assertEquals("A replacement thread parses the next document.", "parsed", transformer.parse(createBean(
+				"10008.20", 1), createParser(0)));
+		} catch (ExecutionException e) {
+			throw (Exception) e.getCause();
+		} finally {
+			release.countDown();
+			workers.shutdown();
+		}
+		long deadline = System.currentTimeMillis() + 10000;
+		while (ParserExecutor.getStuckThreads() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals("Released threads are no longer stuck.", 0, ParserExecutor.getStuckThreads());
+	}
+}
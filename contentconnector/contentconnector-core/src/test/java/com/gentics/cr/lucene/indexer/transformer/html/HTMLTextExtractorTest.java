@@ -0,0 +1,122 @@
+package com.gentics.cr.lucene.indexer.transformer.html;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.junit.Test;
+
+public class HTMLTextExtractorTest {
+
+	private static final String BLOCK = "<h2>Heading</h2><p>Lorem <strong>ip</strong><i>sum</i> dolor sit amet,"
+			+ " <a href=\"#\">consectetur</a>   adipiscing.</p><ul><li>one</li><li>two<br/>three</li></ul>"
+			+ "<pre>  keep\n  the   spaces </pre>a text node / <span>inline</span><div><p>nested</p>block</div>"
+			+ "<!-- comment --><script>var a = 1;</script>end: ";
+
+	/**
+	 * The text extraction as it was done before the {@link HTMLTextExtractor}, used as reference.
+	 */
+	private static String extractWithElementText(final Document document) {
+		StringBuilder strippedString = new StringBuilder();
+		List<Node> children = document.body().childNodes();
+		for (int pos = 0; pos < children.size(); pos++) {
+			Node node = children.get(pos);
+			String text = "";
+			if (node instanceof Element) {
+				text = ((Element) node).text();
+			} else if (node instanceof TextNode) {
+				text = ((TextNode) node).text();
+			}
+			if (!text.equals("")) {
+				String tempString = strippedString.toString();
+				if (!(tempString.equals("") || tempString.endsWith(" ") || tempString.endsWith("/")
+						|| tempString.endsWith(".") || tempString.endsWith(":")) && pos + 1 < children.size()) {
+					strippedString.append(" ");
+				}
+				strippedString.append(text);
+				if (!text.endsWith(" ") && node instanceof Element && ((Element) node).tag().isBlock()) {
+					strippedString.append(" ");
+				}
+			}
+		}
+		return strippedString.toString().trim();
+	}
+
+	private static String createPage(final int size) {
+		StringBuilder page = new StringBuilder(size + BLOCK.length());
+		while (page.length() < size) {
+			page.append(BLOCK);
+		}
+		return page.toString();
+	}
+
+	private static void assertSameText(final String html) {
+		Document document = Jsoup.parseBodyFragment(html);
+		assertEquals(html, extractWithElementText(document), HTMLTextExtractor.extract(document.body()));
+	}
+
+	@Test
+	public void testSameTextAsElementText() {
+		assertSameText(BLOCK);
+		assertSameText("<strong>ip</strong><i>sum</i>");
+		assertSameText("lorem ipsum.</p><h2>Dolor sit amet</h2>");
+		assertSameText("ASDF-lexikon\n\t\n\t\t\t<br class=\"aloha-end-br\"/>");
+		assertSameText("<abbr title=\"IKT\">IKT</abbr>- Sicherheitslexikon	");
+		assertSameText("<br/>");
+		assertSameText("   ");
+		assertSameText("");
+		assertSameText("<div> <p> a </p>  <p>b</p><br>c<pre> d  e </pre></div> f <b> g </b>");
+	}
+
+	@Test
+	public void testSameTextForTestPages() throws URISyntaxException, IOException {
+		assertSameText(readFile("test.html"));
+		assertSameText(readFile("testHtmlSpaces.html"));
+	}
+
+	@Test
+	public void testSameTextForLargePage() {
+		assertSameText(createPage(10 * 1024));
+	}
+
+	@Test
+	public void testRepeatedBlocks() {
+		String page = createPage(10 * 1024);
+		int blocks = page.length() / BLOCK.length();
+		String text = HTMLTextExtractor.extract(Jsoup.parseBodyFragment(page).body());
+		assertEquals(blocks, count(text, "Heading"));
+		assertEquals(blocks, count(text, "nested"));
+		assertEquals("Scripts are not extracted.", 0, count(text, "var a"));
+		assertEquals("Comments are not extracted.", 0, count(text, "comment"));
+	}
+
+	private static int count(final String text, final String word) {
+		int count = 0;
+		for (int index = text.indexOf(word); index != -1; index = text.indexOf(word, index + word.length())) {
+			count++;
+		}
+		return count;
+	}
+
+	private String readFile(final String fileName) throws URISyntaxException, IOException {
+		File file = new File(this.getClass().getResource(fileName).toURI());
+		BufferedReader br = new BufferedReader(new FileReader(file));
+		StringBuilder fileContent = new StringBuilder();
+		String sCurrentLine;
+		while ((sCurrentLine = br.readLine()) != null) {
+			fileContent.append(sCurrentLine);
+		}
+		br.close();
+		return fileContent.toString();
+	}
+}
@@ -13,7 +13,13 @@ import org.apache.nutch.analysis.lang.custom.LanguageIdentifier;
  *
  */
 public class LanguageGuesser {
-	private static LanguageIdentifier langID = null;
+
+	/**
+	 * Holder of the shared identifier, it is created when it is first used.
+	 */
+	private static final class IdentifierHolder {
+		private static final LanguageIdentifier INSTANCE = new LanguageIdentifier();
+	}
 
 	/**
 	 * Detect language from a String
@@ -21,7 +27,7 @@ public class LanguageGuesser {
 	 * @return detected language
 	 */
 	public static String detectLanguage(String text) {
-		LanguageIdentifier li = getLIInstance();
+		LanguageIdentifier li = getIdentifier();
 
 		return li.identify(text);
 	}
@@ -33,7 +39,7 @@ public class LanguageGuesser {
 	 * @throws IOException
 	 */
 	public static String detectLanguage(InputStream is) throws IOException {
-		LanguageIdentifier li = getLIInstance();
+		LanguageIdentifier li = getIdentifier();
 		return li.identify(is);
 	}
 
@@ -45,14 +51,24 @@ public class LanguageGuesser {
 	 * @throws IOException
 	 */
 	public static String detectLanguage(InputStream is, String charset) throws IOException {
-		LanguageIdentifier li = getLIInstance();
+		LanguageIdentifier li = getIdentifier();
 		return li.identify(is, charset);
 	}
 
-	private static LanguageIdentifier getLIInstance() {
-		if (langID == null) {
-			langID = new LanguageIdentifier();
-		}
-		return (langID);
+	/**
+	 * Get the shared identifier. It is thread-safe and analyzes the full content.
+	 * @return identifier
+	 */
+	public static LanguageIdentifier getIdentifier() {
+		return IdentifierHolder.INSTANCE;
+	}
+
+	/**
+	 * Get an identifier that shares the profiles of the shared identifier.
+	 * @param analyzeLength maximum number of characters to analyze, 0 for the full content
+	 * @return identifier
+	 */
+	public static LanguageIdentifier getIdentifier(final int analyzeLength) {
+		return IdentifierHolder.INSTANCE.withAnalyzeLength(analyzeLength);
 	}
 }
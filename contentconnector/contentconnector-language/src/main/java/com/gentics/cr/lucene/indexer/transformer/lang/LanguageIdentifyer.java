@@ -3,6 +3,8 @@ package com.gentics.cr.lucene.indexer.transformer.lang;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
+import org.apache.nutch.analysis.lang.custom.LanguageIdentifier;
+
 import com.gentics.cr.CRResolvableBean;
 import com.gentics.cr.analytics.language.LanguageGuesser;
 import com.gentics.cr.configuration.GenericConfiguration;
@@ -19,9 +21,21 @@ public class LanguageIdentifyer extends ContentTransformer {
 
 	private static final String TRANSFORMER_ATTRIBUTE_KEY = "attribute";
 	private static final String LANGUAGE_ATTRIBUTE_KEY = "langattribute";
+
+	/**
+	 * Maximum number of characters (or bytes of binary content) that are analyzed, 0 for the full content
+	 * (default: 0).
+	 */
+	private static final String ANALYZE_LENGTH_KEY = "analyzelength";
+
 	private String attribute;
 	private String langattribute;
 
+	/**
+	 * Identifier used for the beans, it is shared by all transformers and threads.
+	 */
+	private LanguageIdentifier identifier;
+
 	/**
 	 * Create new instance of LanguageIdentifyer
 	 * @param config
@@ -30,6 +44,7 @@ public class LanguageIdentifyer extends ContentTransformer {
 		super(config);
 		attribute = (String) config.get(TRANSFORMER_ATTRIBUTE_KEY);
 		langattribute = (String) config.get(LANGUAGE_ATTRIBUTE_KEY);
+		identifier = LanguageGuesser.getIdentifier(config.getInteger(ANALYZE_LENGTH_KEY, 0));
 	}
 
 	@Override
@@ -52,7 +67,7 @@ public class LanguageIdentifyer extends ContentTransformer {
 		String lang = null;
 		ByteArrayInputStream is = new ByteArrayInputStream(binary);
 		try {
-			lang = LanguageGuesser.detectLanguage(is);
+			lang = identifier.identify(is);
 		} catch (IOException iox) {
 			iox.printStackTrace();
 		}
@@ -60,7 +75,7 @@ public class LanguageIdentifyer extends ContentTransformer {
 	}
 
 	private String getLangFromString(String string) {
-		return LanguageGuesser.detectLanguage(string);
+		return identifier.identify(string);
 	}
 
 	@Override
@@ -29,6 +29,7 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Vector;
 
@@ -48,43 +49,79 @@ public class LanguageIdentifier {
 
 	private final static int DEFAULT_ANALYSIS_LENGTH = 0;    // 0 means full content
 
-	private ArrayList<NGramProfile> languages = new ArrayList<NGramProfile>();
-
-	private ArrayList<String> supportedLanguages = new ArrayList<String>();
+	/** Names of the supported languages, the index of a language is used for its score */
+	private final String[] languages;
 
 	/** Minimum size of NGrams */
-	private int minLength = NGramProfile.DEFAULT_MIN_NGRAM_LENGTH;
+	private final int minLength;
 
 	/** Maximum size of NGrams */
-	private int maxLength = NGramProfile.DEFAULT_MAX_NGRAM_LENGTH;
+	private final int maxLength;
 
 	/** The maximum amount of data to analyze */
-	private int analyzeLength = DEFAULT_ANALYSIS_LENGTH;
+	private final int analyzeLength;
 
 	/** A global index of ngrams of all supported languages */
-	private HashMap<CharSequence, NGramEntry[]> ngramsIdx = new HashMap<CharSequence, NGramEntry[]>();
+	private final Map<CharSequence, IndexEntry> ngramsIdx;
+
+	/** The NGramProfile used for identification, every thread gets its own */
+	private final ThreadLocal<NGramProfile> suspects = new ThreadLocal<NGramProfile>() {
+		@Override
+		protected NGramProfile initialValue() {
+			return createScratchProfile();
+		}
+	};
 
-	/** The NGramProfile used for identification */
-	private NGramProfile suspect = null;
+	/**
+	 * Languages and frequencies of a ngram in the profiles of the supported
+	 * languages.
+	 */
+	private static final class IndexEntry {
+
+		/** Indexes of the languages the ngram occurs in */
+		private final int[] languages;
+
+		/** Frequencies of the ngram in the profiles of the languages */
+		private final float[] frequencies;
+
+		/**
+		 * @param entries the ngram of the profiles it occurs in
+		 * @param languageIndexes indexes of the languages of the profiles
+		 */
+		private IndexEntry(final List<NGramEntry> entries, final List<Integer> languageIndexes) {
+			languages = new int[entries.size()];
+			frequencies = new float[entries.size()];
+			for (int i = 0; i < languages.length; i++) {
+				languages[i] = languageIndexes.get(i);
+				frequencies[i] = entries.get(i).getFrequency();
+			}
+		}
+	}
 
 	/**
-	 * Constructs a new Language Identifier.
+	 * Constructs a new Language Identifier that analyzes the full content.
+	 * Loading the profiles is expensive, an identifier is immutable and can
+	 * be shared by multiple threads.
 	 */
 	public LanguageIdentifier() {
 
 		// Gets ngram sizes to take into account from the Nutch Config
-		minLength = NGramProfile.DEFAULT_MIN_NGRAM_LENGTH;
-		maxLength = NGramProfile.DEFAULT_MAX_NGRAM_LENGTH;
+		int min = NGramProfile.DEFAULT_MIN_NGRAM_LENGTH;
+		int max = NGramProfile.DEFAULT_MAX_NGRAM_LENGTH;
 		// Ensure the min and max values are in an acceptale range
 		// (ie min >= DEFAULT_MIN_NGRAM_LENGTH and max <= DEFAULT_MAX_NGRAM_LENGTH)
-		maxLength = Math.min(maxLength, NGramProfile.ABSOLUTE_MAX_NGRAM_LENGTH);
-		maxLength = Math.max(maxLength, NGramProfile.ABSOLUTE_MIN_NGRAM_LENGTH);
-		minLength = Math.max(minLength, NGramProfile.ABSOLUTE_MIN_NGRAM_LENGTH);
-		minLength = Math.min(minLength, maxLength);
+		max = Math.min(max, NGramProfile.ABSOLUTE_MAX_NGRAM_LENGTH);
+		max = Math.max(max, NGramProfile.ABSOLUTE_MIN_NGRAM_LENGTH);
+		min = Math.max(min, NGramProfile.ABSOLUTE_MIN_NGRAM_LENGTH);
+		min = Math.min(min, max);
+		minLength = min;
+		maxLength = max;
 
 		// Gets the value of the maximum size of data to analyze
 		analyzeLength = DEFAULT_ANALYSIS_LENGTH;
 
+		List<String> supportedLanguages = new ArrayList<String>();
+		Map<CharSequence, IndexEntry> index = new HashMap<CharSequence, IndexEntry>();
 		Properties p = new Properties();
 		try {
 			p.load(LanguageIdentifier.class.getResourceAsStream("langmappings.properties"));
@@ -93,6 +130,7 @@ public class LanguageIdentifier {
 
 			StringBuffer list = new StringBuffer("Language identifier plugin supports:");
 			HashMap<NGramEntry, List<NGramEntry>> tmpIdx = new HashMap<NGramEntry, List<NGramEntry>>();
+			HashMap<NGramEntry, List<Integer>> tmpLanguages = new HashMap<NGramEntry, List<Integer>>();
 			while (alllanguages.hasMoreElements()) {
 				String lang = (String) alllanguages.nextElement();
 
@@ -102,7 +140,7 @@ public class LanguageIdentifier {
 					NGramProfile profile = new NGramProfile(lang, minLength, maxLength);
 					try {
 						profile.load(is);
-						languages.add(profile);
+						Integer languageIndex = supportedLanguages.size();
 						supportedLanguages.add(lang);
 						List<NGramEntry> ngrams = profile.getSorted();
 						for (int i = 0; i < ngrams.size(); i++) {
@@ -111,9 +149,10 @@ public class LanguageIdentifier {
 							if (registered == null) {
 								registered = new ArrayList<NGramEntry>();
 								tmpIdx.put(entry, registered);
+								tmpLanguages.put(entry, new ArrayList<Integer>());
 							}
 							registered.add(entry);
-							entry.setProfile(profile);
+							tmpLanguages.get(entry).add(languageIndex);
 						}
 						list.append(" " + lang + "(" + ngrams.size() + ")");
 						is.close();
@@ -122,22 +161,67 @@ public class LanguageIdentifier {
 					}
 				}
 			}
-			// transform all ngrams lists to arrays for performances
+			// transform all ngrams lists to primitive arrays for performances
 			Iterator<NGramEntry> keys = tmpIdx.keySet().iterator();
 			while (keys.hasNext()) {
 				NGramEntry entry = keys.next();
 				List<NGramEntry> l = tmpIdx.get(entry);
 				if (l != null) {
-					NGramEntry[] array = l.toArray(new NGramEntry[l.size()]);
-					ngramsIdx.put(entry.getSeq(), array);
+					index.put(entry.getSeq().toString(), new IndexEntry(l, tmpLanguages.get(entry)));
 				}
 			}
 			//if (LOG.isInfoEnabled()) { LOG.info(list.toString()); }
-			// Create the suspect profile
-			suspect = new NGramProfile("suspect", minLength, maxLength);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
+		languages = supportedLanguages.toArray(new String[supportedLanguages.size()]);
+		ngramsIdx = index;
+	}
+
+	/**
+	 * Constructs a new Language Identifier that shares the profiles of
+	 * another one.
+	 * @param identifier identifier with the profiles
+	 * @param analyzeLength the maximum amount of data to analyze, 0 for the
+	 *        full content
+	 */
+	private LanguageIdentifier(final LanguageIdentifier identifier, final int analyzeLength) {
+		this.languages = identifier.languages;
+		this.minLength = identifier.minLength;
+		this.maxLength = identifier.maxLength;
+		this.ngramsIdx = identifier.ngramsIdx;
+		this.analyzeLength = analyzeLength;
+	}
+
+	/**
+	 * Get an identifier that only analyzes the beginning of the content. It
+	 * shares the profiles of this identifier.
+	 * @param length the maximum number of characters (or bytes for an input
+	 *        stream) to analyze, 0 for the full content
+	 * @return the identifier
+	 */
+	public LanguageIdentifier withAnalyzeLength(final int length) {
+		if (length == analyzeLength) {
+			return this;
+		}
+		return new LanguageIdentifier(this, length);
+	}
+
+	/**
+	 * @return the maximum amount of data to analyze, 0 for the full content
+	 */
+	public int getAnalyzeLength() {
+		return analyzeLength;
+	}
+
+	/**
+	 * Create a profile that can be passed to
+	 * {@link #identify(CharSequence, NGramProfile)}. A profile must not be
+	 * used by multiple threads at the same time.
+	 * @return a new profile for the analysis of the content
+	 */
+	public NGramProfile createScratchProfile() {
+		return new NGramProfile("suspect", minLength, maxLength);
 	}
 
 	/**
@@ -299,7 +383,7 @@ public class LanguageIdentifier {
 	 *         matches the specified content.
 	 */
 	public String identify(String content) {
-		return identify(new StringBuilder(content));
+		return identify((CharSequence) content);
 	}
 
 	/**
@@ -312,36 +396,57 @@ public class LanguageIdentifier {
 	 *         matches the specified content.
 	 */
 	public String identify(StringBuilder content) {
+		return identify((CharSequence) content);
+	}
+
+	/**
+	 * Identify language of a content using the profile of the current thread.
+	 * 
+	 * @param content is the content to analyze.
+	 * @return The 2 letter
+	 *         <a href="http://www.w3.org/WAI/ER/IG/ert/iso639.htm">ISO 639
+	 *         language code</a> (en, fi, sv, ...) of the language that best
+	 *         matches the specified content.
+	 */
+	public String identify(CharSequence content) {
+		return identify(content, suspects.get());
+	}
 
-		StringBuilder text = content;
-		if (analyzeLength > 0 && content.length() > analyzeLength) {
-			text = new StringBuilder().append(content);
-			text.setLength(analyzeLength);
+	/**
+	 * Identify language of a content.
+	 * 
+	 * @param content is the content to analyze.
+	 * @param suspect profile used for the analysis of the content, see
+	 *        {@link #createScratchProfile()}
+	 * @return The 2 letter
+	 *         <a href="http://www.w3.org/WAI/ER/IG/ert/iso639.htm">ISO 639
+	 *         language code</a> (en, fi, sv, ...) of the language that best
+	 *         matches the specified content.
+	 */
+	public String identify(CharSequence content, NGramProfile suspect) {
+
+		int length = content.length();
+		if (analyzeLength > 0 && length > analyzeLength) {
+			length = analyzeLength;
 		}
 
-		suspect.analyze(text);
-		Iterator<NGramEntry> iter = suspect.getSorted().iterator();
+		suspect.analyze(content, length);
+		List<NGramEntry> sorted = suspect.getSorted();
 		float topscore = Float.MIN_VALUE;
 		String lang = "";
-		HashMap<NGramProfile, Float> scores = new HashMap<NGramProfile, Float>();
-		NGramEntry searched = null;
+		float[] scores = new float[languages.length];
 
-		while (iter.hasNext()) {
-			searched = iter.next();
-			NGramEntry[] ngrams = ngramsIdx.get(searched.getSeq());
+		for (int i = 0; i < sorted.size(); i++) {
+			NGramEntry searched = sorted.get(i);
+			IndexEntry ngrams = ngramsIdx.get(searched.getSeq());
 			if (ngrams != null) {
-				for (int j = 0; j < ngrams.length; j++) {
-					NGramProfile profile = ngrams[j].getProfile();
-					Float pScore = scores.get(profile);
-					if (pScore == null) {
-						pScore = new Float(0);
-					}
-					float plScore = pScore.floatValue();
-					plScore += ngrams[j].getFrequency() + searched.getFrequency();
-					scores.put(profile, new Float(plScore));
+				for (int j = 0; j < ngrams.languages.length; j++) {
+					int language = ngrams.languages[j];
+					float plScore = scores[language] + ngrams.frequencies[j] + searched.getFrequency();
+					scores[language] = plScore;
 					if (plScore > topscore) {
 						topscore = plScore;
-						lang = profile.getName();
+						lang = languages[language];
 					}
 				}
 			}
@@ -171,6 +171,17 @@ public class NGramProfile {
 	 * @param text the text to be analyzed
 	 */
 	public void analyze(StringBuilder text) {
+		analyze(text, text.length());
+	}
+
+	/**
+	 * Analyze the beginning of a piece of text. The profile is reset before,
+	 * so it can be reused for multiple texts by the same thread.
+	 * 
+	 * @param text the text to be analyzed
+	 * @param length number of characters to analyze
+	 */
+	public void analyze(CharSequence text, int length) {
 
 		if (ngrams != null) {
 			ngrams.clear();
@@ -179,7 +190,7 @@ public class NGramProfile {
 		}
 
 		word.clear().append(SEPARATOR);
-		for (int i = 0; i < text.length(); i++) {
+		for (int i = 0; i < length; i++) {
 			char c = Character.toLowerCase(text.charAt(i));
 
 			if (Character.isLetter(c)) {
@@ -0,0 +1,107 @@
+package com.gentics.cr.analytics.language.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.nutch.analysis.lang.custom.LanguageIdentifier;
+import org.apache.nutch.analysis.lang.custom.NGramProfile;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.gentics.cr.analytics.language.LanguageGuesser;
+
+public class LanguageIdentifierTest {
+
+	private static final String GERMAN = "Dies ist ein Test um den LanguageDetector auf eine Sprache zu bringen. "
+			+ "Der schnelle braune Fuchs springt über den faulen Hund und die Katze schläft in der Sonne. ";
+
+	private static final String ENGLISH = "This is some text to set the LanguageDetector to a language. "
+			+ "The quick brown fox jumps over the lazy dog while the cat is sleeping in the sun. ";
+
+	private static final String[] SAMPLES = new String[] { GERMAN, ENGLISH,
+			"Le renard brun rapide saute par-dessus le chien paresseux pendant que le chat dort au soleil. ",
+			"La volpe marrone veloce salta sopra il cane pigro mentre il gatto dorme al sole. ",
+			"El rápido zorro marrón salta sobre el perro perezoso mientras el gato duerme al sol. ",
+			"De snelle bruine vos springt over de luie hond terwijl de kat in de zon slaapt. ",
+			"Den snabba bruna räven hoppar över den lata hunden medan katten sover i solen. ",
+			"Szybki brązowy lis przeskakuje nad leniwym psem, a kot śpi na słońcu. " };
+
+	private static LanguageIdentifier identifier;
+
+	@BeforeClass
+	public static void setUp() {
+		identifier = LanguageGuesser.getIdentifier();
+	}
+
+	private static String repeat(final String text, final int length) {
+		StringBuilder result = new StringBuilder(length + text.length());
+		while (result.length() < length) {
+			result.append(text);
+		}
+		return result.toString();
+	}
+
+	@Test
+	public void testIdentify() {
+		assertEquals("de", identifier.identify(GERMAN));
+		assertEquals("en", identifier.identify(ENGLISH));
+		NGramProfile scratch = identifier.createScratchProfile();
+		assertEquals("de", identifier.identify(GERMAN, scratch));
+		assertEquals("The scratch profile can be reused.", "en", identifier.identify(ENGLISH, scratch));
+	}
+
+	@Test
+	public void testAnalyzeLength() {
+		String text = GERMAN + repeat(ENGLISH, 4 * GERMAN.length());
+		assertEquals("en", identifier.identify(text));
+		LanguageIdentifier sampling = LanguageGuesser.getIdentifier(GERMAN.length());
+		assertEquals("Only the beginning of the text is analyzed.", "de", sampling.identify(text));
+		assertEquals(GERMAN.length(), sampling.getAnalyzeLength());
+		assertSame(identifier, identifier.withAnalyzeLength(0));
+	}
+
+	@Test
+	public void testConcurrentIdentification() throws Exception {
+		final String[] expected = new String[SAMPLES.length];
+		for (int i = 0; i < SAMPLES.length; i++) {
+			expected[i] = identifier.identify(SAMPLES[i]);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int thread = 0; thread < 8; thread++) {
+				final int offset = thread;
+				results.add(executor.submit(new Callable<Void>() {
+					public Void call() {
+						for (int i = 0; i < 200; i++) {
+							int sample = (i + offset) % SAMPLES.length;
+							assertEquals(SAMPLES[sample], expected[sample], identifier.identify(SAMPLES[sample]));
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSampledIdentification() {
+		LanguageIdentifier sampling = identifier.withAnalyzeLength(4 * 1024);
+		for (String sample : SAMPLES) {
+			String text = repeat(sample, 16 * 1024);
+			assertEquals(text.substring(0, 40), identifier.identify(text), sampling.identify(text));
+		}
+	}
+}
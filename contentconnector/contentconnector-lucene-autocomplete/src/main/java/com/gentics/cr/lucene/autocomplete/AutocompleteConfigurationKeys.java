@@ -29,4 +29,26 @@ public interface AutocompleteConfigurationKeys {
 
 	public static final String AUTOCOMPLETE_USE_AUTCOMPLETE_INDEXER = "useAutocompleteIndexer";
 
+	/**
+	 * Serve the suggestions from memory with the {@link MemoryAutocompleter} instead of an autocomplete index.
+	 */
+	public static final String AUTOCOMPLETE_IN_MEMORY_KEY = "autocompleteinmemory";
+
+	/**
+	 * Number of suggestions if the request does not contain a count (default: 5).
+	 */
+	public static final String AUTOCOMPLETE_COUNT_KEY = "autocompletecount";
+
+	/**
+	 * Field of the source index that contains the permissions of the documents. If a request contains permissions
+	 * the {@link MemoryAutocompleter} only suggests words of documents with one of the permissions.
+	 */
+	public static final String AUTOCOMPLETE_PERMISSIONS_FIELD_KEY = "autocompletepermissionsfield";
+
+	/**
+	 * Maximum number of words the {@link MemoryAutocompleter} checks for documents with the permissions of a
+	 * request (default: 200). Words that are not reached are not suggested.
+	 */
+	public static final String AUTOCOMPLETE_MAX_CHECKED_KEY = "autocompletemaxchecked";
+
 }
@@ -13,21 +13,32 @@ public class AutocompleteRequestProcessor extends RequestProcessor {
 
 	private Autocompleter autocompleter;
 
+	private MemoryAutocompleter memoryAutocompleter;
+
 	public AutocompleteRequestProcessor(CRConfig config) throws CRException {
 		super(config);
-		autocompleter = new Autocompleter(config);
+		if (config.getBoolean(AutocompleteConfigurationKeys.AUTOCOMPLETE_IN_MEMORY_KEY, false)) {
+			memoryAutocompleter = new MemoryAutocompleter(config);
+		} else {
+			autocompleter = new Autocompleter(config);
+		}
 	}
 
 	@Override
 	public void finalize() {
 		if (this.autocompleter != null)
 			autocompleter.finalize();
+		if (this.memoryAutocompleter != null)
+			memoryAutocompleter.finalize();
 	}
 
 	@Override
 	public Collection<CRResolvableBean> getObjects(CRRequest request, boolean doNavigation) throws CRException {
 		Collection<CRResolvableBean> result = null;
 		try {
+			if (memoryAutocompleter != null) {
+				return memoryAutocompleter.suggestWords(request);
+			}
 			result = autocompleter.suggestWords(request);
 		} catch (IOException ex) {
 			throw new CRException(ex);
@@ -64,6 +64,11 @@ public class Autocompleter implements IEventReceiver, AutocompleteConfigurationK
 
 	private String autocompletefield = "content";
 
+	/**
+	 * Number of suggestions if the request does not contain a count.
+	 */
+	private int autocompletecount = 5;
+
 	@Deprecated
 	private boolean autocompletereopenupdate = false;
 
@@ -102,6 +107,8 @@ public class Autocompleter implements IEventReceiver, AutocompleteConfigurationK
 		if (s_autofield != null)
 			this.autocompletefield = s_autofield;
 
+		autocompletecount = config.getInteger(AUTOCOMPLETE_COUNT_KEY, autocompletecount);
+
 		String sReopenUpdate = config.getString(AUTOCOMPLETE_REOPEN_UPDATE);
 		if (sReopenUpdate != null) {
 			autocompletereopenupdate = Boolean.parseBoolean(sReopenUpdate);
@@ -142,7 +149,11 @@ public class Autocompleter implements IEventReceiver, AutocompleteConfigurationK
 	public Collection<CRResolvableBean> suggestWords(CRRequest request) throws IOException {
 		ArrayList<CRResolvableBean> result = new ArrayList<CRResolvableBean>();
 		String term = request.getRequestFilter();
-		// get the top 5 terms for query
+		// get the top terms for query
+		int count = request.getCount();
+		if (count <= 0) {
+			count = autocompletecount;
+		}
 
 		if (autocompletereopenupdate || useAutocompleteIndexExtension) {
 			checkForUpdate();
@@ -154,7 +165,7 @@ public class Autocompleter implements IEventReceiver, AutocompleteConfigurationK
 		try {
 			Query query = new TermQuery(new Term(GRAMMED_WORDS_FIELD, term));
 			Sort sort = new Sort(new SortField(COUNT_FIELD, SortField.LONG, true));
-			TopDocs docs = autoCompleteSearcher.search(query, null, 5, sort);
+			TopDocs docs = autoCompleteSearcher.search(query, null, count, sort);
 			int id = 1;
 			for (ScoreDoc doc : docs.scoreDocs) {
 				CRResolvableBean bean = new CRResolvableBean(id++);
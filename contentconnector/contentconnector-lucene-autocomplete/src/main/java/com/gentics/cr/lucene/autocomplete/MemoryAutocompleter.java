@@ -0,0 +1,439 @@
+package com.gentics.cr.lucene.autocomplete;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.util.OpenBitSet;
+
+import com.gentics.cr.CRConfig;
+import com.gentics.cr.CRConfigUtil;
+import com.gentics.cr.CRRequest;
+import com.gentics.cr.CRResolvableBean;
+import com.gentics.cr.configuration.GenericConfiguration;
+import com.gentics.cr.events.Event;
+import com.gentics.cr.events.EventManager;
+import com.gentics.cr.events.IEventReceiver;
+import com.gentics.cr.lucene.events.IndexingFinishedEvent;
+import com.gentics.cr.lucene.indexaccessor.IndexAccessor;
+import com.gentics.cr.lucene.indexer.index.LuceneIndexLocation;
+import com.gentics.cr.lucene.search.SearchResultCache;
+import com.gentics.cr.monitoring.MonitorFactory;
+import com.gentics.cr.monitoring.UseCase;
+import com.gentics.cr.util.indexing.IReIndexStrategy;
+import com.gentics.cr.util.indexing.IndexLocation;
+import com.gentics.cr.util.indexing.ReIndexNoSkipStrategy;
+
+/**
+ * Autocompleter that serves the suggestions from a {@link SuggestionDictionary} in memory instead of a separate
+ * autocomplete index. The dictionary is built from the term dictionary of the source index when the autocompleter
+ * is created and rebuilt in the background when an {@link IndexingFinishedEvent} is fired and the
+ * {@link AutocompleteConfigurationKeys#REINDEXSTRATEGYCLASS_KEY} does not skip it (or, if
+ * {@link AutocompleteConfigurationKeys#AUTOCOMPLETE_REOPEN_UPDATE} is set, when a request sees a changed source
+ * index). Requests are served from the previous dictionary until the new one is built.
+ */
+public class MemoryAutocompleter implements IEventReceiver, AutocompleteConfigurationKeys {
+
+	/**
+	 * Log4j logger.
+	 */
+	protected static final Logger log = Logger.getLogger(MemoryAutocompleter.class);
+
+	/**
+	 * Maximum number of cached permitted document sets.
+	 */
+	private static final int PERMISSIONS_CACHE_SIZE = 100;
+
+	/**
+	 * Index the words are read from.
+	 */
+	private LuceneIndexLocation source;
+
+	/**
+	 * Fields the words are read from.
+	 */
+	private String[] autocompletefields = new String[] { "content" };
+
+	/**
+	 * Number of suggestions if the request does not contain a count.
+	 */
+	private int autocompletecount = 5;
+
+	/**
+	 * Field of the source index that contains the permissions of the documents.
+	 */
+	private String permissionsField = "permissions";
+
+	/**
+	 * Maximum number of words that are checked for permitted documents per request.
+	 */
+	private int maxChecked = 200;
+
+	/**
+	 * Documents with the given permissions by the sorted permissions of a request, for the index version
+	 * {@link #permittedDocumentsVersion}.
+	 */
+	private final Map<String, OpenBitSet> permittedDocuments = new LinkedHashMap<String, OpenBitSet>(16, 0.75f,
+			true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, OpenBitSet> eldest) {
+			return size() > PERMISSIONS_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Index version of the {@link #permittedDocuments}.
+	 */
+	private long permittedDocumentsVersion = -1;
+
+	/**
+	 * Check the version of the source index on every request.
+	 */
+	private boolean autocompletereopenupdate = false;
+
+	/**
+	 * Strategy that decides if the dictionary is rebuilt after an indexing run.
+	 */
+	private IReIndexStrategy reindexStrategy;
+
+	/**
+	 * Name of the config for the monitoring.
+	 */
+	private String name;
+
+	/**
+	 * Current dictionary.
+	 */
+	private volatile SuggestionDictionary dictionary = new SuggestionDictionary(new String[0], new int[0], -1);
+
+	/**
+	 * Set while a rebuild is waiting to be executed.
+	 */
+	private final AtomicBoolean rebuildScheduled = new AtomicBoolean(false);
+
+	/**
+	 * Executor for the rebuilds.
+	 */
+	private final ExecutorService rebuildExecutor;
+
+	/**
+	 * Create a new autocompleter and build the dictionary.
+	 * @param config configuration of the request processor. The words are read from the
+	 * {@link AutocompleteConfigurationKeys#SOURCE_INDEX_KEY} or, if it is not configured, from the index of the
+	 * request processor.
+	 */
+	public MemoryAutocompleter(final CRConfig config) {
+		name = config.getName();
+		GenericConfiguration srcConf = (GenericConfiguration) config.get(SOURCE_INDEX_KEY);
+		if (srcConf != null) {
+			source = LuceneIndexLocation.getIndexLocation(new CRConfigUtil(srcConf, "SOURCE_INDEX_KEY"));
+		} else {
+			source = LuceneIndexLocation.getIndexLocation(config);
+		}
+		String fields = config.getString(AUTOCOMPLETE_FIELD_KEY);
+		if (fields != null) {
+			autocompletefields = fields.trim().split("\\s*,\\s*");
+		}
+		autocompletecount = config.getInteger(AUTOCOMPLETE_COUNT_KEY, autocompletecount);
+		permissionsField = config.getString(AUTOCOMPLETE_PERMISSIONS_FIELD_KEY, permissionsField);
+		maxChecked = config.getInteger(AUTOCOMPLETE_MAX_CHECKED_KEY, maxChecked);
+		autocompletereopenupdate = config.getBoolean(AUTOCOMPLETE_REOPEN_UPDATE, autocompletereopenupdate);
+		reindexStrategy = initReindexStrategy(config);
+		rebuildExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(final Runnable r) {
+				Thread thread = new Thread(r, "MemoryAutocompleter(" + name + ")-rebuild");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		rebuild();
+		EventManager.getInstance().register(this);
+	}
+
+	/**
+	 * Schedule a rebuild of the dictionary when the indexing of the source index has finished, unless the
+	 * {@link #reindexStrategy} skips it.
+	 * @param event event
+	 */
+	public void processEvent(final Event event) {
+		if (IndexingFinishedEvent.INDEXING_FINISHED_EVENT_TYPE.equals(event.getType())) {
+			IndexLocation il = (IndexLocation) event.getData();
+			if (!reindexStrategy.skipReIndex(il)) {
+				scheduleRebuild();
+			}
+		}
+	}
+
+	/**
+	 * Initialize the configured {@link AutocompleteConfigurationKeys#REINDEXSTRATEGYCLASS_KEY}. If the configured
+	 * class cannot be created a {@link ReIndexNoSkipStrategy} is returned.
+	 * @param config configuration of the request processor
+	 * @return strategy
+	 */
+	private static IReIndexStrategy initReindexStrategy(final CRConfig config) {
+		String className = config.getString(REINDEXSTRATEGYCLASS_KEY);
+
+		if (className != null && className.length() != 0) {
+			try {
+				Class<?> clazz = Class.forName(className);
+				Constructor<?> constructor = clazz.getConstructor(CRConfig.class);
+				return (IReIndexStrategy) constructor.newInstance(config);
+			} catch (Exception e) {
+				log.warn("Cound not init configured " + REINDEXSTRATEGYCLASS_KEY + ": " + className, e);
+			}
+		}
+		return new ReIndexNoSkipStrategy(config);
+	}
+
+	/**
+	 * Get the words with the highest document frequency that start with the request filter. The number of
+	 * suggestions is taken from the count of the request. If the request contains permissions only words of
+	 * documents with one of the permissions are suggested, they are still ranked by their document frequency in
+	 * the whole index but the count is the number of permitted documents.
+	 * @param request request
+	 * @return a bean with the word and the count for every suggestion
+	 * @throws IOException if the permissions cannot be checked
+	 */
+	public Collection<CRResolvableBean> suggestWords(final CRRequest request) throws IOException {
+		String term = request.getRequestFilter();
+		if (autocompletereopenupdate) {
+			long version = getSourceVersion();
+			if (version != -1 && version != dictionary.getVersion()) {
+				scheduleRebuild();
+			}
+		}
+		SuggestionDictionary current = dictionary;
+		int count = request.getCount();
+		if (count <= 0) {
+			count = autocompletecount;
+		}
+		ArrayList<CRResolvableBean> result = new ArrayList<CRResolvableBean>(Math.min(count, 100));
+		if (term == null) {
+			return result;
+		}
+		String[] permissions = getPermissions(request);
+		if (permissions == null) {
+			int id = 1;
+			for (int index : current.suggest(term, count)) {
+				CRResolvableBean bean = new CRResolvableBean(id++);
+				bean.set(SOURCE_WORD_FIELD, current.getWord(index));
+				bean.set(COUNT_FIELD, Integer.toString(current.getWeight(index)));
+				result.add(bean);
+			}
+		} else {
+			suggestPermitted(current, term, count, permissions, result);
+		}
+		return result;
+	}
+
+	/**
+	 * @param request request
+	 * @return permissions of the request, null if the request has no permissions
+	 */
+	private static String[] getPermissions(final CRRequest request) {
+		Object permissions = request.get(CRRequest.PERMISSIONS_KEY);
+		if (permissions instanceof String[] && ((String[]) permissions).length > 0) {
+			return (String[]) permissions;
+		}
+		return null;
+	}
+
+	/**
+	 * Get the best words that are contained in at least one document with one of the permissions. A word is
+	 * accepted at its first permitted document, only the documents of the suggested words are counted. At most
+	 * {@link #maxChecked} words are checked.
+	 * @param current dictionary
+	 * @param term prefix of the words
+	 * @param count maximum number of suggestions
+	 * @param permissions permissions of the user
+	 * @param result list to add a bean with the word and the number of permitted documents for every suggestion
+	 * @throws IOException if the index cannot be read
+	 */
+	private void suggestPermitted(final SuggestionDictionary current, final String term, final int count,
+			final String[] permissions, final List<CRResolvableBean> result) throws IOException {
+		IndexAccessor accessor = source.getAccessor();
+		IndexReader reader = null;
+		try {
+			reader = accessor.getReader(false);
+			final OpenBitSet permitted = getPermittedDocuments(reader, permissions);
+			final TermDocs termDocs = reader.termDocs();
+			try {
+				int[] suggestions = current.suggest(term, count, new SuggestionDictionary.WordFilter() {
+					public boolean accept(final String word) throws IOException {
+						return countPermitted(termDocs, permitted, word, 1) > 0;
+					}
+				}, maxChecked);
+				int id = 1;
+				for (int index : suggestions) {
+					String word = current.getWord(index);
+					CRResolvableBean bean = new CRResolvableBean(id++);
+					bean.set(SOURCE_WORD_FIELD, word);
+					bean.set(COUNT_FIELD, Integer.toString(countPermitted(termDocs, permitted, word,
+						Integer.MAX_VALUE)));
+					result.add(bean);
+				}
+			} finally {
+				termDocs.close();
+			}
+		} finally {
+			accessor.release(reader, false);
+		}
+	}
+
+	/**
+	 * Count the permitted documents that contain a word in one of the {@link #autocompletefields}. Like the weight
+	 * of the dictionary a document that contains the word in more than one field is counted once per field.
+	 * @param termDocs term docs of the source index
+	 * @param permitted permitted documents
+	 * @param word word
+	 * @param max the counting stops when this number of documents is reached
+	 * @return number of permitted documents, at most max
+	 * @throws IOException if the index cannot be read
+	 */
+	private int countPermitted(final TermDocs termDocs, final OpenBitSet permitted, final String word,
+			final int max) throws IOException {
+		int permittedCount = 0;
+		for (String field : autocompletefields) {
+			termDocs.seek(new Term(field, word));
+			while (termDocs.next()) {
+				if (permitted.fastGet(termDocs.doc()) && ++permittedCount >= max) {
+					return permittedCount;
+				}
+			}
+		}
+		return permittedCount;
+	}
+
+	/**
+	 * Get the documents with one of the given permissions. The documents are cached per index version.
+	 * @param reader reader of the source index
+	 * @param permissions permissions
+	 * @return documents with one of the permissions
+	 * @throws IOException if the index cannot be read
+	 */
+	private OpenBitSet getPermittedDocuments(final IndexReader reader, final String[] permissions)
+			throws IOException {
+		long version = SearchResultCache.getVersion(reader);
+		String[] sortedPermissions = permissions.clone();
+		Arrays.sort(sortedPermissions);
+		String key = Arrays.toString(sortedPermissions);
+		synchronized (permittedDocuments) {
+			if (version != permittedDocumentsVersion || version == -1) {
+				permittedDocuments.clear();
+				permittedDocumentsVersion = version;
+			}
+			OpenBitSet documents = permittedDocuments.get(key);
+			if (documents != null) {
+				return documents;
+			}
+		}
+		OpenBitSet documents = new OpenBitSet(reader.maxDoc());
+		TermDocs termDocs = reader.termDocs();
+		try {
+			for (String permission : sortedPermissions) {
+				termDocs.seek(new Term(permissionsField, permission));
+				while (termDocs.next()) {
+					documents.fastSet(termDocs.doc());
+				}
+			}
+		} finally {
+			termDocs.close();
+		}
+		synchronized (permittedDocuments) {
+			if (version != -1 && version == permittedDocumentsVersion) {
+				permittedDocuments.put(key, documents);
+			}
+		}
+		return documents;
+	}
+
+	/**
+	 * @return the current dictionary
+	 */
+	SuggestionDictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Rebuild the dictionary in the background. Further calls are ignored until the rebuild is started.
+	 */
+	void scheduleRebuild() {
+		if (rebuildScheduled.compareAndSet(false, true)) {
+			rebuildExecutor.execute(new Runnable() {
+				public void run() {
+					rebuildScheduled.set(false);
+					rebuild();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Rebuild the dictionary if the source index has changed since the last build.
+	 */
+	private void rebuild() {
+		IndexAccessor accessor = source.getAccessor();
+		source.reopenCheck(accessor, null);
+		IndexReader reader = null;
+		try {
+			reader = accessor.getReader(false);
+			long version = SearchResultCache.getVersion(reader);
+			if (version != -1 && version == dictionary.getVersion()) {
+				return;
+			}
+			UseCase ucRebuild = MonitorFactory.startUseCase("MemoryAutocompleter.rebuild(" + name + ")");
+			long start = System.currentTimeMillis();
+			SuggestionDictionary newDictionary = SuggestionDictionary.build(reader, version, autocompletefields);
+			dictionary = newDictionary;
+			ucRebuild.stop();
+			log.debug("Built autocomplete dictionary with " + newDictionary.size() + " words in "
+					+ (System.currentTimeMillis() - start) + "ms");
+		} catch (IOException e) {
+			log.error("Could not build the autocomplete dictionary.", e);
+		} finally {
+			accessor.release(reader, false);
+		}
+	}
+
+	/**
+	 * @return version of the source index, -1 if it cannot be determined
+	 */
+	private long getSourceVersion() {
+		IndexAccessor accessor = source.getAccessor();
+		source.reopenCheck(accessor, null);
+		IndexReader reader = null;
+		try {
+			reader = accessor.getReader(false);
+			return SearchResultCache.getVersion(reader);
+		} catch (IOException e) {
+			log.debug("Could not check the version of the source index.", e);
+			return -1;
+		} finally {
+			accessor.release(reader, false);
+		}
+	}
+
+	/**
+	 * Stop the rebuilds. The source index is not stopped, it is usually shared with the search.
+	 */
+	@Override
+	public void finalize() {
+		EventManager.getInstance().unregister(this);
+		rebuildExecutor.shutdownNow();
+	}
+}
@@ -0,0 +1,383 @@
+package com.gentics.cr.lucene.autocomplete;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermEnum;
+
+/**
+ * Immutable in memory dictionary of the words of an index field for the {@link MemoryAutocompleter}. The words are
+ * kept in a sorted array, so all words with a given prefix are a contiguous range that is found with two binary
+ * searches. The best suggestions of the range are taken from a segment tree that holds the word with the highest
+ * weight (document frequency) of every segment, so a lookup costs O(log n + k log n) without scanning the range.
+ */
+public final class SuggestionDictionary {
+
+	/**
+	 * Words that are shorter are not suggested.
+	 */
+	public static final int MIN_WORD_LENGTH = 3;
+
+	/**
+	 * Words in {@link String#compareTo(String)} order.
+	 */
+	private final String[] words;
+
+	/**
+	 * Weights of the words.
+	 */
+	private final int[] weights;
+
+	/**
+	 * Segment tree of the index of the best word per segment. The leaves start at words.length.
+	 */
+	private final int[] best;
+
+	/**
+	 * Version of the index the dictionary was built from.
+	 */
+	private final long version;
+
+	/**
+	 * Create a new dictionary.
+	 * @param words sorted words
+	 * @param weights weights of the words
+	 * @param version version of the index the dictionary was built from
+	 */
+	SuggestionDictionary(final String[] words, final int[] weights, final long version) {
+		this.words = words;
+		this.weights = weights;
+		this.version = version;
+		int size = words.length;
+		best = new int[2 * size];
+		for (int i = 0; i < size; i++) {
+			best[size + i] = i;
+		}
+		for (int i = size - 1; i > 0; i--) {
+			best[i] = better(best[2 * i], best[2 * i + 1]);
+		}
+	}
+
+	/**
+	 * Build a dictionary of all words of the given fields. The weight of a word that is contained in more than one
+	 * field is the sum of its document frequencies in the fields.
+	 * @param reader reader of the index
+	 * @param version version of the index
+	 * @param fields fields to read the words from
+	 * @return dictionary
+	 * @throws IOException if the terms of the index cannot be read
+	 */
+	public static SuggestionDictionary build(final IndexReader reader, final long version, final String... fields)
+			throws IOException {
+		WordList words = new WordList(0);
+		for (String field : fields) {
+			words = words.merge(readField(reader, field));
+		}
+		return new SuggestionDictionary(Arrays.copyOf(words.words, words.size),
+				Arrays.copyOf(words.weights, words.size), version);
+	}
+
+	/**
+	 * Read the words of a field in the order of the term dictionary.
+	 * @param reader reader of the index
+	 * @param field field to read the words from
+	 * @return words of the field
+	 * @throws IOException if the terms of the index cannot be read
+	 */
+	private static WordList readField(final IndexReader reader, final String field) throws IOException {
+		WordList words = new WordList(1024);
+		TermEnum terms = reader.terms(new Term(field, ""));
+		try {
+			do {
+				Term term = terms.term();
+				if (term == null || !field.equals(term.field())) {
+					break;
+				}
+				String word = term.text();
+				if (word.length() >= MIN_WORD_LENGTH) {
+					words.add(word, terms.docFreq());
+				}
+			} while (terms.next());
+		} finally {
+			terms.close();
+		}
+		return words;
+	}
+
+	/**
+	 * @return version of the index the dictionary was built from
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return number of words in the dictionary
+	 */
+	public int size() {
+		return words.length;
+	}
+
+	/**
+	 * @param index index of a word returned by {@link #suggest(String, int)}
+	 * @return the word
+	 */
+	public String getWord(final int index) {
+		return words[index];
+	}
+
+	/**
+	 * @param index index of a word returned by {@link #suggest(String, int)}
+	 * @return weight (document frequency) of the word
+	 */
+	public int getWeight(final int index) {
+		return weights[index];
+	}
+
+	/**
+	 * Get the words with the highest weight that start with the given prefix. Words with the same weight are
+	 * returned in alphabetical order.
+	 * @param prefix prefix of the words
+	 * @param count maximum number of suggestions
+	 * @return indexes of the suggested words, best first
+	 */
+	public int[] suggest(final String prefix, final int count) {
+		try {
+			return suggest(prefix, count, null);
+		} catch (IOException e) {
+			// cannot happen without a filter
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Get the words with the highest weight that start with the given prefix and are accepted by the filter. The
+	 * words are passed to the filter in the order of their weight until enough words are accepted.
+	 * @param prefix prefix of the words
+	 * @param count maximum number of suggestions
+	 * @param filter filter for the words, null to accept all words
+	 * @return indexes of the suggested words, best first
+	 * @throws IOException if the filter cannot check a word
+	 */
+	public int[] suggest(final String prefix, final int count, final WordFilter filter) throws IOException {
+		return suggest(prefix, count, filter, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Get the words with the highest weight that start with the given prefix and are accepted by the filter. The
+	 * words are passed to the filter in the order of their weight until enough words are accepted or the maximum
+	 * number of words was checked.
+	 * @param prefix prefix of the words
+	 * @param count maximum number of suggestions
+	 * @param filter filter for the words, null to accept all words
+	 * @param maxChecked maximum number of words that are passed to the filter
+	 * @return indexes of the suggested words, best first
+	 * @throws IOException if the filter cannot check a word
+	 */
+	public int[] suggest(final String prefix, final int count, final WordFilter filter, final int maxChecked)
+			throws IOException {
+		int from = lowerBound(prefix);
+		int to = prefixEnd(prefix, from);
+		if (from >= to || count <= 0) {
+			return new int[0];
+		}
+		int[] result = new int[Math.min(count, to - from)];
+		int found = 0;
+		// every entry is a range {best index, from, to}, the range with the best word is taken first
+		PriorityQueue<int[]> ranges = new PriorityQueue<int[]>(2 * result.length + 1, new Comparator<int[]>() {
+			public int compare(final int[] a, final int[] b) {
+				return better(a[0], b[0]) == a[0] ? -1 : 1;
+			}
+		});
+		ranges.add(new int[] { query(from, to), from, to });
+		int checked = 0;
+		while (found < result.length && !ranges.isEmpty()) {
+			int[] range = ranges.poll();
+			int index = range[0];
+			if (filter == null) {
+				result[found++] = index;
+			} else if (checked++ >= maxChecked) {
+				break;
+			} else if (filter.accept(words[index])) {
+				result[found++] = index;
+			}
+			if (range[1] < index) {
+				ranges.add(new int[] { query(range[1], index), range[1], index });
+			}
+			if (index + 1 < range[2]) {
+				ranges.add(new int[] { query(index + 1, range[2]), index + 1, range[2] });
+			}
+		}
+		if (found < result.length) {
+			return Arrays.copyOf(result, found);
+		}
+		return result;
+	}
+
+	/**
+	 * @param a index of a word
+	 * @param b index of another word
+	 * @return index of the word with the higher weight, the first word if both have the same weight
+	 */
+	private int better(final int a, final int b) {
+		if (weights[a] != weights[b]) {
+			return weights[a] > weights[b] ? a : b;
+		}
+		return a < b ? a : b;
+	}
+
+	/**
+	 * Get the index of the best word in a range.
+	 * @param from first index of the range
+	 * @param to index after the range, has to be greater than from
+	 * @return index of the best word
+	 */
+	private int query(final int from, final int to) {
+		int result = from;
+		for (int l = from + words.length, r = to + words.length; l < r; l >>= 1, r >>= 1) {
+			if ((l & 1) == 1) {
+				result = better(result, best[l++]);
+			}
+			if ((r & 1) == 1) {
+				result = better(result, best[--r]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param prefix prefix
+	 * @return index of the first word that is not smaller than the prefix
+	 */
+	private int lowerBound(final String prefix) {
+		int low = 0;
+		int high = words.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (words[mid].compareTo(prefix) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @param prefix prefix
+	 * @param from index of the first word with the prefix
+	 * @return index after the last word with the prefix
+	 */
+	private int prefixEnd(final String prefix, final int from) {
+		int low = from;
+		int high = words.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (words[mid].startsWith(prefix)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Filter for the suggested words, e.g. to suggest only words of documents the user may see.
+	 */
+	public interface WordFilter {
+
+		/**
+		 * @param word suggested word
+		 * @return true if the word may be suggested
+		 * @throws IOException if the word cannot be checked
+		 */
+		boolean accept(String word) throws IOException;
+	}
+
+	/**
+	 * Growable list of words and weights.
+	 */
+	private static final class WordList {
+
+		/**
+		 * Words.
+		 */
+		private String[] words;
+
+		/**
+		 * Weights of the words.
+		 */
+		private int[] weights;
+
+		/**
+		 * Number of words in the list.
+		 */
+		private int size = 0;
+
+		/**
+		 * Create a new list.
+		 * @param capacity initial capacity
+		 */
+		private WordList(final int capacity) {
+			words = new String[capacity];
+			weights = new int[capacity];
+		}
+
+		/**
+		 * Add a word.
+		 * @param word word
+		 * @param weight weight of the word
+		 */
+		private void add(final String word, final int weight) {
+			if (size == words.length) {
+				int capacity = Math.max(16, size * 2);
+				words = Arrays.copyOf(words, capacity);
+				weights = Arrays.copyOf(weights, capacity);
+			}
+			words[size] = word;
+			weights[size] = weight;
+			size++;
+		}
+
+		/**
+		 * Merge two sorted lists, the weights of words contained in both lists are added.
+		 * @param other other list
+		 * @return merged list
+		 */
+		private WordList merge(final WordList other) {
+			if (size == 0) {
+				return other;
+			}
+			WordList merged = new WordList(size + other.size);
+			int i = 0;
+			int j = 0;
+			while (i < size || j < other.size) {
+				int compare;
+				if (i == size) {
+					compare = 1;
+				} else if (j == other.size) {
+					compare = -1;
+				} else {
+					compare = words[i].compareTo(other.words[j]);
+				}
+				if (compare < 0) {
+					merged.add(words[i], weights[i]);
+					i++;
+				} else if (compare > 0) {
+					merged.add(other.words[j], other.weights[j]);
+					j++;
+				} else {
+					merged.add(words[i], weights[i] + other.weights[j]);
+					i++;
+					j++;
+				}
+			}
+			return merged;
+		}
+	}
+}
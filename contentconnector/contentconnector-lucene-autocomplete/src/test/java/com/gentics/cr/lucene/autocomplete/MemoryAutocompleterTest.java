@@ -0,0 +1,216 @@
+package com.gentics.cr.lucene.autocomplete;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+
+import junit.framework.Assert;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexWriter;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.gentics.cr.CRConfig;
+import com.gentics.cr.CRConfigUtil;
+import com.gentics.cr.CRRequest;
+import com.gentics.cr.CRResolvableBean;
+import com.gentics.cr.configuration.EnvironmentConfiguration;
+import com.gentics.cr.events.EventManager;
+import com.gentics.cr.exceptions.CRException;
+import com.gentics.cr.lucene.events.IndexingFinishedEvent;
+import com.gentics.cr.lucene.indexaccessor.IndexAccessor;
+import com.gentics.cr.lucene.indexer.index.LuceneIndexLocation;
+import com.gentics.cr.util.indexing.IReIndexStrategy;
+import com.gentics.cr.util.indexing.IndexLocation;
+
+public class MemoryAutocompleterTest {
+
+	private static CRConfigUtil config;
+
+	private static LuceneIndexLocation location;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		EnvironmentConfiguration.loadEnvironmentProperties();
+		config = createConfig("MemoryAutocompleterTest");
+		location = LuceneIndexLocation.getIndexLocation(config);
+		addDoc("pagani potatoe");
+		addDoc("potatoe pasta");
+		addDoc("audi");
+		addDoc("salami secret", "admin");
+		addDoc("sandwich", "guest", "admin");
+		addDoc("tomato", "guest", "admin");
+		addDoc("tomato", "admin");
+		addDoc("tomato", "admin");
+	}
+
+	private static CRConfigUtil createConfig(final String name) {
+		CRConfigUtil rpConfig = new CRConfigUtil();
+		rpConfig.setName(name);
+		rpConfig.set(AutocompleteConfigurationKeys.AUTOCOMPLETE_IN_MEMORY_KEY, "true");
+		rpConfig.set("indexLocationClass", "com.gentics.cr.lucene.indexer.index.LuceneSingleIndexLocation");
+		rpConfig.set("indexLocations.0.path", "RAM_MEMORY_AUTOCOMPLETE");
+		return rpConfig;
+	}
+
+	private static void addDoc(final String content, final String... permissions) throws IOException {
+		Document document = new Document();
+		document.add(new Field("content", content, Field.Store.YES, Field.Index.ANALYZED));
+		for (String permission : permissions) {
+			document.add(new Field("permissions", permission, Field.Store.YES, Field.Index.NOT_ANALYZED));
+		}
+		IndexAccessor accessor = location.getAccessor();
+		IndexWriter writer = accessor.getWriter();
+		writer.addDocument(document);
+		accessor.release(writer);
+	}
+
+	private static Collection<CRResolvableBean> suggest(final AutocompleteRequestProcessor rp, final String term)
+			throws CRException {
+		CRRequest request = new CRRequest();
+		request.setRequestFilter(term);
+		return rp.getObjects(request);
+	}
+
+	private static String suggestWords(final AutocompleteRequestProcessor rp, final CRRequest request)
+			throws CRException {
+		StringBuilder words = new StringBuilder();
+		for (CRResolvableBean bean : rp.getObjects(request)) {
+			if (words.length() > 0) {
+				words.append(',');
+			}
+			words.append(bean.get("word"));
+		}
+		return words.toString();
+	}
+
+	@Test
+	public void testSuggest() throws CRException {
+		AutocompleteRequestProcessor rp = new AutocompleteRequestProcessor(config);
+		try {
+			Collection<CRResolvableBean> objects = suggest(rp, "p");
+			Assert.assertEquals(3, objects.size());
+			Iterator<CRResolvableBean> iterator = objects.iterator();
+			CRResolvableBean bean = iterator.next();
+			Assert.assertEquals("potatoe", bean.get("word"));
+			Assert.assertEquals("2", bean.get("count"));
+			Assert.assertEquals("pagani", iterator.next().get("word"));
+			Assert.assertEquals("pasta", iterator.next().get("word"));
+		} finally {
+			rp.finalize();
+		}
+	}
+
+	@Test
+	public void testCount() throws CRException {
+		AutocompleteRequestProcessor rp = new AutocompleteRequestProcessor(config);
+		try {
+			CRRequest request = new CRRequest();
+			request.setRequestFilter("p");
+			request.setCountString("1");
+			Assert.assertEquals("potatoe", suggestWords(rp, request));
+		} finally {
+			rp.finalize();
+		}
+	}
+
+	@Test
+	public void testPermissions() throws CRException {
+		AutocompleteRequestProcessor rp = new AutocompleteRequestProcessor(config);
+		try {
+			CRRequest request = new CRRequest();
+			request.setRequestFilter("sa");
+			Assert.assertEquals("salami,sandwich", suggestWords(rp, request));
+			request.set(CRRequest.PERMISSIONS_KEY, new String[] { "guest" });
+			Assert.assertEquals("sandwich", suggestWords(rp, request));
+			request.set(CRRequest.PERMISSIONS_KEY, new String[] { "admin" });
+			Assert.assertEquals("salami,sandwich", suggestWords(rp, request));
+			request.setRequestFilter("sec");
+			request.set(CRRequest.PERMISSIONS_KEY, new String[] { "guest", "anonymous" });
+			Assert.assertEquals("", suggestWords(rp, request));
+		} finally {
+			rp.finalize();
+		}
+	}
+
+	@Test
+	public void testPermittedCount() throws CRException {
+		AutocompleteRequestProcessor rp = new AutocompleteRequestProcessor(config);
+		try {
+			Assert.assertEquals("3", suggest(rp, "tom").iterator().next().get("count"));
+			CRRequest request = new CRRequest();
+			request.setRequestFilter("tom");
+			request.set(CRRequest.PERMISSIONS_KEY, new String[] { "guest" });
+			Collection<CRResolvableBean> objects = rp.getObjects(request);
+			Assert.assertEquals(1, objects.size());
+			Assert.assertEquals("Only the permitted documents are counted.", "1", objects.iterator().next().get(
+				"count"));
+		} finally {
+			rp.finalize();
+		}
+	}
+
+	@Test
+	public void testMaxChecked() throws CRException {
+		CRConfigUtil maxCheckedConfig = createConfig("MemoryAutocompleterTestMaxChecked");
+		maxCheckedConfig.set(AutocompleteConfigurationKeys.AUTOCOMPLETE_MAX_CHECKED_KEY, "1");
+		AutocompleteRequestProcessor rp = new AutocompleteRequestProcessor(maxCheckedConfig);
+		try {
+			CRRequest request = new CRRequest();
+			request.setRequestFilter("sa");
+			request.set(CRRequest.PERMISSIONS_KEY, new String[] { "admin" });
+			Assert.assertEquals("salami", suggestWords(rp, request));
+			request.set(CRRequest.PERMISSIONS_KEY, new String[] { "guest" });
+			Assert.assertEquals("Only the first word is checked.", "", suggestWords(rp, request));
+		} finally {
+			rp.finalize();
+		}
+	}
+
+	@Test
+	public void testRebuildAfterIndexing() throws CRException, IOException, InterruptedException {
+		AutocompleteRequestProcessor rp = new AutocompleteRequestProcessor(config);
+		try {
+			Assert.assertEquals(0, suggest(rp, "vol").size());
+			addDoc("volvo");
+			EventManager.getInstance().fireEvent(new IndexingFinishedEvent(location));
+			for (int i = 0; i < 50 && suggest(rp, "vol").isEmpty(); i++) {
+				Thread.sleep(100);
+			}
+			Assert.assertEquals("The dictionary was not rebuilt after the indexing.", 1, suggest(rp, "vol").size());
+		} finally {
+			rp.finalize();
+		}
+	}
+
+	@Test
+	public void testSkippedRebuild() throws CRException, IOException, InterruptedException {
+		CRConfigUtil skipConfig = createConfig("MemoryAutocompleterTestSkip");
+		skipConfig.set(AutocompleteConfigurationKeys.REINDEXSTRATEGYCLASS_KEY, SkipStrategy.class.getName());
+		AutocompleteRequestProcessor rp = new AutocompleteRequestProcessor(skipConfig);
+		try {
+			addDoc("renault");
+			EventManager.getInstance().fireEvent(new IndexingFinishedEvent(location));
+			Thread.sleep(500);
+			Assert.assertEquals("The dictionary was rebuilt although the strategy skips it.", 0,
+				suggest(rp, "ren").size());
+		} finally {
+			rp.finalize();
+		}
+	}
+
+	/**
+	 * Skips every rebuild.
+	 */
+	public static class SkipStrategy implements IReIndexStrategy {
+
+		public SkipStrategy(final CRConfig config) {
+		}
+
+		public boolean skipReIndex(final IndexLocation indexLocation) {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.gentics.cr.lucene.autocomplete;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.gentics.cr.lucene.LuceneVersion;
+
+public class SuggestionDictionaryTest {
+
+	private static final int WORDS = 2000;
+
+	private static SuggestionDictionary createDictionary(final String... documents) throws IOException {
+		return createDictionary(new String[] { "content" }, documents);
+	}
+
+	private static SuggestionDictionary createDictionary(final String[] fields, final String... documents)
+			throws IOException {
+		RAMDirectory directory = new RAMDirectory();
+		IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(LuceneVersion.getVersion(),
+				new WhitespaceAnalyzer(LuceneVersion.getVersion())));
+		for (String content : documents) {
+			Document document = new Document();
+			document.add(new Field("content", content, Field.Store.NO, Field.Index.ANALYZED));
+			document.add(new Field("category", "cars", Field.Store.NO, Field.Index.ANALYZED));
+			document.add(new Field("name", content, Field.Store.NO, Field.Index.ANALYZED));
+			writer.addDocument(document);
+		}
+		writer.close();
+		IndexReader reader = IndexReader.open(directory);
+		try {
+			return SuggestionDictionary.build(reader, reader.getVersion(), fields);
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static String[] suggest(final SuggestionDictionary dictionary, final String prefix, final int count) {
+		int[] indexes = dictionary.suggest(prefix, count);
+		String[] words = new String[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			words[i] = dictionary.getWord(indexes[i]);
+		}
+		return words;
+	}
+
+	@Test
+	public void testSuggest() throws IOException {
+		SuggestionDictionary dictionary = createDictionary("pagani potatoe", "potatoe pasta", "potatoe pasta pan",
+			"audi", "paris");
+		assertEquals("Short words and other fields are not part of the dictionary.", 6, dictionary.size());
+		assertEquals("[potatoe, pasta, pagani, pan, paris]", Arrays.toString(suggest(dictionary, "p", 5)));
+		assertEquals("[pasta, pagani]", Arrays.toString(suggest(dictionary, "pa", 2)));
+		assertEquals("[audi]", Arrays.toString(suggest(dictionary, "au", 5)));
+		assertEquals(0, dictionary.suggest("x", 5).length);
+		assertEquals(0, dictionary.suggest("zzz", 5).length);
+	}
+
+	@Test
+	public void testWeight() throws IOException {
+		SuggestionDictionary dictionary = createDictionary("potatoe pasta", "potatoe");
+		int[] indexes = dictionary.suggest("potatoe", 5);
+		assertEquals(1, indexes.length);
+		assertEquals(2, dictionary.getWeight(indexes[0]));
+	}
+
+	@Test
+	public void testMultipleFields() throws IOException {
+		SuggestionDictionary dictionary = createDictionary(new String[] { "content", "category" }, "potatoe pasta",
+			"potatoe", "audi");
+		assertEquals(4, dictionary.size());
+		assertEquals("[cars]", Arrays.toString(suggest(dictionary, "c", 5)));
+		dictionary = createDictionary(new String[] { "content", "name" }, "potatoe pasta", "potatoe");
+		int[] indexes = dictionary.suggest("potatoe", 5);
+		assertEquals("Weights of words in more than one field are added.", 4, dictionary.getWeight(indexes[0]));
+	}
+
+	@Test
+	public void testFilter() throws IOException {
+		SuggestionDictionary dictionary = createDictionary("pagani potatoe", "potatoe pasta", "potatoe pasta pan",
+			"paris");
+		SuggestionDictionary.WordFilter filter = new SuggestionDictionary.WordFilter() {
+			public boolean accept(final String word) {
+				return !word.startsWith("po") && !word.startsWith("pas");
+			}
+		};
+		int[] indexes = dictionary.suggest("p", 2, filter);
+		assertEquals(2, indexes.length);
+		assertEquals("pagani", dictionary.getWord(indexes[0]));
+		assertEquals("pan", dictionary.getWord(indexes[1]));
+		assertEquals(3, dictionary.suggest("p", 5, filter).length);
+		assertEquals(0, dictionary.suggest("po", 5, filter).length);
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		SuggestionDictionary dictionary = createDictionary();
+		assertEquals(0, dictionary.size());
+		assertEquals(0, dictionary.suggest("a", 5).length);
+	}
+
+	/**
+	 * Compare the suggestions of a dictionary of random words with a linear scan over all words.
+	 */
+	@Test
+	public void testSameResultAsLinearScan() {
+		Random random = new Random(42);
+		TreeSet<String> wordSet = new TreeSet<String>();
+		while (wordSet.size() < WORDS) {
+			wordSet.add(Integer.toString(random.nextInt(100000), 36));
+		}
+		final String[] words = wordSet.toArray(new String[WORDS]);
+		final int[] weights = new int[WORDS];
+		for (int i = 0; i < WORDS; i++) {
+			weights[i] = random.nextInt(10);
+		}
+		SuggestionDictionary dictionary = new SuggestionDictionary(words, weights, 1);
+
+		for (int i = 0; i < 36 + 36 * 36; i++) {
+			String prefix = Integer.toString(i, 36);
+			List<Integer> expected = new ArrayList<Integer>();
+			for (int word = 0; word < WORDS; word++) {
+				if (words[word].startsWith(prefix)) {
+					expected.add(word);
+				}
+			}
+			// words are sorted, so a stable sort keeps words with the same weight in alphabetical order
+			Collections.sort(expected, new Comparator<Integer>() {
+				public int compare(final Integer a, final Integer b) {
+					return weights[b] - weights[a];
+				}
+			});
+			expected = expected.subList(0, Math.min(5, expected.size()));
+			int[] indexes = dictionary.suggest(prefix, 5);
+			List<Integer> suggested = new ArrayList<Integer>();
+			for (int index : indexes) {
+				suggested.add(index);
+			}
+			assertEquals("Suggestions for " + prefix, expected, suggested);
+		}
+	}
+}
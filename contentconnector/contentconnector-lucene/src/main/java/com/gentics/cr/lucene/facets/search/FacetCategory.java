@@ -0,0 +1,118 @@
+package com.gentics.cr.lucene.facets.search;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Category of a faceted search result with its number of hits and its best sub categories. The category is
+ * exposed as a read only {@link java.util.Map} with the keys of the {@link FacetsSearchConfigKeys}, so the result
+ * renderers serialize it like any other map attribute.
+ */
+public class FacetCategory extends AbstractMap<String, Object> implements FacetsSearchConfigKeys {
+
+	/**
+	 * Name (last path component) of the category.
+	 */
+	private final String name;
+
+	/**
+	 * Number of hits in the category.
+	 */
+	private final int count;
+
+	/**
+	 * Ordinal of the category, null if it is not displayed.
+	 */
+	private final Integer ordinal;
+
+	/**
+	 * Path of the category, null if it is not displayed.
+	 */
+	private final String path;
+
+	/**
+	 * Sub categories, best first.
+	 */
+	private List<FacetCategory> subnodes = Collections.emptyList();
+
+	/**
+	 * Create a new category.
+	 * @param name name of the category
+	 * @param count number of hits in the category
+	 * @param ordinal ordinal of the category, null if it is not displayed
+	 * @param path path of the category, null if it is not displayed
+	 */
+	public FacetCategory(final String name, final int count, final Integer ordinal, final String path) {
+		this.name = name;
+		this.count = count;
+		this.ordinal = ordinal;
+		this.path = path;
+	}
+
+	/**
+	 * @return name of the category
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return number of hits in the category
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return ordinal of the category, null if it is not displayed
+	 */
+	public Integer getOrdinal() {
+		return ordinal;
+	}
+
+	/**
+	 * @return path of the category, null if it is not displayed
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return sub categories, best first
+	 */
+	public List<FacetCategory> getSubnodes() {
+		return subnodes;
+	}
+
+	/**
+	 * Add a sub category.
+	 * @param subnode sub category
+	 */
+	public void addSubnode(final FacetCategory subnode) {
+		if (subnodes.isEmpty()) {
+			subnodes = new ArrayList<FacetCategory>();
+		}
+		subnodes.add(subnode);
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		Set<Entry<String, Object>> entries = new LinkedHashSet<Entry<String, Object>>();
+		entries.add(new SimpleImmutableEntry<String, Object>(RESULT_FACETS_CATEGORY_NAME_KEY, name));
+		entries.add(new SimpleImmutableEntry<String, Object>(RESULT_FACETS_TOTAL_COUNT_KEY, count));
+		if (ordinal != null) {
+			entries.add(new SimpleImmutableEntry<String, Object>(RESULT_FACETS_ORDINAL_KEY, ordinal));
+		}
+		if (path != null) {
+			entries.add(new SimpleImmutableEntry<String, Object>(RESULT_FACETS_PATH_KEY, path));
+		}
+		if (!subnodes.isEmpty()) {
+			entries.add(new SimpleImmutableEntry<String, Object>(RESULT_FACETS_SUBNODES_KEY, subnodes));
+		}
+		return entries;
+	}
+}
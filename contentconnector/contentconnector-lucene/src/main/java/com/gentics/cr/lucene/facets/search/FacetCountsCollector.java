@@ -0,0 +1,95 @@
+package com.gentics.cr.lucene.facets.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.facet.taxonomy.CategoryPath;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+/**
+ * Collector that counts the categories of all hits using the cached {@link FacetOrdinals} of the searched reader.
+ */
+public class FacetCountsCollector extends Collector {
+
+	/**
+	 * Ordinals of the searched reader.
+	 */
+	private final FacetOrdinals ordinals;
+
+	/**
+	 * Taxonomy the counts are resolved with.
+	 */
+	private final TaxonomyReader taxonomyReader;
+
+	/**
+	 * Categories the results are requested for.
+	 */
+	private final CategoryPath[] categories;
+
+	/**
+	 * Number of hits per category ordinal.
+	 */
+	private final int[] counts;
+
+	/**
+	 * Document number of the first document of the current segment.
+	 */
+	private int docBase;
+
+	/**
+	 * Create a new collector.
+	 * @param ordinals ordinals of the searched top level reader
+	 * @param taxonomyReader taxonomy the counts are resolved with
+	 * @param categories categories the results are requested for
+	 */
+	public FacetCountsCollector(final FacetOrdinals ordinals, final TaxonomyReader taxonomyReader,
+		final CategoryPath[] categories) {
+		this.ordinals = ordinals;
+		this.taxonomyReader = taxonomyReader;
+		this.categories = categories;
+		this.counts = new int[Math.max(taxonomyReader.getSize(), ordinals.getMaxOrdinal() + 1)];
+	}
+
+	@Override
+	public void setScorer(final Scorer scorer) throws IOException {
+		// the scores are not needed for counting
+	}
+
+	@Override
+	public void collect(final int doc) throws IOException {
+		ordinals.count(docBase + doc, counts);
+	}
+
+	@Override
+	public void setNextReader(final IndexReader reader, final int docBase) throws IOException {
+		this.docBase = docBase;
+	}
+
+	@Override
+	public boolean acceptsDocsOutOfOrder() {
+		return true;
+	}
+
+	/**
+	 * @return number of hits per category ordinal
+	 */
+	public int[] getCounts() {
+		return counts;
+	}
+
+	/**
+	 * @return categories the results are requested for
+	 */
+	public CategoryPath[] getCategories() {
+		return categories;
+	}
+
+	/**
+	 * @return taxonomy the counts are resolved with
+	 */
+	public TaxonomyReader getTaxonomyReader() {
+		return taxonomyReader;
+	}
+}
@@ -0,0 +1,122 @@
+package com.gentics.cr.lucene.facets.search;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.facet.index.params.CategoryListParams;
+import org.apache.lucene.facet.search.CategoryListIterator;
+import org.apache.lucene.index.IndexReader;
+
+/**
+ * Category ordinals of all documents of an index reader. The ordinals are read once from the category list
+ * payloads and kept in two int arrays, the ordinals of document <code>doc</code> are
+ * <code>ordinals[offsets[doc]]</code> to <code>ordinals[offsets[doc + 1] - 1]</code>. Counting the categories of
+ * the hits is a loop over these arrays without decoding any payloads.
+ */
+public final class FacetOrdinals {
+
+	/**
+	 * Version of the reader the ordinals were read from.
+	 */
+	private final long version;
+
+	/**
+	 * Number of documents of the reader the ordinals were read from.
+	 */
+	private final int maxDoc;
+
+	/**
+	 * Start of the ordinals of every document in {@link #ordinals}, has maxDoc + 1 entries.
+	 */
+	private final int[] offsets;
+
+	/**
+	 * Ordinals of all documents.
+	 */
+	private final int[] ordinals;
+
+	/**
+	 * Highest ordinal of all documents, -1 if no document has a category.
+	 */
+	private final int maxOrdinal;
+
+	/**
+	 * Create the ordinals.
+	 * @param version version of the reader
+	 * @param maxDoc number of documents of the reader
+	 * @param offsets start of the ordinals of every document
+	 * @param ordinals ordinals of all documents
+	 * @param maxOrdinal highest ordinal
+	 */
+	private FacetOrdinals(final long version, final int maxDoc, final int[] offsets, final int[] ordinals,
+		final int maxOrdinal) {
+		this.version = version;
+		this.maxDoc = maxDoc;
+		this.offsets = offsets;
+		this.ordinals = ordinals;
+		this.maxOrdinal = maxOrdinal;
+	}
+
+	/**
+	 * Read the category ordinals of all documents of the reader.
+	 * @param reader top level reader of the index
+	 * @param version version of the reader
+	 * @param categoryListParams parameters of the category list the ordinals were indexed with
+	 * @return the ordinals
+	 * @throws IOException if the category list cannot be read
+	 */
+	public static FacetOrdinals read(final IndexReader reader, final long version,
+			final CategoryListParams categoryListParams) throws IOException {
+		int maxDoc = reader.maxDoc();
+		int[] offsets = new int[maxDoc + 1];
+		int[] ordinals = new int[Math.max(16, maxDoc)];
+		int size = 0;
+		int maxOrdinal = -1;
+		CategoryListIterator iterator = categoryListParams.createCategoryListIterator(reader, 0);
+		if (iterator.init()) {
+			for (int doc = 0; doc < maxDoc; doc++) {
+				offsets[doc] = size;
+				if (!iterator.skipTo(doc)) {
+					continue;
+				}
+				for (long ordinal = iterator.nextCategory(); ordinal <= Integer.MAX_VALUE; ordinal = iterator
+						.nextCategory()) {
+					if (size == ordinals.length) {
+						ordinals = Arrays.copyOf(ordinals, size * 2);
+					}
+					ordinals[size++] = (int) ordinal;
+					maxOrdinal = Math.max(maxOrdinal, (int) ordinal);
+				}
+			}
+		}
+		offsets[maxDoc] = size;
+		return new FacetOrdinals(version, maxDoc, offsets, Arrays.copyOf(ordinals, size), maxOrdinal);
+	}
+
+	/**
+	 * @param readerVersion version of a reader
+	 * @param readerMaxDoc number of documents of the reader
+	 * @return true if the ordinals were read from a reader with this version and number of documents
+	 */
+	public boolean isCurrent(final long readerVersion, final int readerMaxDoc) {
+		return readerVersion != -1 && version == readerVersion && maxDoc == readerMaxDoc;
+	}
+
+	/**
+	 * @return highest ordinal of all documents, -1 if no document has a category
+	 */
+	public int getMaxOrdinal() {
+		return maxOrdinal;
+	}
+
+	/**
+	 * Add the categories of a document to the counts.
+	 * @param doc document number in the top level reader
+	 * @param counts counts by ordinal, has to be greater than {@link #getMaxOrdinal()}
+	 */
+	public void count(final int doc, final int[] counts) {
+		for (int i = offsets[doc], end = offsets[doc + 1]; i < end; i++) {
+			counts[ordinals[i]]++;
+		}
+	}
+}
@@ -2,16 +2,14 @@ package com.gentics.cr.lucene.facets.search;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
-import org.apache.lucene.facet.search.FacetsCollector;
-import org.apache.lucene.facet.search.params.CountFacetRequest;
-import org.apache.lucene.facet.search.params.FacetSearchParams;
-import org.apache.lucene.facet.search.results.FacetResult;
-import org.apache.lucene.facet.search.results.FacetResultNode;
+import org.apache.lucene.facet.index.params.CategoryListParams;
+import org.apache.lucene.facet.index.params.DefaultFacetIndexingParams;
 import org.apache.lucene.facet.taxonomy.CategoryPath;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.index.IndexReader;
@@ -22,6 +20,7 @@ import com.gentics.cr.lucene.facets.taxonomy.TaxonomyMapping;
 import com.gentics.cr.lucene.facets.taxonomy.taxonomyaccessor.TaxonomyAccessor;
 import com.gentics.cr.lucene.indexer.index.LuceneIndexLocation;
 import com.gentics.cr.lucene.search.CRMetaResolvableBean;
+import com.gentics.cr.lucene.search.SearchResultCache;
 
 /**
  * This class contains all the methods needed to perform a faceted query request
@@ -39,6 +38,27 @@ public class FacetsSearch implements FacetsSearchConfigKeys {
 	private int facetnumbercategories = DEFAULT_FACET_NUMBER_OF_CATEGORIES;
 	private char facetpathdelimiter = DEFAULT_FACET_PATH_DELIMITER;
 
+	/**
+	 * Parameters of the category list the ordinals are indexed in.
+	 */
+	private static final CategoryListParams CATEGORY_LIST_PARAMS = new DefaultFacetIndexingParams()
+			.getCategoryListParams(null);
+
+	/**
+	 * Categories requested for the {@link #requestedMappings}.
+	 */
+	private CategoryPath[] requestedCategories;
+
+	/**
+	 * Mappings the {@link #requestedCategories} were created from.
+	 */
+	private Collection<TaxonomyMapping> requestedMappings;
+
+	/**
+	 * Ordinals of the last searched reader.
+	 */
+	private volatile FacetOrdinals ordinals;
+
 	/**
 	 * Reads the config for facet related entries and initializes the relevant variables
 	 * 
@@ -69,33 +89,64 @@ public class FacetsSearch implements FacetsSearchConfigKeys {
 	}
 
 	/**
-	 * Maps the categories defined in the mappings to {@link FacetSearchParams}
+	 * Maps the categories defined in the mappings to the requested categories. The categories are only created
+	 * again if the mappings of the taxonomy accessor have changed.
 	 * TODO: implement categories selection via request-parameters
 	 * 
 	 * @param taAccessor
 	 *            the {@link TaxonomyAccessor} as stored in the
 	 *            {@link LuceneIndexLocation}
-	 * @return the mapped {@link FacetSearchParams}
+	 * @return the requested categories
 	 * @author Sebastian Vogel <s.vogel@gentics.com>
 	 */
-	private FacetSearchParams getFacetSearchParams(TaxonomyAccessor taAccessor) {
-		FacetSearchParams params = new FacetSearchParams();
-
-		for (TaxonomyMapping map : taAccessor.getTaxonomyMappings()) {
-			CountFacetRequest req = new CountFacetRequest(new CategoryPath(
-					map.getCategory()), facetnumbercategories);
-			params.addFacetRequest(req);
-			if (log.isDebugEnabled()) {
-				log.debug("Added Category Path " + map.getCategory().toString()
-						+ " to the Facet Search Params");
+	private synchronized CategoryPath[] getRequestedCategories(TaxonomyAccessor taAccessor) {
+		Collection<TaxonomyMapping> mappings = taAccessor.getTaxonomyMappings();
+		if (requestedCategories == null || requestedMappings != mappings
+				|| requestedCategories.length != mappings.size()) {
+			List<CategoryPath> categories = new ArrayList<CategoryPath>(mappings.size());
+			for (TaxonomyMapping map : mappings) {
+				categories.add(new CategoryPath(map.getCategory()));
+				if (log.isDebugEnabled()) {
+					log.debug("Added Category Path " + map.getCategory().toString()
+							+ " to the requested categories");
+				}
 			}
+			requestedCategories = categories.toArray(new CategoryPath[categories.size()]);
+			requestedMappings = mappings;
 		}
+		return requestedCategories;
+	}
 
-		return params;
+	/**
+	 * Get the category ordinals of all documents of the reader. The ordinals are read once per index version.
+	 * 
+	 * @param indexReader
+	 *            top level reader of the index
+	 * @return the ordinals of the reader
+	 * @throws IOException
+	 *             if the ordinals cannot be read
+	 */
+	private FacetOrdinals getOrdinals(IndexReader indexReader) throws IOException {
+		long version = SearchResultCache.getVersion(indexReader);
+		int maxDoc = indexReader.maxDoc();
+		FacetOrdinals current = ordinals;
+		if (current != null && current.isCurrent(version, maxDoc)) {
+			return current;
+		}
+		synchronized (this) {
+			current = ordinals;
+			if (current == null || !current.isCurrent(version, maxDoc)) {
+				current = FacetOrdinals.read(indexReader, version, CATEGORY_LIST_PARAMS);
+				if (version != -1) {
+					ordinals = current;
+				}
+			}
+			return current;
+		}
 	}
 
 	/**
-	 * gets the results from the {@link FacetsCollector} and returns a object
+	 * gets the results from the {@link FacetCountsCollector} and returns a object
 	 * which can be stored in the {@link CRMetaResolvableBean}
 	 * 
 	 * @param facetsCollector
@@ -103,15 +154,13 @@ public class FacetsSearch implements FacetsSearchConfigKeys {
 	 * @throws IOException
 	 * @author Sebastian Vogel <s.vogel@gentics.com>
 	 */
-	public Object getFacetsResults(FacetsCollector facetsCollector)
+	public Object getFacetsResults(FacetCountsCollector facetsCollector)
 			throws IOException {
-		List<FacetResult> facetResults = facetsCollector.getFacetResults();
-
-		Map<String, Object> facetsResultsRootNode = new HashMap<String, Object>();
+		Map<String, FacetCategory> facetsResultsRootNode = new LinkedHashMap<String, FacetCategory>();
 		int i = 0;
-		for (FacetResult facetResult : facetResults) {
+		for (CategoryPath category : facetsCollector.getCategories()) {
 			facetsResultsRootNode.put(String.valueOf(i),
-					buildFacetsResultTree(facetResult.getFacetResultNode()));
+					buildFacetsResultTree(category, facetsCollector));
 			i++;
 		}
 
@@ -119,64 +168,102 @@ public class FacetsSearch implements FacetsSearchConfigKeys {
 	}
 
 	/**
-	 * Recursive method iterates over all {@link FacetResultNode} in the Result
-	 * the maximum number of facet result nodes per query is defined via the
-	 * properties or via the DEFAULT_FACET_NUMBER_OF_CATEGORIES variable
+	 * Creates the result of a requested category with the categories with the
+	 * most hits among its children. The maximum number of sub categories per
+	 * query is defined via the properties or via the
+	 * DEFAULT_FACET_NUMBER_OF_CATEGORIES variable
 	 * 
-	 * @param facetResultNodes
-	 *            a list of facet result nodes
-	 * @return a tree-like map of categories including their sub categories and
-	 *         the number of results to each category (and sub category)
+	 * @param category
+	 *            the requested category
+	 * @param facetsCollector
+	 *            collector with the counts of all categories
+	 * @return the category including its sub categories and the number of
+	 *         results to each category
+	 * @throws IOException
 	 * @author Sebastian Vogel <s.vogel@gentics.com>
 	 */
-	private Map<String, Object> buildFacetsResultTree(FacetResultNode facetNode) {
-		Map<String, Object> facetsResultNode = new HashMap<String, Object>();
-		String path = facetNode.getLabel().toString(facetpathdelimiter);
-		String categoryName = path.substring(path
-				.lastIndexOf(facetpathdelimiter) + 1);
-		facetsResultNode.put(RESULT_FACETS_CATEGORY_NAME_KEY, categoryName);
-		facetsResultNode.put(RESULT_FACETS_TOTAL_COUNT_KEY,
-				String.valueOf((int) facetNode.getValue()));
-
-		if (facetdisplayordinal) {
-			facetsResultNode.put(RESULT_FACETS_ORDINAL_KEY,
-					String.valueOf(facetNode.getOrdinal()));
-		}
-
-		if (facetdisplaypath) {
-			facetsResultNode.put(RESULT_FACETS_PATH_KEY, path);
+	private FacetCategory buildFacetsResultTree(CategoryPath category, FacetCountsCollector facetsCollector)
+			throws IOException {
+		TaxonomyReader taReader = facetsCollector.getTaxonomyReader();
+		int[] counts = facetsCollector.getCounts();
+		int ordinal = taReader.getOrdinal(category);
+		if (ordinal == TaxonomyReader.INVALID_ORDINAL) {
+			return createCategory(category, ordinal, 0);
 		}
+		FacetCategory facetsResultNode = createCategory(category, ordinal, counts[ordinal]);
 
-		if (facetNode.getNumSubResults() > 0) {
-			List<Map<String, Object>> subnodes = new ArrayList<Map<String, Object>>();
-			for (FacetResultNode resultNode : facetNode.getSubResults()) {
-				subnodes.add(buildFacetsResultTree(resultNode));
+		int[] youngestChild = taReader.getChildrenArrays().getYoungestChildArray();
+		int[] olderSibling = taReader.getChildrenArrays().getOlderSiblingArray();
+		int[] top = new int[facetnumbercategories];
+		int found = 0;
+		for (int child = youngestChild[ordinal]; child != TaxonomyReader.INVALID_ORDINAL; child = olderSibling[child]) {
+			if (counts[child] == 0
+					|| (found == top.length && (found == 0 || !isBetter(child, top[found - 1], counts)))) {
+				continue;
 			}
-			if (subnodes.size() > 0) {
-				facetsResultNode.put(RESULT_FACETS_SUBNODES_KEY, subnodes);
+			int position = found < top.length ? found++ : found - 1;
+			while (position > 0 && isBetter(child, top[position - 1], counts)) {
+				top[position] = top[position - 1];
+				position--;
 			}
+			top[position] = child;
+		}
+		for (int i = 0; i < found; i++) {
+			facetsResultNode.addSubnode(createCategory(taReader.getPath(top[i]), top[i], counts[top[i]]));
 		}
 
 		return facetsResultNode;
 	}
 
+	/**
+	 * @param a ordinal of a category
+	 * @param b ordinal of another category
+	 * @param counts counts by ordinal
+	 * @return true if the first category has more hits, or the same number of hits and a lower ordinal
+	 */
+	private static boolean isBetter(int a, int b, int[] counts) {
+		return counts[a] > counts[b] || (counts[a] == counts[b] && a < b);
+	}
+
+	/**
+	 * Create the result of a category.
+	 * 
+	 * @param category
+	 *            path of the category
+	 * @param ordinal
+	 *            ordinal of the category
+	 * @param count
+	 *            number of hits in the category
+	 * @return the result of the category
+	 */
+	private FacetCategory createCategory(CategoryPath category, int ordinal, int count) {
+		String path = category.toString(facetpathdelimiter);
+		String categoryName = path.substring(path
+				.lastIndexOf(facetpathdelimiter) + 1);
+		return new FacetCategory(categoryName, count,
+				facetdisplayordinal ? Integer.valueOf(ordinal) : null,
+				facetdisplaypath ? path : null);
+	}
+
 	/**
 	 * <p>
-	 * Create a new {@link FacetsCollector}
+	 * Create a new {@link FacetCountsCollector} that counts the categories of
+	 * the hits with the cached ordinals of the reader
 	 * </p>
 	 * 
 	 * @param indexReader
+	 *            top level reader of the searcher the collector is used with
 	 * @param taAccessor
 	 * @param taReader
-	 * @return
+	 * @return the collector
+	 * @throws IOException
+	 *             if the ordinals of the reader cannot be read
 	 * @author Sebastian Vogel <s.vogel@gentics.com>
 	 */
-	public FacetsCollector createFacetsCollector(IndexReader indexReader,
-			TaxonomyAccessor taAccessor, TaxonomyReader taReader) {
-		FacetSearchParams facetSearchParams = getFacetSearchParams(taAccessor);
-		FacetsCollector facetsCollector = new FacetsCollector(
-				facetSearchParams, indexReader, taReader);
-		return facetsCollector;
+	public FacetCountsCollector createFacetsCollector(IndexReader indexReader,
+			TaxonomyAccessor taAccessor, TaxonomyReader taReader) throws IOException {
+		return new FacetCountsCollector(getOrdinals(indexReader), taReader,
+				getRequestedCategories(taAccessor));
 	}
 
 	/**
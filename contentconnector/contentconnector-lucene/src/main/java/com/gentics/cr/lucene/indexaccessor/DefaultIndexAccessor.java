@@ -19,16 +19,19 @@ package com.gentics.cr.lucene.indexaccessor;
  * limitations under the License.
  */
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.apache.lucene.analysis.Analyzer;
@@ -41,6 +44,19 @@ import org.apache.lucene.store.Directory;
 
 /**
  * Provides a default implementation for {@link IndexAccessor}.
+ * <p>
+ * The cached reading reader and the cached searchers are reference counted
+ * (see {@link IndexReader#incRef()}), so acquiring and releasing them does not
+ * take the lock of the accessor. The cache holds one reference on each of them
+ * which is dropped when they are replaced on reopen, a replaced reader is
+ * closed as soon as its last user releases it. Only opening, reopening and the
+ * writer handoff are synchronized.
+ * </p>
+ * <p>
+ * If a near real time refresh interval is set, the cached reader and searchers
+ * are refreshed from the open {@link IndexWriter} in that interval, so changes
+ * become visible while a long index job is still running.
+ * </p>
  */
 class DefaultIndexAccessor implements IndexAccessor {
 
@@ -95,9 +111,13 @@ class DefaultIndexAccessor implements IndexAccessor {
 
 	private Analyzer analyzer;
 
-	private IndexReader cachedReadingReader = null;
-	
-	private final Map<IndexReader, Integer> oldReadingReaders = new HashMap<IndexReader, Integer>();
+	private volatile IndexReader cachedReadingReader = null;
+
+	/**
+	 * use count per reading reader, including readers that have been replaced
+	 * by a reopen but are still in use.
+	 */
+	private final ConcurrentHashMap<IndexReader, AtomicInteger> readingReaderUseCounts = new ConcurrentHashMap<IndexReader, AtomicInteger>();
 
 	/**
 	 * cache for searchers.
@@ -108,22 +128,25 @@ class DefaultIndexAccessor implements IndexAccessor {
 
 	private IndexReader cachedWritingReader = null;
 
-	protected boolean closed = true;
+	protected volatile boolean closed = true;
 
 	private Directory directory;
 
-	protected int readingReaderUseCount = 0;
+	/**
+	 * use count for all reading readers handed out by this accessor.
+	 */
+	protected final AtomicInteger readingReaderUseCount = new AtomicInteger();
 
 	protected ExecutorService pool = Executors.newFixedThreadPool(POOL_SIZE, new NamedThreadFactory(DefaultIndexAccessor.class.getSimpleName()));
 
-	protected int numReopening = 0;
+	protected volatile int numReopening = 0;
 
 	protected boolean isReopening = false;
 
 	/**
-	 * use count for cached searcher.
+	 * use count for cached searchers.
 	 */
-	protected int searcherUseCount = 0;
+	protected final AtomicInteger searcherUseCount = new AtomicInteger();
 
 	protected int writerUseCount = 0;
 
@@ -132,11 +155,26 @@ class DefaultIndexAccessor implements IndexAccessor {
 	protected int writingReaderUseCount = 0;
 
 	/**
-	 * marker for closing searchers currently in use. this is used when the
-	 * index should be reopened.
-	 * @see #reopen()
+	 * interval in milliseconds in which readers and searchers are refreshed
+	 * from the open writer, 0 disables near real time search.
+	 */
+	private long nearRealTimeRefreshInterval = 0;
+
+	/**
+	 * executor running the near real time refresh.
+	 */
+	private ScheduledExecutorService nearRealTimeRefresher = null;
+
+	/**
+	 * scheduled near real time refresh while a writer is open.
+	 */
+	private ScheduledFuture<?> nearRealTimeRefresh = null;
+
+	/**
+	 * readers that have been obtained from the writer. they cannot be reopened
+	 * once the writer is closed.
 	 */
-	private boolean closeAllReleasedSearchers = true;
+	private final Set<IndexReader> nearRealTimeReaders = Collections.newSetFromMap(new IdentityHashMap<IndexReader, Boolean>());
 
 	/**
 	 * Creates a new instance with the given {@link Directory} and
@@ -150,12 +188,36 @@ class DefaultIndexAccessor implements IndexAccessor {
 	public DefaultIndexAccessor(final Directory dir, final Analyzer indexAnalyzer) {
 		directory = dir;
 		analyzer = indexAnalyzer;
-		cachedSearchers = new HashMap<Similarity, IndexSearcher>();
+		cachedSearchers = new ConcurrentHashMap<Similarity, IndexSearcher>();
 	}
 
 	/**
-	 * Throws an Exception if IndexAccessor is closed. This method assumes it is
-	 * invoked in a synchronized context.
+	 * Enable near real time search: while a writer is open the cached reader
+	 * and searchers are refreshed from the writer in the given interval.
+	 * @param interval refresh interval in milliseconds, 0 to disable near real
+	 * time search.
+	 */
+	public synchronized void setNearRealTimeRefreshInterval(final long interval) {
+		nearRealTimeRefreshInterval = interval;
+		createNearRealTimeRefresher();
+	}
+
+	/**
+	 * Create the executor running the near real time refresh if near real
+	 * time search is enabled and there is no running executor. The executor
+	 * is shut down by {@link #close()}, so it is created again when the
+	 * accessor is opened. This method assumes it is invoked in a synchronized
+	 * context.
+	 */
+	private void createNearRealTimeRefresher() {
+		if (nearRealTimeRefreshInterval > 0 && (nearRealTimeRefresher == null || nearRealTimeRefresher.isShutdown())) {
+			nearRealTimeRefresher = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(DefaultIndexAccessor.class.getSimpleName()
+					+ ".nrt"));
+		}
+	}
+
+	/**
+	 * Throws an Exception if IndexAccessor is closed.
 	 */
 	private void checkClosed() {
 		if (closed) {
@@ -173,7 +235,7 @@ class DefaultIndexAccessor implements IndexAccessor {
 			return;
 		}
 		closed = true;
-		while (readingReaderUseCount > 0 || searcherUseCount > 0 || writingReaderUseCount > 0 || writerUseCount > 0 || numReopening > 0) {
+		while (readingReaderUseCount.get() > 0 || searcherUseCount.get() > 0 || writingReaderUseCount > 0 || writerUseCount > 0 || numReopening > 0) {
 			try {
 				wait();
 			} catch (InterruptedException e) {
@@ -198,15 +260,12 @@ class DefaultIndexAccessor implements IndexAccessor {
 		LOGGER.debug("closing cached reading reader");
 
 		try {
-			cachedReadingReader.close();
-			for (Entry<IndexReader, Integer> entry: oldReadingReaders.entrySet()) {
-				entry.getKey().close();
-			}
+			cachedReadingReader.decRef();
 		} catch (IOException e) {
 			LOGGER.error("error closing reading Reader", e);
 		} finally {
 			cachedReadingReader = null;
-			oldReadingReaders.clear();
+			readingReaderUseCounts.clear();
 		}
 	}
 
@@ -219,7 +278,8 @@ class DefaultIndexAccessor implements IndexAccessor {
 
 		for (IndexSearcher searcher : cachedSearchers.values()) {
 			try {
-				searcher.getIndexReader().close();
+				// searchers still in use are closed when they are released
+				searcher.getIndexReader().decRef();
 			} catch (IOException e) {
 				LOGGER.error("error closing cached Searcher", e);
 			}
@@ -233,6 +293,11 @@ class DefaultIndexAccessor implements IndexAccessor {
 	 * a synchronized context.
 	 */
 	protected void closeCachedWriter() {
+		stopNearRealTimeRefresh();
+		if (nearRealTimeRefresher != null) {
+			// a running refresh returns as soon as it sees the accessor is closed
+			nearRealTimeRefresher.shutdownNow();
+		}
 		if (cachedWriter == null) {
 			return;
 		}
@@ -277,22 +342,50 @@ class DefaultIndexAccessor implements IndexAccessor {
 	 * Return the reader that was opened for read-only operations, or a new one if
 	 * it hasn't been opened already.
 	 */
-	private synchronized IndexReader getReadingReader() throws IOException {
+	private IndexReader getReadingReader() throws IOException {
 
 		checkClosed();
 
-		if (cachedReadingReader != null) {
+		IndexReader reader = acquireReadingReader(cachedReadingReader);
+		if (reader != null) {
 			LOGGER.debug("returning cached reading reader");
-			readingReaderUseCount++;
-		} else {
-			LOGGER.debug("opening new reading reader and caching it");
+			return reader;
+		}
 
-			cachedReadingReader = IndexReader.open(directory);
-			readingReaderUseCount = 1;
+		synchronized (this) {
+			checkClosed();
+			if (cachedReadingReader == null) {
+				LOGGER.debug("opening new reading reader and caching it");
+				IndexReader newReader = IndexReader.open(directory);
+				readingReaderUseCounts.put(newReader, new AtomicInteger());
+				cachedReadingReader = newReader;
+			}
+			// the cached reader cannot be replaced while we hold the lock
+			return acquireReadingReader(cachedReadingReader);
 		}
+	}
 
-		notifyAll();
-		return cachedReadingReader;
+	/**
+	 * Try to acquire a reference on the given reading reader.
+	 * @param reader reading reader to acquire, may be <code>null</code>
+	 * @return the reader or <code>null</code> if it is not set or has already
+	 * been closed.
+	 */
+	private IndexReader acquireReadingReader(final IndexReader reader) {
+		if (reader == null || !reader.tryIncRef()) {
+			return null;
+		}
+		AtomicInteger useCount = readingReaderUseCounts.get(reader);
+		if (useCount == null) {
+			useCount = new AtomicInteger();
+			AtomicInteger existing = readingReaderUseCounts.putIfAbsent(reader, useCount);
+			if (existing != null) {
+				useCount = existing;
+			}
+		}
+		useCount.incrementAndGet();
+		readingReaderUseCount.incrementAndGet();
+		return reader;
 	}
 
 	/**
@@ -303,29 +396,13 @@ class DefaultIndexAccessor implements IndexAccessor {
 	 * @throws IOException
 	 */
 	public IndexSearcher getPrioritizedSearcher() throws IOException {
-		boolean reopened = this.numReopening > 0;
-		IndexSearcher searcher = (IndexSearcher) getSearcher();
-
-		if (reopened) {
-			//REOPEN SEARCHER AS IT WAS PRIORITIZED
+		if (this.numReopening > 0) {
+			//REOPEN SEARCHERS AS IT WAS PRIORITIZED
 			synchronized (DefaultIndexAccessor.this) {
-				IndexReader reader = searcher.getIndexReader();
-				IndexSearcher oldSearcher = searcher;
-				IndexReader newReader = reader.reopen();
-				if (newReader != reader) {
-					searcher = new IndexSearcher(newReader);
-					searcher.setSimilarity(oldSearcher.getSimilarity());
-					oldSearcher.getIndexReader().close();
-					for (Map.Entry<Similarity, IndexSearcher> e : cachedSearchers.entrySet()) {
-						if (e.getValue() == oldSearcher) {
-							cachedSearchers.put(e.getKey(), searcher);
-						}
-					}
-				}
+				reopenCachedSearchers();
 			}
 		}
-
-		return searcher;
+		return getSearcher();
 	}
 
 	/*
@@ -352,22 +429,37 @@ class DefaultIndexAccessor implements IndexAccessor {
 	 * (non-Javadoc)
 	 * @see com.mhs.indexaccessor.IndexAccessor#getSearcher(org.apache.lucene.search.Similarity, org.apache.lucene.index.IndexReader)
 	 */
-	public synchronized IndexSearcher getSearcher(Similarity similarity, IndexReader indexReader) throws IOException {
+	public IndexSearcher getSearcher(Similarity similarity, IndexReader indexReader) throws IOException {
 
 		checkClosed();
 
 		IndexSearcher searcher = cachedSearchers.get(similarity);
-		if (searcher != null) {
+		if (searcher != null && searcher.getIndexReader().tryIncRef()) {
 			LOGGER.debug("returning cached searcher");
-		} else {
-			LOGGER.debug("opening new searcher and caching it");
-			searcher = indexReader != null ? new IndexSearcher(indexReader) : new IndexSearcher(directory);
-			searcher.setSimilarity(similarity);
-			cachedSearchers.put(similarity, searcher);
+			searcherUseCount.incrementAndGet();
+			return searcher;
+		}
+
+		synchronized (this) {
+			checkClosed();
+			searcher = cachedSearchers.get(similarity);
+			if (searcher == null) {
+				LOGGER.debug("opening new searcher and caching it");
+				if (indexReader != null) {
+					// the cache holds its own reference on the given reader
+					indexReader.incRef();
+					searcher = new IndexSearcher(indexReader);
+				} else {
+					searcher = new IndexSearcher(IndexReader.open(directory));
+				}
+				searcher.setSimilarity(similarity);
+				cachedSearchers.put(similarity, searcher);
+			}
+			// the cached searcher cannot be replaced while we hold the lock
+			searcher.getIndexReader().incRef();
+			searcherUseCount.incrementAndGet();
+			return searcher;
 		}
-		searcherUseCount++;
-		notifyAll();
-		return searcher;
 	}
 
 	/*
@@ -404,6 +496,7 @@ class DefaultIndexAccessor implements IndexAccessor {
 
 			cachedWriter = new IndexWriter(directory, analyzer, IndexWriter.MaxFieldLength.UNLIMITED);
 			writerUseCount = 1;
+			startNearRealTimeRefresh();
 		}
 
 		notifyAll();
@@ -461,6 +554,10 @@ class DefaultIndexAccessor implements IndexAccessor {
 	 */
 	public synchronized void open() {
 		closed = false;
+		if (pool.isShutdown()) {
+			pool = Executors.newFixedThreadPool(POOL_SIZE, new NamedThreadFactory(DefaultIndexAccessor.class.getSimpleName()));
+		}
+		createNearRealTimeRefresher();
 	}
 
 	/*
@@ -468,7 +565,12 @@ class DefaultIndexAccessor implements IndexAccessor {
 	 * @see com.mhs.indexaccessor.IndexAccessor#readingReadersOut()
 	 */
 	public int readingReadersOut() {
-		return readingReaderUseCount;
+		IndexReader reader = cachedReadingReader;
+		if (reader == null) {
+			return 0;
+		}
+		AtomicInteger useCount = readingReaderUseCounts.get(reader);
+		return useCount != null ? useCount.get() : 0;
 	}
 
 	/*
@@ -499,6 +601,7 @@ class DefaultIndexAccessor implements IndexAccessor {
 
 			if (writerUseCount == 0) {
 				LOGGER.debug("closing cached writer:" + Thread.currentThread().getId());
+				stopNearRealTimeRefresh();
 
 				try {
 					cachedWriter.close();
@@ -523,7 +626,7 @@ class DefaultIndexAccessor implements IndexAccessor {
 							numReopening--;
 							return;
 						}
-						waitForReadersAndReopenCached();
+						reopenCached();
 						numReopening--;
 						DefaultIndexAccessor.this.notifyAll();
 					}
@@ -538,40 +641,62 @@ class DefaultIndexAccessor implements IndexAccessor {
 	 * (non-Javadoc)
 	 * @see com.mhs.indexaccessor.IndexAccessor#release(org.apache.lucene.search.Searcher)
 	 */
-	public synchronized void release(IndexSearcher searcher) {
-		searcherUseCount--;
-		if (searcherUseCount == 0 && closeAllReleasedSearchers) {
-			closeCachedSearchers();
-			closeAllReleasedSearchers = false;
+	public void release(IndexSearcher searcher) {
+		if (searcher == null) {
+			return;
+		}
+		try {
+			// closes the reader if the searcher was replaced by a reopen in the meantime
+			searcher.getIndexReader().decRef();
+		} catch (IOException e) {
+			LOGGER.error("error closing Searcher", e);
+		}
+		if (searcherUseCount.decrementAndGet() == 0 && closed) {
+			notifyClose();
 		}
-		notifyAll();
 	}
 
-	/** Release the reader that was opened for read-only operations. */
-	private synchronized void releaseReadingReader(IndexReader reader) {
-		// do nothing if no reader was passed to the method or the reader was already released
-		if (reader == null || readingReaderUseCount == 0) {
+	/**
+	 * Release the reader that was opened for read-only operations. A reader
+	 * that is released more often than it was acquired would drop the
+	 * references of other users, so this fails as soon as it is detected.
+	 */
+	private void releaseReadingReader(IndexReader reader) {
+		// do nothing if no reader was passed to the method
+		if (reader == null) {
 			return;
 		}
-		// check if reader is one of the old reading readers
-		if (reader != cachedReadingReader && oldReadingReaders.get(reader) != null) {
-			Integer oldReaderUseCount = oldReadingReaders.get(reader) - 1;
-			if (oldReaderUseCount > 0) {
-				oldReadingReaders.put(reader, oldReaderUseCount);
-			} else {
-				oldReadingReaders.remove(reader);
-				// close unused old reader
-				try {
-					reader.close();
-				} catch (IOException e) {
-					LOGGER.error("error closing reading Reader", e);
-				}	
+		AtomicInteger useCount = readingReaderUseCounts.get(reader);
+		if (useCount == null) {
+			if (reader.getRefCount() > 0) {
+				throw new IllegalArgumentException("reading reader not opened by this index accessor");
 			}
-		} else if (reader != cachedReadingReader) {
-			throw new IllegalArgumentException("reading reader not opened by this index accessor");
-		} else {
-			readingReaderUseCount--;
+			throw new IllegalStateException("reading reader was already released and closed");
+		}
+		int count;
+		do {
+			count = useCount.get();
+			if (count == 0) {
+				throw new IllegalStateException("reading reader was released more often than it was acquired");
+			}
+		} while (!useCount.compareAndSet(count, count - 1));
+
+		try {
+			// closes the reader if it was replaced by a reopen and this was the last user
+			reader.decRef();
+		} catch (IOException e) {
+			LOGGER.error("error closing reading Reader", e);
 		}
+		if (readingReaderUseCount.decrementAndGet() == 0 && closed) {
+			notifyClose();
+		}
+	}
+
+	/**
+	 * Wake up {@link #close()} waiting for the readers and searchers to be
+	 * released.
+	 */
+	private synchronized void notifyClose() {
 		notifyAll();
 	}
 
@@ -611,7 +736,7 @@ class DefaultIndexAccessor implements IndexAccessor {
 						if (numReopening > 5) {
 							LOGGER.warn("Too many reopens");
 						}
-						waitForReadersAndReopenCached();
+						reopenCached();
 						numReopening--;
 						DefaultIndexAccessor.this.notifyAll();
 					}
@@ -626,21 +751,18 @@ class DefaultIndexAccessor implements IndexAccessor {
 	 */
 	private void reopenCachedSearchers() {
 		LOGGER.debug("reopening cached searchers (" + cachedSearchers.size() + "):" + Thread.currentThread().getId());
-		Set<Similarity> keys = cachedSearchers.keySet();
-		for (Similarity key : keys) {
-			IndexSearcher searcher = cachedSearchers.get(key);
+		for (Map.Entry<Similarity, IndexSearcher> entry : cachedSearchers.entrySet()) {
+			IndexSearcher oldSearcher = entry.getValue();
 			try {
-				IndexReader oldReader = searcher.getIndexReader();
-				IndexSearcher oldSearcher = searcher;
-				IndexReader newReader = oldReader.reopen();
+				IndexReader oldReader = oldSearcher.getIndexReader();
+				IndexReader newReader = openIfChanged(oldReader);
 
 				if (newReader != oldReader) {
-
-					cachedSearchers.remove(key);
-					searcher = new IndexSearcher(newReader);
+					IndexSearcher searcher = new IndexSearcher(newReader);
 					searcher.setSimilarity(oldSearcher.getSimilarity());
-					oldSearcher.getIndexReader().close();
-					cachedSearchers.put(key, searcher);
+					cachedSearchers.put(entry.getKey(), searcher);
+					// searchers still in use are closed when they are released
+					oldReader.decRef();
 				}
 
 			} catch (IOException e) {
@@ -658,28 +780,106 @@ class DefaultIndexAccessor implements IndexAccessor {
 		if (cachedReadingReader == null) {
 			return;
 		}
-		
+
 		LOGGER.debug("reopening cached reading reader");
 		IndexReader oldReader = cachedReadingReader;
-		if(readingReaderUseCount > 0) {
-			// if the reading reader is currently in use, save it with use count in Map
-			oldReadingReaders.put(oldReader, readingReaderUseCount);
-		}		
 		try {
-			cachedReadingReader = cachedReadingReader.reopen();
-			if (oldReader != cachedReadingReader) {
-				// if the old reader was not used close it 
-				if(readingReaderUseCount == 0) {
-					oldReader.close();
-				} else {
-					// set use count to 0 for the new reader
-					readingReaderUseCount = 0;
-				}
+			IndexReader newReader = openIfChanged(oldReader);
+			if (newReader != oldReader) {
+				readingReaderUseCounts.put(newReader, new AtomicInteger());
+				cachedReadingReader = newReader;
+				// if the old reader is still in use it is closed when it is released
+				oldReader.decRef();
 			}
 		} catch (IOException e) {
 			LOGGER.error("error reopening reading Reader", e);
 		}
 
+		// forget the use counts of old readers that have been closed
+		for (Iterator<IndexReader> it = readingReaderUseCounts.keySet().iterator(); it.hasNext();) {
+			if (it.next().getRefCount() == 0) {
+				it.remove();
+			}
+		}
+		for (Iterator<IndexReader> it = nearRealTimeReaders.iterator(); it.hasNext();) {
+			if (it.next().getRefCount() == 0) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Reopens the given reader if the index has changed. While a writer is open
+	 * and near real time search is enabled, the new reader is obtained from the
+	 * writer. This method assumes it is invoked in a synchronized context.
+	 * @param reader reader to reopen
+	 * @return the new reader or the given reader if the index has not changed
+	 * @throws IOException in case the reader cannot be reopened
+	 */
+	private IndexReader openIfChanged(final IndexReader reader) throws IOException {
+		IndexReader newReader;
+		if (nearRealTimeRefreshInterval > 0 && cachedWriter != null) {
+			newReader = IndexReader.openIfChanged(reader, cachedWriter, true);
+			if (newReader != null) {
+				nearRealTimeReaders.add(newReader);
+			}
+		} else if (nearRealTimeReaders.contains(reader)) {
+			// readers obtained from a writer cannot be reopened after the writer was closed
+			newReader = IndexReader.open(directory);
+		} else {
+			newReader = IndexReader.openIfChanged(reader);
+		}
+		if (newReader == null) {
+			return reader;
+		}
+		nearRealTimeReaders.remove(reader);
+		return newReader;
+	}
+
+	/**
+	 * Start refreshing the readers and searchers from the cached writer if near
+	 * real time search is enabled. This method assumes it is invoked in a
+	 * synchronized context.
+	 */
+	private void startNearRealTimeRefresh() {
+		if (nearRealTimeRefreshInterval <= 0 || nearRealTimeRefresh != null) {
+			return;
+		}
+		LOGGER.debug("starting near real time refresh every " + nearRealTimeRefreshInterval + "ms");
+		nearRealTimeRefresh = nearRealTimeRefresher.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				refreshNearRealTime();
+			}
+		}, nearRealTimeRefreshInterval, nearRealTimeRefreshInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop refreshing the readers and searchers from the cached writer. This
+	 * method assumes it is invoked in a synchronized context.
+	 */
+	private void stopNearRealTimeRefresh() {
+		if (nearRealTimeRefresh != null) {
+			LOGGER.debug("stopping near real time refresh");
+			nearRealTimeRefresh.cancel(false);
+			nearRealTimeRefresh = null;
+		}
+	}
+
+	/**
+	 * Refresh the cached reader and searchers from the cached writer.
+	 */
+	private synchronized void refreshNearRealTime() {
+		if (closed || cachedWriter == null) {
+			return;
+		}
+		LOGGER.debug("refreshing cached reader and searchers from the writer");
+		try {
+			reopenReadingReader();
+			reopenCachedSearchers();
+		} catch (RuntimeException e) {
+			// do not cancel further refreshs
+			LOGGER.error("error refreshing cached reader and searchers from the writer", e);
+		}
 	}
 
 	/*
@@ -687,7 +887,7 @@ class DefaultIndexAccessor implements IndexAccessor {
 	 * @see com.mhs.indexaccessor.IndexAccessor#activeSearchers()
 	 */
 	public int searcherUseCount() {
-		return searcherUseCount;
+		return searcherUseCount.get();
 	}
 
 	protected void shutdownAndAwaitTermination(ExecutorService pool) {
@@ -715,14 +915,12 @@ class DefaultIndexAccessor implements IndexAccessor {
 		super.finalize();
 	}
 
-	/** This method assumes it is invoked in a synchronized context. */
-	private void waitForReadersAndReopenCached() {
-		while (readingReaderUseCount > 0 || searcherUseCount > 0) {
-			try {
-				wait();
-			} catch (InterruptedException e) {
-			}
-		}
+	/**
+	 * Readers and searchers in use keep their reference, so there is no need to
+	 * wait for them to be released. This method assumes it is invoked in a
+	 * synchronized context.
+	 */
+	private void reopenCached() {
 		if (numReopening > 1) {
 			// there are other calls to reopen pending, so we can bail
 			return;
@@ -770,11 +968,7 @@ class DefaultIndexAccessor implements IndexAccessor {
 	 */
 	private synchronized void releaseAllSearchers() {
 		LOGGER.debug("release all cached searchers");
-		if (searcherUseCount() == 0 && cachedSearchers.size() > 0) {
-			closeCachedSearchers();
-		} else {
-			closeAllReleasedSearchers = true;
-		}
+		closeCachedSearchers();
 	}
 	
 
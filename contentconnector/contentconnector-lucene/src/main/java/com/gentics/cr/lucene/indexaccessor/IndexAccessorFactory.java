@@ -138,14 +138,35 @@ public class IndexAccessorFactory {
 		createAccessor(dir, analyzer, query, null);
 	};
 
+	/**
+	 * Create an {@link IndexAccessor} with near real time search.
+	 * @param dir {@link Directory} of the index
+	 * @param analyzer analyzer used by the writer
+	 * @param nearRealTimeRefreshInterval interval in milliseconds in which
+	 * searchers are refreshed from the open writer, 0 disables near real time
+	 * search.
+	 * @throws IOException in case the index cannot be created
+	 */
+	public void createAccessor(final Directory dir, final Analyzer analyzer, final long nearRealTimeRefreshInterval) throws IOException {
+		createAccessor(dir, analyzer, null, null, nearRealTimeRefreshInterval);
+	}
+
 	private void createAccessor(final Directory dir, final Analyzer analyzer, final Query query, final Set<Sort> sortFields)
 			throws IOException {
-		IndexAccessor accessor = null;
+		createAccessor(dir, analyzer, query, sortFields, 0);
+	}
+
+	private void createAccessor(final Directory dir, final Analyzer analyzer, final Query query, final Set<Sort> sortFields,
+			final long nearRealTimeRefreshInterval) throws IOException {
+		DefaultIndexAccessor accessor = null;
 		if (query != null) {
 			accessor = new WarmingIndexAccessor(dir, analyzer, query);
 		} else {
 			accessor = new DefaultIndexAccessor(dir, analyzer);
 		}
+		if (nearRealTimeRefreshInterval > 0) {
+			accessor.setNearRealTimeRefreshInterval(nearRealTimeRefreshInterval);
+		}
 		accessor.open();
 
 		if (dir.listAll().length == 0) {
@@ -50,7 +50,7 @@ class WarmingIndexAccessor extends DefaultIndexAccessor {
 			return;
 		}
 		closed = true;
-		while (readingReaderUseCount > 0 || searcherUseCount > 0 || writingReaderUseCount > 0 || writerUseCount > 0 || numReopening > 0) {
+		while (readingReaderUseCount.get() > 0 || searcherUseCount.get() > 0 || writingReaderUseCount > 0 || writerUseCount > 0 || numReopening > 0) {
 			try {
 				wait();
 			} catch (InterruptedException e) {
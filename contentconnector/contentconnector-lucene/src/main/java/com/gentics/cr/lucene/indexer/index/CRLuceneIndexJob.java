@@ -10,7 +10,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.apache.lucene.document.Document;
@@ -180,6 +187,24 @@ public class CRLuceneIndexJob extends AbstractUpdateCheckerJob {
 	 */
 	private static final String BATCH_SIZE_KEY = "BATCHSIZE";
 
+	/**
+	 * Configuration key to enable the streaming mode. In streaming mode the
+	 * objects are fetched from the RequestProcessor, checked for updates and
+	 * indexed page by page ({@link #BATCH_SIZE_KEY} objects per page) instead
+	 * of loading all objects to index at once. This requires the
+	 * {@link #TIMESTAMP_ATTR_KEY} to be configured.
+	 */
+	private static final String STREAMING_KEY = "STREAMING";
+
+	/**
+	 * Configuration key to define the number of threads used to transform the
+	 * objects of a slice and add them to the index. Defaults to 1, which
+	 * indexes the objects on the thread of the index job. If one of the
+	 * configured transformers is not marked as thread safe (see
+	 * {@link ContentTransformer#THREAD_SAFE_KEY}) a single thread is used.
+	 */
+	private static final String THREADS_KEY = "THREADS";
+
 	/**
 	 * TODO javadoc.
 	 */
@@ -220,6 +245,14 @@ public class CRLuceneIndexJob extends AbstractUpdateCheckerJob {
 	 */
 	private HashMap<String, Float> boostvalue = new HashMap<String, Float>();
 
+	/**
+	 * Workers transforming and indexing the objects of a slice in parallel.
+	 * <code>null</code> if the objects are indexed on the thread of the index
+	 * job.
+	 * @see #THREADS_KEY
+	 */
+	private ExecutorService indexWorkers = null;
+
 	/**
 	 * Fills the boostvalue map with the according 
 	 * values from "boostedattributes".
@@ -260,6 +293,8 @@ public class CRLuceneIndexJob extends AbstractUpdateCheckerJob {
 		TaxonomyAccessor taxonomyAccessor = null;
 		TaxonomyWriter taxonomyWriter = null;
 		LuceneIndexUpdateChecker luceneIndexUpdateChecker = null;
+		ObjectsToUpdateIterator pagedObjectsToIndex = null;
+		boolean deleteStaleObjects = false;
 		boolean finishedIndexJobSuccessfull = false;
 		boolean finishedIndexJobWithError = false;
 
@@ -299,6 +334,23 @@ public class CRLuceneIndexJob extends AbstractUpdateCheckerJob {
 
 				List<ContentTransformer> transformerlist = ContentTransformer.getTransformerList(config);
 
+				int threads = config.getInteger(THREADS_KEY, 1);
+				if (threads > 1 && transformerlist != null) {
+					for (ContentTransformer transformer : transformerlist) {
+						if (!transformer.isThreadSafe()) {
+							log.warn("The transformer " + transformer.getTransformerKey() + " ("
+									+ transformer.getClass().getName() + ") is not marked as thread safe, indexing "
+									+ "the slices of " + crid + " on a single thread.");
+							threads = 1;
+							break;
+						}
+					}
+				}
+				if (threads > 1) {
+					log.debug("Using " + threads + " threads to index the slices.");
+					indexWorkers = Executors.newFixedThreadPool(threads, new IndexWorkerThreadFactory(crid));
+				}
+
 				boolean create = true;
 
 				if (indexLocation.isContainingIndex()) {
@@ -307,27 +359,39 @@ public class CRLuceneIndexJob extends AbstractUpdateCheckerJob {
 				}
 				if (indexLocation instanceof LuceneIndexLocation) {
 					luceneIndexUpdateChecker = new LuceneIndexUpdateChecker((LuceneIndexLocation) indexLocation, CR_FIELD_KEY, crid,
-							idAttribute);
+							idAttribute, timestampAttribute);
 				} else {
 					log.error("IndexLocation is not created for Lucene. " + "Using the " + CRLuceneIndexJob.class.getName()
 							+ " requires that you use the " + LuceneIndexLocation.class.getName()
 							+ ". You can configure another Job by setting the " + IndexLocation.UPDATEJOBCLASS_KEY + " key in your config.");
 					throw new CRException(new CRError("Error", "IndexLocation is not created for Lucene."));
 				}
+				boolean streaming = config.getBoolean(STREAMING_KEY, false);
+				if (streaming && "".equals(timestampAttribute)) {
+					log.warn("The " + STREAMING_KEY + " mode requires the " + TIMESTAMP_ATTR_KEY + " to be configured. "
+							+ "Falling back to loading all objects at once.");
+					streaming = false;
+				}
 				Collection<CRResolvableBean> objectsToIndex = null;
-				//Clear Index and remove stale Documents
-				//if (!create) {
-				log.debug("Will do differential index.");
-				try {
-					CRRequest req = new CRRequest();
-					req.setRequestFilter(rule);
-					req.set(CR_FIELD_KEY, crid);
-					status.setCurrentStatusString("Get objects to update " + "in the index ...");
-					objectsToIndex = getObjectsToUpdate(req, rp, false, luceneIndexUpdateChecker);
-				} catch (Exception e) {
-					log.error("ERROR while cleaning index", e);
+				CRRequest req = new CRRequest();
+				req.setRequestFilter(rule);
+				req.set(CR_FIELD_KEY, crid);
+				if (streaming) {
+					//Stale documents are removed after the writer has been released
+					log.debug("Will do differential index in streaming mode.");
+					pagedObjectsToIndex = getObjectsToUpdateIterator(req, rp, luceneIndexUpdateChecker, crBatchSize);
+				} else {
+					//Clear Index and remove stale Documents
+					//if (!create) {
+					log.debug("Will do differential index.");
+					try {
+						status.setCurrentStatusString("Get objects to update " + "in the index ...");
+						objectsToIndex = getObjectsToUpdate(req, rp, false, luceneIndexUpdateChecker);
+					} catch (Exception e) {
+						log.error("ERROR while cleaning index", e);
+					}
+					//}
 				}
-				//}
 				//Obtain accessor and writer after clean
 				if (indexLocation instanceof LuceneIndexLocation) {
 					indexAccessor = ((LuceneIndexLocation) indexLocation).getAccessor();
@@ -362,20 +426,50 @@ public class CRLuceneIndexJob extends AbstractUpdateCheckerJob {
 				// finally, put the "contentid" (always contained)
 				attributes.put(idAttribute, Boolean.TRUE);
 
-				if (objectsToIndex == null) {
+				if (objectsToIndex == null && pagedObjectsToIndex == null) {
 					log.debug("Rule returned no objects to index. Skipping...");
 					return;
 				}
 
-				status.setObjectCount(objectsToIndex.size());
-				log.debug(" index job with " + objectsToIndex.size() + " objects to index.");
-				// now get the first batch of objects from the collection
-				// (remove them from the original collection) and index them
 				slice = new Vector(crBatchSize);
 				int sliceCounter = 0;
-
-				status.setCurrentStatusString("Starting to index slices.");
 				boolean interrupted = Thread.currentThread().isInterrupted();
+
+				if (pagedObjectsToIndex != null) {
+					status.setObjectCount(0);
+					status.setCurrentStatusString("Starting to index pages.");
+					// every page contains at most crBatchSize objects, so it
+					// can be indexed as a single slice
+					while (!interrupted && pagedObjectsToIndex.hasNext()) {
+						Collection<CRResolvableBean> page = pagedObjectsToIndex.next();
+						status.setObjectCount(status.getObjectCount() + page.size());
+						log.debug("Indexing page with " + page.size() + " objects.");
+						slice.addAll(page);
+						indexSlice(
+							crid,
+							indexWriter,
+							indexReader,
+							slice,
+							attributes,
+							rp,
+							create,
+							config,
+							transformerlist,
+							reverseAttributes,
+							taxonomyWriter,
+							taxonomyAccessor);
+						slice.clear();
+						interrupted = Thread.currentThread().isInterrupted();
+					}
+					deleteStaleObjects = !interrupted && pagedObjectsToIndex.isComplete();
+					objectsToIndex = new Vector<CRResolvableBean>(0);
+				} else {
+					status.setObjectCount(objectsToIndex.size());
+					log.debug(" index job with " + objectsToIndex.size() + " objects to index.");
+					status.setCurrentStatusString("Starting to index slices.");
+				}
+				// now get the first batch of objects from the collection
+				// (remove them from the original collection) and index them
 				for (Iterator<CRResolvableBean> iterator = objectsToIndex.iterator(); iterator.hasNext();) {
 					CRResolvableBean obj = iterator.next();
 					slice.add(obj);
@@ -463,6 +557,11 @@ public class CRLuceneIndexJob extends AbstractUpdateCheckerJob {
 				int objectCount = status.getObjectsDone();
 				log.debug("Indexed " + objectCount + " objects...");
 
+				if (indexWorkers != null) {
+					indexWorkers.shutdownNow();
+					indexWorkers = null;
+				}
+
 				if (taxonomyAccessor != null && taxonomyWriter != null) {
 					taxonomyAccessor.release(taxonomyWriter);
 				}
@@ -473,6 +572,11 @@ public class CRLuceneIndexJob extends AbstractUpdateCheckerJob {
 				if (indexAccessor != null && indexReader != null) {
 					indexAccessor.release(indexReader, false);
 				}
+				if (deleteStaleObjects) {
+					// the writer has to be released before stale objects can be
+					// deleted
+					luceneIndexUpdateChecker.deleteStaleObjects();
+				}
 
 				if (objectCount > 0) {
 					indexLocation.createReopenFile();
@@ -521,73 +625,56 @@ public class CRLuceneIndexJob extends AbstractUpdateCheckerJob {
 		UseCase uc = MonitorFactory.startUseCase("indexSlice(" + crid + ")");
 		try {
 			CRRequest req = new CRRequest();
-			String[] prefillAttributes = attributes.keySet().toArray(new String[0]);
+			final String[] prefillAttributes = attributes.keySet().toArray(new String[0]);
 			req.setAttributeArray(prefillAttributes);
 			UseCase prefillCase = MonitorFactory.startUseCase("indexSlice(" + crid + ").prefillAttributes");
 			rp.fillAttributes(slice, req, idAttribute);
 			prefillCase.stop();
-			for (Resolvable objectToIndex : slice) {
-				CRResolvableBean bean = new CRResolvableBean(objectToIndex, prefillAttributes);
-				UseCase bcase = MonitorFactory.startUseCase("indexSlice(" + crid + ").indexBean");
-				try {
-					//CALL PRE INDEX PROCESSORS/TRANSFORMERS
-					//TODO This could be optimized for multicore servers with 
-					//a map/reduce algorithm
-					if (transformerlist != null) {
-						for (ContentTransformer transformer : transformerlist) {
-							try {
-
-								if (transformer.match(bean)) {
-									String msg = "TRANSFORMER: " + transformer.getTransformerKey() + "; BEAN: " + bean.get(idAttribute);
-									status.setCurrentStatusString(msg);
-									ContentTransformer.getLogger().debug(msg);
-									if (transformer instanceof AbstractLuceneMonitoringTransformer) {
-										((AbstractLuceneMonitoringTransformer) transformer).processBeanWithMonitoring(bean, indexWriter);
-									} else {
-										transformer.processBeanWithMonitoring(bean);
-									}
-								}
-							} catch (Exception e) {
-								//TODO Remember broken files
-								log.error("Error while Transforming Contentbean" + "with id: " + bean.get(idAttribute) + " Transformer: "
-										+ transformer.getTransformerKey() + " " + transformer.getClass().getName(), e);
-							}
-						}
+			if (indexWorkers == null) {
+				for (Resolvable objectToIndex : slice) {
+					indexBean(crid, indexWriter, indexReader, objectToIndex, prefillAttributes, attributes, create, config,
+						transformerlist, reverseattributes, taxonomyWriter, taxonomyAccessor);
+					//Stop Indexing when thread has been interrupted
+					if (Thread.currentThread().isInterrupted()) {
+						break;
 					}
-					Term idTerm = new Term(idAttribute, bean.getString(idAttribute));
-					Document docToUpdate = getUniqueDocument(indexReader, idTerm, crid);
-
-					// get the category paths for the facets
-					CategoryDocumentBuilder categoryDocBuilder = null;
-					if (useFacets && taxonomyAccessor != null && taxonomyWriter != null) {
-						List<CategoryPath> categories = getCategoryAttributeMapping(bean, taxonomyAccessor.getTaxonomyMappings());
-						if (categories.size() > 0) {
-							categoryDocBuilder = new CategoryDocumentBuilder(taxonomyWriter).setCategoryPaths(categories);
+					this.status.setObjectsDone(this.status.getObjectsDone() + 1);
+				}
+			} else {
+				status.setCurrentStatusString("Indexing a slice of " + slice.size() + " objects with the index workers.");
+				List<Future<Void>> indexedBeans = new ArrayList<Future<Void>>(slice.size());
+				for (final Resolvable objectToIndex : slice) {
+					indexedBeans.add(indexWorkers.submit(new Callable<Void>() {
+						public Void call() throws Exception {
+							indexBean(crid, indexWriter, indexReader, objectToIndex, prefillAttributes, attributes, create,
+								config, transformerlist, reverseattributes, taxonomyWriter, taxonomyAccessor);
+							return null;
 						}
+					}));
+				}
+				// wait for the beans in the order of the slice to keep the
+				// progress of the status correct
+				for (Future<Void> indexedBean : indexedBeans) {
+					//Stop Indexing when thread has been interrupted
+					if (Thread.currentThread().isInterrupted()) {
+						cancel(indexedBeans);
+						break;
 					}
-					if (!create && docToUpdate != null) {
-						Document doc = getDocument(docToUpdate, bean, attributes, config, reverseattributes);
-						// add facets to document
-						if (categoryDocBuilder != null) {
-							categoryDocBuilder.build(doc);
-						}
-						indexWriter.updateDocument(idTerm, doc);
-					} else {
-						Document doc = getDocument(null, bean, attributes, config, reverseattributes);
-						// add facets to document
-						if (categoryDocBuilder != null) {
-							categoryDocBuilder.build(doc);
+					try {
+						indexedBean.get();
+					} catch (InterruptedException e) {
+						cancel(indexedBeans);
+						Thread.currentThread().interrupt();
+						break;
+					} catch (ExecutionException e) {
+						cancel(indexedBeans);
+						if (e.getCause() instanceof Exception) {
+							throw (Exception) e.getCause();
 						}
-						indexWriter.addDocument(doc);
+						throw (Error) e.getCause();
 					}
-				} finally {
-					bcase.stop();
+					this.status.setObjectsDone(this.status.getObjectsDone() + 1);
 				}
-				//Stop Indexing when thread has been interrupted
-				if (Thread.currentThread().isInterrupted()) {
-					break;
-				}
-				this.status.setObjectsDone(this.status.getObjectsDone() + 1);
 			}
 		} catch (Exception e) {
 			throw new CRException(e);
@@ -596,6 +683,105 @@ public class CRLuceneIndexJob extends AbstractUpdateCheckerJob {
 		}
 	}
 
+	/**
+	 * Cancel all beans that are not indexed yet.
+	 * @param indexedBeans futures of the beans of a slice.
+	 */
+	private void cancel(final List<Future<Void>> indexedBeans) {
+		for (Future<Void> indexedBean : indexedBeans) {
+			indexedBean.cancel(true);
+		}
+	}
+
+	/**
+	 * Transform a single object and add it to the index. This method may be
+	 * called by multiple index workers at the same time.
+	 * @param crid identifyer of the content repository, stored in the
+	 * {@link #CR_FIELD_KEY} field of the document
+	 * @param indexWriter writer the document is added to
+	 * @param indexReader reader used to look up the document to update
+	 * @param objectToIndex object to index
+	 * @param prefillAttributes attributes prefilled for the slice
+	 * @param attributes attributes to index mapped to true if they should also
+	 * be stored
+	 * @param create true if the index is created, the document is then added
+	 * without looking up an existing one
+	 * @param config configuration of the index part
+	 * @param transformerlist transformers applied to the object before it is
+	 * indexed
+	 * @param reverseattributes attributes that are also indexed in reverse
+	 * order
+	 * @param taxonomyWriter
+	*            the {@link TaxonomyWriter} used to write into the taxonomy
+	 * @param taxonomyAccessor
+	*            the {@link DefaultTaxonomyAccessor} used to manage access to the
+	*            taxonomy
+	 * @throws IOException if the document cannot be added to the index
+	 */
+	private void indexBean(final String crid, final IndexWriter indexWriter, final IndexReader indexReader,
+			final Resolvable objectToIndex, final String[] prefillAttributes, final Map<String, Boolean> attributes,
+			final boolean create, final CRConfigUtil config, final List<ContentTransformer> transformerlist,
+			final List<String> reverseattributes, final TaxonomyWriter taxonomyWriter, final TaxonomyAccessor taxonomyAccessor)
+			throws IOException {
+		CRResolvableBean bean = new CRResolvableBean(objectToIndex, prefillAttributes);
+		UseCase bcase = MonitorFactory.startUseCase("indexSlice(" + crid + ").indexBean");
+		try {
+			//CALL PRE INDEX PROCESSORS/TRANSFORMERS
+			if (transformerlist != null) {
+				for (ContentTransformer transformer : transformerlist) {
+					try {
+
+						if (transformer.match(bean)) {
+							String msg = "TRANSFORMER: " + transformer.getTransformerKey() + "; BEAN: " + bean.get(idAttribute);
+							if (indexWorkers == null) {
+								// the status is only updated by the thread of the index job
+								status.setCurrentStatusString(msg);
+							}
+							ContentTransformer.getLogger().debug(msg);
+							if (transformer instanceof AbstractLuceneMonitoringTransformer) {
+								((AbstractLuceneMonitoringTransformer) transformer).processBeanWithMonitoring(bean, indexWriter);
+							} else {
+								transformer.processBeanWithMonitoring(bean);
+							}
+						}
+					} catch (Exception e) {
+						//TODO Remember broken files
+						log.error("Error while Transforming Contentbean" + "with id: " + bean.get(idAttribute) + " Transformer: "
+								+ transformer.getTransformerKey() + " " + transformer.getClass().getName(), e);
+					}
+				}
+			}
+			Term idTerm = new Term(idAttribute, bean.getString(idAttribute));
+			Document docToUpdate = getUniqueDocument(indexReader, idTerm, crid);
+
+			// get the category paths for the facets
+			CategoryDocumentBuilder categoryDocBuilder = null;
+			if (useFacets && taxonomyAccessor != null && taxonomyWriter != null) {
+				List<CategoryPath> categories = getCategoryAttributeMapping(bean, taxonomyAccessor.getTaxonomyMappings());
+				if (categories.size() > 0) {
+					categoryDocBuilder = new CategoryDocumentBuilder(taxonomyWriter).setCategoryPaths(categories);
+				}
+			}
+			if (!create && docToUpdate != null) {
+				Document doc = getDocument(docToUpdate, bean, attributes, config, reverseattributes);
+				// add facets to document
+				if (categoryDocBuilder != null) {
+					categoryDocBuilder.build(doc);
+				}
+				indexWriter.updateDocument(idTerm, doc);
+			} else {
+				Document doc = getDocument(null, bean, attributes, config, reverseattributes);
+				// add facets to document
+				if (categoryDocBuilder != null) {
+					categoryDocBuilder.build(doc);
+				}
+				indexWriter.addDocument(doc);
+			}
+		} finally {
+			bcase.stop();
+		}
+	}
+
 	/**
 	 * Fetch an unique document from the index.
 	 * @param indexReader reader.
@@ -783,4 +969,35 @@ public class CRLuceneIndexJob extends AbstractUpdateCheckerJob {
 		}
 		return categories;
 	}
+
+	/**
+	 * Creates the {@link #indexWorkers}, the threads are named after the
+	 * content repository of the index job.
+	 */
+	private static final class IndexWorkerThreadFactory implements ThreadFactory {
+
+		/**
+		 * Number of the next thread.
+		 */
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		/**
+		 * Prefix of the thread names.
+		 */
+		private final String prefix;
+
+		/**
+		 * Create a new thread factory.
+		 * @param crid identifyer of the content repository that is indexed
+		 */
+		private IndexWorkerThreadFactory(final String crid) {
+			prefix = "CRLuceneIndexJob(" + crid + ")-worker-";
+		}
+
+		public Thread newThread(final Runnable r) {
+			Thread thread = new Thread(r, prefix + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
 }
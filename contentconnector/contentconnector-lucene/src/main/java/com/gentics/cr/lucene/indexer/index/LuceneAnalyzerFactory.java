@@ -3,9 +3,11 @@ package com.gentics.cr.lucene.indexer.index;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.apache.log4j.Logger;
 import org.apache.lucene.analysis.Analyzer;
@@ -71,11 +73,11 @@ public final class LuceneAnalyzerFactory {
 	public static final String REVERSE_ATTRIBUTE_SUFFIX = "_REVERSE";
 
 	/**
-	 * This Map stores the same information as the PerFieldAnalyzerWrapper, 
-	 * makes the used Analyzer class names (canonical names) per field accessible.
-	 * filled in the createAnalyzer method
+	 * Analyzers created by {@link #getAnalyzer(GenericConfiguration)} per configuration. The configurations are
+	 * compared by identity and weakly referenced, a reloaded configuration gets a new analyzer.
 	 */
-	private static Map<String, String> configuredAnalyzerMap = new HashMap<String, String>();
+	private static final Map<GenericConfiguration, Analyzer> CACHED_ANALYZERS = Collections
+			.synchronizedMap(new WeakHashMap<GenericConfiguration, Analyzer>());
 
 	/**
 	 * TODO javadoc.
@@ -91,17 +93,52 @@ public final class LuceneAnalyzerFactory {
 		return null;
 	}
 
+	/**
+	 * Get the analyzer for the given config. The analyzer is created once per config and shared by all threads
+	 * using the config (lucene analyzers are thread safe). Use this method when analyzing queries instead of
+	 * {@link #createAnalyzer(GenericConfiguration)}, which reads the analyzer configuration and the stop word
+	 * file and instantiates all analyzers again.
+	 * @param config configuration holding the analyzer configuration
+	 * @return analyzer for the config
+	 */
+	public static Analyzer getAnalyzer(final GenericConfiguration config) {
+		Analyzer analyzer = CACHED_ANALYZERS.get(config);
+		if (analyzer == null) {
+			// created outside of the lock, if two threads create an analyzer at the same time one of them is used
+			analyzer = createAnalyzer(config);
+			synchronized (CACHED_ANALYZERS) {
+				Analyzer cached = CACHED_ANALYZERS.get(config);
+				if (cached != null) {
+					analyzer = cached;
+				} else {
+					CACHED_ANALYZERS.put(config, analyzer);
+				}
+			}
+		}
+		return analyzer;
+	}
+
 	/**
 	 * Creates an analyzer from the given config.
 	 * @param config TODO javadoc
 	 * @return TODO javadoc
 	 */
 	public static Analyzer createAnalyzer(final GenericConfiguration config) {
-		// Caching the analyzer instances is not possible as those do not implement Serializable
-		// TODO: cache the config (imho caching should be implemented in the config itself)
+		return createAnalyzer(config, new HashMap<String, String>());
+	}
+
+	/**
+	 * Creates an analyzer from the given config.
+	 * @param config configuration holding the analyzer configuration
+	 * @param configuredAnalyzerMap map the canonical class names of the analyzers are put in per field
+	 * @return analyzer for the config
+	 */
+	private static Analyzer createAnalyzer(final GenericConfiguration config,
+			final Map<String, String> configuredAnalyzerMap) {
+		// Caching the analyzer instances in the config is not possible as those do not implement Serializable,
+		// see getAnalyzer for a cache outside of the config
 
 		PerFieldAnalyzerWrapper analyzerWrapper = new PerFieldAnalyzerWrapper(createDefaultAnalyzer(config));
-		configuredAnalyzerMap.clear();
 
 		//Load analyzer config
 		GenericConfiguration analyzerConfig = loadAnalyzerConfig(config);
@@ -238,7 +275,8 @@ public final class LuceneAnalyzerFactory {
 	 * @return Map of analyzers per field.
 	 */
 	public static Map<String, String> getConfiguredAnalyzers(final GenericConfiguration config) {
-		createAnalyzer(config);
+		Map<String, String> configuredAnalyzerMap = new HashMap<String, String>();
+		createAnalyzer(config, configuredAnalyzerMap);
 		return configuredAnalyzerMap;
 	}
 }
@@ -2,12 +2,18 @@ package com.gentics.cr.lucene.indexer.index;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.FileSwitchDirectory;
 import org.apache.lucene.store.LockFactory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
 import org.apache.lucene.store.RAMDirectory;
 
 import com.gentics.cr.CRConfig;
@@ -31,6 +37,55 @@ public final class LuceneDirectoryFactory {
 	 * Key to fetch the configured lock factory class.
 	 */
 	protected static final String LOCK_FACTORY_CLASS_KEY = "lockFactoryClass";
+	/**
+	 * Key to fetch the directory implementation used for indexes in the file
+	 * system. Possible values are {@link #DIRECTORY_TYPE_DEFAULT},
+	 * {@link #DIRECTORY_TYPE_MMAP}, {@link #DIRECTORY_TYPE_NIOFS},
+	 * {@link #DIRECTORY_TYPE_HYBRID} and {@link #DIRECTORY_TYPE_RAMCACHED}.
+	 */
+	protected static final String DIRECTORY_TYPE_KEY = "directoryType";
+	/**
+	 * Let lucene choose the best directory implementation for the platform.
+	 */
+	protected static final String DIRECTORY_TYPE_DEFAULT = "default";
+	/**
+	 * Use a {@link MMapDirectory}.
+	 */
+	protected static final String DIRECTORY_TYPE_MMAP = "mmap";
+	/**
+	 * Use a {@link NIOFSDirectory}.
+	 */
+	protected static final String DIRECTORY_TYPE_NIOFS = "niofs";
+	/**
+	 * Use a {@link MMapDirectory} for the term dictionary and the postings and
+	 * a {@link NIOFSDirectory} for all other files (e.g. stored fields). As
+	 * the term dictionary and the postings of compound segments are stored in
+	 * the compound file, compound files are memory mapped as a whole.
+	 */
+	protected static final String DIRECTORY_TYPE_HYBRID = "hybrid";
+	/**
+	 * Load the index into memory and write changes through to the file system
+	 * (see {@link RAMCachedDirectory}).
+	 */
+	protected static final String DIRECTORY_TYPE_RAMCACHED = "ramcached";
+	/**
+	 * Key to configure if memory mapped files should be unmapped when they are
+	 * closed. Defaults to true if the JVM supports it.
+	 * @see MMapDirectory#setUseUnmap(boolean)
+	 */
+	protected static final String MMAP_UNMAP_KEY = "mmapUnmap";
+	/**
+	 * Key to configure the maximum size in bytes of the chunks a file is
+	 * mapped in.
+	 * @see MMapDirectory#setMaxChunkSize(int)
+	 */
+	protected static final String MMAP_CHUNK_SIZE_KEY = "mmapChunkSize";
+	/**
+	 * Extensions of the files read memory mapped by a
+	 * {@link #DIRECTORY_TYPE_HYBRID} directory.
+	 */
+	private static final Set<String> HYBRID_MMAP_EXTENSIONS = new HashSet<String>(Arrays.asList("tis", "tii", "frq", "prx",
+			"nrm", "cfs"));
 
 	/**
 	 * ConcurrentHashMap to cache directories.
@@ -113,7 +168,7 @@ public final class LuceneDirectoryFactory {
 		} else {
 			File indexLoc = new File(directoryLocation);
 			try {
-				dir = createFSDirectory(indexLoc, directoryLocation);
+				dir = createFSDirectory(indexLoc, directoryLocation, config);
 				if (dir == null) {
 					dir = createRAMDirectory(directoryLocation);
 				}
@@ -152,15 +207,77 @@ public final class LuceneDirectoryFactory {
 	 */
 	protected static Directory createFSDirectory(final File indexLoc,
 			final String name) throws IOException {
+		return createFSDirectory(indexLoc, name, null);
+	}
+
+	/**
+	 * Creates a directory on the given location using the directory
+	 * implementation configured with {@link #DIRECTORY_TYPE_KEY}.
+	 * @param indexLoc location.
+	 * @param name name for logging
+	 * @param config configuration that may contain the directory type, can be
+	 * <code>null</code>
+	 * @return directory
+	 * @throws IOException on error.
+	 */
+	protected static Directory createFSDirectory(final File indexLoc,
+			final String name, final CRConfig config) throws IOException {
 		if (!indexLoc.exists()) {
 			LOG.debug("Indexlocation did not exist. Creating directories...");
 			indexLoc.mkdirs();
 		}
-		Directory dir = FSDirectory.open(indexLoc);
-		LOG.debug("Creating FS Directory for Index [" + name + "]");
+		String type = DIRECTORY_TYPE_DEFAULT;
+		if (config != null) {
+			type = config.getString(DIRECTORY_TYPE_KEY, DIRECTORY_TYPE_DEFAULT);
+		}
+		Directory dir;
+		if (DIRECTORY_TYPE_MMAP.equalsIgnoreCase(type)) {
+			dir = createMMapDirectory(indexLoc, config);
+		} else if (DIRECTORY_TYPE_NIOFS.equalsIgnoreCase(type)) {
+			dir = new NIOFSDirectory(indexLoc);
+		} else if (DIRECTORY_TYPE_HYBRID.equalsIgnoreCase(type)) {
+			dir = new FileSwitchDirectory(HYBRID_MMAP_EXTENSIONS, createMMapDirectory(indexLoc, config), new NIOFSDirectory(
+					indexLoc), true);
+		} else if (DIRECTORY_TYPE_RAMCACHED.equalsIgnoreCase(type)) {
+			dir = new RAMCachedDirectory(FSDirectory.open(indexLoc));
+		} else {
+			if (!DIRECTORY_TYPE_DEFAULT.equalsIgnoreCase(type)) {
+				LOG.error("Unknown directory type " + type + " for Index [" + name + "], using the default.");
+			}
+			dir = FSDirectory.open(indexLoc);
+		}
+		LOG.debug("Creating FS Directory (" + type + ") for Index [" + name + "]");
 		return (dir);
 	}
 
+	/**
+	 * Creates a {@link MMapDirectory} on the given location.
+	 * @param indexLoc location.
+	 * @param config configuration that may contain the unmap and chunk size
+	 * settings, can be <code>null</code>
+	 * @return MMapDirectory
+	 * @throws IOException on error.
+	 */
+	private static MMapDirectory createMMapDirectory(final File indexLoc, final CRConfig config) throws IOException {
+		MMapDirectory dir = new MMapDirectory(indexLoc);
+		if (config != null) {
+			if (config.getBoolean(MMAP_UNMAP_KEY, MMapDirectory.UNMAP_SUPPORTED)) {
+				try {
+					dir.setUseUnmap(true);
+				} catch (IllegalArgumentException e) {
+					LOG.warn("Cannot unmap files in this JVM.", e);
+				}
+			} else {
+				dir.setUseUnmap(false);
+			}
+			int chunkSize = config.getInteger(MMAP_CHUNK_SIZE_KEY, 0);
+			if (chunkSize > 0) {
+				dir.setMaxChunkSize(chunkSize);
+			}
+		}
+		return dir;
+	}
+
 	/**
 	 * Creates a Directory in memory.
 	 * @param name name of the directory
@@ -33,6 +33,13 @@ public abstract class LuceneIndexLocation extends com.gentics.cr.util.indexing.I
 	// STATIC MEMBERS
 	protected static final Logger log = Logger.getLogger(LuceneIndexLocation.class);
 
+	/**
+	 * Configuration key for the interval in milliseconds in which searchers
+	 * are refreshed from the open index writer (near real time search). If not
+	 * set, changes become visible after the index job released the writer.
+	 */
+	public static final String NRT_REFRESH_INTERVAL_KEY = "nrtrefreshinterval";
+
 	protected String name = null;
 
 	private boolean registered = false;
@@ -119,6 +126,16 @@ public abstract class LuceneIndexLocation extends com.gentics.cr.util.indexing.I
 		name = config.getName();
 	}
 
+	/**
+	 * Get the interval in which searchers are refreshed from the open index
+	 * writer.
+	 * @return interval in milliseconds, 0 if near real time search is disabled
+	 * @see #NRT_REFRESH_INTERVAL_KEY
+	 */
+	protected long getNearRealTimeRefreshInterval() {
+		return config.getLong(NRT_REFRESH_INTERVAL_KEY, 0);
+	}
+
 	/**
 	 * Gets the name of the index location.
 	 * @return name as String
@@ -1,17 +1,19 @@
 package com.gentics.cr.lucene.indexer.index;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Vector;
+import java.util.HashMap;
+import java.util.HashSet;
 
 import org.apache.log4j.Logger;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.FieldSelector;
+import org.apache.lucene.document.MapFieldSelector;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.index.TermEnum;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.OpenBitSet;
 
 import com.gentics.api.lib.resolving.Resolvable;
 import com.gentics.cr.lucene.indexaccessor.IndexAccessor;
@@ -31,9 +33,36 @@ public class LuceneIndexUpdateChecker extends IndexUpdateChecker {
 
 	LuceneIndexLocation indexLocation;
 	IndexAccessor indexAccessor;
-	LinkedHashMap<String, Integer> docs;
-	Iterator<String> docIT;
-	Vector<String> checkedDocuments;
+	/**
+	 * Identifyers of the documents in the index mapped to their document
+	 * number.
+	 */
+	HashMap<String, Integer> docs;
+	/**
+	 * Identifyers of the documents that have been checked in this run.
+	 */
+	HashSet<String> checkedDocuments;
+	/**
+	 * Key under which the termValue is stored in the index.
+	 */
+	private String termKey;
+	/**
+	 * Value identifying the documents to check.
+	 */
+	private String termValue;
+	/**
+	 * Field containing the identifyer of the documents.
+	 */
+	private String idAttribute;
+	/**
+	 * Field containing the update timestamp of the documents, <code>null</code>
+	 * if the timestamps are not loaded at initialization.
+	 */
+	private String timestampAttribute;
+	/**
+	 * Update timestamps of the documents indexed by their document number.
+	 */
+	private String[] timestamps;
 	private static final Logger log = Logger.getLogger(LuceneIndexUpdateChecker.class);
 
 	/**
@@ -49,19 +78,44 @@ public class LuceneIndexUpdateChecker extends IndexUpdateChecker {
 	 */
 	public LuceneIndexUpdateChecker(final LuceneIndexLocation indexLocation, final String termKey, final String termValue,
 		final String idAttribute) {
+		this(indexLocation, termKey, termValue, idAttribute, null);
+	}
+
+	/**
+	 * Initializes the Lucene Implementation of {@link IndexUpdateChecker} and
+	 * loads the update timestamps of all documents at once. Checks using the
+	 * given timestampAttribute are then done in memory without reading the
+	 * documents from the index.
+	 * @param indexLocation
+	 * @param termKey - Key under wich the termValue is stored in the Index e.g. CRID
+	 * @param termValue - Value wich to use for iteration e.g. CRID_1
+	 * @param idAttribute - ID-Attribute key that will be used for Identifyer
+	 * comparison.
+	 * @param timestampAttribute - field containing the update timestamp of the
+	 * documents, if <code>null</code> or empty the timestamps are read from
+	 * the index for every check.
+	 */
+	public LuceneIndexUpdateChecker(final LuceneIndexLocation indexLocation, final String termKey, final String termValue,
+		final String idAttribute, final String timestampAttribute) {
 		this.indexLocation = indexLocation;
+		this.termKey = termKey;
+		this.termValue = termValue;
+		this.idAttribute = idAttribute;
 		indexAccessor = indexLocation.getAccessor();
 		IndexReader reader = null;
 		try {
 			reader = indexAccessor.getReader(true);
 
-			TermDocs termDocs = reader.termDocs(new Term(termKey, termValue));
-			log.debug("Fetching sorted documents from index...");
-			docs = fetchSortedDocs(termDocs, reader, idAttribute);
-			log.debug("Fetched sorted docs from index");
-			docIT = docs.keySet().iterator();
+			log.debug("Fetching documents from index...");
+			OpenBitSet termDocuments = fetchTermDocuments(reader, new Term(termKey, termValue));
+			docs = fetchDocs(reader, termDocuments, idAttribute);
+			log.debug("Fetched " + docs.size() + " docs from index");
+			if (timestampAttribute != null && !"".equals(timestampAttribute)) {
+				timestamps = uninvertField(reader, termDocuments, timestampAttribute);
+				this.timestampAttribute = timestampAttribute;
+			}
 
-			checkedDocuments = new Vector<String>(100);
+			checkedDocuments = new HashSet<String>(docs.size() * 4 / 3 + 1);
 
 			//TODO CONTINUE HERE PREPARE TO USE ITERATOR IN CHECK METHOD
 		} catch (Throwable e) {
@@ -91,6 +145,15 @@ public class LuceneIndexUpdateChecker extends IndexUpdateChecker {
 		if (docs.containsKey(identifyer)) {
 
 			Integer documentId = docs.get(identifyer);
+			if (timestamps != null && timestampAttribute.equals(timestampattribute)) {
+				checkedDocuments.add(identifyer);
+				if (!timestampString.equals(timestamps[documentId])) {
+					log.debug(identifyer + ": object is not up to date.");
+					return false;
+				}
+				log.debug(identifyer + ": object is up to date.");
+				return true;
+			}
 			IndexReader reader = null;
 			try {
 				reader = indexAccessor.getReader(readerWithWritePermissions);
@@ -102,7 +165,6 @@ public class LuceneIndexUpdateChecker extends IndexUpdateChecker {
 				} catch (NumberFormatException e) {
 					log.debug("Got an error getting the document for " + identifyer + " from index", e);
 				}
-				indexAccessor.release(reader, readerWithWritePermissions);
 				//Use strings to compare the attributes
 				if (documentUpdateTimestamp != null && !(documentUpdateTimestamp instanceof String)) {
 					documentUpdateTimestamp = documentUpdateTimestamp.toString();
@@ -123,7 +185,7 @@ public class LuceneIndexUpdateChecker extends IndexUpdateChecker {
 				log.error("Cannot open index for reading. (Directory: " + directories.toString() + ")", e);
 				return true;
 			} finally {
-				if (indexAccessor != null) {
+				if (indexAccessor != null && reader != null) {
 					indexAccessor.release(reader, readerWithWritePermissions);
 					log.debug("Released reader with write permission: " + readerWithWritePermissions + " at thread: "
 							+ Thread.currentThread().getName() + " - threadid: " + Thread.currentThread().getId());
@@ -149,8 +211,7 @@ public class LuceneIndexUpdateChecker extends IndexUpdateChecker {
 					if (writeReader == null) {
 						writeReader = indexAccessor.getReader(readerNeedsWrite);
 					}
-					writeReader.deleteDocument(docs.get(contentId));
-					objectsDeleted = true;
+					objectsDeleted |= deleteDocument(writeReader, contentId);
 				}
 			}
 			if (objectsDeleted) {
@@ -169,22 +230,159 @@ public class LuceneIndexUpdateChecker extends IndexUpdateChecker {
 		checkedDocuments.clear();
 	}
 
-	private LinkedHashMap<String, Integer> fetchSortedDocs(TermDocs termDocs, IndexReader reader, String idAttribute) throws IOException {
-		LinkedHashMap<String, Integer> tmp = new LinkedHashMap<String, Integer>();
+	/**
+	 * Delete the document with the given identifyer. The document is looked up
+	 * in the given reader as the document numbers fetched at initialization are
+	 * not valid anymore if the index has been written in the meantime (e.g. in
+	 * the streaming mode of the {@link CRLuceneIndexJob}). If the term lookup
+	 * finds nothing (e.g. because the id field is analyzed) the document number
+	 * fetched at initialization is used if the stored fields of the document
+	 * still match.
+	 * @param writeReader reader with write permissions.
+	 * @param contentId identifyer of the document to delete.
+	 * @return <code>true</code> if a document was deleted.
+	 * @throws IOException if the document cannot be deleted.
+	 */
+	private boolean deleteDocument(final IndexReader writeReader, final String contentId) throws IOException {
+		boolean deleted = false;
+		FieldSelector termKeySelector = new MapFieldSelector(termKey);
+		TermDocs termDocs = writeReader.termDocs(new Term(idAttribute, contentId));
+		try {
+			while (termDocs.next()) {
+				Document doc = writeReader.document(termDocs.doc(), termKeySelector);
+				if (termValue.equals(doc.get(termKey))) {
+					writeReader.deleteDocument(termDocs.doc());
+					deleted = true;
+				}
+			}
+		} finally {
+			termDocs.close();
+		}
+		if (!deleted) {
+			deleted = deleteFetchedDocument(writeReader, contentId);
+		}
+		if (!deleted) {
+			log.warn("Could not delete the stale object " + contentId + " from the index, no document with the identifyer "
+					+ "was found in the field " + idAttribute + ".");
+		}
+		return deleted;
+	}
+
+	/**
+	 * Delete the document with the given identifyer by the document number
+	 * fetched at initialization. The stored fields of the document are
+	 * compared to make sure the number still refers to the same document.
+	 * @param writeReader reader with write permissions.
+	 * @param contentId identifyer of the document to delete.
+	 * @return <code>true</code> if the document was deleted.
+	 * @throws IOException if the document cannot be deleted.
+	 */
+	private boolean deleteFetchedDocument(final IndexReader writeReader, final String contentId) throws IOException {
+		Integer documentId = docs.get(contentId);
+		if (documentId == null || documentId >= writeReader.maxDoc() || writeReader.isDeleted(documentId)) {
+			return false;
+		}
+		Document doc = writeReader.document(documentId, new MapFieldSelector(termKey, idAttribute));
+		if (termValue.equals(doc.get(termKey)) && contentId.equals(doc.get(idAttribute))) {
+			writeReader.deleteDocument(documentId);
+			return true;
+		}
+		return false;
+	}
 
-		while (termDocs.next()) {
-			Document doc = reader.document(termDocs.doc());
-			String docID = doc.get(idAttribute);
-			tmp.put(docID, termDocs.doc());
+	/**
+	 * Fetch the numbers of all documents containing the given term.
+	 * @param reader reader to fetch the documents from.
+	 * @param term term the documents have to contain, e.g. CRID:CRID_1
+	 * @return bit set containing the numbers of the documents.
+	 * @throws IOException if the index cannot be read.
+	 */
+	private OpenBitSet fetchTermDocuments(final IndexReader reader, final Term term) throws IOException {
+		OpenBitSet termDocuments = new OpenBitSet(reader.maxDoc());
+		TermDocs termDocs = reader.termDocs(term);
+		try {
+			while (termDocs.next()) {
+				termDocuments.fastSet(termDocs.doc());
+			}
+		} finally {
+			termDocs.close();
 		}
+		return termDocuments;
+	}
 
-		LinkedHashMap<String, Integer> ret = new LinkedHashMap<String, Integer>(tmp.size());
-		Vector<String> v = new Vector<String>(tmp.keySet());
-		Collections.sort(v);
-		for (String id : v) {
-			ret.put(id, tmp.get(id));
+	/**
+	 * Fetch the identifyers of the given documents.
+	 * @param reader reader to fetch the documents from.
+	 * @param termDocuments numbers of the documents to fetch.
+	 * @param idAttribute field containing the identifyer of the documents.
+	 * @return identifyers mapped to the document numbers.
+	 * @throws IOException if the index cannot be read.
+	 */
+	private HashMap<String, Integer> fetchDocs(final IndexReader reader, final OpenBitSet termDocuments,
+			final String idAttribute) throws IOException {
+		String[] identifyers = uninvertField(reader, termDocuments, idAttribute);
+		HashMap<String, Integer> result = new HashMap<String, Integer>((int) termDocuments.cardinality() * 4 / 3 + 1);
+		for (int doc = 0; doc < identifyers.length; doc++) {
+			if (identifyers[doc] != null) {
+				result.put(identifyers[doc], doc);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Read the values of a field for the given documents. The values are read
+	 * from the term dictionary of the field, stored fields are only loaded for
+	 * documents having none or more than one term in the field (e.g. if the
+	 * field has been analyzed).
+	 * @param reader reader to read the values from.
+	 * @param termDocuments numbers of the documents to read the values for.
+	 * @param field field to read.
+	 * @return values of the field indexed by the document number,
+	 * <code>null</code> for documents without a value.
+	 * @throws IOException if the index cannot be read.
+	 */
+	private String[] uninvertField(final IndexReader reader, final OpenBitSet termDocuments, final String field)
+			throws IOException {
+		int maxDoc = reader.maxDoc();
+		String[] values = new String[maxDoc];
+		OpenBitSet ambiguousDocuments = new OpenBitSet(maxDoc);
+		TermEnum fieldTerms = reader.terms(new Term(field, ""));
+		TermDocs termDocs = reader.termDocs();
+		try {
+			do {
+				Term fieldTerm = fieldTerms.term();
+				if (fieldTerm == null || !field.equals(fieldTerm.field())) {
+					break;
+				}
+				termDocs.seek(fieldTerms);
+				while (termDocs.next()) {
+					int doc = termDocs.doc();
+					if (termDocuments.fastGet(doc)) {
+						if (values[doc] == null) {
+							values[doc] = fieldTerm.text();
+						} else {
+							ambiguousDocuments.fastSet(doc);
+						}
+					}
+				}
+			} while (fieldTerms.next());
+		} finally {
+			fieldTerms.close();
+			termDocs.close();
+		}
+
+		FieldSelector fieldSelector = new MapFieldSelector(field);
+		for (int doc = 0; doc < maxDoc; doc++) {
+			if (termDocuments.fastGet(doc) && (values[doc] == null || ambiguousDocuments.fastGet(doc))) {
+				values[doc] = reader.document(doc, fieldSelector).get(field);
+			}
+		}
+		if (ambiguousDocuments.cardinality() > 0) {
+			log.warn(ambiguousDocuments.cardinality() + " documents have more than one term in the field " + field
+					+ ". The field should not be analyzed.");
 		}
-		return ret;
+		return values;
 	}
 
 }
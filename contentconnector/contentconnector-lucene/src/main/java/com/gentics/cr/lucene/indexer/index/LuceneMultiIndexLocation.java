@@ -63,7 +63,7 @@ public class LuceneMultiIndexLocation extends LuceneIndexLocation {
 		IndexAccessorFactory factory = IndexAccessorFactory.getInstance();
 		if (!factory.hasAccessor(dir)) {
 			try {
-				factory.createAccessor(dir, getConfiguredAnalyzer());
+				factory.createAccessor(dir, getConfiguredAnalyzer(), getNearRealTimeRefreshInterval());
 			} catch (IOException ex) {
 				log.fatal("COULD NOT CREATE INDEX ACCESSOR" + ex.getMessage());
 			}
@@ -52,7 +52,7 @@ public class LuceneSingleIndexLocation extends LuceneIndexLocation implements Ta
 		IndexAccessorFactory iAFactory = IndexAccessorFactory.getInstance();
 		if (!iAFactory.hasAccessor(dir)) {
 			try {
-				iAFactory.createAccessor(dir, getConfiguredAnalyzer());
+				iAFactory.createAccessor(dir, getConfiguredAnalyzer(), getNearRealTimeRefreshInterval());
 			} catch (IOException ex) {
 				log.fatal("COULD NOT CREATE INDEX ACCESSOR" + ex.getMessage());
 			}
@@ -0,0 +1,198 @@
+package com.gentics.cr.lucene.indexer.index;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.Lock;
+import org.apache.lucene.store.LockFactory;
+import org.apache.lucene.store.RAMDirectory;
+
+/**
+ * Directory holding a copy of a file system index in memory. All reads are
+ * served from memory, all writes are written to memory and to the wrapped
+ * directory so the index survives a restart. Locks are obtained from the
+ * wrapped directory.
+ * <p>
+ * Changes made to the wrapped directory by other processes are not seen, so
+ * this directory is only useful for small indexes that are written by the
+ * JVM that reads them (e.g. autocomplete and didyoumean).
+ * </p>
+ */
+public class RAMCachedDirectory extends RAMDirectory {
+
+	/**
+	 * Version ID for Serialization.
+	 */
+	private static final long serialVersionUID = 4326451768520938532L;
+
+	/**
+	 * Wrapped directory. <code>null</code> while the files are copied into
+	 * memory by the constructor of {@link RAMDirectory}.
+	 */
+	private final Directory delegate;
+
+	/**
+	 * Create a new directory and load all files of the given directory into
+	 * memory.
+	 * @param dir directory to wrap.
+	 * @throws IOException in case the files cannot be read.
+	 */
+	public RAMCachedDirectory(final Directory dir) throws IOException {
+		super(dir);
+		delegate = dir;
+	}
+
+	/**
+	 * @return the wrapped directory.
+	 */
+	public final Directory getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public IndexOutput createOutput(final String name) throws IOException {
+		if (delegate == null) {
+			return super.createOutput(name);
+		}
+		return new WriteThroughIndexOutput(super.createOutput(name), delegate.createOutput(name));
+	}
+
+	@Override
+	public void deleteFile(final String name) throws IOException {
+		super.deleteFile(name);
+		delegate.deleteFile(name);
+	}
+
+	@Override
+	public void sync(final Collection<String> names) throws IOException {
+		delegate.sync(names);
+	}
+
+	@Override
+	public Lock makeLock(final String name) {
+		return delegate.makeLock(name);
+	}
+
+	@Override
+	public void clearLock(final String name) throws IOException {
+		delegate.clearLock(name);
+	}
+
+	@Override
+	public void setLockFactory(final LockFactory lockFactory) throws IOException {
+		if (delegate == null) {
+			super.setLockFactory(lockFactory);
+		} else {
+			delegate.setLockFactory(lockFactory);
+		}
+	}
+
+	@Override
+	public LockFactory getLockFactory() {
+		if (delegate == null) {
+			return super.getLockFactory();
+		}
+		return delegate.getLockFactory();
+	}
+
+	@Override
+	public String getLockID() {
+		if (delegate == null) {
+			return super.getLockID();
+		}
+		return delegate.getLockID();
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		try {
+			delegate.close();
+		} catch (IOException e) {
+			LuceneDirectoryFactory.LOG.error("Error while closing wrapped directory.", e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "@" + delegate;
+	}
+
+	/**
+	 * Writes to the memory and to the wrapped directory.
+	 */
+	private static class WriteThroughIndexOutput extends IndexOutput {
+
+		/**
+		 * Output in memory.
+		 */
+		private final IndexOutput ramOutput;
+
+		/**
+		 * Output of the wrapped directory.
+		 */
+		private final IndexOutput delegateOutput;
+
+		/**
+		 * Create a new output.
+		 * @param ramOutput output in memory
+		 * @param delegateOutput output of the wrapped directory
+		 */
+		WriteThroughIndexOutput(final IndexOutput ramOutput, final IndexOutput delegateOutput) {
+			this.ramOutput = ramOutput;
+			this.delegateOutput = delegateOutput;
+		}
+
+		@Override
+		public void writeByte(final byte b) throws IOException {
+			ramOutput.writeByte(b);
+			delegateOutput.writeByte(b);
+		}
+
+		@Override
+		public void writeBytes(final byte[] b, final int offset, final int length) throws IOException {
+			ramOutput.writeBytes(b, offset, length);
+			delegateOutput.writeBytes(b, offset, length);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			ramOutput.flush();
+			delegateOutput.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				ramOutput.close();
+			} finally {
+				delegateOutput.close();
+			}
+		}
+
+		@Override
+		public long getFilePointer() {
+			return ramOutput.getFilePointer();
+		}
+
+		@Override
+		@SuppressWarnings("deprecation")
+		public void seek(final long pos) throws IOException {
+			ramOutput.seek(pos);
+			delegateOutput.seek(pos);
+		}
+
+		@Override
+		public long length() throws IOException {
+			return ramOutput.length();
+		}
+
+		@Override
+		public void setLength(final long length) throws IOException {
+			ramOutput.setLength(length);
+			delegateOutput.setLength(length);
+		}
+	}
+}
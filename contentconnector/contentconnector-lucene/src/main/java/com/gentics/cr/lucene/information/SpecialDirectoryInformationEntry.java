@@ -9,6 +9,7 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.FileSwitchDirectory;
 import org.apache.lucene.store.RAMDirectory;
 
 import com.gentics.cr.util.Constants;
@@ -49,8 +50,8 @@ public class SpecialDirectoryInformationEntry {
 	 */
 	public static String createDirectoryIdentifyer(final Directory dir) {
 		String id = "";
-		if (dir instanceof FSDirectory) {
-			id = ((FSDirectory) dir).getDirectory().getPath();
+		if (unwrap(dir) instanceof FSDirectory) {
+			id = ((FSDirectory) unwrap(dir)).getDirectory().getPath();
 		} else if (dir instanceof RAMDirectory) {
 			id = "RAM_" + dir.toString();
 		} else {
@@ -59,6 +60,21 @@ public class SpecialDirectoryInformationEntry {
 		return id;
 	}
 
+	/**
+	 * Get the directory reading the files of a {@link FileSwitchDirectory}.
+	 * Both directories of a {@link FileSwitchDirectory} created by the
+	 * LuceneDirectoryFactory point to the same location.
+	 * @param dir directory
+	 * @return primary directory of a {@link FileSwitchDirectory}, otherwise
+	 * the given directory
+	 */
+	private static Directory unwrap(final Directory dir) {
+		if (dir instanceof FileSwitchDirectory) {
+			return ((FileSwitchDirectory) dir).getPrimaryDir();
+		}
+		return dir;
+	}
+
 	/**
 	 * Get Identifyer.
 	 * @return identifyer.
@@ -73,8 +89,8 @@ public class SpecialDirectoryInformationEntry {
 	 */
 	public final long indexSize() {
 		long size = 0;
-		if (directory instanceof FSDirectory) {
-			size = FileUtils.sizeOfDirectory(((FSDirectory) directory).getDirectory());
+		if (unwrap(directory) instanceof FSDirectory) {
+			size = FileUtils.sizeOfDirectory(((FSDirectory) unwrap(directory)).getDirectory());
 		} else if (directory instanceof RAMDirectory) {
 			size = ((RAMDirectory) directory).sizeInBytes();
 		}
@@ -96,8 +112,8 @@ public class SpecialDirectoryInformationEntry {
 	 */
 	public final Date lastModified() {
 		long date = 0;
-		if (directory instanceof FSDirectory) {
-			date = ((FSDirectory) directory).getDirectory().lastModified();
+		if (unwrap(directory) instanceof FSDirectory) {
+			date = ((FSDirectory) unwrap(directory)).getDirectory().lastModified();
 		} else if (directory instanceof RAMDirectory) {
 			date = System.currentTimeMillis();
 		}
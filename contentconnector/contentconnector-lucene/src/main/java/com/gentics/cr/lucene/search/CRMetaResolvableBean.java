@@ -53,6 +53,14 @@ public class CRMetaResolvableBean extends CRResolvableBean {
 		set(CRSearcher.RESULT_BESTQUERY_KEY, searchResult.get(CRSearcher.RESULT_BESTQUERY_KEY));
 		set(CRSearcher.RESULT_BESTQUERYHITS_KEY, searchResult.get(CRSearcher.RESULT_BESTQUERYHITS_KEY));
 		set(CRSearcher.RESULT_COLLECTOR_KEY, searchResult.get(CRSearcher.RESULT_COLLECTOR_KEY));
+		set(CRSearcher.RESULT_AFTER_KEY, searchResult.get(CRSearcher.RESULT_AFTER_KEY));
+
+		if (searchResult.containsKey(CRSearcher.RESULT_UNIQUE_MIMETYPES_KEY)) {
+			set(CRSearcher.RESULT_UNIQUE_MIMETYPES_KEY, searchResult.get(CRSearcher.RESULT_UNIQUE_MIMETYPES_KEY));
+		}
+		if (searchResult.containsKey(CRSearcher.RESULT_MIMETYPE_COUNTS_KEY)) {
+			set(CRSearcher.RESULT_MIMETYPE_COUNTS_KEY, searchResult.get(CRSearcher.RESULT_MIMETYPE_COUNTS_KEY));
+		}
 
 		if (searchResult.containsKey(FacetsSearchConfigKeys.RESULT_FACETS_LIST_KEY)) {
 			set(FacetsSearchConfigKeys.RESULT_FACETS_LIST_KEY, searchResult.get(FacetsSearchConfigKeys.RESULT_FACETS_LIST_KEY));
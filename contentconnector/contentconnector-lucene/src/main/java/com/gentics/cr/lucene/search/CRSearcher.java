@@ -18,10 +18,11 @@ import org.apache.log4j.Logger;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
-import org.apache.lucene.facet.search.FacetsCollector;
+import org.apache.lucene.document.FieldSelector;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
 import org.apache.lucene.index.TermEnum;
 import org.apache.lucene.queryParser.ParseException;
 import org.apache.lucene.queryParser.QueryParser;
@@ -31,18 +32,21 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.util.OpenBitSet;
 
 import com.gentics.cr.CRConfig;
 import com.gentics.cr.CRRequest;
 import com.gentics.cr.configuration.GenericConfiguration;
 import com.gentics.cr.exceptions.CRException;
 import com.gentics.cr.lucene.didyoumean.DidyoumeanIndexExtension;
+import com.gentics.cr.lucene.facets.search.FacetCountsCollector;
 import com.gentics.cr.lucene.facets.search.FacetsSearch;
 import com.gentics.cr.lucene.facets.search.FacetsSearchConfigKeys;
 import com.gentics.cr.lucene.facets.taxonomy.taxonomyaccessor.TaxonomyAccessor;
@@ -51,6 +55,7 @@ import com.gentics.cr.lucene.indexer.index.LuceneAnalyzerFactory;
 import com.gentics.cr.lucene.indexer.index.LuceneIndexLocation;
 import com.gentics.cr.lucene.search.query.BooleanQueryRewriter;
 import com.gentics.cr.lucene.search.query.CRQueryParserFactory;
+import com.gentics.cr.monitoring.MonitorFactory;
 import com.gentics.cr.util.StringUtils;
 import com.gentics.cr.util.generics.Instanciator;
 
@@ -77,6 +82,16 @@ public class CRSearcher {
 	
 	public static final String RETRIEVE_UNIQUE_MIMETYPES_KEY = "retrieveUniqueMimetypes";
 	public static final String RESULT_UNIQUE_MIMETYPES_KEY = "unique_mimetypes";
+
+	/**
+	 * Configuration key to count the hits per mimetype term.
+	 */
+	public static final String RETRIEVE_MIMETYPE_COUNTS_KEY = "retrieveMimetypeCounts";
+
+	/**
+	 * Key to store the number of hits per mimetype term in the result.
+	 */
+	public static final String RESULT_MIMETYPE_COUNTS_KEY = "mimetype_counts";
 	
 	private static final String LUCENE_INDEX_MIMETYPE = "mimetype";
 
@@ -84,6 +99,18 @@ public class CRSearcher {
 	 * Key to store the searchquery in the result.
 	 */
 	public static final String RESULT_QUERY_KEY = "query";
+	/**
+	 * Key to store the cursor for the next page in the result. Pass it as {@link CRRequest#SEARCH_AFTER_KEY} to
+	 * get the next page.
+	 */
+	public static final String RESULT_AFTER_KEY = "after";
+
+	/**
+	 * Key to store the version of the index reader the search was executed with in the result, see
+	 * {@link SearchResultCache#getVersion(IndexReader)}.
+	 */
+	public static final String RESULT_INDEX_VERSION_KEY = "indexversion";
+
 	/**
 	 * Key to store the hitcount in the result.
 	 */
@@ -153,6 +180,16 @@ public class CRSearcher {
 	 * retrieve unique mimetypes and put it in result.
 	 */
 	private boolean retrieveUniqueMimeTypes = false;
+
+	/**
+	 * count the hits per mimetype and put the counts in the result.
+	 */
+	private boolean retrieveMimeTypeCounts = false;
+
+	/**
+	 * Unique mimetypes of the last index reader they were retrieved from.
+	 */
+	private volatile UniqueMimeTypes cachedUniqueMimeTypes = null;
 	
 	/**
 	 * put used collector in metadata.
@@ -187,6 +224,7 @@ public class CRSearcher {
 		facetsSearch = new FacetsSearch(config);
 		
 		retrieveUniqueMimeTypes = config.getBoolean(RETRIEVE_UNIQUE_MIMETYPES_KEY);
+		retrieveMimeTypeCounts = config.getBoolean(RETRIEVE_MIMETYPE_COUNTS_KEY);
 		retrieveCollector = config.getBoolean(RETRIEVE_COLLECTOR_KEY);
 
 	}
@@ -269,6 +307,45 @@ public class CRSearcher {
 		return ret;
 	}
 
+	/**
+	 * Count the hits per mimetype term. The mimetype field is analyzed and can hold several terms per document, so
+	 * the hits are counted from the postings of each term. The postings and the hits are intersected by skipping
+	 * ahead in both of them, so a term is not read beyond the last hit.
+	 * @param reader reader of the searcher
+	 * @param hits documents matching the query
+	 * @param mimeTypes unique mimetypes of the reader
+	 * @return number of hits per mimetype
+	 * @throws IOException in case the postings cannot be read
+	 */
+	private Map<String, Integer> countMimeTypes(final IndexReader reader, final OpenBitSet hits,
+			final List<String> mimeTypes) throws IOException {
+		Map<String, Integer> counts = new LinkedHashMap<String, Integer>(mimeTypes.size());
+		TermDocs termDocs = reader.termDocs();
+		try {
+			for (String mimeType : mimeTypes) {
+				termDocs.seek(new Term(LUCENE_INDEX_MIMETYPE, mimeType));
+				int mimeTypeCount = 0;
+				int hit = hits.nextSetBit(0);
+				while (hit != -1 && termDocs.skipTo(hit)) {
+					int doc = termDocs.doc();
+					if (doc != hit) {
+						// skipTo always moves forward, so a hit on the current posting is counted here
+						hit = hits.nextSetBit(doc);
+						if (hit != doc) {
+							continue;
+						}
+					}
+					mimeTypeCount++;
+					hit = hits.nextSetBit(hit + 1);
+				}
+				counts.put(mimeType, mimeTypeCount);
+			}
+		} finally {
+			termDocs.close();
+		}
+		return counts;
+	}
+
 	/**
 	 * Run a Search against the lucene index.
 	 * 
@@ -282,7 +359,80 @@ public class CRSearcher {
 	 */
 	private HashMap<String, Object> executeSearcher(final TopDocsCollector<?> collector, final IndexSearcher searcher, final Query parsedQuery,
 			final boolean explain, final int count, final int start) {
-		return executeSearcher(collector, searcher, parsedQuery, explain, count, start, null);
+		return executeSearcher(collector, searcher, parsedQuery, explain, count, start, null, null);
+	}
+
+	/**
+	 * Create the cursor pointing to the given hit.
+	 * @param scoreDoc last hit of a page
+	 * @param version version of the index reader the hit was found with, see
+	 * {@link SearchResultCache#getVersion(IndexReader)}
+	 * @return opaque cursor containing the score and the document id of the hit and the version of the index
+	 */
+	static String createAfterToken(final ScoreDoc scoreDoc, final long version) {
+		return Integer.toHexString(Float.floatToIntBits(scoreDoc.score)) + "_" + scoreDoc.doc + "_"
+				+ Long.toHexString(version);
+	}
+
+	/**
+	 * Parse a cursor created by {@link #createAfterToken(ScoreDoc, long)}. The document ids of a cursor are only
+	 * valid for the version of the index it was created with, a cursor of another version is ignored and the
+	 * paging restarts at the start position of the request.
+	 * @param token cursor
+	 * @param version version of the index reader the search is executed with
+	 * @return hit the cursor points to, null if the token is not a valid cursor for this version of the index
+	 */
+	static ScoreDoc parseAfterToken(final Object token, final long version) {
+		if (token instanceof String) {
+			String[] parts = ((String) token).split("_");
+			if (parts.length == 3) {
+				try {
+					if (!parts[2].equals(Long.toHexString(version))) {
+						MonitorFactory.count("CRSearcher.searchAfter#staleCursor");
+						log.debug("Ignoring cursor " + token + " of another version of the index.");
+						return null;
+					}
+					float score = Float.intBitsToFloat((int) Long.parseLong(parts[0], 16));
+					return new ScoreDoc(Integer.parseInt(parts[1]), score);
+				} catch (NumberFormatException e) {
+					log.debug("Ignoring invalid cursor " + token, e);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the unique terms of the mimetype field. The terms are retrieved once per version of the index and shared
+	 * by all searches.
+	 * @param reader reader of the searcher
+	 * @return unique mimetypes
+	 * @throws IOException in case the terms cannot be read
+	 */
+	private List<String> getUniqueMimeTypes(final IndexReader reader) throws IOException {
+		long version = SearchResultCache.getVersion(reader);
+		UniqueMimeTypes cached = cachedUniqueMimeTypes;
+		if (cached != null && version != -1 && cached.version == version) {
+			return cached.mimeTypes;
+		}
+		List<String> uniqueMimeTypes = new ArrayList<String>();
+		final TermEnum termEnum = reader.terms(new Term(LUCENE_INDEX_MIMETYPE, ""));
+		try {
+			do {
+				Term term = termEnum.term();
+				if (term == null || !term.field().equals(LUCENE_INDEX_MIMETYPE)) {
+					break;
+				}
+				uniqueMimeTypes.add(term.text());
+			} while (termEnum.next());
+		} finally {
+			termEnum.close();
+		}
+		uniqueMimeTypes = Collections.unmodifiableList(uniqueMimeTypes);
+		if (version != -1) {
+			cachedUniqueMimeTypes = new UniqueMimeTypes(version, uniqueMimeTypes);
+		}
+		return uniqueMimeTypes;
 	}
 
 	/**
@@ -294,18 +444,22 @@ public class CRSearcher {
 	 * @param ttcollector
 	 * @param explain
 	 * @param start
-	 * @param facetsCollector a {@link FacetsCollector} 
+	 * @param additionalCollector collector (e.g. a {@link FacetCountsCollector}) that collects the hits in addition to
+	 * the TopDocsCollector, may be null
+	 * @param fieldSelector selects the stored fields that are loaded for the result documents, null loads all
+	 * stored fields
 	 * @return ArrayList of results
 	 */
 	private HashMap<String, Object> executeSearcher(final TopDocsCollector<?> ttcollector, final IndexSearcher searcher, final Query parsedQuery,
-			final boolean explain, final int count, final int start, final FacetsCollector facetsCollector) {
+			final boolean explain, final int count, final int start, final Collector additionalCollector,
+			final FieldSelector fieldSelector) {
 		try {
 			
 			Collector collector = null;
-			if (facetsCollector != null) {
-				// wrap the TopDocsCollector and the FacetsCollector to one
+			if (additionalCollector != null) {
+				// wrap the TopDocsCollector and the additional collector to one
 				// MultiCollector and perform the search
-				collector = MultiCollector.wrap(ttcollector, facetsCollector);
+				collector = MultiCollector.wrap(ttcollector, additionalCollector);
 			} else {
 				collector = ttcollector;
 			}
@@ -328,7 +482,7 @@ public class CRSearcher {
 				ScoreDoc currentDoc = hits[i];
 				if (currentDoc.doc != Integer.MAX_VALUE) {
 					log.debug("currentDoc id: " + currentDoc.doc + " ; score: " + currentDoc.score);
-					Document doc = searcher.doc(currentDoc.doc);
+					Document doc = searcher.doc(currentDoc.doc, fieldSelector);
 					// add id field for AdvancedContentHighlighter
 					doc.add(new Field("id", hits[i].doc + "", Field.Store.YES, Field.Index.NO));
 					log.debug("adding contentid: " + doc.getFieldable("contentid"));
@@ -351,6 +505,11 @@ public class CRSearcher {
 			}
 			ret.put(RESULT_RESULT_KEY, result);
 			ret.put(RESULT_MAXSCORE_KEY, maxScoreReturn);
+			// a cursor can only be created for results sorted by relevance
+			if (num > 0 && ttcollector instanceof TopScoreDocCollector) {
+				ret.put(RESULT_AFTER_KEY, createAfterToken(hits[num - 1],
+					SearchResultCache.getVersion(searcher.getIndexReader())));
+			}
 			return ret;
 
 		} catch (Exception e) {
@@ -385,9 +544,32 @@ public class CRSearcher {
 	 * @throws IOException TODO javadoc
 	 * @throws CRException in case maxclausecount is reached and failOnMaxClauses is enabled in the config object
 	 */
-	@SuppressWarnings("unchecked")
 	public final HashMap<String, Object> search(final String query, final String[] searchedAttributes, final int count, final int start,
 			final boolean explain, final String[] sorting, final CRRequest request) throws IOException, CRException {
+		return search(query, searchedAttributes, count, start, explain, sorting, request, null);
+	}
+
+	/**
+	 * Search in lucene index (executes executeSearcher).
+	 * 
+	 * @param query query string
+	 * @param searchedAttributes default search attributes
+	 * @param count - max number of results that are to be returned
+	 * @param start - the start number of the page e.g. if start = 50 and count = 10 you will get the elements 50 - 60
+	 * @param explain - if set to true the searcher will add extra explain output to the logger
+	 * @param sorting - this argument takes the sorting array that can look like this: ["contentid:asc","name:desc"]
+	 * @param request request
+	 * @param fieldSelector selects the stored fields that are loaded for the result documents, null loads all
+	 *			stored fields
+	 * @return HashMap&lt;String,Object&gt; with two entries. Entry "query" contains the parsed query and entry "result"
+	 *			contains a Collection of result documents.
+	 * @throws IOException in case the index cannot be read
+	 * @throws CRException in case maxclausecount is reached and failOnMaxClauses is enabled in the config object
+	 */
+	@SuppressWarnings("unchecked")
+	public final HashMap<String, Object> search(final String query, final String[] searchedAttributes, final int count, final int start,
+			final boolean explain, final String[] sorting, final CRRequest request, final FieldSelector fieldSelector)
+			throws IOException, CRException {
 
 		IndexSearcher searcher;
 		Analyzer analyzer;
@@ -407,23 +589,9 @@ public class CRSearcher {
 		// Resources needed for faceted search
 		TaxonomyAccessor taAccessor = null;
 		TaxonomyReader taReader = null;
-		IndexReader facetsIndexReader = null;
-		IndexReader uniqueMimeTypesIndexReader = null;
-		
-		List<String> uniqueMimeTypes = null;
-		if (retrieveUniqueMimeTypes) {
-			// retrieve all possible file types
-			uniqueMimeTypesIndexReader = indexAccessor.getReader(false);
-			final TermEnum termEnum = uniqueMimeTypesIndexReader.terms(new Term(LUCENE_INDEX_MIMETYPE, ""));
-			uniqueMimeTypes = new ArrayList<String>();
-			while (termEnum.next() && termEnum.term().field().equals(LUCENE_INDEX_MIMETYPE)) {
-				uniqueMimeTypes.add(termEnum.term().text());
-			}
-		}
 
 		// get accessors and reader only if facets are activated 
 		if (facetsSearch.useFacets()) {
-			facetsIndexReader = indexAccessor.getReader(false);
 			taAccessor = idsLocation.getTaxonomyAccessor();
 			taReader = taAccessor.getTaxonomyReader();
 		}
@@ -434,10 +602,23 @@ public class CRSearcher {
 		if (userPermissionsObject instanceof String[]) {
 			userPermissions = (String[]) userPermissionsObject;
 		}
-		TopDocsCollector<?> collector = createCollector(searcher, hits, sorting, computescores, userPermissions);
+		// search after the last hit of the previous page, only the hits of this page are collected
+		ScoreDoc after = null;
+		int pageStart = start;
+		if (sorting == null && config.get(COLLECTOR_CLASS_KEY) == null) {
+			after = parseAfterToken(request.get(CRRequest.SEARCH_AFTER_KEY),
+				SearchResultCache.getVersion(searcher.getIndexReader()));
+		}
+		TopDocsCollector<?> collector;
+		if (after != null) {
+			collector = TopScoreDocCollector.create(count, after, true);
+			pageStart = 0;
+		} else {
+			collector = createCollector(searcher, hits, sorting, computescores, userPermissions);
+		}
 		HashMap<String, Object> result = null;
 		try {
-			analyzer = LuceneAnalyzerFactory.createAnalyzer(config);
+			analyzer = LuceneAnalyzerFactory.getAnalyzer(config);
 
 			if (searchedAttributes != null && searchedAttributes.length > 0 && query != null && !query.equals("")) {
 				QueryParser parser = CRQueryParserFactory.getConfiguredParser(searchedAttributes, analyzer, request, config);
@@ -449,14 +630,25 @@ public class CRSearcher {
 
 				result = new HashMap<String, Object>(3);
 				result.put(RESULT_QUERY_KEY, parsedQuery);
+				result.put(RESULT_INDEX_VERSION_KEY, SearchResultCache.getVersion(searcher.getIndexReader()));
 
-				// when facets are active create a FacetsCollector
-				FacetsCollector facetsCollector = null;
+				// when facets are active create a collector that counts the categories of the hits of the searcher
+				FacetCountsCollector facetsCollector = null;
 				if (facetsSearch.useFacets()) {
-					facetsCollector = facetsSearch.createFacetsCollector(facetsIndexReader, taAccessor, taReader);
+					facetsCollector = facetsSearch.createFacetsCollector(searcher.getIndexReader(), taAccessor,
+						taReader);
+				}
+
+				// collect the ids of all hits to count the mimetypes
+				Collector additionalCollector = facetsCollector;
+				HitSetCollector hitSetCollector = null;
+				if (retrieveMimeTypeCounts) {
+					hitSetCollector = new HitSetCollector(searcher.maxDoc());
+					additionalCollector = MultiCollector.wrap(facetsCollector, hitSetCollector);
 				}
 
-				Map<String, Object> ret = executeSearcher(collector, searcher, parsedQuery, explain, count, start, facetsCollector);
+				Map<String, Object> ret = executeSearcher(collector, searcher, parsedQuery, explain, count, pageStart,
+					additionalCollector, fieldSelector);
 				if (log.isDebugEnabled()) {
 					for (Object res : ret.values()) {
 						if (res instanceof LinkedHashMap) {
@@ -481,17 +673,27 @@ public class CRSearcher {
 					result.put(RESULT_HITS_KEY, totalhits);
 					result.put(RESULT_MAXSCORE_KEY, maxScore);
 
-					if (retrieveUniqueMimeTypes) {
+					if (retrieveUniqueMimeTypes || hitSetCollector != null) {
 						// add unique extensions
-						result.put(RESULT_UNIQUE_MIMETYPES_KEY, uniqueMimeTypes);
+						List<String> uniqueMimeTypes = getUniqueMimeTypes(searcher.getIndexReader());
+						if (retrieveUniqueMimeTypes) {
+							result.put(RESULT_UNIQUE_MIMETYPES_KEY, uniqueMimeTypes);
+						}
+						if (hitSetCollector != null) {
+							result.put(RESULT_MIMETYPE_COUNTS_KEY, countMimeTypes(searcher.getIndexReader(),
+								hitSetCollector.getHits(), uniqueMimeTypes));
+						}
 					}
 					if (retrieveCollector) {
 						result.put(RESULT_COLLECTOR_KEY, ret.get(RESULT_COLLECTOR_KEY));
 					}
+					if (ret.containsKey(RESULT_AFTER_KEY)) {
+						result.put(RESULT_AFTER_KEY, ret.get(RESULT_AFTER_KEY));
+					}
 
 					// PLUG IN DIDYOUMEAN
 					boolean didyoumeanEnabledForRequest = StringUtils.getBoolean(request.get(DIDYOUMEAN_ENABLED_KEY), true);
-					if (start == 0 && didyoumeanenabled && didyoumeanEnabledForRequest
+					if (start == 0 && after == null && didyoumeanenabled && didyoumeanEnabledForRequest
 							&& (totalhits <= didyoumeanactivatelimit || didyoumeanactivatelimit == -1 || maxScore < didyoumeanminscore)) {
 
 						HashMap<String, Object> didyoumeanResult = didyoumean(
@@ -541,12 +743,6 @@ public class CRSearcher {
 			if (taAccessor != null && taReader != null) {
 				taAccessor.release(taReader);
 			}
-			if (facetsIndexReader != null) {
-				indexAccessor.release(facetsIndexReader, false);
-			}
-			if (uniqueMimeTypesIndexReader != null) {
-				indexAccessor.release(uniqueMimeTypesIndexReader, false);
-			}
 			indexAccessor.release(searcher);
 		}
 		return result;
@@ -675,4 +871,80 @@ public class CRSearcher {
 			LuceneIndexLocation.stopIndexLocation(config);
 		}
 	}
+
+	/**
+	 * Unique mimetypes of an index reader.
+	 */
+	private static final class UniqueMimeTypes {
+
+		/**
+		 * Version of the index reader.
+		 */
+		private final long version;
+
+		/**
+		 * Unique mimetypes.
+		 */
+		private final List<String> mimeTypes;
+
+		/**
+		 * Create a new instance.
+		 * @param version version of the index reader
+		 * @param mimeTypes unique mimetypes
+		 */
+		UniqueMimeTypes(final long version, final List<String> mimeTypes) {
+			this.version = version;
+			this.mimeTypes = mimeTypes;
+		}
+	}
+
+	/**
+	 * Collects the ids of all hits of a search into a bit set.
+	 */
+	private static final class HitSetCollector extends Collector {
+
+		/**
+		 * Ids of the hits.
+		 */
+		private final OpenBitSet hits;
+
+		/**
+		 * Id of the first document of the current segment.
+		 */
+		private int docBase;
+
+		/**
+		 * Create a new collector.
+		 * @param maxDoc number of documents in the index
+		 */
+		HitSetCollector(final int maxDoc) {
+			hits = new OpenBitSet(maxDoc);
+		}
+
+		@Override
+		public void setScorer(final Scorer scorer) {
+		}
+
+		@Override
+		public void collect(final int doc) {
+			hits.fastSet(docBase + doc);
+		}
+
+		@Override
+		public void setNextReader(final IndexReader reader, final int docBase) {
+			this.docBase = docBase;
+		}
+
+		@Override
+		public boolean acceptsDocsOutOfOrder() {
+			return true;
+		}
+
+		/**
+		 * @return ids of the hits
+		 */
+		OpenBitSet getHits() {
+			return hits;
+		}
+	}
 }
@@ -2,22 +2,40 @@ package com.gentics.cr.lucene.search;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldSelector;
 import org.apache.lucene.document.Fieldable;
+import org.apache.lucene.document.MapFieldSelector;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.queryParser.ParseException;
 import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 
 import com.gentics.api.lib.etc.ObjectTransformer;
@@ -87,6 +105,20 @@ public class LuceneRequestProcessor extends RequestProcessor {
 	 */
 	private boolean getStoredAttributes = false;
 
+	/**
+	 * Load only the stored attributes requested with {@link CRRequest#setAttributeArray(String[])} (and the
+	 * highlighted attributes) instead of all stored attributes.
+	 * Key: LOADREQUESTEDATTRIBUTES
+	 */
+	private static final String LOAD_REQUESTED_ATTRIBUTES_KEY = "LOADREQUESTEDATTRIBUTES";
+
+	/**
+	 * Load only the requested stored attributes.
+	 * Default value: false
+	 * Can be overwritten in config using key {@link LuceneRequestProcessor#LOAD_REQUESTED_ATTRIBUTES_KEY}.
+	 */
+	private boolean loadRequestedAttributes = false;
+
 	/**
 	 * Define the maximum number of results to return.
 	 * Key: SEARCHCOUNT
@@ -162,6 +194,62 @@ public class LuceneRequestProcessor extends RequestProcessor {
 	 */
 	private static final String QUERY_HIGHTLIGHT_PARSER_CONFIG = "highlightqueryparser";
 
+	/**
+	 * Configuration key for the maximum number of search results kept in the {@link SearchResultCache}. The cache
+	 * is disabled if this is not set or 0.
+	 */
+	public static final String RESULT_CACHE_SIZE_KEY = "resultcachesize";
+
+	/**
+	 * Cache for the search results, null if the cache is disabled.
+	 */
+	private SearchResultCache resultCache = null;
+
+	/**
+	 * Configuration key for the number of threads used to highlight the documents of a result page. The
+	 * documents are highlighted sequentially in the request thread if this is not set or 1.
+	 */
+	public static final String HIGHLIGHT_THREADS_KEY = "highlightthreads";
+
+	/**
+	 * Configuration key for the time in milliseconds the highlighting of a result page may take. Documents that
+	 * are not highlighted in time get a fallback snippet of the stored attribute without highlighting. The time is
+	 * not limited if this is not set or 0.
+	 */
+	public static final String HIGHLIGHT_TIMEOUT_KEY = "highlighttimeout";
+
+	/**
+	 * Configuration key for the maximum length of the fallback snippets, defaults to 200 characters.
+	 */
+	public static final String HIGHLIGHT_FALLBACK_LENGTH_KEY = "highlightfallbacklength";
+
+	/**
+	 * Configuration key for the number of documents that may wait for a highlight thread, defaults to 10 documents
+	 * per thread. Documents that do not fit into the queue are highlighted in the request thread.
+	 */
+	public static final String HIGHLIGHT_QUEUE_SIZE_KEY = "highlightqueuesize";
+
+	/**
+	 * Appended to fallback snippets that were shortened.
+	 */
+	private static final String FALLBACK_ELLIPSIS = " ...";
+
+	/**
+	 * Executor for highlighting the documents of a result page in parallel, null if the documents are highlighted
+	 * in the request thread.
+	 */
+	private ThreadPoolExecutor highlightExecutor = null;
+
+	/**
+	 * Time in milliseconds the highlighting of a result page may take, 0 for no limit.
+	 */
+	private long highlightTimeout = 0;
+
+	/**
+	 * Maximum length of the fallback snippets.
+	 */
+	private int highlightFallbackLength = 200;
+
 	/**
 	 * Create new instance of LuceneRequestProcessor.
 	 * @param config CRConfig to use for initializing the searcher, highlighters and configuring this class.
@@ -172,8 +260,24 @@ public class LuceneRequestProcessor extends RequestProcessor {
 		name = config.getName();
 		searcher = new CRSearcher(config);
 		getStoredAttributes = Boolean.parseBoolean((String) config.get(GET_STORED_ATTRIBUTE_KEY));
+		loadRequestedAttributes = config.getBoolean(LOAD_REQUESTED_ATTRIBUTES_KEY, loadRequestedAttributes);
 		highlighters = ContentHighlighter.getTransformerTable(config);
 		showParsedQuery = Boolean.parseBoolean((String) this.config.get(SHOW_PARSED_QUERY_KEY));
+		int resultCacheSize = config.getInteger(RESULT_CACHE_SIZE_KEY, 0);
+		if (resultCacheSize > 0) {
+			resultCache = new SearchResultCache(name, resultCacheSize);
+		}
+		if (highlighters != null) {
+			int highlightThreads = config.getInteger(HIGHLIGHT_THREADS_KEY, 1);
+			if (highlightThreads > 1) {
+				int highlightQueueSize = config.getInteger(HIGHLIGHT_QUEUE_SIZE_KEY, highlightThreads * 10);
+				highlightExecutor = new ThreadPoolExecutor(highlightThreads, highlightThreads, 0L, TimeUnit.MILLISECONDS,
+						new LinkedBlockingQueue<Runnable>(Math.max(highlightQueueSize, 1)),
+						new HighlightThreadFactory(name));
+			}
+			highlightTimeout = config.getInteger(HIGHLIGHT_TIMEOUT_KEY, 0);
+			highlightFallbackLength = config.getInteger(HIGHLIGHT_FALLBACK_LENGTH_KEY, highlightFallbackLength);
+		}
 	}
 	
 	/**
@@ -184,6 +288,13 @@ public class LuceneRequestProcessor extends RequestProcessor {
 		return searcher;
 	}
 
+	/**
+	 * @return the result cache, null if no {@link #RESULT_CACHE_SIZE_KEY} is configured
+	 */
+	SearchResultCache getResultCache() {
+		return resultCache;
+	}
+
 	/**
 	 * Converts a generic List to a List of Field.
 	 * @param l - generic list
@@ -224,6 +335,20 @@ public class LuceneRequestProcessor extends RequestProcessor {
 		ucPrepareSearch.stop();
 		/** * search preparations */
 
+		Object cacheKey = null;
+		if (resultCache != null) {
+			cacheKey = getResultCacheKey(request, start, count, doNavigation);
+			SearchResultCache.Entry cached = resultCache.get(cacheKey, getIndexVersion());
+			if (cached != null) {
+				HashMap<String, Object> searchResult = cached.getSearchResult();
+				Query parsedQuery = (Query) searchResult.get(CRSearcher.RESULT_QUERY_KEY);
+				result = processMetaData(result, searchResult, parsedQuery, request, start, count);
+				result.addAll(cached.getResolvables());
+				ucGetObjects.stop();
+				return result;
+			}
+		}
+
 		/**
 		 * Get results
 		 */
@@ -238,7 +363,8 @@ public class LuceneRequestProcessor extends RequestProcessor {
 				start,
 				doNavigation,
 				request.getSortArray(),
-				request);
+				request,
+				createFieldSelector(request));
 		} catch (IOException ex) {
 			LOGGER.error("Error while getting search results from index.");
 			throw new CRException(ex);
@@ -253,7 +379,16 @@ public class LuceneRequestProcessor extends RequestProcessor {
 			Query parsedQuery = (Query) searchResult.get(CRSearcher.RESULT_QUERY_KEY);
 
 			result = processMetaData(result, searchResult, parsedQuery, request, start, count);
-			result = processSearchResolvables(result, searchResult, parsedQuery, request);
+			ArrayList<CRResolvableBean> resolvables = new ArrayList<CRResolvableBean>();
+			boolean highlighted = processSearchResolvables(resolvables, searchResult, parsedQuery, request);
+			result.addAll(resolvables);
+			// the searcher may have been reopened since the cache lookup, use the version it searched
+			Object searchedVersion = searchResult.get(CRSearcher.RESULT_INDEX_VERSION_KEY);
+			// results with fallback snippets are not cached, the next request may highlight them in time
+			if (resultCache != null && highlighted && searchedVersion instanceof Long
+					&& (Long) searchedVersion != -1) {
+				resultCache.put(cacheKey, (Long) searchedVersion, searchResult, resolvables);
+			}
 		} else {
 			// searchresult is null - we don't want to proceed - we want to throw an error
 			result = null;
@@ -265,6 +400,83 @@ public class LuceneRequestProcessor extends RequestProcessor {
 		return result;
 	}
 
+	/**
+	 * Create the key of the request for the {@link #resultCache}. The key contains all parameters of the request
+	 * that have an influence on the result.
+	 * @param request request
+	 * @param start start position
+	 * @param count number of items to return
+	 * @param doNavigation explain flag of the search
+	 * @return key for the result cache
+	 */
+	private Object getResultCacheKey(final CRRequest request, final int start, final int count,
+			final boolean doNavigation) {
+		Object permissions = request.get(CRRequest.PERMISSIONS_KEY);
+		if (permissions instanceof Object[]) {
+			permissions = Arrays.toString((Object[]) permissions);
+		}
+		return Arrays.asList(
+			request.getRequestFilter(),
+			Arrays.toString(request.getSortArray()),
+			Arrays.toString(request.getAttributeArray()),
+			start,
+			count,
+			permissions,
+			request.get(CRRequest.WORDMATCH_KEY),
+			request.get(HIGHLIGHT_QUERY_KEY),
+			request.get(CRSearcher.DIDYOUMEAN_ENABLED_KEY),
+			request.get(CRRequest.SEARCH_AFTER_KEY),
+			doNavigation);
+	}
+
+	/**
+	 * Create the selector for the stored fields that are needed to create the beans of the result. If stored
+	 * attributes are not returned only the id attribute is loaded. If {@link #LOAD_REQUESTED_ATTRIBUTES_KEY} is
+	 * enabled and the request has an attribute array only the requested and the highlighted attributes are
+	 * loaded. Fields that are not needed (e.g. the content of a large document) are not read from the index.
+	 * @param request request
+	 * @return selector for the stored fields, null if all stored fields are needed
+	 */
+	FieldSelector createFieldSelector(final CRRequest request) {
+		String idAttribute = (String) config.get(ID_ATTRIBUTE_KEY);
+		if (idAttribute == null) {
+			return null;
+		}
+		Set<String> fields = new HashSet<String>();
+		fields.add(idAttribute);
+		if (getStoredAttributes) {
+			if (!loadRequestedAttributes || !request.hasAttributeArray()) {
+				return null;
+			}
+			fields.addAll(Arrays.asList(request.getAttributeArray()));
+			if (highlighters != null) {
+				fields.addAll(highlighters.keySet());
+			}
+		}
+		return new MapFieldSelector(new ArrayList<String>(fields));
+	}
+
+	/**
+	 * Get the version of the index the next search is executed on. This is the version of the reader of the
+	 * prioritized searcher, which is used by the {@link CRSearcher}.
+	 * @return version of the index or -1 if it cannot be determined
+	 */
+	private long getIndexVersion() {
+		IndexAccessor indexAccessor = LuceneIndexLocation.getIndexLocation(config).getAccessor();
+		IndexSearcher indexSearcher = null;
+		try {
+			indexSearcher = indexAccessor.getPrioritizedSearcher();
+			return SearchResultCache.getVersion(indexSearcher.getIndexReader());
+		} catch (IOException e) {
+			LOGGER.error("Cannot get index searcher to check the version of the index", e);
+			return -1;
+		} finally {
+			if (indexSearcher != null) {
+				indexAccessor.release(indexSearcher);
+			}
+		}
+	}
+
 	/**
 	 * Start a usecase.
 	 * @param message Use the specified message as description.
@@ -352,9 +564,10 @@ public class LuceneRequestProcessor extends RequestProcessor {
 	 * @param searchResult Actual searchresults from Searcher
 	 * @param parsedQuery query to use for storing with the documents
 	 * @param request needed for highlighting the query
-	 * @return list of results containing all documents
+	 * @return true if all documents were highlighted, false if fallback snippets were used or the highlighting
+	 * failed
 	 */
-	private ArrayList<CRResolvableBean> processSearchResolvables(final ArrayList<CRResolvableBean> result,
+	private boolean processSearchResolvables(final ArrayList<CRResolvableBean> result,
 		final HashMap<String, Object> searchResult, Query parsedQuery, final CRRequest request) {
 		UseCase ucProcessSearchResolvables = startUseCase("LuceneRequestProcessor.getObjects(" + name
 			+ ")#processSearch.Resolvables");
@@ -364,22 +577,26 @@ public class LuceneRequestProcessor extends RequestProcessor {
 
 		LuceneIndexLocation idsLocation = LuceneIndexLocation.getIndexLocation(config);
 		IndexAccessor indexAccessor = idsLocation.getAccessor();
-		IndexReader reader = null;
+		SharedReader sharedReader = null;
+		boolean highlighted = false;
 		try {
-			reader = indexAccessor.getReader(false);
+			sharedReader = new SharedReader(indexAccessor, indexAccessor.getReader(false));
 
-			parsedQuery = parseHighlightQuery(request, reader, parsedQuery);
+			parsedQuery = parseHighlightQuery(request, sharedReader.reader, parsedQuery);
 
-			processDocuments(docs, result, reader, parsedQuery);
+			highlighted = processDocuments(docs, result, sharedReader, parsedQuery);
 
 		} catch (IOException e) {
 			LOGGER.error("Cannot get Index reader for highlighting", e);
 		} finally {
-			indexAccessor.release(reader, false);
+			if (sharedReader != null) {
+				// highlight jobs that are still running keep the reader open until they finish
+				sharedReader.release();
+			}
 		}
 
 		ucProcessSearchResolvables.stop();
-		return result;
+		return highlighted;
 	}
 
 	/**
@@ -408,7 +625,7 @@ public class LuceneRequestProcessor extends RequestProcessor {
 			logging += " HighlightQuery is set and overwrite parsedQuery ";
 			logging += "toString: " + highlightQuery.toString();
 
-			Analyzer analyzer = LuceneAnalyzerFactory.createAnalyzer(config);
+			Analyzer analyzer = LuceneAnalyzerFactory.getAnalyzer(config);
 			QueryParser parser = CRQueryParserFactory.getConfiguredParser(
 				getSearchedAttributes(), analyzer, request, config);
 			try {
@@ -423,7 +640,7 @@ public class LuceneRequestProcessor extends RequestProcessor {
 
 		if (subconfig != null) {
 			logging += "subconfig is not null! ";
-			Analyzer analyzer = LuceneAnalyzerFactory.createAnalyzer(config);
+			Analyzer analyzer = LuceneAnalyzerFactory.getAnalyzer(config);
 			QueryParser highlightParser = CRQueryParserFactory.getConfiguredHighlightParser(
 				getSearchedAttributes(), analyzer, request, config, subconfig);
 			try {
@@ -441,52 +658,202 @@ public class LuceneRequestProcessor extends RequestProcessor {
 	}
 
 	/**
-	 * Perform highlighting for one document.
-	 * @param crBean bean to check if we need to highlight something and set the highlighting afterwards.
+	 * Prepare the highlighting of one document. The rules of the highlighters are evaluated in the calling thread,
+	 * the returned job only works on the extracted attribute values and can be executed in another thread.
+	 * @param crBean bean to check if we need to highlight something
 	 * @param doc document to get the document id for the highligther
 	 * @param parsedQuery rewritten Query
 	 * @param reader prepared index Reader
+	 * @return job that highlights the document, null if no highlighter matches the bean
+	 */
+	private HighlightJob createHighlightJob(final CRResolvableBean crBean, final Document doc,
+			final Query parsedQuery, final IndexReader reader) {
+		HighlightJob job = null;
+		for (Entry<String, ContentHighlighter> contentHighlighter : highlighters.entrySet()) {
+			ContentHighlighter highligther = contentHighlighter.getValue();
+			//IF crBean matches the highlighters rule => highlight
+			if (highligther.match(crBean)) {
+				if (job == null) {
+					job = new HighlightJob(doc, parsedQuery, reader);
+				}
+				String att = contentHighlighter.getKey();
+				Object value = crBean.get(att);
+				job.add(att, highligther, value instanceof String ? (String) value : null);
+			}
+		}
+		return job;
+	}
+
+	/**
+	 * Perform highlighting for the documents of the result page. If {@link #HIGHLIGHT_THREADS_KEY} is configured
+	 * the documents are highlighted in parallel. Documents that cannot be highlighted within the
+	 * {@link #HIGHLIGHT_TIMEOUT_KEY} get a fallback snippet.
+	 * @param beans beans to set the highlighting in
+	 * @param documents documents of the beans
+	 * @param parsedQuery rewritten Query
+	 * @param sharedReader prepared index Reader, referenced by the jobs executed in other threads
+	 * @return true if all documents were highlighted, false if fallback snippets were used
 	 */
-	private void doHighlighting(final CRResolvableBean crBean, final Document doc, final Query parsedQuery,
-			final IndexReader reader) {
+	private boolean doHighlighting(final List<CRResolvableBean> beans, final List<Document> documents,
+			final Query parsedQuery, final SharedReader sharedReader) {
 
+		boolean highlighted = true;
 		//IF HIGHLIGHTERS ARE CONFIGURED => DO HIGHLIGHTNING
-		if (highlighters != null) {
+		if (highlighters != null && !beans.isEmpty()) {
 			UseCase ucProcessSearchHighlight = MonitorFactory.startUseCase("LuceneRequestProcessor." + "getObjects("
 					+ name + ")#processSearch.Highlight");
 			long s2 = System.currentTimeMillis();
-			for (Entry<String, ContentHighlighter> contentHighlighter : highlighters.entrySet()) {
-				ContentHighlighter highligther = contentHighlighter.getValue();
-				String att = contentHighlighter.getKey();
-				//IF crBean matches the highlighters rule => highlight
-				if (highligther.match(crBean)) {
-					String ret = null;
-					if (highligther instanceof AdvancedContentHighlighter) {
-						AdvancedContentHighlighter advancedHighlighter = (AdvancedContentHighlighter) highligther;
-						int documentId = Integer.parseInt(doc.get("id"));
-
-						ret = advancedHighlighter.highlight(parsedQuery, reader, documentId, att);
-
+			long deadline = Long.MAX_VALUE;
+			if (highlightTimeout > 0) {
+				deadline = s2 + highlightTimeout;
+			}
+			List<HighlightJob> jobs = new ArrayList<HighlightJob>(beans.size());
+			for (int i = 0; i < beans.size(); i++) {
+				jobs.add(createHighlightJob(beans.get(i), documents.get(i), parsedQuery, sharedReader.reader));
+			}
+			List<Future<Map<String, String>>> futures = new ArrayList<Future<Map<String, String>>>(jobs.size());
+			for (HighlightJob job : jobs) {
+				futures.add(job == null || highlightExecutor == null ? null : submit(job, sharedReader));
+			}
+			for (int i = 0; i < jobs.size(); i++) {
+				HighlightJob job = jobs.get(i);
+				Future<Map<String, String>> future = futures.get(i);
+				if (future != null) {
+					highlighted &= getHighlighting(beans.get(i), job, future, deadline);
+				} else if (job != null) {
+					// sequential highlighting or the queue of the executor was full
+					if (System.currentTimeMillis() < deadline) {
+						setHighlighting(beans.get(i), job.call());
 					} else {
-						ret = highligther.highlight((String) crBean.get(att), parsedQuery);
-					}
-					if (ret != null && !"".equals(ret)) {
-						crBean.set(att, ret);
+						setFallbackSnippets(beans.get(i), job);
+						highlighted = false;
 					}
 				}
 			}
 			LOGGER.debug("Highlighters took " + (System.currentTimeMillis() - s2) + "ms");
 			ucProcessSearchHighlight.stop();
 		}
+		return highlighted;
+	}
+
+	/**
+	 * Submit a job to the {@link #highlightExecutor}. The job keeps a reference to the reader until it finished.
+	 * @param job job to submit
+	 * @param sharedReader reader the job highlights with
+	 * @return future of the job, null if the queue of the executor is full
+	 */
+	private Future<Map<String, String>> submit(final HighlightJob job, final SharedReader sharedReader) {
+		sharedReader.acquire();
+		job.sharedReader = sharedReader;
+		try {
+			return highlightExecutor.submit(job);
+		} catch (RejectedExecutionException e) {
+			MonitorFactory.count("LuceneRequestProcessor(" + name + ")#highlightQueueFull");
+			job.sharedReader = null;
+			sharedReader.release();
+			return null;
+		}
+	}
+
+	/**
+	 * Wait for the highlighting of a document that is executed by the {@link #highlightExecutor} and set it in the
+	 * bean. If the highlighting is not finished before the deadline it is cancelled and the fallback snippets are
+	 * set.
+	 * @param crBean bean to set the highlighting in
+	 * @param job job that highlights the bean
+	 * @param future future of the job
+	 * @param deadline time in milliseconds when the highlighting of the page has to be finished
+	 * @return true if the bean was highlighted, false if the fallback snippets were set
+	 */
+	private boolean getHighlighting(final CRResolvableBean crBean, final HighlightJob job,
+			final Future<Map<String, String>> future, final long deadline) {
+		try {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining > 0 || future.isDone()) {
+				setHighlighting(crBean, future.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS));
+				return true;
+			}
+		} catch (TimeoutException e) {
+			LOGGER.debug("Highlighting of " + crBean.getContentid() + " took too long, using fallback snippets.");
+		} catch (ExecutionException e) {
+			LOGGER.error("Error while highlighting " + crBean.getContentid(), e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		// a highlighter that is already running is not interrupted, an interrupt during a read would close the
+		// channels of a NIOFSDirectory and break the shared reader. It releases the reader when it finishes.
+		future.cancel(false);
+		job.skip();
+		setFallbackSnippets(crBean, job);
+		return false;
+	}
+
+	/**
+	 * Set the highlighted attributes in the bean.
+	 * @param crBean bean to set the highlighting in
+	 * @param highlighting highlighted attributes
+	 */
+	private void setHighlighting(final CRResolvableBean crBean, final Map<String, String> highlighting) {
+		for (Entry<String, String> highlighted : highlighting.entrySet()) {
+			String ret = highlighted.getValue();
+			if (ret != null && !"".equals(ret)) {
+				crBean.set(highlighted.getKey(), ret);
+			}
+		}
+	}
+
+	/**
+	 * Set the fallback snippets for the attributes of a bean that could not be highlighted in time.
+	 * @param crBean bean to set the fallback snippets in
+	 * @param job job that should have highlighted the bean
+	 */
+	private void setFallbackSnippets(final CRResolvableBean crBean, final HighlightJob job) {
+		for (int i = 0; i < job.attributes.size(); i++) {
+			String value = job.values.get(i);
+			if (value != null) {
+				crBean.set(job.attributes.get(i), createFallbackSnippet(value, highlightFallbackLength));
+			}
+		}
 	}
 
-	private void processDocuments(final LinkedHashMap<Document, Float> docs, final ArrayList<CRResolvableBean> result,
-			final IndexReader reader, final Query parsedQuery) {
+	/**
+	 * Create a snippet without highlighting from the beginning of a text. The text is cut at the last whitespace
+	 * before the maximum length.
+	 * @param text text to create the snippet from
+	 * @param length maximum length of the snippet (without the appended ellipsis)
+	 * @return snippet
+	 */
+	static String createFallbackSnippet(final String text, final int length) {
+		if (text.length() <= length) {
+			return text;
+		}
+		int end = length;
+		while (end > 0 && !Character.isWhitespace(text.charAt(end))) {
+			end--;
+		}
+		if (end == 0) {
+			end = length;
+		}
+		return text.substring(0, end).trim() + FALLBACK_ELLIPSIS;
+	}
+
+	/**
+	 * Create the beans of the found documents and highlight them.
+	 * @param docs found documents with their score
+	 * @param result list to add the beans to
+	 * @param sharedReader prepared index reader
+	 * @param parsedQuery rewritten query
+	 * @return true if all documents were highlighted, false if fallback snippets were used
+	 */
+	private boolean processDocuments(final LinkedHashMap<Document, Float> docs,
+			final ArrayList<CRResolvableBean> result, final SharedReader sharedReader, final Query parsedQuery) {
 		String scoreAttribute = (String) config.get(SCORE_ATTRIBUTE_KEY);
 
 		//PROCESS RESULT
 		if (docs != null) {
 			String idAttribute = (String) config.get(ID_ATTRIBUTE_KEY);
+			List<CRResolvableBean> beans = new ArrayList<CRResolvableBean>(docs.size());
+			List<Document> documents = new ArrayList<Document>(docs.size());
 			for (Entry<Document, Float> entry : docs.entrySet()) {
 				Document doc = entry.getKey();
 				Float score = entry.getValue();
@@ -505,13 +872,16 @@ public class LuceneRequestProcessor extends RequestProcessor {
 				if (scoreAttribute != null && !"".equals(scoreAttribute)) {
 					crBean.set(scoreAttribute, score);
 				}
-				//DO HIGHLIGHTING
-				doHighlighting(crBean, doc, parsedQuery, reader);
-
 				LOGGER.debug("Found " + crBean.getContentid() + " with score " + score.toString());
-				result.add(crBean);
+				beans.add(crBean);
+				documents.add(doc);
 			}
+			//DO HIGHLIGHTING
+			boolean highlighted = doHighlighting(beans, documents, parsedQuery, sharedReader);
+			result.addAll(beans);
+			return highlighted;
 		}
+		return true;
 	}
 
 	/**
@@ -541,6 +911,210 @@ public class LuceneRequestProcessor extends RequestProcessor {
 		if (searcher != null) {
 			searcher.finalize();
 		}
+		if (highlightExecutor != null) {
+			highlightExecutor.shutdownNow();
+		}
+		shutdownMergeExecutor();
+	}
+
+	/**
+	 * Highlights the attributes of one document. The job does not access the bean, so it can be executed while the
+	 * request thread sets the fallback snippets of a cancelled job.
+	 */
+	private static final class HighlightJob implements Callable<Map<String, String>> {
+
+		/**
+		 * Highlighted attributes.
+		 */
+		private final List<String> attributes = new ArrayList<String>(2);
+
+		/**
+		 * Highlighters of the attributes.
+		 */
+		private final List<ContentHighlighter> contentHighlighters = new ArrayList<ContentHighlighter>(2);
+
+		/**
+		 * Values of the attributes before highlighting.
+		 */
+		private final List<String> values = new ArrayList<String>(2);
+
+		/**
+		 * Document to highlight.
+		 */
+		private final Document doc;
+
+		/**
+		 * Rewritten query.
+		 */
+		private final Query parsedQuery;
+
+		/**
+		 * Index reader for the {@link AdvancedContentHighlighter}s.
+		 */
+		private final IndexReader reader;
+
+		/**
+		 * Set when the job is started or skipped, so exactly one of them releases the {@link #sharedReader}.
+		 */
+		private final AtomicBoolean claimed = new AtomicBoolean();
+
+		/**
+		 * Reference to the reader that is released when the job finished or was skipped, null if the job is
+		 * executed in the request thread.
+		 */
+		private SharedReader sharedReader;
+
+		/**
+		 * Create a new job.
+		 * @param doc document to highlight
+		 * @param parsedQuery rewritten query
+		 * @param reader prepared index reader
+		 */
+		private HighlightJob(final Document doc, final Query parsedQuery, final IndexReader reader) {
+			this.doc = doc;
+			this.parsedQuery = parsedQuery;
+			this.reader = reader;
+		}
+
+		/**
+		 * Add an attribute to highlight.
+		 * @param att name of the attribute
+		 * @param highlighter highlighter for the attribute
+		 * @param value value of the attribute
+		 */
+		private void add(final String att, final ContentHighlighter highlighter, final String value) {
+			attributes.add(att);
+			contentHighlighters.add(highlighter);
+			values.add(value);
+		}
+
+		/**
+		 * Highlight the attributes.
+		 * @return highlighted values by attribute name
+		 */
+		public Map<String, String> call() {
+			if (!claimed.compareAndSet(false, true)) {
+				// the job was skipped before it was started
+				return new HashMap<String, String>();
+			}
+			try {
+				return highlight();
+			} finally {
+				if (sharedReader != null) {
+					sharedReader.release();
+				}
+			}
+		}
+
+		/**
+		 * Skip the job if it was not started yet.
+		 */
+		private void skip() {
+			if (claimed.compareAndSet(false, true) && sharedReader != null) {
+				sharedReader.release();
+			}
+		}
+
+		/**
+		 * @return highlighted values by attribute name
+		 */
+		private Map<String, String> highlight() {
+			Map<String, String> highlighting = new HashMap<String, String>(attributes.size());
+			for (int i = 0; i < attributes.size(); i++) {
+				ContentHighlighter highligther = contentHighlighters.get(i);
+				String att = attributes.get(i);
+				String ret = null;
+				if (highligther instanceof AdvancedContentHighlighter) {
+					AdvancedContentHighlighter advancedHighlighter = (AdvancedContentHighlighter) highligther;
+					int documentId = Integer.parseInt(doc.get("id"));
+
+					ret = advancedHighlighter.highlight(parsedQuery, reader, documentId, att);
+
+				} else {
+					ret = highligther.highlight(values.get(i), parsedQuery);
+				}
+				highlighting.put(att, ret);
+			}
+			return highlighting;
+		}
 	}
 
+	/**
+	 * Index reader that is used by the request thread and the highlight jobs. It is released to its accessor when
+	 * the request thread and all jobs that were started released it, so a job that is still running after the
+	 * highlight timeout does not use a closed reader.
+	 */
+	private static final class SharedReader {
+
+		/**
+		 * Accessor the reader is released to.
+		 */
+		private final IndexAccessor indexAccessor;
+
+		/**
+		 * Shared index reader.
+		 */
+		private final IndexReader reader;
+
+		/**
+		 * Number of references, the request thread holds the first one.
+		 */
+		private final AtomicInteger references = new AtomicInteger(1);
+
+		/**
+		 * Create a new shared reader referenced by the calling thread.
+		 * @param indexAccessor accessor the reader was taken from
+		 * @param reader index reader
+		 */
+		private SharedReader(final IndexAccessor indexAccessor, final IndexReader reader) {
+			this.indexAccessor = indexAccessor;
+			this.reader = reader;
+		}
+
+		/**
+		 * Add a reference.
+		 */
+		private void acquire() {
+			references.incrementAndGet();
+		}
+
+		/**
+		 * Remove a reference and release the reader to its accessor if it was the last one.
+		 */
+		private void release() {
+			if (references.decrementAndGet() == 0) {
+				indexAccessor.release(reader, false);
+			}
+		}
+	}
+
+	/**
+	 * Creates named daemon threads for the {@link LuceneRequestProcessor#highlightExecutor}.
+	 */
+	private static final class HighlightThreadFactory implements ThreadFactory {
+
+		/**
+		 * Number of the next thread.
+		 */
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		/**
+		 * Prefix of the thread names.
+		 */
+		private final String prefix;
+
+		/**
+		 * Create a new thread factory.
+		 * @param name name of the request processor
+		 */
+		private HighlightThreadFactory(final String name) {
+			prefix = "LuceneRequestProcessor(" + name + ")-highlighter-";
+		}
+
+		public Thread newThread(final Runnable r) {
+			Thread thread = new Thread(r, prefix + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
 }
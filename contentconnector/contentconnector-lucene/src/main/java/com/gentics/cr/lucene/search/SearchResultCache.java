@@ -0,0 +1,193 @@
+package com.gentics.cr.lucene.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.index.IndexReader;
+
+import com.gentics.cr.CRResolvableBean;
+import com.gentics.cr.monitoring.MonitorFactory;
+
+/**
+ * Bounded LRU cache for the results of the {@link LuceneRequestProcessor}. Every entry is tagged with the version
+ * of the index reader it was created with. An entry is only returned for the same version, so reopening the index
+ * invalidates the cache without flushing it.
+ */
+public class SearchResultCache {
+
+	/**
+	 * Maximum number of cached results.
+	 */
+	private final int maxSize;
+
+	/**
+	 * Name used for the monitoring counters.
+	 */
+	private final String name;
+
+	/**
+	 * Cached results in access order.
+	 */
+	private final Map<Object, Entry> entries;
+
+	/**
+	 * Create a new cache.
+	 * @param name name of the request processor, used for the monitoring counters
+	 * @param maxSize maximum number of cached results
+	 */
+	public SearchResultCache(final String name, final int maxSize) {
+		this.name = name;
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Object, Entry> eldest) {
+				return size() > SearchResultCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Get a cached result.
+	 * @param key key of the search
+	 * @param version version of the current index reader, see {@link #getVersion(IndexReader)}
+	 * @return cached result or null if the search is not cached for this version of the index
+	 */
+	public Entry get(final Object key, final long version) {
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+			if (entry != null && entry.version != version) {
+				entries.remove(key);
+				entry = null;
+			}
+		}
+		if (entry == null) {
+			MonitorFactory.count("LuceneRequestProcessor.resultCache(" + name + ")#miss");
+		} else {
+			MonitorFactory.count("LuceneRequestProcessor.resultCache(" + name + ")#hit");
+		}
+		return entry;
+	}
+
+	/**
+	 * Put a result into the cache.
+	 * @param key key of the search
+	 * @param version version of the index reader the search was executed with
+	 * @param searchResult result of the {@link CRSearcher}
+	 * @param resolvables processed documents of the search
+	 */
+	public void put(final Object key, final long version, final HashMap<String, Object> searchResult,
+			final List<CRResolvableBean> resolvables) {
+		synchronized (entries) {
+			entries.put(key, new Entry(version, searchResult, resolvables));
+		}
+	}
+
+	/**
+	 * Copy the given beans, so the cached beans are not shared with the callers that modify their results.
+	 * @param beans beans to copy
+	 * @return copies of the beans
+	 */
+	static List<CRResolvableBean> copy(final List<CRResolvableBean> beans) {
+		List<CRResolvableBean> copies = new ArrayList<CRResolvableBean>(beans.size());
+		for (CRResolvableBean bean : beans) {
+			CRResolvableBean copy = new CRResolvableBean(bean.getContentid());
+			copy.setObj_id(bean.getObj_id());
+			copy.setObj_type(bean.getObj_type());
+			copy.setMother_id(bean.getMother_id());
+			copy.setMother_type(bean.getMother_type());
+			if (bean.getAttrMap() != null) {
+				copy.setAttrMap(new HashMap<String, Object>(bean.getAttrMap()));
+			}
+			copies.add(copy);
+		}
+		return copies;
+	}
+
+	/**
+	 * @return number of cached results
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Get a version of the given reader that changes whenever the index is changed. Readers that do not support
+	 * {@link IndexReader#getVersion()} (e.g. a MultiReader) are combined from the versions of their sub readers.
+	 * @param reader index reader
+	 * @return version of the reader, -1 if the version could not be determined.
+	 */
+	public static long getVersion(final IndexReader reader) {
+		try {
+			return reader.getVersion();
+		} catch (UnsupportedOperationException e) {
+			IndexReader[] subReaders = reader.getSequentialSubReaders();
+			if (subReaders == null) {
+				return -1;
+			}
+			long version = 1;
+			for (IndexReader subReader : subReaders) {
+				long subVersion = getVersion(subReader);
+				if (subVersion == -1) {
+					return -1;
+				}
+				version = 31 * version + subVersion;
+			}
+			return version;
+		}
+	}
+
+	/**
+	 * Cached result of a search.
+	 */
+	public static final class Entry {
+
+		/**
+		 * Version of the index the result belongs to.
+		 */
+		private final long version;
+
+		/**
+		 * Result of the {@link CRSearcher}.
+		 */
+		private final HashMap<String, Object> searchResult;
+
+		/**
+		 * Processed documents.
+		 */
+		private final List<CRResolvableBean> resolvables;
+
+		/**
+		 * Create a new entry.
+		 * @param version version of the index
+		 * @param searchResult result of the {@link CRSearcher}
+		 * @param resolvables processed documents
+		 */
+		Entry(final long version, final HashMap<String, Object> searchResult, final List<CRResolvableBean> resolvables) {
+			this.version = version;
+			this.searchResult = searchResult;
+			this.resolvables = copy(resolvables);
+		}
+
+		/**
+		 * @return result of the {@link CRSearcher}
+		 */
+		public HashMap<String, Object> getSearchResult() {
+			return searchResult;
+		}
+
+		/**
+		 * @return copies of the processed documents
+		 */
+		public List<CRResolvableBean> getResolvables() {
+			return copy(resolvables);
+		}
+	}
+}
@@ -8,12 +8,9 @@ import org.apache.log4j.Logger;
 import org.apache.lucene.search.Query;
 
 import com.gentics.api.lib.exception.ParserException;
-import com.gentics.api.lib.expressionparser.Expression;
-import com.gentics.api.lib.expressionparser.ExpressionEvaluator;
-import com.gentics.api.lib.expressionparser.ExpressionParser;
-import com.gentics.api.lib.expressionparser.ExpressionParserException;
 import com.gentics.api.lib.resolving.Resolvable;
 import com.gentics.cr.configuration.GenericConfiguration;
+import com.gentics.cr.portalnode.expressions.CompiledRule;
 
 /**
  * Content highlighter.
@@ -29,13 +26,9 @@ public abstract class ContentHighlighter {
 	 */
 	private static Logger log = Logger.getLogger(ContentHighlighter.class);
 	/**
-	 * evaluator.
+	 * rule of the highlighter, null if the rule could not be parsed.
 	 */
-	private static ExpressionEvaluator evaluator = new ExpressionEvaluator();
-	/**
-	 * expression.
-	 */
-	private Expression expr;
+	private CompiledRule compiledRule;
 
 	/**
 	 * highlight attribute.
@@ -197,7 +190,7 @@ public abstract class ContentHighlighter {
 		String rule = (String) config.get(HIGHLIGHTER_RULE_KEY);
 		highlightAttribute = (String) config.get(HIGHLIGHTER_ATTRIBUTE_KEY);
 		try {
-			expr = ExpressionParser.getInstance().parse(rule);
+			compiledRule = CompiledRule.compile(rule);
 		} catch (ParserException e) {
 			log.error("Error parsing highlighter rule.", e);
 		}
@@ -224,14 +217,7 @@ public abstract class ContentHighlighter {
 	 * @return true if rule matches
 	 */
 	public final boolean match(final Resolvable object) {
-		if (object != null) {
-			try {
-				return (evaluator.match(expr, object));
-			} catch (ExpressionParserException e) {
-				e.printStackTrace();
-			}
-		}
-		return (false);
+		return compiledRule != null && compiledRule.match(object);
 	}
 
 	/**
@@ -51,7 +51,7 @@ public class PhraseBolder extends ContentHighlighter implements Formatter {
 	 */
 	public PhraseBolder(final GenericConfiguration config) {
 		super(config);
-		analyzer = LuceneAnalyzerFactory.createAnalyzer(config);
+		analyzer = LuceneAnalyzerFactory.getAnalyzer(config);
 	}
 
 	/**
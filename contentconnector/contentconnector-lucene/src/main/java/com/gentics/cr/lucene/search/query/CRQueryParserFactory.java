@@ -1,5 +1,10 @@
 package com.gentics.cr.lucene.search.query;
 
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 import org.apache.log4j.Logger;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.queryParser.QueryParser;
@@ -50,6 +55,12 @@ public final class CRQueryParserFactory {
 	 * queryparser key.
 	 */
 	private static final String QUERY_PARSER_CONFIG = "queryparser";
+
+	/**
+	 * Parser templates per config and parser subconfig.
+	 */
+	private static final Map<CRConfig, Map<Object, ParserTemplate>> TEMPLATES =
+			new WeakHashMap<CRConfig, Map<Object, ParserTemplate>>();
 	
 	/***
 	 * Generates a prepared and configured QueryParser.
@@ -77,51 +88,169 @@ public final class CRQueryParserFactory {
 	
 	private static QueryParser getParser(final String[] searchedAttributes, final Analyzer analyzer,
 			final CRRequest request, final CRConfig config, final Object subconfig) {
-		QueryParser parser = null;
-		
-		if (subconfig != null && subconfig instanceof GenericConfiguration) {
-			GenericConfiguration pconfig = (GenericConfiguration) subconfig;
+		return getTemplate(config, subconfig).createParser(searchedAttributes, analyzer, request);
+	}
+
+	/**
+	 * Get the parser template for the given config and parser subconfig. The template is created once per config
+	 * and subconfig, the configs are compared by identity so a reloaded config gets a new template.
+	 * @param config config
+	 * @param subconfig parser subconfig of the config
+	 * @return template to create the parsers with
+	 */
+	private static ParserTemplate getTemplate(final CRConfig config, final Object subconfig) {
+		synchronized (TEMPLATES) {
+			Map<Object, ParserTemplate> configTemplates = TEMPLATES.get(config);
+			if (configTemplates == null) {
+				configTemplates = new HashMap<Object, ParserTemplate>();
+				TEMPLATES.put(config, configTemplates);
+			}
+			ParserTemplate template = configTemplates.get(subconfig);
+			if (template == null) {
+				template = new ParserTemplate(config, subconfig);
+				configTemplates.put(subconfig, template);
+			}
+			return template;
+		}
+	}
+
+	/**
+	 * Immutable settings of the parsers created for a config. The parser itself is created for every request as
+	 * the parsers are not thread safe and may depend on the request.
+	 */
+	private static final class ParserTemplate {
+
+		/**
+		 * Configuration of the parser, null if no parser class is configured.
+		 */
+		private final GenericConfiguration pconfig;
+
+		/**
+		 * Configured parser class, null if the default parser is used.
+		 */
+		private final Class<?> parserClass;
 
-			String parserClass = pconfig.getString(QUERY_PARSER_CLASS);
+		/**
+		 * Constructor of the configured parser class found for the first request, null if it is not known yet.
+		 */
+		private volatile Constructor<?> parserConstructor;
+
+		/**
+		 * Index of the parameter variant the {@link #parserConstructor} takes.
+		 */
+		private volatile int parserParameterVariant;
+
+		/**
+		 * Convert expanded terms to lower case.
+		 */
+		private final boolean lowercaseExpandedTerms;
+
+		/**
+		 * Read the parser settings from the config.
+		 * @param config config
+		 * @param subconfig parser subconfig
+		 */
+		ParserTemplate(final CRConfig config, final Object subconfig) {
+			Class<?> clazz = null;
+			GenericConfiguration parserConfig = null;
+			if (subconfig != null && subconfig instanceof GenericConfiguration) {
+				parserConfig = (GenericConfiguration) subconfig;
+				String parserClassName = parserConfig.getString(QUERY_PARSER_CLASS);
+				if (parserClassName != null) {
+					try {
+						clazz = Class.forName(parserClassName);
+					} catch (ClassNotFoundException e) {
+						logger.warn(String.format(
+							"Configured %s '%s' of CRConfig %s was not found",
+							QUERY_PARSER_CLASS,
+							parserClassName,
+							config.getName()), e);
+					}
+				}
+			}
+			pconfig = parserConfig;
+			parserClass = clazz;
+
+			//CONFIGURE MAX CLAUSES
+			BooleanQuery.setMaxClauseCount(config.getInteger(
+				QUERY_PARSER_CONFIG + "." + MAX_CLAUSES_KEY,
+				BooleanQuery.getMaxClauseCount()));
+
+			//CONFIGURE LOWER CASE EXPANDED TERMS (useful for WhitespaceAnalyzer)
+			lowercaseExpandedTerms = config.getBoolean(QUERY_PARSER_CONFIG + "." + LOWER_CASE_EXPANDED_TERMS_KEY, true);
+		}
+
+		/**
+		 * Create a new parser.
+		 * @param searchedAttributes attributes
+		 * @param analyzer analyzer
+		 * @param request request
+		 * @return configured parser
+		 */
+		QueryParser createParser(final String[] searchedAttributes, final Analyzer analyzer, final CRRequest request) {
+			QueryParser parser = null;
 			if (parserClass != null) {
-				parser = (QueryParser) Instanciator.getInstance(parserClass, new Object[][] {
+				Object[][] parameterVariants = new Object[][] {
 						new Object[] {
 						pconfig, LuceneVersion.getVersion(), searchedAttributes, analyzer, request },
 						new Object[] {
 						LuceneVersion.getVersion(), searchedAttributes, analyzer, request },
 						new Object[] {
-								LuceneVersion.getVersion(), searchedAttributes[0], analyzer }});
-				
+								LuceneVersion.getVersion(), searchedAttributes[0], analyzer }};
+				parser = newParser(parameterVariants);
 				if (parser == null) {
 					logger.warn(String.format(
-						"Configured %s '%s' of CRConfig %s was not initialized",
+						"Configured %s '%s' was not initialized",
 						QUERY_PARSER_CLASS,
-						parserClass,
-						config.getName()));
+						parserClass.getName()));
 				}
+			}
 
+			if (parser == null) {
+				//USE DEFAULT QUERY PARSER
+				parser = new QueryParser(LuceneVersion.getVersion(), searchedAttributes[0], analyzer);
 			}
 
-		}
+			parser.setLowercaseExpandedTerms(lowercaseExpandedTerms);
 
-		if (parser == null) {
-			//USE DEFAULT QUERY PARSER
-			parser = new QueryParser(LuceneVersion.getVersion(), searchedAttributes[0], analyzer);
+			//ADD SUPPORT FOR LEADING WILDCARDS
+			parser.setAllowLeadingWildcard(true);
+			parser.setMultiTermRewriteMethod(MultiTermQuery.SCORING_BOOLEAN_QUERY_REWRITE);
+			return parser;
 		}
 
-		//CONFIGURE MAX CLAUSES
-		BooleanQuery.setMaxClauseCount(config.getInteger(
-			QUERY_PARSER_CONFIG + "." + MAX_CLAUSES_KEY,
-			BooleanQuery.getMaxClauseCount()));
-
-		//CONFIGURE LOWER CASE EXPANDED TERMS (useful for WhitespaceAnalyzer)
-		parser.setLowercaseExpandedTerms(config.getBoolean(
-			QUERY_PARSER_CONFIG + "." + LOWER_CASE_EXPANDED_TERMS_KEY,
-			true));
-
-		//ADD SUPPORT FOR LEADING WILDCARDS
-		parser.setAllowLeadingWildcard(true);
-		parser.setMultiTermRewriteMethod(MultiTermQuery.SCORING_BOOLEAN_QUERY_REWRITE);
-		return parser;
+		/**
+		 * Instantiate the configured parser class. The constructor is looked up once and reused for the following
+		 * requests.
+		 * @param parameterVariants parameters for the constructors in the order of preference
+		 * @return new parser or null if the class could not be instantiated
+		 */
+		private QueryParser newParser(final Object[][] parameterVariants) {
+			Constructor<?> constructor = parserConstructor;
+			if (constructor != null) {
+				try {
+					return (QueryParser) constructor.newInstance(parameterVariants[parserParameterVariant]);
+				} catch (Exception e) {
+					logger.debug("Cannot instanciate " + parserClass + " with the cached constructor.", e);
+				}
+			}
+			for (int i = 0; i < parameterVariants.length; i++) {
+				constructor = Instanciator.getMatchingConstructor(parserClass,
+					Instanciator.getParameterClasses(parameterVariants[i]));
+				if (constructor != null) {
+					try {
+						QueryParser parser = (QueryParser) constructor.newInstance(parameterVariants[i]);
+						parserParameterVariant = i;
+						parserConstructor = constructor;
+						return parser;
+					} catch (Exception e) {
+						logger.debug("Cannot instanciate " + parserClass + " with parameters ("
+								+ Instanciator.getReadableStringFromClassArray(Instanciator
+										.getParameterClasses(parameterVariants[i])) + ").", e);
+					}
+				}
+			}
+			return null;
+		}
 	}
 }
@@ -0,0 +1,163 @@
+package com.gentics.cr.lucene.facets.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.facet.index.CategoryDocumentBuilder;
+import org.apache.lucene.facet.taxonomy.CategoryPath;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.gentics.cr.CRConfigUtil;
+import com.gentics.cr.lucene.LuceneVersion;
+import com.gentics.cr.lucene.facets.taxonomy.TaxonomyMapping;
+import com.gentics.cr.lucene.facets.taxonomy.taxonomyaccessor.DefaultTaxonomyAccessor;
+
+public class FacetsSearchTest {
+
+	private static final String[] VEHICLES = new String[] { "cars", "bikes", "cars", "boats", "cars", "bikes" };
+
+	private static RAMDirectory indexDirectory;
+
+	private static DefaultTaxonomyAccessor taAccessor;
+
+	private static IndexReader reader;
+
+	private static FacetsSearch facetsSearch;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		indexDirectory = new RAMDirectory();
+		RAMDirectory taxonomyDirectory = new RAMDirectory();
+		DirectoryTaxonomyWriter taxonomyWriter = new DirectoryTaxonomyWriter(taxonomyDirectory);
+		IndexWriter writer = new IndexWriter(indexDirectory, new IndexWriterConfig(LuceneVersion.getVersion(),
+				new WhitespaceAnalyzer(LuceneVersion.getVersion())));
+		for (int i = 0; i < VEHICLES.length; i++) {
+			Document document = new Document();
+			document.add(new Field("content", i % 2 == 0 ? "even" : "odd", Field.Store.YES,
+					Field.Index.NOT_ANALYZED));
+			new CategoryDocumentBuilder(taxonomyWriter).setCategoryPaths(
+				Collections.singletonList(new CategoryPath("vehicle", VEHICLES[i]))).build(document);
+			writer.addDocument(document);
+		}
+		addDocumentWithoutCategories(writer);
+		writer.close();
+		taxonomyWriter.close();
+
+		taAccessor = new DefaultTaxonomyAccessor(OpenMode.APPEND, taxonomyDirectory);
+		taAccessor.open();
+		taAccessor.addTaxonomyMapping(new TaxonomyMapping("vehicle", "vehicle"));
+		taAccessor.addTaxonomyMapping(new TaxonomyMapping("color", "color"));
+		reader = IndexReader.open(indexDirectory);
+
+		CRConfigUtil config = new CRConfigUtil();
+		config.setName("FacetsSearchTest");
+		config.set(FacetsSearchConfigKeys.FACETS_ENABLED_KEY, "true");
+		config.set(FacetsSearchConfigKeys.FACETS_CONFIG_KEY + "."
+				+ FacetsSearchConfigKeys.FACET_NUMBER_OF_CATEGORIES_KEY, "2");
+		config.set(FacetsSearchConfigKeys.FACETS_CONFIG_KEY + "." + FacetsSearchConfigKeys.FACETS_DISPLAY_PATH_KEY,
+			"true");
+		facetsSearch = new FacetsSearch(config);
+	}
+
+	private static void addDocumentWithoutCategories(final IndexWriter writer) throws IOException {
+		Document document = new Document();
+		document.add(new Field("content", "none", Field.Store.YES, Field.Index.NOT_ANALYZED));
+		writer.addDocument(document);
+	}
+
+	@AfterClass
+	public static void tearDown() throws IOException {
+		reader.close();
+		taAccessor.close();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, FacetCategory> search(final Query query) throws IOException {
+		TaxonomyReader taReader = taAccessor.getTaxonomyReader();
+		IndexSearcher searcher = new IndexSearcher(reader);
+		try {
+			FacetCountsCollector collector = facetsSearch.createFacetsCollector(reader, taAccessor, taReader);
+			searcher.search(query, collector);
+			return (Map<String, FacetCategory>) facetsSearch.getFacetsResults(collector);
+		} finally {
+			searcher.close();
+			taAccessor.release(taReader);
+		}
+	}
+
+	@Test
+	public void testCounts() throws IOException {
+		Map<String, FacetCategory> result = search(new MatchAllDocsQuery());
+		assertEquals(2, result.size());
+		FacetCategory vehicle = result.get("0");
+		assertEquals("vehicle", vehicle.getName());
+		assertEquals(6, vehicle.getCount());
+		List<FacetCategory> subnodes = vehicle.getSubnodes();
+		assertEquals("Only the configured number of categories is returned.", 2, subnodes.size());
+		assertEquals("cars", subnodes.get(0).getName());
+		assertEquals(3, subnodes.get(0).getCount());
+		assertEquals("vehicle/cars", subnodes.get(0).getPath());
+		assertNull("The ordinal is not displayed.", subnodes.get(0).getOrdinal());
+		assertEquals("bikes", subnodes.get(1).getName());
+		assertEquals(2, subnodes.get(1).getCount());
+
+		FacetCategory color = result.get("1");
+		assertEquals("A category that is not in the taxonomy has no hits.", 0, color.getCount());
+		assertEquals(0, color.getSubnodes().size());
+	}
+
+	@Test
+	public void testCountsOfHits() throws IOException {
+		FacetCategory vehicle = search(new TermQuery(new Term("content", "odd"))).get("0");
+		assertEquals(3, vehicle.getCount());
+		assertEquals("bikes", vehicle.getSubnodes().get(0).getName());
+		assertEquals(2, vehicle.getSubnodes().get(0).getCount());
+		assertEquals("boats", vehicle.getSubnodes().get(1).getName());
+		assertEquals(1, vehicle.getSubnodes().get(1).getCount());
+	}
+
+	@Test
+	public void testResultMap() throws IOException {
+		FacetCategory vehicle = search(new TermQuery(new Term("content", "even"))).get("0");
+		assertEquals("vehicle", vehicle.get(FacetsSearchConfigKeys.RESULT_FACETS_CATEGORY_NAME_KEY));
+		assertEquals(Integer.valueOf(3), vehicle.get(FacetsSearchConfigKeys.RESULT_FACETS_TOTAL_COUNT_KEY));
+		assertEquals("vehicle", vehicle.get(FacetsSearchConfigKeys.RESULT_FACETS_PATH_KEY));
+		assertNull(vehicle.get(FacetsSearchConfigKeys.RESULT_FACETS_ORDINAL_KEY));
+		assertSame(vehicle.getSubnodes(), vehicle.get(FacetsSearchConfigKeys.RESULT_FACETS_SUBNODES_KEY));
+	}
+
+	@Test
+	public void testRequestedCategoriesAreCached() throws IOException {
+		TaxonomyReader taReader = taAccessor.getTaxonomyReader();
+		try {
+			FacetCountsCollector first = facetsSearch.createFacetsCollector(reader, taAccessor, taReader);
+			FacetCountsCollector second = facetsSearch.createFacetsCollector(reader, taAccessor, taReader);
+			assertSame(first.getCategories(), second.getCategories());
+		} finally {
+			taAccessor.release(taReader);
+		}
+	}
+}
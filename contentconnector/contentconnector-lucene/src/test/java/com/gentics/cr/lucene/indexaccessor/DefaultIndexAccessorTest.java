@@ -2,14 +2,24 @@ package com.gentics.cr.lucene.indexaccessor;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.search.BooleanQuery;
@@ -59,6 +69,44 @@ public class DefaultIndexAccessorTest {
 		assertNotNull(accessor);
 	}
 
+	@Test
+	public void testNearRealTimeSearch() throws IOException, InterruptedException {
+		factory.createAccessor(ramdir, analyzer, 50);
+
+		IndexAccessor accessor = factory.getAccessor(ramdir);
+		assertNearRealTimeSearch(accessor, 1);
+	}
+
+	@Test
+	public void testNearRealTimeSearchAfterClose() throws IOException, InterruptedException {
+		factory.createAccessor(ramdir, analyzer, 50);
+
+		IndexAccessor accessor = factory.getAccessor(ramdir);
+		assertNearRealTimeSearch(accessor, 1);
+		accessor.close();
+		accessor.open();
+		assertNearRealTimeSearch(accessor, 2);
+	}
+
+	private void assertNearRealTimeSearch(final IndexAccessor accessor, final int expectedDocs) throws IOException,
+			InterruptedException {
+		IndexWriter writer = accessor.getWriter();
+		Document document = new Document();
+		document.add(new Field("contentid", "10002." + expectedDocs, Field.Store.YES, Field.Index.NOT_ANALYZED));
+		writer.addDocument(document);
+
+		// the document is visible before the writer is released
+		int numDocs = 0;
+		for (int i = 0; i < 100 && numDocs < expectedDocs; i++) {
+			Thread.sleep(50);
+			IndexSearcher searcher = accessor.getSearcher();
+			numDocs = searcher.getIndexReader().numDocs();
+			accessor.release(searcher);
+		}
+		assertEquals(expectedDocs, numDocs);
+		accessor.release(writer);
+	}
+
 	@Test
 	public void testGetReaderWithClose() throws IOException {
 		factory.createAccessor(ramdir, analyzer);
@@ -168,9 +216,59 @@ public class DefaultIndexAccessorTest {
 		// releasing those readers should throw no illegal argument exception
 		accessor.release(reader, false);
 		accessor.release(newReader, false);
-		accessor.release(changedReader, false);
-		// releasing an already released reader should not change the use count
+		try {
+			accessor.release(changedReader, false);
+			fail("Releasing an already released reader must fail.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
 		assertEquals(accessor.readingReadersOut(), 0);
+		try {
+			accessor.release(reader, false);
+			fail("Releasing a closed reader must fail.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testConcurrentAcquireAndRelease() throws Exception {
+		File concurrentIndexLocation = testFolder.newFolder("concurrentIndexLocation");
+		FileUtils.copyDirectory(new File(this.getClass().getResource("orignalIndex").toURI()), concurrentIndexLocation);
+		FSDirectory fsDir = FSDirectory.open(concurrentIndexLocation);
+		factory.createAccessor(fsDir, analyzer);
+		final IndexAccessor accessor = factory.getAccessor(fsDir);
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						for (int j = 0; j < 500; j++) {
+							IndexSearcher searcher = accessor.getSearcher();
+							IndexReader reader = accessor.getReader(false);
+							// both must still be open, even if a reopen replaced them in the meantime
+							assertTrue(searcher.getIndexReader().getRefCount() > 0);
+							assertTrue(reader.numDocs() >= 0);
+							accessor.release(reader, false);
+							accessor.release(searcher);
+						}
+						return null;
+					}
+				}));
+			}
+			for (int i = 0; i < 20; i++) {
+				accessor.reopen();
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(0, accessor.searcherUseCount());
+		assertEquals(0, accessor.readingReadersOut());
 	}
 
 }
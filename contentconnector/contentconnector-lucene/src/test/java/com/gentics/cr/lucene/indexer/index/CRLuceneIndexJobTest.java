@@ -0,0 +1,137 @@
+package com.gentics.cr.lucene.indexer.index;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+
+import com.gentics.cr.CRConfigUtil;
+import com.gentics.cr.configuration.GenericConfiguration;
+
+/**
+ * Tests the streaming and parallel indexing of the {@link CRLuceneIndexJob}.
+ */
+public class CRLuceneIndexJobTest extends TestCase {
+
+	/**
+	 * objects indexed at once.
+	 */
+	private static final int BATCHSIZE = 10;
+
+	/**
+	 * configuration of the index job.
+	 */
+	private CRConfigUtil config;
+
+	/**
+	 * index location the job writes to.
+	 */
+	private LuceneIndexLocation location;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		GenericConfiguration conf = new GenericConfiguration();
+		conf.set("indexLocations.1.path", "RAM_STREAMING");
+		conf.set("indexLocationClass", "com.gentics.cr.lucene.indexer.index.LuceneSingleIndexLocation");
+		conf.set("rp.1.rpClass", PagingDummyRequestProcessor.class.getName());
+		conf.set("BATCHSIZE", Integer.toString(BATCHSIZE));
+		conf.set("STREAMING", "true");
+		conf.set("updateattribute", "updatetimestamp");
+		conf.set("CONTAINEDATTRIBUTES", "content");
+		config = new CRConfigUtil(conf, "STREAMING");
+		location = LuceneIndexLocation.getIndexLocation(config);
+
+		PagingDummyRequestProcessor.OBJECTS.clear();
+		for (int i = 0; i < 25; i++) {
+			PagingDummyRequestProcessor.OBJECTS.put("10007." + (100 + i), 1);
+		}
+		PagingDummyRequestProcessor.resetMaxObjectsReturned();
+	}
+
+	/**
+	 * Index all objects and check that no request returned more than a batch.
+	 * @throws IOException if the index cannot be read.
+	 */
+	public void testStreamingIndex() throws IOException {
+		runJob();
+		assertEquals("Not all objects were indexed.", 25, countDocuments());
+		assertTrue("The job fetched more than one batch at once.",
+			PagingDummyRequestProcessor.getMaxObjectsReturned() <= BATCHSIZE);
+	}
+
+	/**
+	 * Remove some objects from the repository and check that they are deleted
+	 * from the index in streaming mode.
+	 * @throws IOException if the index cannot be read.
+	 */
+	public void testStreamingDeletesStaleObjects() throws IOException {
+		runJob();
+		for (int i = 0; i < 5; i++) {
+			PagingDummyRequestProcessor.OBJECTS.remove("10007." + (100 + i));
+		}
+		PagingDummyRequestProcessor.OBJECTS.put("10007.110", 2);
+		runJob();
+		assertEquals("Stale objects were not removed.", 20, countDocuments());
+		assertEquals("Stale object is still in the index.", 0, countDocuments(new Term("contentid", "10007.100")));
+		assertEquals("Updated object was indexed twice.", 1, countDocuments(new Term("contentid", "10007.110")));
+	}
+
+	/**
+	 * Index the objects with multiple threads and check that every object was
+	 * indexed exactly once.
+	 * @throws IOException if the index cannot be read.
+	 */
+	public void testParallelIndex() throws IOException {
+		config.set("THREADS", "4");
+		runJob();
+		assertEquals("Not all objects were indexed.", 25, countDocuments());
+		PagingDummyRequestProcessor.OBJECTS.put("10007.110", 2);
+		runJob();
+		assertEquals("Updated object was indexed twice.", 1, countDocuments(new Term("contentid", "10007.110")));
+		assertEquals("Index contains the wrong number of objects.", 25, countDocuments());
+	}
+
+	/**
+	 * Run a new index job.
+	 */
+	private void runJob() {
+		new CRLuceneIndexJob(config, location, null).run();
+	}
+
+	/**
+	 * @return number of documents in the index.
+	 * @throws IOException if the index cannot be read.
+	 */
+	private int countDocuments() throws IOException {
+		IndexReader reader = IndexReader.open(location.getDirectories()[0]);
+		try {
+			return reader.numDocs();
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * @param term term to search for.
+	 * @return number of documents containing the term.
+	 * @throws IOException if the index cannot be read.
+	 */
+	private int countDocuments(final Term term) throws IOException {
+		IndexReader reader = IndexReader.open(location.getDirectories()[0]);
+		TermDocs termDocs = reader.termDocs(term);
+		try {
+			int count = 0;
+			while (termDocs.next()) {
+				count++;
+			}
+			return count;
+		} finally {
+			termDocs.close();
+			reader.close();
+		}
+	}
+}
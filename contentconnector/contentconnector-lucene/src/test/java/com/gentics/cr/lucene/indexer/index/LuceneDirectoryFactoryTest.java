@@ -3,9 +3,17 @@ package com.gentics.cr.lucene.indexer.index;
 import java.io.File;
 import java.io.IOException;
 
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.FileSwitchDirectory;
 import org.apache.lucene.store.LockFactory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
 import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.store.SimpleFSLockFactory;
 
@@ -71,4 +79,87 @@ public class LuceneDirectoryFactoryTest extends AbstractLuceneTest {
 		tmp.delete();
 	}
 
+	public void testMMapDirectory() throws IOException {
+		CRConfig config = new CRConfigUtil();
+		config.set("directoryType", "mmap");
+		config.set("mmapChunkSize", "1048576");
+		File tmp = CRUtil.createTempDir();
+
+		Directory fs = LuceneDirectoryFactory.getDirectory(tmp.getAbsolutePath(), config);
+
+		assertEquals("Directory should be a MMapDirectory", fs instanceof MMapDirectory, true);
+		assertEquals(1048576, ((MMapDirectory) fs).getMaxChunkSize());
+
+		fs.close();
+		tmp.delete();
+	}
+
+	public void testNIOFSDirectory() throws IOException {
+		CRConfig config = new CRConfigUtil();
+		config.set("directoryType", "niofs");
+		File tmp = CRUtil.createTempDir();
+
+		Directory fs = LuceneDirectoryFactory.getDirectory(tmp.getAbsolutePath(), config);
+
+		assertEquals("Directory should be a NIOFSDirectory", fs instanceof NIOFSDirectory, true);
+
+		fs.close();
+		tmp.delete();
+	}
+
+	public void testHybridDirectory() throws IOException {
+		CRConfig config = new CRConfigUtil();
+		config.set("directoryType", "hybrid");
+		File tmp = CRUtil.createTempDir();
+
+		Directory fs = LuceneDirectoryFactory.getDirectory(tmp.getAbsolutePath(), config);
+
+		assertEquals("Directory should be a FileSwitchDirectory", fs instanceof FileSwitchDirectory, true);
+		FileSwitchDirectory hybrid = (FileSwitchDirectory) fs;
+		assertEquals("Primary directory should be a MMapDirectory", hybrid.getPrimaryDir() instanceof MMapDirectory, true);
+		assertEquals("Secondary directory should be a NIOFSDirectory", hybrid.getSecondaryDir() instanceof NIOFSDirectory, true);
+		assertEquals(1, addDocument(fs));
+
+		fs.close();
+		tmp.delete();
+	}
+
+	public void testRAMCachedDirectory() throws IOException {
+		CRConfig config = new CRConfigUtil();
+		config.set("directoryType", "ramcached");
+		File tmp = CRUtil.createTempDir();
+
+		Directory ramCached = LuceneDirectoryFactory.getDirectory(tmp.getAbsolutePath(), config);
+
+		assertEquals("Directory should be a RAMCachedDirectory", ramCached instanceof RAMCachedDirectory, true);
+		assertEquals(1, addDocument(ramCached));
+
+		// the document has been written through to the file system
+		Directory fs = FSDirectory.open(tmp);
+		IndexReader reader = IndexReader.open(fs);
+		assertEquals(1, reader.numDocs());
+		reader.close();
+		fs.close();
+
+		ramCached.close();
+		tmp.delete();
+	}
+
+	/**
+	 * Add a document to the directory.
+	 * @param dir directory
+	 * @return number of documents in the directory
+	 */
+	private int addDocument(final Directory dir) throws IOException {
+		IndexWriter writer = new IndexWriter(dir, new WhitespaceAnalyzer(), IndexWriter.MaxFieldLength.UNLIMITED);
+		Document doc = new Document();
+		doc.add(new Field("contentid", "10002.1", Field.Store.YES, Field.Index.NOT_ANALYZED));
+		writer.addDocument(doc);
+		writer.close();
+		IndexReader reader = IndexReader.open(dir);
+		int numDocs = reader.numDocs();
+		reader.close();
+		return numDocs;
+	}
+
 }
@@ -0,0 +1,119 @@
+package com.gentics.cr.lucene.indexer.index;
+
+import junit.framework.TestCase;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+
+import com.gentics.cr.CRConfigUtil;
+import com.gentics.cr.configuration.GenericConfiguration;
+import com.gentics.cr.exceptions.WrongOrderException;
+import com.gentics.cr.lucene.indexaccessor.IndexAccessor;
+
+/**
+ * Tests the update checks and the deletion of stale objects of the
+ * {@link LuceneIndexUpdateChecker}.
+ */
+public class LuceneIndexUpdateCheckerTest extends TestCase {
+
+	/**
+	 * identifyer of the content repository the checked documents belong to.
+	 */
+	private static final String CRID = "UPDATECHECKER";
+
+	/**
+	 * index location the documents are written to.
+	 */
+	private LuceneIndexLocation location;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		GenericConfiguration conf = new GenericConfiguration();
+		conf.set("indexLocations.1.path", "RAM_UPDATECHECKER");
+		conf.set("indexLocationClass", "com.gentics.cr.lucene.indexer.index.LuceneSingleIndexLocation");
+		location = LuceneIndexLocation.getIndexLocation(new CRConfigUtil(conf, CRID));
+
+		IndexAccessor accessor = location.getAccessor();
+		IndexWriter writer = accessor.getWriter();
+		try {
+			writer.deleteAll();
+			writer.addDocument(createDocument(CRID, "10007.1", "1"));
+			writer.addDocument(createDocument(CRID, "10007.2", "1"));
+			writer.addDocument(createDocument(CRID, "10007.3", "1"));
+			writer.addDocument(createDocument("OTHER", "10007.4", "1"));
+			// the identifyer is indexed as two terms, as an analyzed field would be
+			Document analyzed = createDocument(CRID, null, "1");
+			analyzed.add(new Field("contentid", "Object 5", Field.Store.YES, Field.Index.NO));
+			analyzed.add(new Field("contentid", "object", Field.Store.NO, Field.Index.NOT_ANALYZED));
+			analyzed.add(new Field("contentid", "5", Field.Store.NO, Field.Index.NOT_ANALYZED));
+			writer.addDocument(analyzed);
+		} finally {
+			accessor.release(writer);
+		}
+	}
+
+	/**
+	 * Check the timestamps of the objects with and without the timestamps
+	 * loaded at initialization.
+	 * @throws WrongOrderException if the objects are checked in the wrong
+	 * order.
+	 */
+	public void testCheckUpToDate() throws WrongOrderException {
+		LuceneIndexUpdateChecker[] checkers = new LuceneIndexUpdateChecker[] {
+				new LuceneIndexUpdateChecker(location, "CRID", CRID, "contentid"),
+				new LuceneIndexUpdateChecker(location, "CRID", CRID, "contentid", "updatetimestamp") };
+		for (LuceneIndexUpdateChecker checker : checkers) {
+			assertTrue(checker.isUpToDate("10007.1", 1, "updatetimestamp", null));
+			assertFalse("Changed object is up to date.", checker.isUpToDate("10007.2", 2, "updatetimestamp", null));
+			assertTrue("Analyzed identifyer was not read.", checker.isUpToDate("Object 5", 1, "updatetimestamp", null));
+			assertFalse("Object of another repository is up to date.",
+				checker.isUpToDate("10007.4", 1, "updatetimestamp", null));
+			assertFalse("Unknown object is up to date.", checker.isUpToDate("10007.9", 1, "updatetimestamp", null));
+		}
+	}
+
+	/**
+	 * Delete the objects that were not checked, including an object with an
+	 * analyzed identifyer, and keep the objects of other repositories.
+	 * @throws Exception if the index cannot be read.
+	 */
+	public void testDeleteStaleObjects() throws Exception {
+		LuceneIndexUpdateChecker checker = new LuceneIndexUpdateChecker(location, "CRID", CRID, "contentid",
+				"updatetimestamp");
+		checker.isUpToDate("10007.1", 1, "updatetimestamp", null);
+		checker.isUpToDate("10007.2", 1, "updatetimestamp", null);
+		checker.deleteStaleObjects();
+
+		IndexReader reader = IndexReader.open(location.getDirectories()[0]);
+		try {
+			assertEquals("Stale objects were not deleted.", 3, reader.numDocs());
+			assertFalse("Stale object was not deleted.", reader.termDocs(new Term("contentid", "10007.3")).next());
+			assertTrue("Object of another repository was deleted.", reader.termDocs(new Term("contentid", "10007.4"))
+					.next());
+			assertFalse("Object with an analyzed identifyer was not deleted.", reader.termDocs(
+				new Term("contentid", "object")).next());
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * @param crid identifyer of the content repository.
+	 * @param contentid identifyer of the object, not added if null.
+	 * @param timestamp update timestamp of the object.
+	 * @return a document as written by the index job.
+	 */
+	private static Document createDocument(final String crid, final String contentid, final String timestamp) {
+		Document document = new Document();
+		document.add(new Field("CRID", crid, Field.Store.YES, Field.Index.NOT_ANALYZED));
+		if (contentid != null) {
+			document.add(new Field("contentid", contentid, Field.Store.YES, Field.Index.NOT_ANALYZED));
+		}
+		document.add(new Field("updatetimestamp", timestamp, Field.Store.YES, Field.Index.NOT_ANALYZED));
+		return document;
+	}
+}
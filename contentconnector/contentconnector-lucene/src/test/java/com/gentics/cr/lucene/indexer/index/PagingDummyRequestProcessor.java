@@ -0,0 +1,90 @@
+package com.gentics.cr.lucene.indexer.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.gentics.cr.CRConfig;
+import com.gentics.cr.CRRequest;
+import com.gentics.cr.CRResolvableBean;
+import com.gentics.cr.RequestProcessor;
+import com.gentics.cr.exceptions.CRException;
+
+/**
+ * RequestProcessor serving the objects in {@link #OBJECTS} sorted by their
+ * contentid and honoring the start and count of the request. It remembers the
+ * largest amount of objects returned by a single request.
+ */
+public class PagingDummyRequestProcessor extends RequestProcessor {
+
+	/**
+	 * objects served by the RequestProcessor, contentid mapped to the
+	 * updatetimestamp.
+	 */
+	public static final TreeMap<String, Integer> OBJECTS = new TreeMap<String, Integer>();
+
+	/**
+	 * largest amount of objects returned by a single request.
+	 */
+	private static int maxObjectsReturned = 0;
+
+	/**
+	 * Constructor.
+	 * @param config configuration passed by the system.
+	 * @throws CRException exception thrown on error
+	 */
+	public PagingDummyRequestProcessor(final CRConfig config) throws CRException {
+		super(config);
+	}
+
+	/**
+	 * @return largest amount of objects returned by a single request since the
+	 * last reset.
+	 */
+	public static synchronized int getMaxObjectsReturned() {
+		return maxObjectsReturned;
+	}
+
+	/**
+	 * Reset the largest amount of objects returned by a single request.
+	 */
+	public static synchronized void resetMaxObjectsReturned() {
+		maxObjectsReturned = 0;
+	}
+
+	@Override
+	public Collection<CRResolvableBean> getObjects(final CRRequest request, final boolean doNavigation)
+			throws CRException {
+		int start = request.getStart().intValue();
+		int count = request.getCount().intValue();
+		Collection<CRResolvableBean> result = new ArrayList<CRResolvableBean>();
+		int position = 0;
+		for (Iterator<Entry<String, Integer>> it = OBJECTS.entrySet().iterator(); it.hasNext();) {
+			Entry<String, Integer> entry = it.next();
+			if (position >= start && (count < 0 || result.size() < count)) {
+				CRResolvableBean bean = new CRResolvableBean(entry.getKey());
+				bean.set("updatetimestamp", entry.getValue());
+				bean.set("content", "content of " + entry.getKey());
+				result.add(bean);
+			}
+			position++;
+		}
+		synchronized (PagingDummyRequestProcessor.class) {
+			maxObjectsReturned = Math.max(maxObjectsReturned, result.size());
+		}
+		return result;
+	}
+
+	@Override
+	public void fillAttributes(final Collection<CRResolvableBean> col, final CRRequest request, final String idAttribute)
+			throws CRException {
+		//the beans already contain all attributes
+	}
+
+	@Override
+	public void finalize() {
+	}
+
+}
@@ -2,16 +2,24 @@ package com.gentics.cr.lucene.search;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import junit.framework.Assert;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.TermVector;
+import org.apache.lucene.document.FieldSelector;
+import org.apache.lucene.document.FieldSelectorResult;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.ScoreDoc;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -100,6 +108,130 @@ public class LuceneRequestProcessorTest {
 		Assert.assertEquals("Suggestion did not match the expected value.", "ford", suggestions.get("frd")[0]);
 	}
 	
+	@Test
+	public void testResultCache() throws CRException, IOException {
+		CRConfigUtil rpConfig = config.getRequestProcessorConfig(1);
+		rpConfig.set(LuceneRequestProcessor.RESULT_CACHE_SIZE_KEY, "10");
+		LuceneRequestProcessor cachingRp = new LuceneRequestProcessor(rpConfig);
+		addDoc(location.getAccessor(), "content:canoe", "category:boats", "contentid:10007.10");
+
+		CRRequest request = new CRRequest();
+		request.setRequestFilter("category:boats");
+		Collection<CRResolvableBean> objects = cachingRp.getObjects(request);
+		Assert.assertEquals(1, objects.size());
+		Assert.assertEquals("Result of the search should be cached.", 1, cachingRp.getResultCache().size());
+		CRResolvableBean first = objects.iterator().next();
+		first.set("category", "changed");
+		CRResolvableBean cached = cachingRp.getObjects(request).iterator().next();
+		Assert.assertNotSame("Cached beans must not be shared between requests.", first, cached);
+		Assert.assertEquals("10007.10", cached.getContentid());
+		Assert.assertEquals("boats", cached.get("category"));
+		Assert.assertEquals(1, cachingRp.getResultCache().size());
+
+		addDoc(location.getAccessor(), "content:yacht", "category:boats", "contentid:10007.11");
+		Assert.assertEquals("Changing the index should invalidate the cache.", 2, cachingRp.getObjects(request)
+				.size());
+	}
+
+	@Test
+	public void testMimeTypeCounts() throws CRException, IOException {
+		CRConfigUtil rpConfig = config.getRequestProcessorConfig(1);
+		rpConfig.set(CRSearcher.RETRIEVE_UNIQUE_MIMETYPES_KEY, "true");
+		rpConfig.set(CRSearcher.RETRIEVE_MIMETYPE_COUNTS_KEY, "true");
+		LuceneRequestProcessor mimeTypeRp = new LuceneRequestProcessor(rpConfig);
+		addDoc(location.getAccessor(), "content:report", "category:documents", "mimetype:pdf", "contentid:10008.1");
+		addDoc(location.getAccessor(), "content:offer", "category:documents", "mimetype:pdf", "contentid:10008.2");
+		addDoc(location.getAccessor(), "content:letter", "category:documents", "mimetype:doc", "contentid:10008.3");
+		addDoc(location.getAccessor(), "content:photo", "category:images", "mimetype:jpeg", "contentid:10008.4");
+		// the analyzed mimetype is indexed as the terms application and pdf
+		addDoc(location.getAccessor(), "content:manual", "category:documents", "mimetype:application/pdf",
+			"contentid:10008.5");
+
+		CRRequest request = new CRRequest();
+		request.set("metaresolvable", "true");
+		request.setRequestFilter("category:documents");
+		CRResolvableBean metabean = mimeTypeRp.getObjects(request).iterator().next();
+
+		List<String> uniqueMimeTypes = (List<String>) metabean.get(CRSearcher.RESULT_UNIQUE_MIMETYPES_KEY);
+		Assert.assertEquals(Arrays.asList("application", "doc", "jpeg", "pdf"), uniqueMimeTypes);
+		Map<String, Integer> counts = (Map<String, Integer>) metabean.get(CRSearcher.RESULT_MIMETYPE_COUNTS_KEY);
+		Assert.assertEquals("Every term of a hit is counted.", Integer.valueOf(1), counts.get("application"));
+		Assert.assertEquals(Integer.valueOf(1), counts.get("doc"));
+		Assert.assertEquals(Integer.valueOf(0), counts.get("jpeg"));
+		Assert.assertEquals(Integer.valueOf(3), counts.get("pdf"));
+	}
+
+	@Test
+	public void testLoadRequestedAttributes() throws CRException {
+		CRConfigUtil rpConfig = config.getRequestProcessorConfig(1);
+		rpConfig.set("loadrequestedattributes", "true");
+		LuceneRequestProcessor selectingRp = new LuceneRequestProcessor(rpConfig);
+		CRRequest request = new CRRequest();
+		request.setRequestFilter("content:audi");
+		request.setAttributeArray(new String[] { "category" });
+		Collection<CRResolvableBean> objects = selectingRp.getObjects(request);
+		Assert.assertEquals(1, objects.size());
+		CRResolvableBean bean = objects.iterator().next();
+		Assert.assertEquals("10007.2", bean.getContentid());
+		Assert.assertEquals("cars", bean.get("category"));
+		Assert.assertFalse("Content was not requested.", bean.getAttrMap().containsKey("content"));
+	}
+
+	@Test
+	public void testFieldSelector() throws CRException {
+		CRConfigUtil rpConfig = config.getRequestProcessorConfig(1);
+		rpConfig.set("loadrequestedattributes", "true");
+		LuceneRequestProcessor selectingRp = new LuceneRequestProcessor(rpConfig);
+		CRRequest request = new CRRequest();
+		request.setAttributeArray(new String[] { "category" });
+		FieldSelector selector = selectingRp.createFieldSelector(request);
+		Assert.assertEquals("The id attribute is always loaded.", FieldSelectorResult.LOAD, selector.accept("contentid"));
+		Assert.assertEquals(FieldSelectorResult.LOAD, selector.accept("category"));
+		Assert.assertEquals("Content was not requested.", FieldSelectorResult.NO_LOAD, selector.accept("content"));
+		Assert.assertNull("Without an attribute array all stored fields are loaded.", selectingRp
+				.createFieldSelector(new CRRequest()));
+	}
+
+	@Test
+	public void testSearchAfter() throws CRException {
+		CRRequest request = new CRRequest();
+		request.setRequestFilter("category:cars");
+		request.setCountString("6");
+		List<String> expected = new ArrayList<String>();
+		for (CRResolvableBean bean : rp.getObjects(request)) {
+			expected.add(bean.getContentid());
+		}
+		Assert.assertEquals(6, expected.size());
+
+		List<String> paged = new ArrayList<String>();
+		String after = null;
+		for (int page = 0; page < 3; page++) {
+			CRRequest pageRequest = new CRRequest();
+			pageRequest.setRequestFilter("category:cars");
+			pageRequest.setCountString("2");
+			pageRequest.set("metaresolvable", "true");
+			pageRequest.set(CRRequest.SEARCH_AFTER_KEY, after);
+			Iterator<CRResolvableBean> objects = rp.getObjects(pageRequest).iterator();
+			after = (String) objects.next().get(CRSearcher.RESULT_AFTER_KEY);
+			Assert.assertNotNull("Metaresolvable should contain the cursor for the next page.", after);
+			while (objects.hasNext()) {
+				paged.add(objects.next().getContentid());
+			}
+		}
+		Assert.assertEquals("Paging with the cursor should return the same hits.", expected, paged);
+	}
+
+	@Test
+	public void testAfterToken() {
+		String token = CRSearcher.createAfterToken(new ScoreDoc(42, 0.125f), 7);
+		ScoreDoc scoreDoc = CRSearcher.parseAfterToken(token, 7);
+		Assert.assertEquals(42, scoreDoc.doc);
+		Assert.assertEquals(0.125f, scoreDoc.score, 0);
+		Assert.assertNull("Cursor of another index version was accepted.", CRSearcher.parseAfterToken(token, 8));
+		Assert.assertNotNull(CRSearcher.parseAfterToken(CRSearcher.createAfterToken(scoreDoc, -1), -1));
+		Assert.assertNull(CRSearcher.parseAfterToken("invalid", 7));
+	}
+
 	@AfterClass
 	public static void tearDown() throws IOException {
 		DidyoumeanIndexExtension dymProvider = ((LuceneRequestProcessor) rp).getCRSearcher().getDYMProvider();
@@ -0,0 +1,165 @@
+package com.gentics.cr.lucene.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.TermVector;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.Query;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.gentics.cr.CRConfigStreamLoader;
+import com.gentics.cr.CRConfigUtil;
+import com.gentics.cr.CRRequest;
+import com.gentics.cr.CRResolvableBean;
+import com.gentics.cr.configuration.EnvironmentConfiguration;
+import com.gentics.cr.configuration.GenericConfiguration;
+import com.gentics.cr.exceptions.CRException;
+import com.gentics.cr.lucene.indexaccessor.IndexAccessor;
+import com.gentics.cr.lucene.indexer.index.LuceneIndexLocation;
+import com.gentics.cr.lucene.search.highlight.ContentHighlighter;
+
+public class ParallelHighlightingTest {
+
+	private static final int DOCUMENTS = 8;
+
+	private static CRConfigUtil config;
+
+	@BeforeClass
+	public static void setUp() throws CRException, IOException {
+		EnvironmentConfiguration.loadEnvironmentProperties();
+		config = new CRConfigStreamLoader("highlightsearch",
+				ParallelHighlightingTest.class.getResourceAsStream("search.properties"));
+		CRConfigUtil rpConfig = config.getRequestProcessorConfig(1);
+		IndexAccessor accessor = LuceneIndexLocation.getIndexLocation(rpConfig).getAccessor();
+		for (int i = 0; i < DOCUMENTS; i++) {
+			Document document = new Document();
+			document.add(new Field("contentid", "10010." + i, Field.Store.YES, Field.Index.NOT_ANALYZED));
+			document.add(new Field("content", "a boat with number " + i + " and a long description", Field.Store.YES,
+					Field.Index.ANALYZED, TermVector.WITH_POSITIONS_OFFSETS));
+			IndexWriter writer = accessor.getWriter();
+			writer.addDocument(document);
+			accessor.release(writer);
+		}
+	}
+
+	private static LuceneRequestProcessor createRequestProcessor(final String threads, final String timeout)
+			throws CRException {
+		return createRequestProcessor(threads, timeout, "10");
+	}
+
+	private static LuceneRequestProcessor createRequestProcessor(final String threads, final String timeout,
+			final String queueSize) throws CRException {
+		CRConfigUtil rpConfig = config.getRequestProcessorConfig(1);
+		rpConfig.set("highlighter.1.class", SlowHighlighter.class.getName());
+		rpConfig.set("highlighter.1.attribute", "content");
+		rpConfig.set("highlighter.1.rule", "1==1");
+		rpConfig.set(LuceneRequestProcessor.HIGHLIGHT_THREADS_KEY, threads);
+		rpConfig.set(LuceneRequestProcessor.HIGHLIGHT_TIMEOUT_KEY, timeout);
+		rpConfig.set(LuceneRequestProcessor.HIGHLIGHT_FALLBACK_LENGTH_KEY, "12");
+		rpConfig.set(LuceneRequestProcessor.HIGHLIGHT_QUEUE_SIZE_KEY, queueSize);
+		rpConfig.set(LuceneRequestProcessor.RESULT_CACHE_SIZE_KEY, "10");
+		return new LuceneRequestProcessor(rpConfig);
+	}
+
+	private static Collection<CRResolvableBean> search(final LuceneRequestProcessor rp, final String query)
+			throws CRException {
+		CRRequest request = new CRRequest();
+		request.setRequestFilter(query);
+		Collection<CRResolvableBean> objects = rp.getObjects(request);
+		assertEquals(DOCUMENTS, objects.size());
+		return objects;
+	}
+
+	@Test
+	public void testParallelHighlighting() throws CRException {
+		LuceneRequestProcessor rp = createRequestProcessor("4", "0");
+		for (CRResolvableBean bean : search(rp, "content:boat")) {
+			assertTrue(((String) bean.get("content")).startsWith("[highlighted]"));
+		}
+		assertEquals("Highlighted result was not cached.", 1, rp.getResultCache().size());
+		rp.finalize();
+	}
+
+	@Test
+	public void testFullQueue() throws CRException {
+		LuceneRequestProcessor rp = createRequestProcessor("2", "0", "1");
+		for (CRResolvableBean bean : search(rp, "content:boat")) {
+			assertTrue("Documents that do not fit into the queue were not highlighted.",
+				((String) bean.get("content")).startsWith("[highlighted]"));
+		}
+		rp.finalize();
+	}
+
+	@Test
+	public void testSequentialHighlighting() throws CRException {
+		LuceneRequestProcessor rp = createRequestProcessor("1", "0");
+		for (CRResolvableBean bean : search(rp, "content:boat")) {
+			assertTrue(((String) bean.get("content")).startsWith("[highlighted]"));
+		}
+	}
+
+	@Test
+	public void testTimeout() throws CRException {
+		LuceneRequestProcessor rp = createRequestProcessor("2", "200");
+		SlowHighlighter.delay = 1000;
+		long start = System.currentTimeMillis();
+		try {
+			for (CRResolvableBean bean : search(rp, "content:boat")) {
+				assertEquals("a boat with ...", (String) bean.get("content"));
+			}
+		} finally {
+			SlowHighlighter.delay = 0;
+		}
+		assertTrue("Highlighting did not respect the timeout.", System.currentTimeMillis() - start < 1000);
+		assertEquals("Result with fallback snippets was cached.", 0, rp.getResultCache().size());
+		rp.finalize();
+	}
+
+	@Test
+	public void testFallbackSnippet() {
+		assertEquals("short text", LuceneRequestProcessor.createFallbackSnippet("short text", 12));
+		assertEquals("a boat with ...", LuceneRequestProcessor.createFallbackSnippet("a boat with number 1", 12));
+		assertEquals("averylongwor ...", LuceneRequestProcessor.createFallbackSnippet("averylongword text", 12));
+	}
+
+	/**
+	 * Marks the highlighted attribute and waits for the configured delay.
+	 */
+	public static class SlowHighlighter extends ContentHighlighter {
+
+		private static volatile long delay = 0;
+
+		public SlowHighlighter(final GenericConfiguration config) {
+			super(config);
+		}
+
+		@Override
+		protected int getDefaultFragmentSize() {
+			return 100;
+		}
+
+		@Override
+		protected int getDefaultMaxFragments() {
+			return 1;
+		}
+
+		@Override
+		public String highlight(final String attribute, final Query parsedQuery) {
+			if (delay > 0) {
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return "[highlighted]" + attribute;
+		}
+	}
+}
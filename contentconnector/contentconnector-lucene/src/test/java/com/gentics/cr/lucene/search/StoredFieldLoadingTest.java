@@ -0,0 +1,83 @@
+package com.gentics.cr.lucene.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldSelector;
+import org.apache.lucene.document.MapFieldSelector;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.gentics.cr.lucene.LuceneVersion;
+
+/**
+ * Checks which stored fields are loaded with and without a {@link FieldSelector}.
+ */
+public class StoredFieldLoadingTest {
+
+	private static final int DOCUMENTS = 3;
+
+	private static final int CONTENT_SIZE = 1000;
+
+	private static RAMDirectory directory;
+
+	private static IndexReader reader;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		directory = new RAMDirectory();
+		IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(LuceneVersion.getVersion(),
+				new WhitespaceAnalyzer(LuceneVersion.getVersion())));
+		char[] content = new char[CONTENT_SIZE];
+		for (int i = 0; i < DOCUMENTS; i++) {
+			Arrays.fill(content, (char) ('a' + i % 26));
+			Document document = new Document();
+			document.add(new Field("contentid", "10007." + i, Field.Store.YES, Field.Index.NOT_ANALYZED));
+			document.add(new Field("name", "document " + i, Field.Store.YES, Field.Index.ANALYZED));
+			document.add(new Field("content", new String(content), Field.Store.YES, Field.Index.NO));
+			document.add(new Field("binarycontent", new String(content).getBytes("UTF-8")));
+			writer.addDocument(document);
+		}
+		writer.close();
+		reader = IndexReader.open(directory);
+	}
+
+	@AfterClass
+	public static void tearDown() throws IOException {
+		reader.close();
+		directory.close();
+	}
+
+	@Test
+	public void testSelectedFields() throws IOException {
+		IndexSearcher searcher = new IndexSearcher(reader);
+		Document document = searcher.doc(0, new MapFieldSelector("contentid", "name"));
+		assertEquals("10007.0", document.get("contentid"));
+		assertEquals("document 0", document.get("name"));
+		assertNull(document.getFieldable("content"));
+		assertNull(document.getFieldable("binarycontent"));
+	}
+
+	@Test
+	public void testAllFields() throws IOException {
+		IndexSearcher searcher = new IndexSearcher(reader);
+		Document document = searcher.doc(1, (FieldSelector) null);
+		assertEquals("10007.1", document.get("contentid"));
+		assertEquals(CONTENT_SIZE, document.get("content").length());
+		assertNotNull(document.getFieldable("binarycontent"));
+		assertEquals(4, document.getFields().size());
+	}
+}
@@ -0,0 +1,73 @@
+package com.gentics.cr.lucene.search.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.queryParser.ParseException;
+import org.apache.lucene.queryParser.QueryParser;
+import org.junit.Test;
+
+import com.gentics.cr.CRConfigUtil;
+import com.gentics.cr.CRRequest;
+import com.gentics.cr.lucene.indexer.index.LuceneAnalyzerFactory;
+
+public class CRQueryParserFactoryTest {
+
+	private static final String[] SEARCHED_ATTRIBUTES = new String[] { "content", "name" };
+
+	private static CRConfigUtil createConfig() {
+		CRConfigUtil config = new CRConfigUtil();
+		config.setName("CRQueryParserFactoryTest");
+		config.set("queryparser.class", CRQueryParser.class.getName());
+		return config;
+	}
+
+	@Test
+	public void testAnalyzerIsCachedPerConfig() {
+		CRConfigUtil config = createConfig();
+		Analyzer analyzer = LuceneAnalyzerFactory.getAnalyzer(config);
+		assertSame(analyzer, LuceneAnalyzerFactory.getAnalyzer(config));
+		assertNotSame("A reloaded config has to get a new analyzer.", analyzer,
+			LuceneAnalyzerFactory.getAnalyzer(createConfig()));
+	}
+
+	@Test
+	public void testConfiguredParser() {
+		CRConfigUtil config = createConfig();
+		Analyzer analyzer = LuceneAnalyzerFactory.getAnalyzer(config);
+		QueryParser first = CRQueryParserFactory.getConfiguredParser(SEARCHED_ATTRIBUTES, analyzer, new CRRequest(),
+			config);
+		QueryParser second = CRQueryParserFactory.getConfiguredParser(SEARCHED_ATTRIBUTES, analyzer,
+			new CRRequest(), config);
+		assertEquals(CRQueryParser.class, first.getClass());
+		assertEquals(CRQueryParser.class, second.getClass());
+		assertNotSame("Parsers are not thread safe and must not be shared.", first, second);
+	}
+
+	@Test
+	public void testDefaultParser() {
+		CRConfigUtil config = new CRConfigUtil();
+		QueryParser parser = CRQueryParserFactory.getConfiguredParser(SEARCHED_ATTRIBUTES,
+			LuceneAnalyzerFactory.getAnalyzer(config), new CRRequest(), config);
+		assertEquals(QueryParser.class, parser.getClass());
+	}
+
+	/**
+	 * The parsers created from the cached template and analyzer have to parse queries like parsers created from a
+	 * new analyzer and config.
+	 */
+	@Test
+	public void testCachedParserParsesLikeNewParser() throws ParseException {
+		CRConfigUtil config = createConfig();
+		String[] queries = new String[] { "Suche", "content:Test AND name:foo*", "\"new york\" OR name:(a b)" };
+		for (String query : queries) {
+			QueryParser uncached = CRQueryParserFactory.getConfiguredParser(SEARCHED_ATTRIBUTES,
+				LuceneAnalyzerFactory.createAnalyzer(config), new CRRequest(), createConfig());
+			QueryParser cached = CRQueryParserFactory.getConfiguredParser(SEARCHED_ATTRIBUTES,
+				LuceneAnalyzerFactory.getAnalyzer(config), new CRRequest(), config);
+			assertEquals(query, uncached.parse(query).toString(), cached.parse(query).toString());
+		}
+	}
+}
@@ -2,6 +2,7 @@ package com.gentics.cr.lucene.indexer.transformer;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.concurrent.Callable;
 
 import org.apache.poi.POITextExtractor;
 import org.apache.poi.extractor.ExtractorFactory;
@@ -81,9 +82,18 @@ public class POIContentTransformer extends ContentTransformer {
 	@Override
 	public void processBean(final CRResolvableBean bean) throws CRException {
 		if (this.attribute != null) {
-			Object obj = bean.get(this.attribute);
+			final Object obj = bean.get(this.attribute);
 			if (obj != null) {
-				String newString = getStringContents(obj);
+				String cacheKey = getExtractionCacheKey(obj);
+				String newString = getCachedText(cacheKey);
+				if (newString == null) {
+					newString = executeParser(bean, obj, new Callable<String>() {
+						public String call() throws Exception {
+							return getStringContents(obj);
+						}
+					});
+					cacheText(cacheKey, newString);
+				}
 				if (newString != null) {
 					bean.set(this.attribute, newString);
 				}
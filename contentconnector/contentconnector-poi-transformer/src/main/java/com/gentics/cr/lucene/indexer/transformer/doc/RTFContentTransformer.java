@@ -2,6 +2,7 @@ package com.gentics.cr.lucene.indexer.transformer.doc;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.concurrent.Callable;
 
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultStyledDocument;
@@ -73,9 +74,18 @@ public class RTFContentTransformer extends ContentTransformer {
 	@Override
 	public void processBean(CRResolvableBean bean) throws CRException {
 		if (this.attribute != null) {
-			Object obj = bean.get(this.attribute);
+			final Object obj = bean.get(this.attribute);
 			if (obj != null) {
-				String newString = getStringContents(obj);
+				String cacheKey = getExtractionCacheKey(obj);
+				String newString = getCachedText(cacheKey);
+				if (newString == null) {
+					newString = executeParser(bean, obj, new Callable<String>() {
+						public String call() throws Exception {
+							return getStringContents(obj);
+						}
+					});
+					cacheText(cacheKey, newString);
+				}
 				if (newString != null) {
 					bean.set(this.attribute, newString);
 				}
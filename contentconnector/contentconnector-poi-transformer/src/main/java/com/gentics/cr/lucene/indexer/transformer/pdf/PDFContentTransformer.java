@@ -4,6 +4,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.Date;
+import java.util.concurrent.Callable;
 
 import org.apache.pdfbox.exceptions.CryptographyException;
 import org.apache.pdfbox.exceptions.InvalidPasswordException;
@@ -24,7 +25,6 @@ import com.gentics.cr.lucene.indexer.transformer.ContentTransformer;
  */
 public class PDFContentTransformer extends ContentTransformer {
 
-	private PDFTextStripper stripper = null;
 	private static final String TRANSFORMER_ATTRIBUTE_KEY = "attribute";
 	private String attribute = "";
 
@@ -62,11 +62,8 @@ public class PDFContentTransformer extends ContentTransformer {
 
 			//create a writer where to append the text content.
 			StringWriter writer = new StringWriter();
-			if (stripper == null) {
-				stripper = new PDFTextStripper();
-			} else {
-				stripper.resetEngine();
-			}
+			// a new stripper for every document, a parser that timed out may still use the previous one
+			PDFTextStripper stripper = new PDFTextStripper();
 			stripper.writeText(pdfDocument, writer);
 
 			// Note: the buffer to string operation is costless;
@@ -100,10 +97,19 @@ public class PDFContentTransformer extends ContentTransformer {
 	@Override
 	public void processBean(CRResolvableBean bean) throws CRException {
 		if (this.attribute != null) {
-			Object obj = bean.get(this.attribute);
+			final Object obj = bean.get(this.attribute);
 			if (obj != null) {
 				long s = new Date().getTime();
-				String newString = getStringContents(obj);
+				String cacheKey = getExtractionCacheKey(obj);
+				String newString = getCachedText(cacheKey);
+				if (newString == null) {
+					newString = executeParser(bean, obj, new Callable<String>() {
+						public String call() throws Exception {
+							return getStringContents(obj);
+						}
+					});
+					cacheText(cacheKey, newString);
+				}
 				if (newString != null) {
 					bean.set(this.attribute, newString);
 				}
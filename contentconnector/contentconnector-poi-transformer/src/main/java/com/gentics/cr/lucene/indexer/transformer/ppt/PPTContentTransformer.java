@@ -1,9 +1,11 @@
 package com.gentics.cr.lucene.indexer.transformer.ppt;
 
 import java.io.ByteArrayInputStream;
+import java.util.concurrent.Callable;
 
 import com.gentics.cr.CRResolvableBean;
 import com.gentics.cr.configuration.GenericConfiguration;
+import com.gentics.cr.exceptions.CRException;
 import com.gentics.cr.lucene.indexer.transformer.ContentTransformer;
 
 /**
@@ -44,11 +46,20 @@ public class PPTContentTransformer extends ContentTransformer {
 	}
 
 	@Override
-	public void processBean(CRResolvableBean bean) {
+	public void processBean(CRResolvableBean bean) throws CRException {
 		if (this.attribute != null) {
-			Object obj = bean.get(this.attribute);
+			final Object obj = bean.get(this.attribute);
 			if (obj != null) {
-				String newString = getStringContents(obj);
+				String cacheKey = getExtractionCacheKey(obj);
+				String newString = getCachedText(cacheKey);
+				if (newString == null) {
+					newString = executeParser(bean, obj, new Callable<String>() {
+						public String call() throws Exception {
+							return getStringContents(obj);
+						}
+					});
+					cacheText(cacheKey, newString);
+				}
 				if (newString != null) {
 					bean.set(this.attribute, newString);
 				}
@@ -2,7 +2,10 @@ package com.gentics.cr.lucene.indexer.transformer.tika;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.apache.tika.Tika;
 import org.apache.tika.exception.TikaException;
@@ -47,6 +50,16 @@ public class TikaParserTransformer extends ContentTransformer {
 
 	private static final String TRANSFORMER_DETECT_LANGUAGES_FIELD_KEY = "detectLanguages";
 
+	/**
+	 * Keys of the metadata in the extraction cache.
+	 */
+	private static final String TITLE_KEY = "title";
+	private static final String CREATED_KEY = "created";
+	private static final String MODIFIED_KEY = "modified";
+	private static final String KEYWORDS_KEY = "keywords";
+	private static final String PRINT_DATE_KEY = "printdate";
+	private static final String CONTENT_TYPE_KEY = "contenttype";
+
 	/**
 	 * Field to store the config value representing the attribute to use for parsing.
 	 */
@@ -121,72 +134,106 @@ public class TikaParserTransformer extends ContentTransformer {
 	@Override
 	public void processBean(final CRResolvableBean bean) throws CRException {
 		if (this.contentAttributeField != null) {
-			Object obj = bean.get(this.contentAttributeField);
+			final Object obj = bean.get(this.contentAttributeField);
 			if (obj != null) {
-				TikaInputStream inputStream = null;
-				if (obj instanceof byte[]) {
-					inputStream = TikaInputStream.get((byte[]) obj);
-				} else {
+				if (!(obj instanceof byte[])) {
 					throw new IllegalArgumentException("Parameter must be instance of byte[]");
 				}
-
-				ContentHandler textHandler = new BodyContentHandler(fileLengthLimit);
-				Metadata metadata = new Metadata();
-				ParseContext context = new ParseContext();
-
-				try {
-					metadata.set(Metadata.CONTENT_TYPE, tika.detect(inputStream));
-
-					parser.parse(inputStream, textHandler, metadata, context);
-
-					bean.set(headingField, metadata.get(TikaCoreProperties.TITLE));
-
-					if (bean.get(createTimestampField) == null) {
-						bean.set(createTimestampField, metadata.get(TikaCoreProperties.CREATED));
-					}
-					if (bean.get(editTimestampField) == null) {
-						bean.set(editTimestampField, metadata.get(TikaCoreProperties.MODIFIED));
-					}
-					if (bean.get(keywordsField) == null) {
-						bean.set(keywordsField, metadata.get(TikaCoreProperties.KEYWORDS));
-					}
-					if (bean.get(publishTimestampField) == null) {
-						bean.set(publishTimestampField, metadata.get(TikaCoreProperties.PRINT_DATE));
-					}
-					if (bean.get(mimetypeField) == null) {
-						//HttpHeaders.CONTENT_TYPE
-						bean.set(mimetypeField, metadata.get(Metadata.CONTENT_TYPE));
-					}
-
-					String content = prepareContent(bean, textHandler);
-					bean.set(this.targetAttributeField, content);
-
-				} catch (IOException e) {
-					LOGGER.error("Error reading inputstream from bean: " + bean.getContentid(), e);
-				} catch (SAXException e) {
-					LOGGER.error("Sax Parser Exception while reading inputstream from bean: " + bean.getContentid(), e);
-				} catch (TikaException e) {
-					LOGGER.error("Tika Parser Exception while reading inputstream  from bean: " + bean.getContentid(), e);
-				} catch (Exception e) {
-					LOGGER.error("Exception occured while indexing file at bean: " + bean.getContentid(), e);
-				} finally {
-					try {
-						if (inputStream != null) {
-							inputStream.close();
+				String cacheKey = getExtractionCacheKey(obj);
+				Map<String, String> values = getCachedExtraction(cacheKey);
+				if (values == null) {
+					values = executeParser(bean, obj, new Callable<Map<String, String>>() {
+						public Map<String, String> call() {
+							return parse(bean, (byte[]) obj);
 						}
-					} catch (IOException e) {
-						LOGGER.error("Could not close inputstream of bean: " + bean.getContentid(), e);
+					});
+					if (values != null) {
+						cacheExtraction(cacheKey, values);
 					}
 				}
+				if (values != null) {
+					setValues(bean, values);
+				}
 			}
 		} else {
 			LOGGER.error("Configured attribute is null. Bean will not be processed");
 		}
 	}
 
-	private String prepareContent(final CRResolvableBean bean, ContentHandler textHandler) {
-		String content = textHandler.toString();
+	/**
+	 * Parse the content and extract its text and metadata.
+	 * @param bean bean the content belongs to
+	 * @param content binary content
+	 * @return the extracted text and metadata, null if the content could not be parsed
+	 */
+	private Map<String, String> parse(final CRResolvableBean bean, final byte[] content) {
+		TikaInputStream inputStream = TikaInputStream.get(content);
+		ContentHandler textHandler = new BodyContentHandler(fileLengthLimit);
+		Metadata metadata = new Metadata();
+		ParseContext context = new ParseContext();
+
+		try {
+			metadata.set(Metadata.CONTENT_TYPE, tika.detect(inputStream));
+
+			parser.parse(inputStream, textHandler, metadata, context);
+
+			Map<String, String> values = new HashMap<String, String>();
+			values.put(TITLE_KEY, metadata.get(TikaCoreProperties.TITLE));
+			values.put(CREATED_KEY, metadata.get(TikaCoreProperties.CREATED));
+			values.put(MODIFIED_KEY, metadata.get(TikaCoreProperties.MODIFIED));
+			values.put(KEYWORDS_KEY, metadata.get(TikaCoreProperties.KEYWORDS));
+			values.put(PRINT_DATE_KEY, metadata.get(TikaCoreProperties.PRINT_DATE));
+			//HttpHeaders.CONTENT_TYPE
+			values.put(CONTENT_TYPE_KEY, metadata.get(Metadata.CONTENT_TYPE));
+			values.put(EXTRACTED_TEXT_KEY, textHandler.toString());
+			return values;
+		} catch (IOException e) {
+			LOGGER.error("Error reading inputstream from bean: " + bean.getContentid(), e);
+		} catch (SAXException e) {
+			LOGGER.error("Sax Parser Exception while reading inputstream from bean: " + bean.getContentid(), e);
+		} catch (TikaException e) {
+			LOGGER.error("Tika Parser Exception while reading inputstream  from bean: " + bean.getContentid(), e);
+		} catch (Exception e) {
+			LOGGER.error("Exception occured while indexing file at bean: " + bean.getContentid(), e);
+		} finally {
+			try {
+				inputStream.close();
+			} catch (IOException e) {
+				LOGGER.error("Could not close inputstream of bean: " + bean.getContentid(), e);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Set the extracted text and metadata to the bean.
+	 * @param bean bean
+	 * @param values extracted text and metadata
+	 */
+	private void setValues(final CRResolvableBean bean, final Map<String, String> values) {
+		bean.set(headingField, values.get(TITLE_KEY));
+
+		if (bean.get(createTimestampField) == null) {
+			bean.set(createTimestampField, values.get(CREATED_KEY));
+		}
+		if (bean.get(editTimestampField) == null) {
+			bean.set(editTimestampField, values.get(MODIFIED_KEY));
+		}
+		if (bean.get(keywordsField) == null) {
+			bean.set(keywordsField, values.get(KEYWORDS_KEY));
+		}
+		if (bean.get(publishTimestampField) == null) {
+			bean.set(publishTimestampField, values.get(PRINT_DATE_KEY));
+		}
+		if (bean.get(mimetypeField) == null) {
+			bean.set(mimetypeField, values.get(CONTENT_TYPE_KEY));
+		}
+
+		String content = prepareContent(bean, values.get(EXTRACTED_TEXT_KEY));
+		bean.set(this.targetAttributeField, content);
+	}
 
+	private String prepareContent(final CRResolvableBean bean, final String content) {
 		if (languageDetection) {
 			String languageCode = bean.getString("languagecode");
 			if (languageCode == null || languageCode.equals("")) {
@@ -6,16 +6,22 @@ import org.apache.poi.util.IOUtils;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.gentics.cr.CRResolvableBean;
 import com.gentics.cr.configuration.GenericConfiguration;
 import com.gentics.cr.lucene.indexer.transformer.AbstractTransformerTest;
 import com.gentics.cr.lucene.indexer.transformer.ContentTransformer;
+import com.gentics.cr.lucene.indexer.transformer.ExtractionCache;
 import com.gentics.cr.lucene.indexer.transformer.pdf.PDFContentTransformer;
 import com.gentics.cr.lucene.indexer.transformer.test.TUtil;
 
 public class PDFContentTransformerTest extends AbstractTransformerTest {
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
 	CRResolvableBean bean;
 	GenericConfiguration config;
 
@@ -40,6 +46,22 @@ public class PDFContentTransformerTest extends AbstractTransformerTest {
 		Assert.assertEquals("The content (" + s + ") should be (" + x + ")", x, s);
 	}
 
+	@Test
+	public void testExtractionCache() throws Exception {
+		config.set(ContentTransformer.EXTRACTION_CACHE_KEY, testFolder.getRoot().getPath());
+		ExtractionCache cache = ExtractionCache.getInstance(testFolder.getRoot(), 1024 * 1024);
+		ContentTransformer t = new PDFContentTransformer(config);
+		byte[] content = (byte[]) bean.get("binarycontent");
+		t.processBean(bean);
+
+		CRResolvableBean cachedBean = new CRResolvableBean();
+		cachedBean.set("binarycontent", content);
+		t.processBean(cachedBean);
+		Assert.assertEquals(bean.get("binarycontent"), cachedBean.get("binarycontent"));
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+	}
+
 	@After
 	public void tearDown() throws Exception {
 